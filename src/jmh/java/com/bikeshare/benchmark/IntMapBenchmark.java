@@ -0,0 +1,118 @@
+package com.bikeshare.benchmark;
+
+import com.bikeshare.util.IntObjectHashMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * IntObjectHashMap against the ConcurrentHashMaps it replaced, keyed by boxed handles and by
+ * string IDs, at repository scale. Measures random lookups and in-place updates of existing
+ * keys; the retained heap per entry is printed once the map is populated. The string keys
+ * exist before the baseline is taken, as they do in the registry, so only map overhead counts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "-XX:+UseParallelGC"})
+@State(Scope.Benchmark)
+public class IntMapBenchmark {
+    
+    private static final int LOOKUP_KEYS = 1 << 16;
+    
+    @Param({"1000000", "5000000"})
+    private int size;
+    
+    @Param({"IntObjectHashMap", "ConcurrentHashMap<Integer>", "ConcurrentHashMap<String>"})
+    private String map;
+    
+    private String[] ids;
+    private int[] lookupKeys;
+    private int next;
+    // Bound once per trial so the measured calls only differ in the map behind them
+    private IntFunction<Object> lookup;
+    private IntFunction<Object> update;
+    
+    @Setup(Level.Trial)
+    public void populate() {
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = "B" + i;
+        }
+        lookupKeys = new SplittableRandom(42).ints(LOOKUP_KEYS, 0, size).toArray();
+        
+        Object value = new Object();
+        long before = retainedHeap();
+        switch (map) {
+            case "IntObjectHashMap" -> {
+                IntObjectHashMap<Object> intMap = new IntObjectHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    intMap.put(i, value);
+                }
+                lookup = intMap::get;
+                update = key -> intMap.compute(key, (k, current) -> current);
+            }
+            case "ConcurrentHashMap<Integer>" -> {
+                Map<Integer, Object> boxedMap = new ConcurrentHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    boxedMap.put(i, value);
+                }
+                lookup = boxedMap::get;
+                update = key -> boxedMap.compute(key, (k, current) -> current);
+            }
+            case "ConcurrentHashMap<String>" -> {
+                Map<String, Object> stringMap = new ConcurrentHashMap<>();
+                for (String id : ids) {
+                    stringMap.put(id, value);
+                }
+                lookup = key -> stringMap.get(ids[key]);
+                update = key -> stringMap.compute(ids[key], (k, current) -> current);
+            }
+            default -> throw new IllegalArgumentException("Unknown map: " + map);
+        }
+        long retained = retainedHeap() - before;
+        System.out.printf("%n%s with %,d entries: %.1f bytes/entry retained%n",
+                map, size, (double) retained / size);
+    }
+    
+    @Benchmark
+    public Object lookup() {
+        return lookup.apply(nextKey());
+    }
+    
+    @Benchmark
+    public Object update() {
+        return update.apply(nextKey());
+    }
+    
+    private int nextKey() {
+        return lookupKeys[next++ & (LOOKUP_KEYS - 1)];
+    }
+    
+    /**
+     * Heap still in use after a full collection, read from the pools' post-collection usage so
+     * allocation since the collection does not count.
+     */
+    private static long retainedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterCollection = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && afterCollection != null) {
+                used += afterCollection.getUsed();
+            }
+        }
+        return used;
+    }
+}
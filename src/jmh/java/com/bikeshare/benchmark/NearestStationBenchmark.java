@@ -0,0 +1,59 @@
+package com.bikeshare.benchmark;
+
+import com.bikeshare.model.Station;
+import com.bikeshare.web.InMemoryStationRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-station lookups against a city-sized area (about 20 x 20 km around Sundsvall)
+ * with randomly placed stations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NearestStationBenchmark {
+    
+    private static final double MIN_LAT = 62.30;
+    private static final double MIN_LON = 17.10;
+    private static final double SPAN_LAT = 0.18;
+    private static final double SPAN_LON = 0.40;
+    
+    @Param({"100", "10000", "100000"})
+    private int stationCount;
+    
+    @Param({"1.0", "5.0"})
+    private double maxDistanceKm;
+    
+    private InMemoryStationRepository repository;
+    
+    @Setup(Level.Trial)
+    public void populate() {
+        Random random = new Random(42);
+        List<Station> stations = new ArrayList<>(stationCount);
+        for (int i = 0; i < stationCount; i++) {
+            stations.add(new Station("S" + i, "Station " + i, "",
+                    MIN_LAT + random.nextDouble() * SPAN_LAT,
+                    MIN_LON + random.nextDouble() * SPAN_LON, 20));
+        }
+        repository = new InMemoryStationRepository();
+        repository.saveAll(stations);
+    }
+    
+    @Benchmark
+    public List<Station> findNearestStations() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return repository.findNearestStations(
+                MIN_LAT + random.nextDouble() * SPAN_LAT,
+                MIN_LON + random.nextDouble() * SPAN_LON,
+                maxDistanceKm, 10);
+    }
+}
@@ -0,0 +1,51 @@
+package com.bikeshare.benchmark;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of completing a ride, i.e. validation plus price calculation, per bike and membership type.
+ * A single completion is far below the timer resolution, so each invocation completes a batch of
+ * fresh rides created outside the measured section, and results are reported per ride.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RideCostBenchmark {
+    
+    private static final int BATCH = 1024;
+    
+    @Param({"STANDARD", "ELECTRIC", "PREMIUM"})
+    private Bike.BikeType bikeType;
+    
+    @Param({"BASIC", "PREMIUM", "STUDENT"})
+    private User.MembershipType membershipType;
+    
+    private final Ride[] rides = new Ride[BATCH];
+    private int sequence;
+    
+    @Setup(Level.Invocation)
+    public void newRides() {
+        for (int i = 0; i < BATCH; i++) {
+            rides[i] = new Ride("R" + sequence++, "U1", "B1", "S1");
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public double complete() {
+        double total = 0;
+        for (Ride ride : rides) {
+            ride.complete("S2", 4.2, bikeType, membershipType, 0.1);
+            total += ride.getFinalCost();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,91 @@
+package com.bikeshare.benchmark;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+import com.bikeshare.web.InMemoryRideRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query costs of InMemoryRideRepository as the number of stored rides grows.
+ * Roughly 1 in 20 rides is left active; the rest are completed.
+ * The default sizes fit the 2 GB fork heap (1M rides take about 250 MB). The 10M case is not
+ * run by default; run it explicitly with {@code -p rideCount=10000000 -jvmArgsAppend -Xmx12g}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class RideRepositoryBenchmark {
+    
+    private static final int USERS = 50_000;
+    private static final int BIKES = 20_000;
+    private static final int STATIONS = 500;
+    
+    @Param({"10000", "1000000"})
+    private int rideCount;
+    
+    private InMemoryRideRepository repository;
+    private LocalDateTime windowStart;
+    
+    @Setup(Level.Trial)
+    public void populate() {
+        repository = new InMemoryRideRepository();
+        windowStart = LocalDateTime.now().minusSeconds(1);
+        for (int i = 0; i < rideCount; i++) {
+            Ride ride = new Ride("R" + i, "U" + (i % USERS), "B" + (i % BIKES), "S" + (i % STATIONS));
+            if (i % 20 != 0) {
+                ride.complete("S" + ((i * 7) % STATIONS), 3.5, Bike.BikeType.STANDARD,
+                        User.MembershipType.BASIC, 0.0);
+            }
+            repository.save(ride);
+        }
+    }
+    
+    @Benchmark
+    public List<Ride> findByUserId() {
+        return repository.findByUserId(randomId("U", USERS));
+    }
+    
+    @Benchmark
+    public List<Ride> findByStartStationId() {
+        return repository.findByStartStationId(randomId("S", STATIONS));
+    }
+    
+    @Benchmark
+    public Optional<Ride> findActiveRideByBikeId() {
+        return repository.findActiveRideByBikeId(randomId("B", BIKES));
+    }
+    
+    @Benchmark
+    public List<Ride> findRidesBetweenFirstPage() {
+        return repository.findRidesBetween(windowStart, LocalDateTime.now().plusDays(1), 0, 50);
+    }
+    
+    @Benchmark
+    public Optional<Ride> findById() {
+        return repository.findById("R" + ThreadLocalRandom.current().nextInt(rideCount));
+    }
+    
+    @Benchmark
+    public double calculateTotalRevenue() {
+        return repository.calculateTotalRevenue();
+    }
+    
+    @Benchmark
+    public long countActiveRides() {
+        return repository.countActiveRides();
+    }
+    
+    private static String randomId(String prefix, int bound) {
+        return prefix + ThreadLocalRandom.current().nextInt(bound);
+    }
+}
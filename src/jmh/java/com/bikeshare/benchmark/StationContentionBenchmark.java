@@ -0,0 +1,92 @@
+package com.bikeshare.benchmark;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Station;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Station mutations and reads under contention: docking threads add and remove their own
+ * bikes, reserving threads reserve and release, and readers poll availability concurrently.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StationContentionBenchmark {
+    
+    private static final int BIKES_PER_THREAD = 8;
+    
+    @State(Scope.Group)
+    public static class SharedStation {
+        Station station;
+        
+        @Setup(Level.Iteration)
+        public void setUp() {
+            station = new Station("S1", "Benchmark Station", "Storgatan 1", 62.39, 17.30, 100);
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class OwnBikes {
+        Bike[] bikes;
+        int next;
+        
+        @Setup(Level.Iteration)
+        public void setUp(ThreadParams threads) {
+            bikes = new Bike[BIKES_PER_THREAD];
+            for (int i = 0; i < bikes.length; i++) {
+                Bike.BikeType type = i % 2 == 0 ? Bike.BikeType.STANDARD : Bike.BikeType.ELECTRIC;
+                bikes[i] = new Bike("T" + threads.getThreadIndex() + "-" + i, type);
+            }
+        }
+        
+        Bike nextBike() {
+            Bike bike = bikes[next];
+            next = (next + 1) % bikes.length;
+            return bike;
+        }
+    }
+    
+    @Benchmark
+    @Group("dockAndRead")
+    @GroupThreads(3)
+    public Bike dockUndock(SharedStation shared, OwnBikes own) {
+        Bike bike = own.nextBike();
+        shared.station.addBike(bike);
+        return shared.station.removeBike(bike.getBikeId());
+    }
+    
+    @Benchmark
+    @Group("dockAndRead")
+    @GroupThreads(1)
+    public Station.Availability readAvailability(SharedStation shared) {
+        return shared.station.getAvailability();
+    }
+    
+    @Benchmark
+    @Group("reserveAndRead")
+    @GroupThreads(3)
+    public Bike reserveRelease(SharedStation shared, OwnBikes own) {
+        Bike bike = own.nextBike();
+        Station station = shared.station;
+        station.addBike(bike);
+        station.reserveBike(bike.getBikeId());
+        station.cancelReservation(bike.getBikeId());
+        Bike removed = station.removeBike(bike.getBikeId());
+        // cancelReservation leaves the bike RESERVED; put it back in service for the next round
+        removed.startRide();
+        removed.endRide(0.0);
+        return removed;
+    }
+    
+    @Benchmark
+    @Group("reserveAndRead")
+    @GroupThreads(1)
+    public Bike findAvailableBike(SharedStation shared) {
+        return shared.station.getAvailableBike(Bike.BikeType.ELECTRIC);
+    }
+}
@@ -1,7 +1,9 @@
 package com.bikeshare.model;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Represents a bike in the bike sharing system.
@@ -43,15 +45,17 @@ public class Bike {
     }
     
     private final String bikeId;
+    private final int handle;
     private BikeStatus status;
     private BikeType type;
-    private String currentStationId;
+    private int currentStationHandle = IdRegistry.NONE;
     private double batteryLevel; // 0-100 for electric bikes, -1 for non-electric
     private int totalRides;
     private double totalDistance; // in kilometers
     private LocalDateTime lastMaintenanceDate;
     private LocalDateTime lastUsedDate;
     private boolean needsMaintenance;
+    private final List<BikeListener> listeners = new CopyOnWriteArrayList<>();
     
     public Bike(String bikeId, BikeType type) {
         if (bikeId == null || bikeId.trim().isEmpty()) {
@@ -61,7 +65,8 @@ public class Bike {
             throw new IllegalArgumentException("Bike type cannot be null");
         }
         
-        this.bikeId = bikeId.trim();
+        this.handle = IdRegistry.BIKES.intern(bikeId.trim());
+        this.bikeId = IdRegistry.BIKES.id(handle);
         this.type = type;
         this.status = BikeStatus.AVAILABLE;
         this.batteryLevel = type == BikeType.ELECTRIC ? 100.0 : -1.0;
@@ -82,6 +87,7 @@ public class Bike {
             throw new IllegalStateException("Cannot reserve bike in status: " + status);
         }
         this.status = BikeStatus.RESERVED;
+        fireStateChanged();
     }
     
     /**
@@ -98,6 +104,7 @@ public class Bike {
         
         this.status = BikeStatus.IN_USE;
         this.lastUsedDate = LocalDateTime.now();
+        fireStateChanged();
     }
     
     /**
@@ -126,6 +133,7 @@ public class Bike {
         
         // Check if maintenance is needed
         checkMaintenanceRequirement();
+        fireStateChanged();
     }
     
     /**
@@ -136,6 +144,7 @@ public class Bike {
             throw new IllegalStateException("Cannot send bike to maintenance while in use");
         }
         this.status = BikeStatus.MAINTENANCE;
+        fireStateChanged();
     }
     
     /**
@@ -154,6 +163,7 @@ public class Bike {
         if (type == BikeType.ELECTRIC) {
             this.batteryLevel = 100.0;
         }
+        fireStateChanged();
     }
     
     /**
@@ -162,6 +172,7 @@ public class Bike {
     public void markAsBroken() {
         this.status = BikeStatus.BROKEN;
         this.needsMaintenance = true;
+        fireStateChanged();
     }
     
     /**
@@ -179,6 +190,31 @@ public class Bike {
         this.batteryLevel = Math.min(100.0, batteryLevel + chargeAmount);
     }
     
+    /**
+     * Registers a listener for state changes of this bike.
+     * @param listener the listener to add
+     */
+    public void addListener(BikeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+    
+    /**
+     * Unregisters a previously added listener.
+     * @param listener the listener to remove
+     */
+    public void removeListener(BikeListener listener) {
+        listeners.remove(listener);
+    }
+    
+    private void fireStateChanged() {
+        for (BikeListener listener : listeners) {
+            listener.bikeStateChanged(this);
+        }
+    }
+    
     // Helper method for maintenance logic
     private void checkMaintenanceRequirement() {
         // Maintenance needed every 100 rides or 1000km
@@ -192,11 +228,53 @@ public class Bike {
         }
     }
     
+    // Persistence State
+    
+    /**
+     * Persistent state of a bike, as stored by durable repositories.
+     */
+    public record Snapshot(String bikeId, BikeType type, BikeStatus status, String currentStationId,
+                           double batteryLevel, int totalRides, double totalDistance,
+                           LocalDateTime lastMaintenanceDate, LocalDateTime lastUsedDate,
+                           boolean needsMaintenance) {
+    }
+    
+    /**
+     * Captures the bike's persistent state.
+     * @return snapshot of the bike
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(bikeId, type, status, getCurrentStationId(), batteryLevel, totalRides,
+                totalDistance, lastMaintenanceDate, lastUsedDate, needsMaintenance);
+    }
+    
+    /**
+     * Recreates a bike from previously captured state without replaying its transitions.
+     * @param snapshot the stored state
+     * @return bike in the stored state, with no listeners
+     */
+    public static Bike restore(Snapshot snapshot) {
+        Bike bike = new Bike(snapshot.bikeId(), snapshot.type());
+        bike.status = snapshot.status();
+        bike.currentStationHandle = IdRegistry.STATIONS.intern(snapshot.currentStationId());
+        bike.batteryLevel = snapshot.batteryLevel();
+        bike.totalRides = snapshot.totalRides();
+        bike.totalDistance = snapshot.totalDistance();
+        bike.lastMaintenanceDate = snapshot.lastMaintenanceDate();
+        bike.lastUsedDate = snapshot.lastUsedDate();
+        bike.needsMaintenance = snapshot.needsMaintenance();
+        return bike;
+    }
+    
     // Getters
     public String getBikeId() {
         return bikeId;
     }
     
+    public int getHandle() {
+        return handle;
+    }
+    
     public BikeStatus getStatus() {
         return status;
     }
@@ -206,11 +284,35 @@ public class Bike {
     }
     
     public String getCurrentStationId() {
-        return currentStationId;
+        return IdRegistry.STATIONS.id(currentStationHandle);
     }
     
+    /**
+     * Gets the handle of the station the bike is docked at.
+     * @return the handle, or {@link IdRegistry#NONE} if the bike is not at a station
+     */
+    public int getCurrentStationHandle() {
+        return currentStationHandle;
+    }
+    
+    /**
+     * Moves the bike to a station, or off any station.
+     * @param currentStationId the ID of an existing station, or null
+     * @throws IllegalArgumentException if no station with that ID has been created
+     */
     public void setCurrentStationId(String currentStationId) {
-        this.currentStationId = currentStationId;
+        int stationHandle = IdRegistry.STATIONS.find(currentStationId);
+        if (currentStationId != null && stationHandle == IdRegistry.NONE) {
+            throw new IllegalArgumentException("Unknown station: " + currentStationId);
+        }
+        int previousStationHandle = this.currentStationHandle;
+        this.currentStationHandle = stationHandle;
+        if (previousStationHandle != currentStationHandle) {
+            String previousStationId = IdRegistry.STATIONS.id(previousStationHandle);
+            for (BikeListener listener : listeners) {
+                listener.bikeStationChanged(this, previousStationId);
+            }
+        }
     }
     
     public double getBatteryLevel() {
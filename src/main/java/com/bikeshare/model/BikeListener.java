@@ -0,0 +1,23 @@
+package com.bikeshare.model;
+
+/**
+ * Callback for components that keep derived state about bikes, such as the station a bike is
+ * docked at. Listeners are invoked synchronously on the thread that changed the bike.
+ */
+public interface BikeListener {
+    
+    /**
+     * Called after the bike's status or maintenance flag changed, which may change
+     * {@link Bike#isAvailable()}.
+     * @param bike the bike that changed
+     */
+    void bikeStateChanged(Bike bike);
+    
+    /**
+     * Called after the bike was docked at, moved to or undocked from a station.
+     * @param bike the bike that moved (its current station ID may be null)
+     * @param previousStationId the station the bike was at before (may be null)
+     */
+    default void bikeStationChanged(Bike bike, String previousStationId) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.bikeshare.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns external string IDs as compact int handles.
+ * <p>
+ * There is one registry per kind of entity. A handle is assigned the first time an ID is
+ * seen and stays valid for the lifetime of the JVM, so models can store handles instead
+ * of their own copies of the ID string, and indexes can be keyed by int. Decoding a handle
+ * always returns the same String instance. Handles are dense, starting at 0, and are never
+ * freed.
+ * <p>
+ * Stations, bikes and users intern their own ID when created, and rides intern the IDs they
+ * reference, which the services check against the repositories first. Lookups use
+ * {@link #find}, so querying for an unknown ID registers nothing. The registry therefore grows
+ * with the number of distinct stations, bikes and users, not with the number of rides or
+ * queries, as long as code does not create entities under throwaway IDs.
+ */
+public final class IdRegistry {
+    
+    /** Handle standing for "no ID", e.g. the end station of a ride that has not ended. */
+    public static final int NONE = -1;
+    
+    public static final IdRegistry STATIONS = new IdRegistry("station");
+    public static final IdRegistry BIKES = new IdRegistry("bike");
+    public static final IdRegistry USERS = new IdRegistry("user");
+    
+    private final String kind;
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+    private volatile String[] ids = new String[64];
+    private int size;
+    
+    private IdRegistry(String kind) {
+        this.kind = kind;
+    }
+    
+    /**
+     * Gets the handle of an ID, assigning a new one if the ID has not been seen yet.
+     * @param id the external ID
+     * @return the handle, or {@link #NONE} if the ID is null
+     */
+    public int intern(String id) {
+        if (id == null) {
+            return NONE;
+        }
+        Integer handle = handles.get(id);
+        return handle != null ? handle : register(id);
+    }
+    
+    /**
+     * Gets the handle of an ID without assigning one.
+     * @param id the external ID
+     * @return the handle, or {@link #NONE} if the ID is null or has never been interned
+     */
+    public int find(String id) {
+        if (id == null) {
+            return NONE;
+        }
+        Integer handle = handles.get(id);
+        return handle != null ? handle : NONE;
+    }
+    
+    /**
+     * Gets the ID a handle stands for.
+     * @param handle a handle returned by this registry, or {@link #NONE}
+     * @return the canonical ID string, or null for {@link #NONE}
+     * @throws IllegalArgumentException if the handle was not issued by this registry
+     */
+    public String id(int handle) {
+        if (handle == NONE) {
+            return null;
+        }
+        String[] current = ids;
+        String id = handle >= 0 && handle < current.length ? current[handle] : null;
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown " + kind + " handle: " + handle);
+        }
+        return id;
+    }
+    
+    /**
+     * Gets the number of IDs interned so far; all handles are below this value.
+     * @return the number of handles issued
+     */
+    public synchronized int size() {
+        return size;
+    }
+    
+    private synchronized int register(String id) {
+        Integer existing = handles.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        int handle = size;
+        if (handle == ids.length) {
+            ids = Arrays.copyOf(ids, handle * 2);
+        }
+        // Publish the string before the handle, so whoever sees the handle can decode it
+        ids[handle] = id;
+        size++;
+        handles.put(id, handle);
+        return handle;
+    }
+}
@@ -21,11 +21,12 @@ public class Ride {
     }
     
     private final String rideId;
-    private final String userId;
-    private final String bikeId;
-    private final String startStationId;
+    // References to other entities are stored as IdRegistry handles
+    private final int userHandle;
+    private final int bikeHandle;
+    private final int startStationHandle;
     
-    private String endStationId;
+    private int endStationHandle = IdRegistry.NONE;
     private RideStatus status;
     private LocalDateTime startTime;
     private LocalDateTime endTime;
@@ -55,9 +56,9 @@ public class Ride {
         }
         
         this.rideId = rideId.trim();
-        this.userId = userId.trim();
-        this.bikeId = bikeId.trim();
-        this.startStationId = startStationId.trim();
+        this.userHandle = IdRegistry.USERS.intern(userId.trim());
+        this.bikeHandle = IdRegistry.BIKES.intern(bikeId.trim());
+        this.startStationHandle = IdRegistry.STATIONS.intern(startStationId.trim());
         
         this.status = RideStatus.ACTIVE;
         this.startTime = LocalDateTime.now();
@@ -142,7 +143,7 @@ public class Ride {
         }
         
         this.endTime = LocalDateTime.now();
-        this.endStationId = endStationId.trim();
+        this.endStationHandle = IdRegistry.STATIONS.intern(endStationId.trim());
         this.distance = distance;
         this.membershipType = membershipType;
         this.discount = userDiscount;
@@ -310,6 +311,53 @@ public class Ride {
         }
     }
     
+    // Persistence State
+    
+    /**
+     * Persistent state of a ride, as stored by durable repositories.
+     */
+    public record Snapshot(String rideId, String userId, String bikeId, String startStationId,
+                           String endStationId, RideStatus status, LocalDateTime startTime,
+                           LocalDateTime endTime, LocalDateTime pauseStartTime, long totalPausedMinutes,
+                           double distance, double baseCost, double additionalCost, double discount,
+                           double finalCost, User.MembershipType membershipType,
+                           boolean freeMinutesUsed, String notes) {
+    }
+    
+    /**
+     * Captures the ride's persistent state.
+     * @return snapshot of the ride
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(rideId, getUserId(), getBikeId(), getStartStationId(), getEndStationId(),
+                status, startTime, endTime, pauseStartTime, totalPausedMinutes, distance, baseCost,
+                additionalCost, discount, finalCost, membershipType, freeMinutesUsed, notes);
+    }
+    
+    /**
+     * Recreates a ride from previously captured state without recalculating costs.
+     * @param snapshot the stored state
+     * @return ride in the stored state
+     */
+    public static Ride restore(Snapshot snapshot) {
+        Ride ride = new Ride(snapshot.rideId(), snapshot.userId(), snapshot.bikeId(), snapshot.startStationId());
+        ride.endStationHandle = IdRegistry.STATIONS.intern(snapshot.endStationId());
+        ride.status = snapshot.status();
+        ride.startTime = snapshot.startTime();
+        ride.endTime = snapshot.endTime();
+        ride.pauseStartTime = snapshot.pauseStartTime();
+        ride.totalPausedMinutes = snapshot.totalPausedMinutes();
+        ride.distance = snapshot.distance();
+        ride.baseCost = snapshot.baseCost();
+        ride.additionalCost = snapshot.additionalCost();
+        ride.discount = snapshot.discount();
+        ride.finalCost = snapshot.finalCost();
+        ride.membershipType = snapshot.membershipType();
+        ride.freeMinutesUsed = snapshot.freeMinutesUsed();
+        ride.notes = snapshot.notes();
+        return ride;
+    }
+    
     // Getters and Setters
     
     public String getRideId() {
@@ -317,19 +365,39 @@ public class Ride {
     }
     
     public String getUserId() {
-        return userId;
+        return IdRegistry.USERS.id(userHandle);
+    }
+    
+    public int getUserHandle() {
+        return userHandle;
     }
     
     public String getBikeId() {
-        return bikeId;
+        return IdRegistry.BIKES.id(bikeHandle);
+    }
+    
+    public int getBikeHandle() {
+        return bikeHandle;
     }
     
     public String getStartStationId() {
-        return startStationId;
+        return IdRegistry.STATIONS.id(startStationHandle);
+    }
+    
+    public int getStartStationHandle() {
+        return startStationHandle;
     }
     
     public String getEndStationId() {
-        return endStationId;
+        return IdRegistry.STATIONS.id(endStationHandle);
+    }
+    
+    /**
+     * Gets the handle of the end station.
+     * @return the handle, or {@link IdRegistry#NONE} while the ride has not ended
+     */
+    public int getEndStationHandle() {
+        return endStationHandle;
     }
     
     public RideStatus getStatus() {
@@ -400,6 +468,6 @@ public class Ride {
     @Override
     public String toString() {
         return String.format("Ride{id='%s', user='%s', bike='%s', status=%s, duration=%d min}", 
-                rideId, userId, bikeId, status, getActiveMinutes());
+                rideId, getUserId(), getBikeId(), status, getActiveMinutes());
     }
 }
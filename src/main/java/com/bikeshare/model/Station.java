@@ -2,6 +2,11 @@ package com.bikeshare.model;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
 
 /**
  * Represents a bike station in the bike sharing system.
@@ -9,6 +14,21 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Collections and threading (Lab 5 - CI/CD considerations)
  * - Capacity management (Lab 2 - boundary testing)
  * - Concurrent operations (Lab 6 - sustainability/performance)
+ * Rentable bikes are tracked per type as docked bikes change, so availability counts,
+ * status updates and "give me a bike of this type" do not scan the docked bikes.
+ * <p>
+ * Concurrency: docking, undocking, reservations and status changes take the write side of a
+ * StampedLock so their check-then-act sequences stay atomic. Everything else never blocks:
+ * the bike collections are concurrent, counters and the status are atomic, other fields are
+ * volatile, and {@link #getAvailability()} uses an optimistic read to return a consistent
+ * snapshot. The per-bike availability refresh and the derived EMPTY/FULL/ACTIVE status are
+ * updated lock-free, re-checking until they agree with a fresh read, since bikes call back into
+ * the station while a writer may already hold the (non-reentrant) lock. Bike state changes the
+ * station initiates, such as reserving, happen after the lock is released, so availability
+ * listeners that read the station never run under it.
+ * <p>
+ * Registered {@link StationListener}s are told about every change that can move the
+ * availability, including changes made by docked bikes themselves.
  */
 public class Station {
     
@@ -21,18 +41,29 @@ public class Station {
     }
     
     private final String stationId;
+    private final int handle;
     private final String name;
     private final String address;
     private final double latitude;
     private final double longitude;
     private final int capacity;
     
-    private StationStatus status;
+    private final StampedLock lock = new StampedLock();
+    private final AtomicReference<StationStatus> status;
     private final Map<String, Bike> availableBikes;
     private final Set<String> reservedBikeIds;
+    // Docked bikes that can be rented right now (available and not reserved), per type
+    private final Map<Bike.BikeType, Set<String>> freeBikesByType;
+    private final AtomicInteger freeBikeCount = new AtomicInteger();
+    private final BikeListener dockListener = bike -> {
+        refreshAvailability(bike);
+        updateStationStatus();
+        fireAvailabilityChanged();
+    };
+    private final List<StationListener> listeners = new CopyOnWriteArrayList<>();
     private int totalDocks;
-    private boolean chargingAvailable;
-    private double chargingRate; // per hour
+    private volatile boolean chargingAvailable;
+    private volatile double chargingRate; // per hour
     
     public Station(String stationId, String name, String address, 
                    double latitude, double longitude, int capacity) {
@@ -52,7 +83,8 @@ public class Station {
             throw new IllegalArgumentException("Invalid coordinates");
         }
         
-        this.stationId = stationId.trim();
+        this.handle = IdRegistry.STATIONS.intern(stationId.trim());
+        this.stationId = IdRegistry.STATIONS.id(handle);
         this.name = name.trim();
         this.address = address != null ? address.trim() : "";
         this.latitude = latitude;
@@ -60,9 +92,13 @@ public class Station {
         this.capacity = capacity;
         this.totalDocks = capacity;
         
-        this.status = StationStatus.ACTIVE;
+        this.status = new AtomicReference<>(StationStatus.ACTIVE);
         this.availableBikes = new ConcurrentHashMap<>();
         this.reservedBikeIds = ConcurrentHashMap.newKeySet();
+        this.freeBikesByType = new EnumMap<>(Bike.BikeType.class);
+        for (Bike.BikeType type : Bike.BikeType.values()) {
+            freeBikesByType.put(type, ConcurrentHashMap.newKeySet());
+        }
         this.chargingAvailable = false;
         this.chargingRate = 0.0;
     }
@@ -75,11 +111,21 @@ public class Station {
      * @throws IllegalArgumentException if bike is null
      * @throws IllegalStateException if station is full or bike is not available
      */
-    public synchronized void addBike(Bike bike) {
+    public void addBike(Bike bike) {
         if (bike == null) {
             throw new IllegalArgumentException("Bike cannot be null");
         }
-        if (status == StationStatus.INACTIVE) {
+        long stamp = lock.writeLock();
+        try {
+            dock(bike);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        fireAvailabilityChanged();
+    }
+    
+    private void dock(Bike bike) {
+        if (status.get() == StationStatus.INACTIVE) {
             throw new IllegalStateException("Cannot add bike to inactive station");
         }
         if (isFull()) {
@@ -94,6 +140,8 @@ public class Station {
         
         availableBikes.put(bike.getBikeId(), bike);
         bike.setCurrentStationId(this.stationId);
+        bike.addListener(dockListener);
+        refreshAvailability(bike);
         updateStationStatus();
     }
     
@@ -104,10 +152,22 @@ public class Station {
      * @throws IllegalArgumentException if bike ID is null
      * @throws IllegalStateException if bike is not at station or is reserved
      */
-    public synchronized Bike removeBike(String bikeId) {
+    public Bike removeBike(String bikeId) {
         if (bikeId == null) {
             throw new IllegalArgumentException("Bike ID cannot be null");
         }
+        Bike bike;
+        long stamp = lock.writeLock();
+        try {
+            bike = undock(bikeId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        fireAvailabilityChanged();
+        return bike;
+    }
+    
+    private Bike undock(String bikeId) {
         if (!availableBikes.containsKey(bikeId)) {
             throw new IllegalStateException("Bike not found at this station");
         }
@@ -116,6 +176,10 @@ public class Station {
         }
         
         Bike bike = availableBikes.remove(bikeId);
+        bike.removeListener(dockListener);
+        if (freeBikesByType.get(bike.getType()).remove(bikeId)) {
+            freeBikeCount.decrementAndGet();
+        }
         bike.setCurrentStationId(null);
         updateStationStatus();
         
@@ -128,20 +192,41 @@ public class Station {
      * @throws IllegalArgumentException if bike ID is null
      * @throws IllegalStateException if bike is not available at station
      */
-    public synchronized void reserveBike(String bikeId) {
+    public void reserveBike(String bikeId) {
         if (bikeId == null) {
             throw new IllegalArgumentException("Bike ID cannot be null");
         }
-        if (!availableBikes.containsKey(bikeId)) {
-            throw new IllegalStateException("Bike not available at this station");
+        Bike bike;
+        long stamp = lock.writeLock();
+        try {
+            if (!availableBikes.containsKey(bikeId)) {
+                throw new IllegalStateException("Bike not available at this station");
+            }
+            if (reservedBikeIds.contains(bikeId)) {
+                throw new IllegalStateException("Bike already reserved");
+            }
+            
+            bike = availableBikes.get(bikeId);
+            reservedBikeIds.add(bikeId);
+            refreshAvailability(bike);
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        if (reservedBikeIds.contains(bikeId)) {
-            throw new IllegalStateException("Bike already reserved");
+        // The bike notifies its listeners, including the dock listener, so change it unlocked;
+        // the reservation already keeps it from being undocked or handed out meanwhile
+        try {
+            bike.reserve();
+        } catch (RuntimeException e) {
+            stamp = lock.writeLock();
+            try {
+                reservedBikeIds.remove(bikeId);
+                refreshAvailability(bike);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            throw e;
         }
-        
-        Bike bike = availableBikes.get(bikeId);
-        bike.reserve();
-        reservedBikeIds.add(bikeId);
+        fireAvailabilityChanged();
     }
     
     /**
@@ -150,42 +235,51 @@ public class Station {
      * @throws IllegalArgumentException if bike ID is null
      * @throws IllegalStateException if bike is not reserved
      */
-    public synchronized void cancelReservation(String bikeId) {
+    public void cancelReservation(String bikeId) {
         if (bikeId == null) {
             throw new IllegalArgumentException("Bike ID cannot be null");
         }
-        if (!reservedBikeIds.contains(bikeId)) {
-            throw new IllegalStateException("Bike is not reserved");
+        long stamp = lock.writeLock();
+        try {
+            if (!reservedBikeIds.contains(bikeId)) {
+                throw new IllegalStateException("Bike is not reserved");
+            }
+            
+            reservedBikeIds.remove(bikeId);
+            // Note: Bike status change handled by bike itself
+            Bike bike = availableBikes.get(bikeId);
+            if (bike != null) {
+                refreshAvailability(bike);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        
-        reservedBikeIds.remove(bikeId);
-        // Note: Bike status change handled by bike itself
+        fireAvailabilityChanged();
     }
     
     /**
      * Gets an available bike of the specified type.
+     * Lock-free: a bike returned here may be taken concurrently, which removeBike detects.
      * @param preferredType preferred bike type (null for any)
      * @return available bike or null if none found
      */
-    public synchronized Bike getAvailableBike(Bike.BikeType preferredType) {
-        if (status != StationStatus.ACTIVE) {
+    public Bike getAvailableBike(Bike.BikeType preferredType) {
+        if (status.get() != StationStatus.ACTIVE) {
             return null;
         }
         
         // First try to find preferred type
         if (preferredType != null) {
-            for (Bike bike : availableBikes.values()) {
-                if (bike.getType() == preferredType && 
-                    bike.isAvailable() && 
-                    !reservedBikeIds.contains(bike.getBikeId())) {
-                    return bike;
-                }
+            Bike bike = firstFreeBike(preferredType);
+            if (bike != null) {
+                return bike;
             }
         }
         
         // If no preferred type found, return any available bike
-        for (Bike bike : availableBikes.values()) {
-            if (bike.isAvailable() && !reservedBikeIds.contains(bike.getBikeId())) {
+        for (Bike.BikeType type : Bike.BikeType.values()) {
+            Bike bike = firstFreeBike(type);
+            if (bike != null) {
                 return bike;
             }
         }
@@ -207,11 +301,26 @@ public class Station {
      * @return list of available bikes of the specified type
      */
     public List<Bike> getAvailableBikesByType(Bike.BikeType bikeType) {
-        return availableBikes.values().stream()
-            .filter(bike -> bike.getType() == bikeType)
-            .filter(bike -> bike.isAvailable())
-            .filter(bike -> !reservedBikeIds.contains(bike.getBikeId()))
-            .toList();
+        if (bikeType == null) {
+            return List.of();
+        }
+        List<Bike> bikes = new ArrayList<>();
+        for (String bikeId : freeBikesByType.get(bikeType)) {
+            Bike bike = availableBikes.get(bikeId);
+            if (bike != null) {
+                bikes.add(bike);
+            }
+        }
+        return Collections.unmodifiableList(bikes);
+    }
+    
+    /**
+     * Gets the number of bikes of a type that can be rented right now.
+     * @param bikeType the bike type
+     * @return available, unreserved bikes of the type
+     */
+    public int getAvailableBikeCount(Bike.BikeType bikeType) {
+        return bikeType != null ? freeBikesByType.get(bikeType).size() : 0;
     }
     
     /**
@@ -238,24 +347,36 @@ public class Station {
             throw new IllegalArgumentException("Charging rate cannot be negative");
         }
         
-        this.chargingAvailable = true;
-        this.chargingRate = hourlyRate;
+        long stamp = lock.writeLock();
+        try {
+            this.chargingRate = hourlyRate;
+            this.chargingAvailable = true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
     
     /**
      * Disables charging capability.
      */
     public void disableCharging() {
-        this.chargingAvailable = false;
-        this.chargingRate = 0.0;
+        long stamp = lock.writeLock();
+        try {
+            this.chargingAvailable = false;
+            this.chargingRate = 0.0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
     
     /**
      * Charges all electric bikes at the station.
+     * Runs without the station lock, so docking and undocking proceed during a charging sweep;
+     * bikes docked or removed meanwhile may or may not be charged.
      * @param chargeAmount amount to charge each bike
      * @throws IllegalStateException if charging not available
      */
-    public synchronized void chargeElectricBikes(double chargeAmount) {
+    public void chargeElectricBikes(double chargeAmount) {
         if (!chargingAvailable) {
             throw new IllegalStateException("Charging not available at this station");
         }
@@ -278,45 +399,145 @@ public class Station {
      * Sets station to maintenance mode.
      */
     public void setMaintenance() {
-        this.status = StationStatus.MAINTENANCE;
+        setStatus(StationStatus.MAINTENANCE);
     }
     
     /**
      * Activates station from maintenance.
      */
     public void activate() {
-        this.status = StationStatus.ACTIVE;
-        updateStationStatus();
+        long stamp = lock.writeLock();
+        try {
+            status.set(StationStatus.ACTIVE);
+            updateStationStatus();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        fireAvailabilityChanged();
     }
     
     /**
      * Deactivates the station.
      */
     public void deactivate() {
-        this.status = StationStatus.INACTIVE;
+        setStatus(StationStatus.INACTIVE);
+    }
+    
+    private void setStatus(StationStatus newStatus) {
+        long stamp = lock.writeLock();
+        try {
+            status.set(newStatus);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        fireAvailabilityChanged();
+    }
+    
+    /**
+     * Registers a listener for availability changes of this station.
+     * @param listener the listener to add
+     */
+    public void addListener(StationListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+    
+    /**
+     * Unregisters a previously added listener.
+     * @param listener the listener to remove
+     */
+    public void removeListener(StationListener listener) {
+        listeners.remove(listener);
     }
     
     // Helper methods
     
-    private void updateStationStatus() {
-        if (status == StationStatus.MAINTENANCE || status == StationStatus.INACTIVE) {
-            return; // Don't change status if in maintenance or inactive
+    private void fireAvailabilityChanged() {
+        for (StationListener listener : listeners) {
+            listener.availabilityChanged(this);
         }
-        
-        int availableCount = (int) availableBikes.values().stream()
-            .filter(bike -> bike.isAvailable())
-            .filter(bike -> !reservedBikeIds.contains(bike.getBikeId()))
-            .count();
+    }
+    
+    /**
+     * Derives EMPTY, FULL or ACTIVE from the current counts. Runs both under the lock and from
+     * the dock listener, so it only replaces the status it read (never a concurrent maintenance
+     * or deactivation) and re-reads after each change until the status matches the counts.
+     */
+    private void updateStationStatus() {
+        while (true) {
+            StationStatus current = status.get();
+            if (current == StationStatus.MAINTENANCE || current == StationStatus.INACTIVE) {
+                return; // Don't change status if in maintenance or inactive
+            }
             
-        if (availableCount == 0) {
-            this.status = StationStatus.EMPTY;
-        } else if (availableBikes.size() >= capacity) {
-            this.status = StationStatus.FULL;
-        } else {
-            this.status = StationStatus.ACTIVE;
+            StationStatus derived;
+            if (freeBikeCount.get() == 0) {
+                derived = StationStatus.EMPTY;
+            } else if (availableBikes.size() >= capacity) {
+                derived = StationStatus.FULL;
+            } else {
+                derived = StationStatus.ACTIVE;
+            }
+            if (derived == current) {
+                return;
+            }
+            status.compareAndSet(current, derived);
         }
     }
     
+    /**
+     * Re-evaluates whether a docked bike can be rented and updates the per-type free sets.
+     * Called when the station changes the bike and, via the dock listener, when the bike
+     * changes itself (rented, broken, sent to maintenance, ...). Lock-free: the counter only
+     * moves when the set membership actually changes, so it always matches the sets. A rental,
+     * reservation or undock can land between the check and the set update, so the check is
+     * repeated after every update and the update redone until both agree.
+     */
+    private void refreshAvailability(Bike bike) {
+        String bikeId = bike.getBikeId();
+        Bike docked = availableBikes.get(bikeId);
+        if (docked != null && docked != bike) {
+            return; // Another bike with this ID is docked now and refreshes itself
+        }
+        Set<String> free = freeBikesByType.get(bike.getType());
+        boolean rentable = isRentable(bike);
+        while (true) {
+            if (rentable) {
+                if (free.add(bikeId)) {
+                    freeBikeCount.incrementAndGet();
+                }
+            } else if (free.remove(bikeId)) {
+                freeBikeCount.decrementAndGet();
+            }
+            boolean recheck = isRentable(bike);
+            if (recheck == rentable) {
+                return;
+            }
+            rentable = recheck;
+        }
+    }
+    
+    private boolean isRentable(Bike bike) {
+        String bikeId = bike.getBikeId();
+        return availableBikes.get(bikeId) == bike && bike.isAvailable() && !reservedBikeIds.contains(bikeId);
+    }
+    
+    /**
+     * Finds a rentable bike of a type. The free set may briefly list a bike that is being
+     * undocked, rented or reserved, so such entries are skipped rather than ending the search.
+     */
+    private Bike firstFreeBike(Bike.BikeType type) {
+        for (String bikeId : freeBikesByType.get(type)) {
+            Bike bike = availableBikes.get(bikeId);
+            if (bike != null && isRentable(bike)) {
+                return bike;
+            }
+        }
+        return null;
+    }
+    
     private static boolean isValidCoordinate(double latitude, double longitude) {
         return latitude >= -90 && latitude <= 90 && 
                longitude >= -180 && longitude <= 180;
@@ -338,12 +559,78 @@ public class Station {
         return R * c;
     }
     
+    // Persistence State
+    
+    /**
+     * Persistent state of a station, including the state of its docked bikes.
+     */
+    public record Snapshot(String stationId, String name, String address, double latitude,
+                           double longitude, int capacity, StationStatus status,
+                           boolean chargingAvailable, double chargingRate,
+                           List<Bike.Snapshot> dockedBikes, Set<String> reservedBikeIds) {
+    }
+    
+    /**
+     * Captures the station's persistent state under the read lock, so docked bikes,
+     * reservations and status are mutually consistent.
+     * @return snapshot of the station
+     */
+    public Snapshot snapshot() {
+        long stamp = lock.readLock();
+        try {
+            List<Bike.Snapshot> docked = new ArrayList<>(availableBikes.size());
+            for (Bike bike : availableBikes.values()) {
+                docked.add(bike.snapshot());
+            }
+            return new Snapshot(stationId, name, address, latitude, longitude, capacity, status.get(),
+                    chargingAvailable, chargingRate, List.copyOf(docked), Set.copyOf(reservedBikeIds));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Recreates a station, with new bike instances for its docked bikes.
+     * @param snapshot the stored state
+     * @return station in the stored state
+     */
+    public static Station restore(Snapshot snapshot) {
+        return restore(snapshot, Bike::restore);
+    }
+    
+    /**
+     * Recreates a station from previously captured state without replaying docking rules.
+     * @param snapshot the stored state
+     * @param bikeResolver supplies the bike instance to dock for each stored bike
+     * @return station in the stored state
+     */
+    public static Station restore(Snapshot snapshot, Function<Bike.Snapshot, Bike> bikeResolver) {
+        Station station = new Station(snapshot.stationId(), snapshot.name(), snapshot.address(),
+                snapshot.latitude(), snapshot.longitude(), snapshot.capacity());
+        station.status.set(snapshot.status());
+        station.chargingAvailable = snapshot.chargingAvailable();
+        station.chargingRate = snapshot.chargingRate();
+        station.reservedBikeIds.addAll(snapshot.reservedBikeIds());
+        for (Bike.Snapshot bikeSnapshot : snapshot.dockedBikes()) {
+            Bike bike = bikeResolver.apply(bikeSnapshot);
+            station.availableBikes.put(bike.getBikeId(), bike);
+            bike.setCurrentStationId(station.stationId);
+            bike.addListener(station.dockListener);
+            station.refreshAvailability(bike);
+        }
+        return station;
+    }
+    
     // Getters
     
     public String getStationId() {
         return stationId;
     }
     
+    public int getHandle() {
+        return handle;
+    }
+    
     public String getName() {
         return name;
     }
@@ -365,14 +652,11 @@ public class Station {
     }
     
     public StationStatus getStatus() {
-        return status;
+        return status.get();
     }
     
     public int getAvailableBikeCount() {
-        return (int) availableBikes.values().stream()
-            .filter(bike -> bike.isAvailable())
-            .filter(bike -> !reservedBikeIds.contains(bike.getBikeId()))
-            .count();
+        return freeBikeCount.get();
     }
     
     public int getTotalBikeCount() {
@@ -403,6 +687,42 @@ public class Station {
         return Collections.unmodifiableSet(reservedBikeIds);
     }
     
+    /**
+     * Gets a consistent snapshot of the station's availability without blocking writers.
+     * Uses an optimistic read and only falls back to the read lock if a writer interfered.
+     * @return status, bike and dock counts as of a single point in time
+     */
+    public Availability getAvailability() {
+        long stamp = lock.tryOptimisticRead();
+        Availability snapshot = readAvailability();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                snapshot = readAvailability();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return snapshot;
+    }
+    
+    private Availability readAvailability() {
+        int total = availableBikes.size();
+        return new Availability(stationId, status.get(), freeBikeCount.get(), total, capacity - total);
+    }
+    
+    /**
+     * Point-in-time view of a station's availability.
+     * @param stationId the station ID
+     * @param status the station status
+     * @param availableBikes bikes that can be rented
+     * @param totalBikes bikes docked, including reserved or unavailable ones
+     * @param availableDocks free docks
+     */
+    public record Availability(String stationId, StationStatus status, int availableBikes,
+                               int totalBikes, int availableDocks) {
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -419,6 +739,6 @@ public class Station {
     @Override
     public String toString() {
         return String.format("Station{id='%s', name='%s', status=%s, bikes=%d/%d}", 
-                stationId, name, status, getAvailableBikeCount(), capacity);
+                stationId, name, status.get(), getAvailableBikeCount(), capacity);
     }
 }
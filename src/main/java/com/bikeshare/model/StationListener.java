@@ -0,0 +1,18 @@
+package com.bikeshare.model;
+
+/**
+ * Callback for components that follow the availability of stations, such as live views.
+ * Listeners are invoked synchronously on the thread that changed the station, possibly while
+ * the station is still being changed, so they must be cheap and must not change the station.
+ */
+public interface StationListener {
+    
+    /**
+     * Called after something that {@link Station#getAvailability()} reports may have changed:
+     * a bike was docked, undocked, reserved or released, a docked bike changed state, or the
+     * station status changed. Calls may be repeated for one change; read the availability to
+     * see what changed.
+     * @param station the station that changed
+     */
+    void availabilityChanged(Station station);
+}
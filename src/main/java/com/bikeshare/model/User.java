@@ -1,7 +1,10 @@
 package com.bikeshare.model;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 
 /**
@@ -63,6 +66,7 @@ public class User {
     );
     
     private final String userId; // Swedish personnummer (YYMMDD-NNNN) validated with Luhn algorithm
+    private final int handle;
     private String email;
     private String phoneNumber;
     private String firstName;
@@ -78,6 +82,7 @@ public class User {
     private boolean phoneVerified;
     private int suspensionCount;
     private String currentRideId;
+    private final List<UserListener> listeners = new CopyOnWriteArrayList<>();
     
     public User(String userId, String email, String firstName, String lastName) {
         if (!isValidPersonnummer(userId)) {
@@ -93,8 +98,9 @@ public class User {
             throw new IllegalArgumentException("Last name cannot be null or empty");
         }
         
-        this.userId = userId.trim();
-        this.email = email.toLowerCase().trim();
+        this.handle = IdRegistry.USERS.intern(userId.trim());
+        this.userId = IdRegistry.USERS.id(handle);
+        this.email = normalizeEmail(email);
         this.firstName = firstName.trim();
         this.lastName = lastName.trim();
         this.status = UserStatus.PENDING_VERIFICATION;
@@ -122,8 +128,8 @@ public class User {
             throw new IllegalStateException("Email must be verified before activation");
         }
         
-        this.status = UserStatus.ACTIVE;
         this.lastActiveDate = LocalDateTime.now();
+        changeStatus(UserStatus.ACTIVE);
     }
     
     /**
@@ -139,8 +145,8 @@ public class User {
             throw new IllegalStateException("Cannot suspend user with active ride");
         }
         
-        this.status = UserStatus.SUSPENDED;
         this.suspensionCount++;
+        changeStatus(UserStatus.SUSPENDED);
     }
     
     /**
@@ -152,8 +158,8 @@ public class User {
             throw new IllegalStateException("User is not suspended");
         }
         
-        this.status = UserStatus.ACTIVE;
         this.lastActiveDate = LocalDateTime.now();
+        changeStatus(UserStatus.ACTIVE);
     }
     
     /**
@@ -164,7 +170,7 @@ public class User {
             throw new IllegalStateException("Cannot deactivate user with active ride");
         }
         
-        this.status = UserStatus.INACTIVE;
+        changeStatus(UserStatus.INACTIVE);
     }
     
     /**
@@ -214,7 +220,23 @@ public class User {
             throw new IllegalStateException("User must be active to change membership");
         }
         
+        MembershipType oldMembershipType = this.membershipType;
         this.membershipType = newMembershipType;
+        if (oldMembershipType != newMembershipType) {
+            for (UserListener listener : listeners) {
+                listener.membershipChanged(this, oldMembershipType);
+            }
+        }
+    }
+    
+    private void changeStatus(UserStatus newStatus) {
+        UserStatus oldStatus = this.status;
+        this.status = newStatus;
+        if (oldStatus != newStatus) {
+            for (UserListener listener : listeners) {
+                listener.statusChanged(this, oldStatus);
+            }
+        }
     }
     
     /**
@@ -374,23 +396,113 @@ public class User {
         return expectedChecksum == actualChecksum;
     }
     
+    // Persistence State
+    
+    /**
+     * Persistent state of a user, as stored by durable repositories.
+     */
+    public record Snapshot(String userId, String email, String phoneNumber, String firstName,
+                           String lastName, UserStatus status, MembershipType membershipType,
+                           LocalDateTime registrationDate, LocalDateTime lastActiveDate,
+                           double accountBalance, int totalRides, double totalSpent,
+                           boolean emailVerified, boolean phoneVerified, int suspensionCount,
+                           String currentRideId) {
+    }
+    
+    /**
+     * Captures the user's persistent state.
+     * @return snapshot of the user
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(userId, email, phoneNumber, firstName, lastName, status, membershipType,
+                registrationDate, lastActiveDate, accountBalance, totalRides, totalSpent,
+                emailVerified, phoneVerified, suspensionCount, currentRideId);
+    }
+    
+    /**
+     * Recreates a user from previously captured state without replaying its transitions.
+     * @param snapshot the stored state
+     * @return user in the stored state, with no listeners
+     * @throws IllegalArgumentException if the stored ID, email or name is invalid
+     */
+    public static User restore(Snapshot snapshot) {
+        User user = new User(snapshot.userId(), snapshot.email(), snapshot.firstName(), snapshot.lastName());
+        user.phoneNumber = snapshot.phoneNumber();
+        user.status = snapshot.status();
+        user.membershipType = snapshot.membershipType();
+        user.registrationDate = snapshot.registrationDate();
+        user.lastActiveDate = snapshot.lastActiveDate();
+        user.accountBalance = snapshot.accountBalance();
+        user.totalRides = snapshot.totalRides();
+        user.totalSpent = snapshot.totalSpent();
+        user.emailVerified = snapshot.emailVerified();
+        user.phoneVerified = snapshot.phoneVerified();
+        user.suspensionCount = snapshot.suspensionCount();
+        user.currentRideId = snapshot.currentRideId();
+        return user;
+    }
+    
     // Getters and Setters
     public String getUserId() {
         return userId;
     }
     
+    public int getHandle() {
+        return handle;
+    }
+    
     public String getEmail() {
         return email;
     }
     
+    /**
+     * Changes the user's email and marks it as unverified.
+     * Registered listeners may veto the change (e.g. the email is taken by another user).
+     * @param email the new email
+     * @throws IllegalArgumentException if the email is invalid or rejected by a listener
+     */
     public void setEmail(String email) {
         if (!isValidEmail(email)) {
             throw new IllegalArgumentException("Invalid email format");
         }
-        this.email = email.toLowerCase().trim();
+        String normalized = normalizeEmail(email);
+        if (!normalized.equals(this.email)) {
+            for (UserListener listener : listeners) {
+                listener.emailChanging(this, this.email, normalized);
+            }
+        }
+        this.email = normalized;
         this.emailVerified = false;
     }
     
+    /**
+     * Normalizes an email the way users store it, so lookups are case-insensitive.
+     * @param email the email to normalize
+     * @return trimmed, lower-cased email
+     */
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Registers a listener for changes to this user.
+     * @param listener the listener to add
+     */
+    public void addListener(UserListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+    
+    /**
+     * Unregisters a previously added listener.
+     * @param listener the listener to remove
+     */
+    public void removeListener(UserListener listener) {
+        listeners.remove(listener);
+    }
+    
     public String getPhoneNumber() {
         return phoneNumber;
     }
@@ -0,0 +1,35 @@
+package com.bikeshare.model;
+
+/**
+ * Callback for components that keep derived state about users, such as repository indexes.
+ * Listeners are invoked synchronously on the thread that changes the user. All methods
+ * default to no-ops so a listener only implements the changes it cares about.
+ */
+public interface UserListener {
+    
+    /**
+     * Called before the user's email is replaced. Throwing from this method vetoes the change
+     * and leaves the user untouched, which lets a repository enforce email uniqueness.
+     * @param user the user being changed
+     * @param oldEmail the current (normalized) email
+     * @param newEmail the new (normalized) email
+     */
+    default void emailChanging(User user, String oldEmail, String newEmail) {
+    }
+    
+    /**
+     * Called after the user's status changed.
+     * @param user the user that changed
+     * @param oldStatus the status before the change
+     */
+    default void statusChanged(User user, User.UserStatus oldStatus) {
+    }
+    
+    /**
+     * Called after the user's membership type changed.
+     * @param user the user that changed
+     * @param oldMembershipType the membership type before the change
+     */
+    default void membershipChanged(User user, User.MembershipType oldMembershipType) {
+    }
+}
@@ -2,8 +2,11 @@ package com.bikeshare.repository;
 
 import com.bikeshare.model.Bike;
 import com.bikeshare.model.BikeType;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for bike data access operations.
@@ -18,6 +21,20 @@ public interface BikeRepository {
      */
     Bike save(Bike bike);
     
+    /**
+     * Saves a batch of bikes, e.g. when flushing buffered writes.
+     * Implementations may persist the batch in a single round trip.
+     * @param bikes The bikes to save
+     * @return The saved bikes
+     */
+    default List<Bike> saveAll(Collection<Bike> bikes) {
+        List<Bike> saved = new ArrayList<>(bikes.size());
+        for (Bike bike : bikes) {
+            saved.add(save(bike));
+        }
+        return saved;
+    }
+    
     /**
      * Finds a bike by its ID.
      * @param bikeId The bike ID to search for
@@ -31,6 +48,24 @@ public interface BikeRepository {
      */
     List<Bike> findAll();
     
+    /**
+     * Finds one page of all bikes, ordered by bike ID.
+     * @param afterToken The next-token of the previous page, or null for the first page
+     * @param limit Maximum number of bikes to return
+     * @return Page of bikes
+     * @throws IllegalArgumentException if the limit is not positive or the token is malformed
+     */
+    Page<Bike> findAll(String afterToken, int limit);
+    
+    /**
+     * Streams all bikes in the order of {@link #findAll(String, int)} without loading them at once.
+     * The stream may hold resources such as a database cursor and must be closed after use.
+     * @return Stream of all bikes
+     */
+    default Stream<Bike> streamAll() {
+        return Page.stream(this::findAll);
+    }
+    
     /**
      * Finds bikes by their type.
      * @param bikeType The type of bikes to find
@@ -57,6 +92,15 @@ public interface BikeRepository {
      */
     long count();
     
+    /**
+     * Gets a counter that increases with every change to the stored bikes, so views derived
+     * from them can be cached and rebuilt only once it moves.
+     * @return the change count, or -1 if this repository does not track changes
+     */
+    default long version() {
+        return -1;
+    }
+    
     /**
      * Counts available bikes.
      * @return Available bike count
@@ -0,0 +1,135 @@
+package com.bikeshare.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * One page of a keyset-paginated query.
+ * <p>
+ * Pages are chained by an opaque token that encodes the sort key of the last item, not its
+ * position, so a page is found by a seek on an ordered index however deep into the results
+ * it lies, and entities inserted or deleted between requests neither shift nor repeat items.
+ * Pass {@code null} as the after-token to get the first page.
+ *
+ * @param items the items of this page in query order
+ * @param nextToken the after-token of the next page, or null if this is the last page
+ * @param <T> type of the items
+ */
+public record Page<T>(List<T> items, String nextToken) {
+    
+    /** Page size used when a stream is fed from pages. */
+    public static final int STREAM_BATCH_SIZE = 1000;
+    
+    /** Largest page size; queries fetch one item more than the limit, which must fit an int. */
+    public static final int MAX_LIMIT = Integer.MAX_VALUE - 1;
+    
+    private static final char SEPARATOR = '\0';
+    
+    public Page {
+        items = List.copyOf(items);
+    }
+    
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+    
+    /**
+     * Builds a page from a query that fetched one item more than the limit.
+     * @param fetched up to limit + 1 items in query order
+     * @param limit page size
+     * @param tokenOf creates the after-token of an item, see {@link #token(String...)}
+     * @return the first limit items, with a next-token if there were more
+     */
+    public static <T> Page<T> of(List<T> fetched, int limit, Function<T, String> tokenOf) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new Page<>(items, tokenOf.apply(items.get(limit - 1)));
+    }
+    
+    /**
+     * Walks a paginated query page by page as a lazy stream, so only one page is held at a time.
+     * @param query runs the query for an after-token and page size
+     * @return stream over every item of every page
+     */
+    public static <T> Stream<T> stream(BiFunction<String, Integer, Page<T>> query) {
+        Iterator<T> items = new Iterator<>() {
+            private Page<T> page = query.apply(null, STREAM_BATCH_SIZE);
+            private int next;
+            
+            @Override
+            public boolean hasNext() {
+                while (next == page.items().size() && page.hasNext()) {
+                    page = query.apply(page.nextToken(), STREAM_BATCH_SIZE);
+                    next = 0;
+                }
+                return next < page.items().size();
+            }
+            
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.items().get(next++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(items,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    /**
+     * Checks a requested page size.
+     * @param limit maximum number of items per page
+     * @throws IllegalArgumentException if the limit is not positive or above {@link #MAX_LIMIT}
+     */
+    public static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        if (limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit cannot exceed " + MAX_LIMIT);
+        }
+    }
+    
+    /**
+     * Encodes a sort key as an after-token.
+     * @param keyParts the sort key columns of the last item of a page
+     * @return URL-safe opaque token
+     */
+    public static String token(String... keyParts) {
+        String joined = String.join(String.valueOf(SEPARATOR), keyParts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decodes an after-token created by {@link #token(String...)}.
+     * @param token the token
+     * @param parts expected number of sort key columns
+     * @return the sort key columns
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static String[] tokenParts(String token, int parts) {
+        String joined;
+        try {
+            joined = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+        String[] keyParts = joined.split(String.valueOf(SEPARATOR), -1);
+        if (keyParts.length != parts) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        return keyParts;
+    }
+}
@@ -2,8 +2,11 @@ package com.bikeshare.repository;
 
 import com.bikeshare.model.Ride;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for ride data access operations.
@@ -17,6 +20,20 @@ public interface RideRepository {
      */
     Ride save(Ride ride);
     
+    /**
+     * Saves a batch of rides, e.g. when flushing buffered writes.
+     * Implementations may persist the batch in a single round trip.
+     * @param rides The rides to save
+     * @return The saved rides
+     */
+    default List<Ride> saveAll(Collection<Ride> rides) {
+        List<Ride> saved = new ArrayList<>(rides.size());
+        for (Ride ride : rides) {
+            saved.add(save(ride));
+        }
+        return saved;
+    }
+    
     /**
      * Finds a ride by its ID.
      * @param rideId The ride ID to search for
@@ -30,6 +47,24 @@ public interface RideRepository {
      */
     List<Ride> findAll();
     
+    /**
+     * Finds one page of all rides, ordered by start time and then ride ID.
+     * @param afterToken The next-token of the previous page, or null for the first page
+     * @param limit Maximum number of rides to return
+     * @return Page of rides
+     * @throws IllegalArgumentException if the limit is not positive or the token is malformed
+     */
+    Page<Ride> findAll(String afterToken, int limit);
+    
+    /**
+     * Streams all rides in the order of {@link #findAll(String, int)} without loading them at once.
+     * The stream may hold resources such as a database cursor and must be closed after use.
+     * @return Stream of all rides
+     */
+    default Stream<Ride> streamAll() {
+        return Page.stream(this::findAll);
+    }
+    
     /**
      * Finds all rides for a specific user.
      * @param userId The user ID
@@ -51,6 +86,20 @@ public interface RideRepository {
      */
     List<Ride> findActiveRidesByUserId(String userId);
     
+    /**
+     * Finds the active (ongoing or paused) ride for a user.
+     * @param userId The user ID
+     * @return Optional containing the user's active ride, empty if none
+     */
+    Optional<Ride> findActiveRideByUserId(String userId);
+    
+    /**
+     * Finds the active (ongoing or paused) ride using a bike.
+     * @param bikeId The bike ID
+     * @return Optional containing the bike's active ride, empty if none
+     */
+    Optional<Ride> findActiveRideByBikeId(String bikeId);
+    
     /**
      * Finds completed rides for a user.
      * @param userId The user ID
@@ -66,6 +115,39 @@ public interface RideRepository {
      */
     List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate);
     
+    /**
+     * Finds one page of rides within a date range, ordered by start time.
+     * @param startDate Start of the date range
+     * @param endDate End of the date range
+     * @param offset Number of matching rides to skip
+     * @param limit Maximum number of rides to return
+     * @return List of at most limit rides within the date range
+     */
+    List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, int offset, int limit);
+    
+    /**
+     * Finds one page of rides within a date range, ordered by start time and then ride ID.
+     * Unlike offset paging, the cost of a page does not grow with its depth.
+     * @param startDate Start of the date range
+     * @param endDate End of the date range
+     * @param afterToken The next-token of the previous page, or null for the first page
+     * @param limit Maximum number of rides to return
+     * @return Page of rides within the date range
+     * @throws IllegalArgumentException if the limit is not positive or the token is malformed
+     */
+    Page<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, String afterToken, int limit);
+    
+    /**
+     * Streams the rides within a date range in start-time order without loading them at once.
+     * The stream may hold resources such as a database cursor and must be closed after use.
+     * @param startDate Start of the date range
+     * @param endDate End of the date range
+     * @return Stream of rides within the date range
+     */
+    default Stream<Ride> streamRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return Page.stream((afterToken, limit) -> findRidesBetween(startDate, endDate, afterToken, limit));
+    }
+    
     /**
      * Finds rides that started from a specific station.
      * @param stationId The start station ID
@@ -100,6 +182,15 @@ public interface RideRepository {
      */
     long count();
     
+    /**
+     * Gets a counter that increases with every change to the stored rides, so views derived
+     * from them can be cached and rebuilt only once it moves.
+     * @return the change count, or -1 if this repository does not track changes
+     */
+    default long version() {
+        return -1;
+    }
+    
     /**
      * Counts active rides.
      * @return Active ride count
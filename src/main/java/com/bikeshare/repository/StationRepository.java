@@ -1,6 +1,8 @@
 package com.bikeshare.repository;
 
 import com.bikeshare.model.Station;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +18,20 @@ public interface StationRepository {
      */
     Station save(Station station);
     
+    /**
+     * Saves a batch of stations, e.g. when loading a city's docking points.
+     * Implementations may use this to build their indexes in bulk.
+     * @param stations The stations to save
+     * @return The saved stations
+     */
+    default List<Station> saveAll(Collection<Station> stations) {
+        List<Station> saved = new ArrayList<>(stations.size());
+        for (Station station : stations) {
+            saved.add(save(station));
+        }
+        return saved;
+    }
+    
     /**
      * Finds a station by its ID.
      * @param stationId The station ID to search for
@@ -65,6 +81,15 @@ public interface StationRepository {
      */
     long count();
     
+    /**
+     * Gets a counter that increases with every change to the stored stations, so views derived
+     * from them can be cached and rebuilt only once it moves.
+     * @return the change count, or -1 if this repository does not track changes
+     */
+    default long version() {
+        return -1;
+    }
+    
     /**
      * Deletes a station by its ID.
      * @param stationId The station ID to delete
@@ -3,8 +3,11 @@ package com.bikeshare.repository;
 import com.bikeshare.model.User;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for User entity.
@@ -16,9 +19,25 @@ public interface UserRepository {
      * Saves a user.
      * @param user the user to save
      * @return saved user
+     * @throws IllegalArgumentException if another user already has the same email
      */
     User save(User user);
     
+    /**
+     * Saves a batch of users, e.g. when flushing buffered writes.
+     * Implementations may persist the batch in a single round trip.
+     * @param users the users to save
+     * @return saved users
+     * @throws IllegalArgumentException if another user already has the email of a user in the batch
+     */
+    default List<User> saveAll(Collection<User> users) {
+        List<User> saved = new ArrayList<>(users.size());
+        for (User user : users) {
+            saved.add(save(user));
+        }
+        return saved;
+    }
+    
     /**
      * Finds a user by ID.
      * @param userId the user ID
@@ -27,7 +46,7 @@ public interface UserRepository {
     Optional<User> findById(String userId);
     
     /**
-     * Finds a user by email.
+     * Finds a user by email (case-insensitive).
      * @param email the user's email
      * @return optional user
      */
@@ -61,6 +80,24 @@ public interface UserRepository {
      */
     List<User> findAll();
     
+    /**
+     * Finds one page of all users, ordered by user ID.
+     * @param afterToken next-token of the previous page, or null for the first page
+     * @param limit maximum number of users to return
+     * @return page of users
+     * @throws IllegalArgumentException if the limit is not positive or the token is malformed
+     */
+    Page<User> findAll(String afterToken, int limit);
+    
+    /**
+     * Streams all users in the order of {@link #findAll(String, int)} without loading them at once.
+     * The stream may hold resources such as a database cursor and must be closed after use.
+     * @return stream of all users
+     */
+    default Stream<User> streamAll() {
+        return Page.stream(this::findAll);
+    }
+    
     /**
      * Deletes a user.
      * @param userId the user ID
@@ -79,4 +116,13 @@ public interface UserRepository {
      * @return user count
      */
     long count();
+    
+    /**
+     * Gets a counter that increases with every change to the stored users, so views derived
+     * from them can be cached and rebuilt only once it moves.
+     * @return the change count, or -1 if this repository does not track changes
+     */
+    default long version() {
+        return -1;
+    }
 }
@@ -0,0 +1,157 @@
+package com.bikeshare.repository.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of JDBC connections.
+ * <p>
+ * Connections are opened lazily up to {@code maxConnections} and handed out LIFO, so a
+ * lightly loaded pool keeps reusing the same warm connections and their statement caches.
+ * Borrowers that cannot get a connection within the acquire timeout fail with
+ * {@link DataAccessException} instead of queueing forever.
+ */
+public class ConnectionPool implements AutoCloseable {
+    
+    public static final int DEFAULT_MAX_CONNECTIONS = 8;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 5_000;
+    
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int statementCacheSize;
+    private final long acquireTimeoutMillis;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> open = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    
+    /**
+     * Creates a pool with default sizing.
+     * @param url JDBC URL
+     * @param user database user
+     * @param password database password
+     */
+    public ConnectionPool(String url, String user, String password) {
+        this(url, user, password, DEFAULT_MAX_CONNECTIONS, DEFAULT_STATEMENT_CACHE_SIZE,
+                DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * Creates a pool.
+     * @param url JDBC URL
+     * @param user database user
+     * @param password database password
+     * @param maxConnections maximum number of open connections
+     * @param statementCacheSize prepared statements cached per connection
+     * @param acquireTimeoutMillis how long acquire waits for a free connection
+     * @throws IllegalArgumentException if the URL is empty or a size is not positive
+     */
+    public ConnectionPool(String url, String user, String password, int maxConnections,
+                          int statementCacheSize, long acquireTimeoutMillis) {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("JDBC URL cannot be null or empty");
+        }
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be positive");
+        }
+        if (statementCacheSize <= 0) {
+            throw new IllegalArgumentException("Statement cache size must be positive");
+        }
+        if (acquireTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Acquire timeout cannot be negative");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.statementCacheSize = statementCacheSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+    
+    /**
+     * Borrows a connection. It must be handed back with {@link #release(PooledConnection)}.
+     * @return a connection in auto-commit mode
+     * @throws DataAccessException if no connection becomes available in time or one cannot be opened
+     * @throws IllegalStateException if the pool is closed
+     */
+    public PooledConnection acquire() {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new DataAccessException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted while waiting for a database connection", e);
+        }
+        
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (connection.isOpen()) {
+                return connection;
+            }
+            discard(connection);
+        }
+        try {
+            Connection physical = DriverManager.getConnection(url, user, password);
+            connection = new PooledConnection(physical, statementCacheSize);
+            open.add(connection);
+            return connection;
+        } catch (SQLException e) {
+            permits.release();
+            throw new DataAccessException("Could not open database connection", e);
+        }
+    }
+    
+    /**
+     * Returns a borrowed connection to the pool. Open transactions are rolled back.
+     * @param connection the connection to return
+     */
+    public void release(PooledConnection connection) {
+        try {
+            if (closed || !connection.resetForReuse()) {
+                discard(connection);
+            } else {
+                idle.offerFirst(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+    
+    /**
+     * Gets the number of physical connections currently open.
+     * @return open connection count
+     */
+    public int openConnectionCount() {
+        return open.size();
+    }
+    
+    /**
+     * Closes idle connections and prevents further borrowing. Connections still borrowed
+     * are closed when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+    }
+    
+    private void discard(PooledConnection connection) {
+        open.remove(connection);
+        connection.close();
+    }
+}
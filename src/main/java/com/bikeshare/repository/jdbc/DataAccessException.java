@@ -0,0 +1,16 @@
+package com.bikeshare.repository.jdbc;
+
+/**
+ * Unchecked wrapper for database failures in the JDBC repositories, so callers of the
+ * repository interfaces do not have to handle SQLException.
+ */
+public class DataAccessException extends RuntimeException {
+    
+    public DataAccessException(String message) {
+        super(message);
+    }
+    
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,356 @@
+package com.bikeshare.repository.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Entry point to an H2 database used by the JDBC repositories.
+ * <p>
+ * Wraps a {@link ConnectionPool} and offers small query helpers that borrow a connection,
+ * run a cached prepared statement and translate SQLException into {@link DataAccessException}.
+ * The schema in {@code db/schema.sql} is applied when the database is opened.
+ */
+public class Database implements AutoCloseable {
+    
+    private static final String SCHEMA_RESOURCE = "/db/schema.sql";
+    private static final int STREAM_FETCH_SIZE = 500;
+    
+    /**
+     * Work to run with a borrowed connection.
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T execute(PooledConnection connection) throws SQLException;
+    }
+    
+    /**
+     * Binds parameters to a prepared statement.
+     */
+    @FunctionalInterface
+    public interface Binder {
+        Binder NONE = statement -> { };
+        
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+    
+    /**
+     * Maps the current row of a result set.
+     * @param <T> mapped type
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet row) throws SQLException;
+    }
+    
+    private final ConnectionPool pool;
+    
+    /**
+     * Creates a database on top of an existing pool. The schema is not applied.
+     * @param pool the connection pool
+     */
+    public Database(ConnectionPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Connection pool cannot be null");
+        }
+        this.pool = pool;
+    }
+    
+    /**
+     * Opens a private in-memory H2 database that lives until it is closed.
+     * @param name database name, unique per JVM
+     * @return database with the schema applied
+     */
+    public static Database inMemory(String name) {
+        return open("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    }
+    
+    /**
+     * Opens (or creates) a file-mode H2 database.
+     * @param path database file path without the .mv.db suffix
+     * @return database with the schema applied
+     */
+    public static Database file(Path path) {
+        return open("jdbc:h2:file:" + path.toAbsolutePath());
+    }
+    
+    /**
+     * Opens a database with a default pool and applies the schema.
+     * @param url JDBC URL
+     * @return database with the schema applied
+     */
+    public static Database open(String url) {
+        Database database = new Database(new ConnectionPool(url, "sa", ""));
+        database.applySchema();
+        return database;
+    }
+    
+    /**
+     * Applies {@code db/schema.sql}. Safe to call repeatedly.
+     * @throws DataAccessException if the script cannot be read or executed
+     */
+    public void applySchema() {
+        String script;
+        try (InputStream in = Database.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+            if (in == null) {
+                throw new DataAccessException("Schema resource not found: " + SCHEMA_RESOURCE);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new DataAccessException("Could not read schema", e);
+        }
+        inTransaction(connection -> {
+            try (Statement statement = connection.connection().createStatement()) {
+                for (String sql : splitStatements(script)) {
+                    statement.execute(sql);
+                }
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Runs work with a borrowed connection in auto-commit mode.
+     * @param work the work to run
+     * @return the work's result
+     * @throws DataAccessException if the work fails with SQLException
+     */
+    public <T> T withConnection(SqlWork<T> work) {
+        PooledConnection connection = pool.acquire();
+        try {
+            return work.execute(connection);
+        } catch (SQLException e) {
+            throw translate(e);
+        } finally {
+            pool.release(connection);
+        }
+    }
+    
+    /**
+     * Runs work in a single transaction, committing on success and rolling back on any failure.
+     * @param work the work to run
+     * @return the work's result
+     * @throws DataAccessException if the work fails with SQLException
+     */
+    public <T> T inTransaction(SqlWork<T> work) {
+        return withConnection(connection -> {
+            Connection physical = connection.connection();
+            physical.setAutoCommit(false);
+            try {
+                T result = work.execute(connection);
+                physical.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                physical.rollback();
+                throw e;
+            } finally {
+                physical.setAutoCommit(true);
+            }
+        });
+    }
+    
+    /**
+     * Runs a query and maps every row.
+     * @param sql the query
+     * @param binder binds the query parameters
+     * @param mapper maps each row
+     * @return mapped rows in result order
+     */
+    public <T> List<T> query(String sql, Binder binder, RowMapper<T> mapper) {
+        return withConnection(connection -> query(connection, sql, binder, mapper));
+    }
+    
+    /**
+     * Runs a query on a borrowed connection and maps every row.
+     * @param connection the connection to use
+     * @param sql the query
+     * @param binder binds the query parameters
+     * @param mapper maps each row
+     * @return mapped rows in result order
+     * @throws SQLException if the query fails
+     */
+    public static <T> List<T> query(PooledConnection connection, String sql, Binder binder,
+                                    RowMapper<T> mapper) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        binder.bind(statement);
+        List<T> result = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                result.add(mapper.map(rows));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Runs a query and streams the mapped rows from an open cursor instead of collecting them.
+     * <p>
+     * The stream keeps a pooled connection borrowed until it is closed, so it must be used in
+     * a try-with-resources block. Rows are fetched from the driver in batches as the stream
+     * is consumed.
+     * @param sql the query
+     * @param binder binds the query parameters
+     * @param mapper maps each row
+     * @return lazily mapped rows in result order
+     */
+    public <T> Stream<T> stream(String sql, Binder binder, RowMapper<T> mapper) {
+        PooledConnection connection = pool.acquire();
+        ResultSet rows;
+        try {
+            PreparedStatement statement = connection.prepare(sql);
+            binder.bind(statement);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            rows = statement.executeQuery();
+        } catch (SQLException e) {
+            pool.release(connection);
+            throw translate(e);
+        } catch (RuntimeException e) {
+            pool.release(connection);
+            throw e;
+        }
+        Spliterator<T> cursor = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rows.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rows));
+                    return true;
+                } catch (SQLException e) {
+                    throw translate(e);
+                }
+            }
+        };
+        return StreamSupport.stream(cursor, false).onClose(() -> {
+            try {
+                rows.close();
+            } catch (SQLException e) {
+                throw translate(e);
+            } finally {
+                pool.release(connection);
+            }
+        });
+    }
+    
+    /**
+     * Runs a query expected to return at most one row.
+     * @param sql the query
+     * @param binder binds the query parameters
+     * @param mapper maps the row
+     * @return the mapped row, or empty if there is none
+     */
+    public <T> Optional<T> queryOne(String sql, Binder binder, RowMapper<T> mapper) {
+        List<T> rows = query(sql, binder, mapper);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+    
+    /**
+     * Runs a query returning a single numeric value, such as COUNT or SUM.
+     * @param sql the query
+     * @param binder binds the query parameters
+     * @return the value of the first column of the first row (0 if NULL)
+     */
+    public long queryLong(String sql, Binder binder) {
+        return queryOne(sql, binder, row -> row.getLong(1)).orElse(0L);
+    }
+    
+    /**
+     * Runs an INSERT, UPDATE, MERGE or DELETE.
+     * @param sql the statement
+     * @param binder binds the statement parameters
+     * @return number of affected rows
+     */
+    public int update(String sql, Binder binder) {
+        return withConnection(connection -> update(connection, sql, binder));
+    }
+    
+    /**
+     * Runs an INSERT, UPDATE, MERGE or DELETE on a borrowed connection.
+     * @param connection the connection to use
+     * @param sql the statement
+     * @param binder binds the statement parameters
+     * @return number of affected rows
+     * @throws SQLException if the statement fails
+     */
+    public static int update(PooledConnection connection, String sql, Binder binder) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        binder.bind(statement);
+        return statement.executeUpdate();
+    }
+    
+    /**
+     * Gets the underlying pool.
+     * @return the connection pool
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+    
+    @Override
+    public void close() {
+        pool.close();
+    }
+    
+    // Column helpers shared by the repositories
+    
+    static LocalDateTime getDateTime(ResultSet row, String column) throws SQLException {
+        return row.getObject(column, LocalDateTime.class);
+    }
+    
+    static <E extends Enum<E>> E getEnum(ResultSet row, String column, Class<E> type) throws SQLException {
+        String value = row.getString(column);
+        return value != null ? Enum.valueOf(type, value) : null;
+    }
+    
+    static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+    
+    static boolean isUniqueViolation(SQLException e) {
+        // Batch failures chain the per-statement errors
+        for (SQLException current = e; current != null; current = current.getNextException()) {
+            if ("23505".equals(current.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static DataAccessException translate(SQLException e) {
+        return new DataAccessException("Database operation failed: " + e.getMessage(), e);
+    }
+    
+    private static List<String> splitStatements(String script) {
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            if (!line.trim().startsWith("--")) {
+                withoutComments.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : withoutComments.toString().split(";")) {
+            if (!sql.isBlank()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+}
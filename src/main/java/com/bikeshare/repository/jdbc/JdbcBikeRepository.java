@@ -0,0 +1,185 @@
+package com.bikeshare.repository.jdbc;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.BikeType;
+import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.Page;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * BikeRepository backed by the {@code bikes} table.
+ * Returned bikes are detached copies; changes must be saved to be persisted.
+ */
+public class JdbcBikeRepository implements BikeRepository {
+    
+    static final String COLUMNS = "bike_id, type, status, current_station_id, battery_level, total_rides, "
+            + "total_distance, last_maintenance_date, last_used_date, needs_maintenance";
+    
+    static final String MERGE = "MERGE INTO bikes (" + COLUMNS + ") KEY (bike_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM bikes";
+    private static final String AVAILABLE = "status = 'AVAILABLE' AND needs_maintenance = FALSE";
+    
+    private final Database database;
+    
+    public JdbcBikeRepository(Database database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null");
+        }
+        this.database = database;
+    }
+    
+    @Override
+    public Bike save(Bike bike) {
+        database.update(MERGE, statement -> bind(statement, bike.snapshot()));
+        return bike;
+    }
+    
+    @Override
+    public List<Bike> saveAll(Collection<Bike> bikes) {
+        List<Bike.Snapshot> states = new ArrayList<>(bikes.size());
+        for (Bike bike : bikes) {
+            states.add(bike.snapshot());
+        }
+        database.inTransaction(connection -> {
+            PreparedStatement statement = connection.prepare(MERGE);
+            for (Bike.Snapshot state : states) {
+                bind(statement, state);
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        });
+        return new ArrayList<>(bikes);
+    }
+    
+    @Override
+    public Optional<Bike> findById(String bikeId) {
+        return database.queryOne(SELECT + " WHERE bike_id = ?",
+                statement -> statement.setString(1, bikeId), JdbcBikeRepository::map);
+    }
+    
+    @Override
+    public List<Bike> findAll() {
+        return database.query(SELECT, Database.Binder.NONE, JdbcBikeRepository::map);
+    }
+    
+    @Override
+    public Page<Bike> findAll(String afterToken, int limit) {
+        Page.checkLimit(limit);
+        List<Bike> fetched;
+        if (afterToken == null) {
+            fetched = database.query(SELECT + " ORDER BY bike_id LIMIT ?",
+                    statement -> statement.setInt(1, limit + 1), JdbcBikeRepository::map);
+        } else {
+            String after = Page.tokenParts(afterToken, 1)[0];
+            fetched = database.query(SELECT + " WHERE bike_id > ? ORDER BY bike_id LIMIT ?",
+                    statement -> {
+                        statement.setString(1, after);
+                        statement.setInt(2, limit + 1);
+                    }, JdbcBikeRepository::map);
+        }
+        return Page.of(fetched, limit, bike -> Page.token(bike.getBikeId()));
+    }
+    
+    @Override
+    public Stream<Bike> streamAll() {
+        return database.stream(SELECT + " ORDER BY bike_id", Database.Binder.NONE, JdbcBikeRepository::map);
+    }
+    
+    @Override
+    public List<Bike> findByType(BikeType bikeType) {
+        if (bikeType == null) {
+            return new ArrayList<>();
+        }
+        Bike.BikeType storedType = switch (bikeType) {
+            case STANDARD -> Bike.BikeType.STANDARD;
+            case ELECTRIC -> Bike.BikeType.ELECTRIC;
+            case MOUNTAIN, CARGO -> Bike.BikeType.PREMIUM;
+        };
+        return database.query(SELECT + " WHERE type = ?",
+                statement -> statement.setString(1, storedType.name()), JdbcBikeRepository::map);
+    }
+    
+    @Override
+    public List<Bike> findAvailableBikes() {
+        return database.query(SELECT + " WHERE " + AVAILABLE, Database.Binder.NONE, JdbcBikeRepository::map);
+    }
+    
+    @Override
+    public List<Bike> findByStationId(String stationId) {
+        return database.query(SELECT + " WHERE current_station_id = ?",
+                statement -> statement.setString(1, stationId), JdbcBikeRepository::map);
+    }
+    
+    @Override
+    public long count() {
+        return database.queryLong("SELECT COUNT(*) FROM bikes", Database.Binder.NONE);
+    }
+    
+    @Override
+    public long countAvailable() {
+        return database.queryLong("SELECT COUNT(*) FROM bikes WHERE " + AVAILABLE, Database.Binder.NONE);
+    }
+    
+    @Override
+    public boolean deleteById(String bikeId) {
+        return database.inTransaction(connection -> {
+            Database.update(connection, "DELETE FROM station_bikes WHERE bike_id = ?",
+                    statement -> statement.setString(1, bikeId));
+            return Database.update(connection, "DELETE FROM bikes WHERE bike_id = ?",
+                    statement -> statement.setString(1, bikeId)) > 0;
+        });
+    }
+    
+    @Override
+    public boolean existsById(String bikeId) {
+        return database.queryLong("SELECT COUNT(*) FROM bikes WHERE bike_id = ?",
+                statement -> statement.setString(1, bikeId)) > 0;
+    }
+    
+    /**
+     * Binds a bike to the parameters of {@link #MERGE}.
+     */
+    static void bind(PreparedStatement statement, Bike.Snapshot bike) throws SQLException {
+        statement.setString(1, bike.bikeId());
+        statement.setString(2, Database.name(bike.type()));
+        statement.setString(3, Database.name(bike.status()));
+        statement.setString(4, bike.currentStationId());
+        statement.setDouble(5, bike.batteryLevel());
+        statement.setInt(6, bike.totalRides());
+        statement.setDouble(7, bike.totalDistance());
+        statement.setObject(8, bike.lastMaintenanceDate());
+        statement.setObject(9, bike.lastUsedDate());
+        statement.setBoolean(10, bike.needsMaintenance());
+    }
+    
+    /**
+     * Reads the bike columns ({@link #COLUMNS}) of the current row.
+     */
+    static Bike.Snapshot read(ResultSet row) throws SQLException {
+        return new Bike.Snapshot(
+                row.getString("bike_id"),
+                Database.getEnum(row, "type", Bike.BikeType.class),
+                Database.getEnum(row, "status", Bike.BikeStatus.class),
+                row.getString("current_station_id"),
+                row.getDouble("battery_level"),
+                row.getInt("total_rides"),
+                row.getDouble("total_distance"),
+                Database.getDateTime(row, "last_maintenance_date"),
+                Database.getDateTime(row, "last_used_date"),
+                row.getBoolean("needs_maintenance"));
+    }
+    
+    private static Bike map(ResultSet row) throws SQLException {
+        return Bike.restore(read(row));
+    }
+}
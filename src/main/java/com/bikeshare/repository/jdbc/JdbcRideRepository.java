@@ -0,0 +1,354 @@
+package com.bikeshare.repository.jdbc;
+
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+import com.bikeshare.repository.Page;
+import com.bikeshare.repository.RideRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * RideRepository backed by the {@code rides} table.
+ * <p>
+ * A ride is active while it has no end time, matching the in-memory repository. Billable
+ * minutes are stored once a ride has ended, so counts, revenue and duration totals are
+ * single SQL aggregates. Returned rides are detached copies.
+ * <p>
+ * Pages and streams follow the {@code (start_time, ride_id)} index. Keyset pages seek with a
+ * row-value comparison; streams read through one open cursor and hold a connection until closed.
+ */
+public class JdbcRideRepository implements RideRepository {
+    
+    private static final String COLUMNS = "ride_id, user_id, bike_id, start_station_id, end_station_id, "
+            + "status, start_time, end_time, pause_start_time, total_paused_minutes, active_minutes, "
+            + "distance, base_cost, additional_cost, discount, final_cost, membership_type, "
+            + "free_minutes_used, notes";
+    
+    private static final String MERGE = "MERGE INTO rides (" + COLUMNS + ") KEY (ride_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM rides";
+    private static final String START_ORDER = " ORDER BY start_time, ride_id";
+    private static final String AFTER_KEY = "(start_time, ride_id) > (?, ?)";
+    private static final String STARTED_BETWEEN = "start_time > ? AND start_time < ?";
+    
+    private final Database database;
+    
+    public JdbcRideRepository(Database database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null");
+        }
+        this.database = database;
+    }
+    
+    @Override
+    public Ride save(Ride ride) {
+        RideRow row = RideRow.of(ride);
+        database.update(MERGE, statement -> bind(statement, row));
+        return ride;
+    }
+    
+    @Override
+    public List<Ride> saveAll(Collection<Ride> rides) {
+        List<RideRow> rows = new ArrayList<>(rides.size());
+        for (Ride ride : rides) {
+            rows.add(RideRow.of(ride));
+        }
+        database.inTransaction(connection -> {
+            PreparedStatement statement = connection.prepare(MERGE);
+            for (RideRow row : rows) {
+                bind(statement, row);
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        });
+        return new ArrayList<>(rides);
+    }
+    
+    @Override
+    public Optional<Ride> findById(String rideId) {
+        return database.queryOne(SELECT + " WHERE ride_id = ?",
+                statement -> statement.setString(1, rideId), JdbcRideRepository::map);
+    }
+    
+    @Override
+    public List<Ride> findAll() {
+        return database.query(SELECT, Database.Binder.NONE, JdbcRideRepository::map);
+    }
+    
+    @Override
+    public Page<Ride> findAll(String afterToken, int limit) {
+        Page.checkLimit(limit);
+        if (afterToken == null) {
+            return page(database.query(SELECT + START_ORDER + " LIMIT ?",
+                    statement -> statement.setInt(1, limit + 1), JdbcRideRepository::map), limit);
+        }
+        StartKey after = StartKey.fromToken(afterToken);
+        return page(database.query(SELECT + " WHERE " + AFTER_KEY + START_ORDER + " LIMIT ?",
+                statement -> {
+                    statement.setObject(1, after.startTime());
+                    statement.setString(2, after.rideId());
+                    statement.setInt(3, limit + 1);
+                }, JdbcRideRepository::map), limit);
+    }
+    
+    @Override
+    public Stream<Ride> streamAll() {
+        return database.stream(SELECT + START_ORDER, Database.Binder.NONE, JdbcRideRepository::map);
+    }
+    
+    @Override
+    public List<Ride> findByUserId(String userId) {
+        return findBy("user_id", userId);
+    }
+    
+    @Override
+    public List<Ride> findByBikeId(String bikeId) {
+        return findBy("bike_id", bikeId);
+    }
+    
+    @Override
+    public List<Ride> findActiveRidesByUserId(String userId) {
+        return findActiveRideByUserId(userId)
+                .map(List::of)
+                .orElseGet(List::of);
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByUserId(String userId) {
+        return findActiveBy("user_id", userId);
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByBikeId(String bikeId) {
+        return findActiveBy("bike_id", bikeId);
+    }
+    
+    @Override
+    public List<Ride> findCompletedRidesByUserId(String userId) {
+        return database.query(SELECT + " WHERE user_id = ? AND end_time IS NOT NULL",
+                statement -> statement.setString(1, userId), JdbcRideRepository::map);
+    }
+    
+    @Override
+    public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return findRidesBetween(startDate, endDate, 0, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        if (!startDate.isBefore(endDate) || limit == 0) {
+            return new ArrayList<>();
+        }
+        return database.query(SELECT + " WHERE start_time > ? AND start_time < ? "
+                        + "ORDER BY start_time, ride_id LIMIT ? OFFSET ?",
+                statement -> {
+                    statement.setObject(1, startDate);
+                    statement.setObject(2, endDate);
+                    statement.setInt(3, limit);
+                    statement.setInt(4, offset);
+                }, JdbcRideRepository::map);
+    }
+    
+    @Override
+    public Page<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, String afterToken, int limit) {
+        Page.checkLimit(limit);
+        StartKey after = afterToken != null ? StartKey.fromToken(afterToken) : null;
+        if (!startDate.isBefore(endDate)) {
+            return new Page<>(List.of(), null);
+        }
+        if (after == null) {
+            return page(database.query(SELECT + " WHERE " + STARTED_BETWEEN + START_ORDER + " LIMIT ?",
+                    statement -> {
+                        statement.setObject(1, startDate);
+                        statement.setObject(2, endDate);
+                        statement.setInt(3, limit + 1);
+                    }, JdbcRideRepository::map), limit);
+        }
+        return page(database.query(SELECT + " WHERE " + STARTED_BETWEEN + " AND " + AFTER_KEY
+                        + START_ORDER + " LIMIT ?",
+                statement -> {
+                    statement.setObject(1, startDate);
+                    statement.setObject(2, endDate);
+                    statement.setObject(3, after.startTime());
+                    statement.setString(4, after.rideId());
+                    statement.setInt(5, limit + 1);
+                }, JdbcRideRepository::map), limit);
+    }
+    
+    @Override
+    public Stream<Ride> streamRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return database.stream(SELECT + " WHERE " + STARTED_BETWEEN + START_ORDER,
+                statement -> {
+                    statement.setObject(1, startDate);
+                    statement.setObject(2, endDate);
+                }, JdbcRideRepository::map);
+    }
+    
+    @Override
+    public List<Ride> findByStartStationId(String stationId) {
+        return findBy("start_station_id", stationId);
+    }
+    
+    @Override
+    public List<Ride> findByEndStationId(String stationId) {
+        return findBy("end_station_id", stationId);
+    }
+    
+    @Override
+    public List<Ride> findRidesLongerThan(int minutes) {
+        // Ended rides compare their stored minutes; active rides are measured against now
+        return database.query(SELECT + " WHERE active_minutes > ? OR (end_time IS NULL "
+                        + "AND DATEADD(MINUTE, ? + total_paused_minutes + 1, start_time) <= ?)",
+                statement -> {
+                    statement.setLong(1, minutes);
+                    statement.setLong(2, minutes);
+                    statement.setObject(3, LocalDateTime.now());
+                }, JdbcRideRepository::map);
+    }
+    
+    @Override
+    public List<Ride> findRidesWithCostHigherThan(double amount) {
+        return database.query(SELECT + " WHERE final_cost > ?",
+                statement -> statement.setDouble(1, amount), JdbcRideRepository::map);
+    }
+    
+    @Override
+    public long count() {
+        return database.queryLong("SELECT COUNT(*) FROM rides", Database.Binder.NONE);
+    }
+    
+    @Override
+    public long countActiveRides() {
+        return database.queryLong("SELECT COUNT(*) FROM rides WHERE end_time IS NULL", Database.Binder.NONE);
+    }
+    
+    @Override
+    public long countCompletedRides() {
+        return database.queryLong("SELECT COUNT(*) FROM rides WHERE end_time IS NOT NULL", Database.Binder.NONE);
+    }
+    
+    @Override
+    public boolean deleteById(String rideId) {
+        return database.update("DELETE FROM rides WHERE ride_id = ?",
+                statement -> statement.setString(1, rideId)) > 0;
+    }
+    
+    @Override
+    public boolean existsById(String rideId) {
+        return database.queryLong("SELECT COUNT(*) FROM rides WHERE ride_id = ?",
+                statement -> statement.setString(1, rideId)) > 0;
+    }
+    
+    @Override
+    public double calculateTotalRevenue() {
+        // Sum whole cents so the total is exact, as in the in-memory repository
+        return database.queryLong("SELECT COALESCE(SUM(CAST(ROUND(final_cost * 100) AS BIGINT)), 0) "
+                + "FROM rides WHERE end_time IS NOT NULL", Database.Binder.NONE) / 100.0;
+    }
+    
+    @Override
+    public long calculateTotalRideDuration() {
+        return database.queryLong("SELECT COALESCE(SUM(active_minutes), 0) FROM rides", Database.Binder.NONE);
+    }
+    
+    private List<Ride> findBy(String column, String value) {
+        return database.query(SELECT + " WHERE " + column + " = ?",
+                statement -> statement.setString(1, value), JdbcRideRepository::map);
+    }
+    
+    private Optional<Ride> findActiveBy(String column, String value) {
+        return database.queryOne(SELECT + " WHERE " + column + " = ? AND end_time IS NULL "
+                        + "ORDER BY start_time DESC LIMIT 1",
+                statement -> statement.setString(1, value), JdbcRideRepository::map);
+    }
+    
+    private static Page<Ride> page(List<Ride> fetched, int limit) {
+        return Page.of(fetched, limit, ride -> Page.token(ride.getStartTime().toString(), ride.getRideId()));
+    }
+    
+    private static void bind(PreparedStatement statement, RideRow row) throws SQLException {
+        Ride.Snapshot state = row.state();
+        statement.setString(1, state.rideId());
+        statement.setString(2, state.userId());
+        statement.setString(3, state.bikeId());
+        statement.setString(4, state.startStationId());
+        statement.setString(5, state.endStationId());
+        statement.setString(6, Database.name(state.status()));
+        statement.setObject(7, state.startTime());
+        statement.setObject(8, state.endTime());
+        statement.setObject(9, state.pauseStartTime());
+        statement.setLong(10, state.totalPausedMinutes());
+        statement.setObject(11, row.activeMinutes());
+        statement.setDouble(12, state.distance());
+        statement.setDouble(13, state.baseCost());
+        statement.setDouble(14, state.additionalCost());
+        statement.setDouble(15, state.discount());
+        statement.setDouble(16, state.finalCost());
+        statement.setString(17, Database.name(state.membershipType()));
+        statement.setBoolean(18, state.freeMinutesUsed());
+        statement.setString(19, state.notes());
+    }
+    
+    /**
+     * A ride's state plus its billable minutes, fixed once the ride has ended.
+     */
+    private record RideRow(Ride.Snapshot state, Long activeMinutes) {
+        
+        static RideRow of(Ride ride) {
+            return new RideRow(ride.snapshot(), ride.getEndTime() != null ? ride.getActiveMinutes() : null);
+        }
+    }
+    
+    private static Ride map(ResultSet row) throws SQLException {
+        return Ride.restore(new Ride.Snapshot(
+                row.getString("ride_id"),
+                row.getString("user_id"),
+                row.getString("bike_id"),
+                row.getString("start_station_id"),
+                row.getString("end_station_id"),
+                Database.getEnum(row, "status", Ride.RideStatus.class),
+                Database.getDateTime(row, "start_time"),
+                Database.getDateTime(row, "end_time"),
+                Database.getDateTime(row, "pause_start_time"),
+                row.getLong("total_paused_minutes"),
+                row.getDouble("distance"),
+                row.getDouble("base_cost"),
+                row.getDouble("additional_cost"),
+                row.getDouble("discount"),
+                row.getDouble("final_cost"),
+                Database.getEnum(row, "membership_type", User.MembershipType.class),
+                row.getBoolean("free_minutes_used"),
+                row.getString("notes")));
+    }
+    
+    /**
+     * Position in start order that a keyset page continues after.
+     */
+    private record StartKey(LocalDateTime startTime, String rideId) {
+        
+        static StartKey fromToken(String token) {
+            String[] parts = Page.tokenParts(token, 2);
+            try {
+                return new StartKey(LocalDateTime.parse(parts[0]), parts[1]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid page token", e);
+            }
+        }
+    }
+}
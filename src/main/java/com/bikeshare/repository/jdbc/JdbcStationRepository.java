@@ -0,0 +1,271 @@
+package com.bikeshare.repository.jdbc;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Station;
+import com.bikeshare.repository.StationRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * StationRepository backed by the {@code stations} and {@code station_bikes} tables.
+ * <p>
+ * Saving a station also writes its docked bikes, so a station is always loaded with the
+ * bikes it was saved with. Distance filtering and ordering for nearest-station queries run
+ * in SQL, with a bounding box on the indexed coordinates to keep the candidate set small.
+ * Returned stations (and their bikes) are detached copies.
+ */
+public class JdbcStationRepository implements StationRepository {
+    
+    private static final double EARTH_RADIUS_KM = 6371;
+    private static final double KM_PER_DEGREE_LATITUDE = EARTH_RADIUS_KM * Math.PI / 180;
+    
+    private static final String COLUMNS = "station_id, name, address, latitude, longitude, capacity, "
+            + "status, charging_available, charging_rate";
+    
+    private static final String MERGE = "MERGE INTO stations (" + COLUMNS + ") KEY (station_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM stations s";
+    
+    // Haversine distance in km from (?, ?) to the station row, evaluated by the database
+    private static final String DISTANCE = EARTH_RADIUS_KM + " * 2 * ASIN(SQRT("
+            + "POWER(SIN(RADIANS(s.latitude - ?) / 2), 2) + "
+            + "COS(RADIANS(?)) * COS(RADIANS(s.latitude)) * POWER(SIN(RADIANS(s.longitude - ?) / 2), 2)))";
+    
+    private static final String DOCKED_COUNT =
+            "(SELECT COUNT(*) FROM station_bikes sb WHERE sb.station_id = s.station_id)";
+    
+    private static final String HAS_RENTABLE_BIKE = "EXISTS (SELECT 1 FROM station_bikes sb "
+            + "JOIN bikes b ON b.bike_id = sb.bike_id WHERE sb.station_id = s.station_id "
+            + "AND sb.reserved = FALSE AND b.status = 'AVAILABLE' AND b.needs_maintenance = FALSE)";
+    
+    private final Database database;
+    
+    public JdbcStationRepository(Database database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null");
+        }
+        this.database = database;
+    }
+    
+    @Override
+    public Station save(Station station) {
+        Station.Snapshot state = station.snapshot();
+        database.inTransaction(connection -> {
+            write(connection, state);
+            return null;
+        });
+        return station;
+    }
+    
+    @Override
+    public List<Station> saveAll(Collection<Station> stations) {
+        List<Station.Snapshot> states = new ArrayList<>(stations.size());
+        for (Station station : stations) {
+            states.add(station.snapshot());
+        }
+        database.inTransaction(connection -> {
+            for (Station.Snapshot state : states) {
+                write(connection, state);
+            }
+            return null;
+        });
+        return new ArrayList<>(stations);
+    }
+    
+    @Override
+    public Optional<Station> findById(String stationId) {
+        List<Station> stations = load("s.station_id = ?", statement -> statement.setString(1, stationId), "");
+        return stations.isEmpty() ? Optional.empty() : Optional.of(stations.get(0));
+    }
+    
+    @Override
+    public List<Station> findAll() {
+        return load("TRUE", Database.Binder.NONE, "");
+    }
+    
+    @Override
+    public List<Station> findByNameContaining(String name) {
+        return load("LOCATE(?, LOWER(s.name)) > 0",
+                statement -> statement.setString(1, name.toLowerCase()), "");
+    }
+    
+    @Override
+    public List<Station> findStationsInArea(double minLatitude, double maxLatitude,
+                                          double minLongitude, double maxLongitude) {
+        return load("s.latitude BETWEEN ? AND ? AND s.longitude BETWEEN ? AND ?", statement -> {
+            statement.setDouble(1, minLatitude);
+            statement.setDouble(2, maxLatitude);
+            statement.setDouble(3, minLongitude);
+            statement.setDouble(4, maxLongitude);
+        }, "");
+    }
+    
+    @Override
+    public List<Station> findStationsWithAvailableCapacity() {
+        return load(DOCKED_COUNT + " < s.capacity", Database.Binder.NONE, "");
+    }
+    
+    @Override
+    public List<Station> findStationsWithAvailableBikes() {
+        return load(HAS_RENTABLE_BIKE, Database.Binder.NONE, "");
+    }
+    
+    @Override
+    public long count() {
+        return database.queryLong("SELECT COUNT(*) FROM stations", Database.Binder.NONE);
+    }
+    
+    @Override
+    public boolean deleteById(String stationId) {
+        return database.update("DELETE FROM stations WHERE station_id = ?",
+                statement -> statement.setString(1, stationId)) > 0;
+    }
+    
+    @Override
+    public boolean existsById(String stationId) {
+        return database.queryLong("SELECT COUNT(*) FROM stations WHERE station_id = ?",
+                statement -> statement.setString(1, stationId)) > 0;
+    }
+    
+    @Override
+    public List<Station> findNearestStations(double latitude, double longitude,
+                                           double maxDistance, int limit) {
+        if (limit <= 0 || maxDistance < 0) {
+            return new ArrayList<>();
+        }
+        double latitudeDelta = maxDistance / KM_PER_DEGREE_LATITUDE;
+        double cosLatitude = Math.cos(Math.toRadians(Math.min(89.9, Math.abs(latitude) + latitudeDelta)));
+        double longitudeDelta = Math.min(180, maxDistance / (KM_PER_DEGREE_LATITUDE * cosLatitude));
+        
+        String where = "s.latitude BETWEEN ? AND ? AND s.longitude BETWEEN ? AND ? AND " + DISTANCE + " <= ?";
+        String orderBy = " ORDER BY " + DISTANCE + ", s.station_id LIMIT " + limit;
+        return load(where, statement -> {
+            statement.setDouble(1, latitude - latitudeDelta);
+            statement.setDouble(2, latitude + latitudeDelta);
+            statement.setDouble(3, longitude - longitudeDelta);
+            statement.setDouble(4, longitude + longitudeDelta);
+            statement.setDouble(5, latitude);
+            statement.setDouble(6, latitude);
+            statement.setDouble(7, longitude);
+            statement.setDouble(8, maxDistance);
+            statement.setDouble(9, latitude);
+            statement.setDouble(10, latitude);
+            statement.setDouble(11, longitude);
+        }, orderBy);
+    }
+    
+    private static void write(PooledConnection connection, Station.Snapshot state) throws SQLException {
+        Database.update(connection, MERGE, statement -> {
+            statement.setString(1, state.stationId());
+            statement.setString(2, state.name());
+            statement.setString(3, state.address());
+            statement.setDouble(4, state.latitude());
+            statement.setDouble(5, state.longitude());
+            statement.setInt(6, state.capacity());
+            statement.setString(7, Database.name(state.status()));
+            statement.setBoolean(8, state.chargingAvailable());
+            statement.setDouble(9, state.chargingRate());
+        });
+        Database.update(connection, "DELETE FROM station_bikes WHERE station_id = ?",
+                statement -> statement.setString(1, state.stationId()));
+        if (state.dockedBikes().isEmpty()) {
+            return;
+        }
+        
+        PreparedStatement bikes = connection.prepare(JdbcBikeRepository.MERGE);
+        PreparedStatement docked = connection.prepare(
+                "MERGE INTO station_bikes (bike_id, station_id, reserved) KEY (bike_id) VALUES (?, ?, ?)");
+        for (Bike.Snapshot bike : state.dockedBikes()) {
+            JdbcBikeRepository.bind(bikes, bike);
+            bikes.addBatch();
+            docked.setString(1, bike.bikeId());
+            docked.setString(2, state.stationId());
+            docked.setBoolean(3, state.reservedBikeIds().contains(bike.bikeId()));
+            docked.addBatch();
+        }
+        bikes.executeBatch();
+        docked.executeBatch();
+    }
+    
+    /**
+     * Loads the stations matching a condition, and their docked bikes in one more query.
+     * The condition's parameters are bound twice, once per query, so it must only use
+     * parameters of its own.
+     */
+    private List<Station> load(String condition, Database.Binder binder, String orderBy) {
+        return database.inTransaction(connection -> {
+            Map<String, StationRow> rows = new LinkedHashMap<>();
+            for (StationRow row : Database.query(connection,
+                    SELECT + " WHERE " + condition + orderBy, binder, StationRow::read)) {
+                rows.put(row.stationId(), row);
+            }
+            if (rows.isEmpty()) {
+                return new ArrayList<>();
+            }
+            
+            String dockedSql = "SELECT sb.station_id AS docked_at, sb.reserved, b.* FROM station_bikes sb "
+                    + "JOIN bikes b ON b.bike_id = sb.bike_id "
+                    + "WHERE sb.station_id IN (SELECT s.station_id FROM stations s WHERE " + condition + orderBy + ")";
+            for (DockedBike bike : Database.query(connection, dockedSql, binder, DockedBike::read)) {
+                StationRow row = rows.get(bike.stationId());
+                if (row != null) {
+                    row.bikes().add(bike.bike());
+                    if (bike.reserved()) {
+                        row.reservedBikeIds().add(bike.bike().bikeId());
+                    }
+                }
+            }
+            
+            List<Station> stations = new ArrayList<>(rows.size());
+            for (StationRow row : rows.values()) {
+                stations.add(Station.restore(row.toSnapshot()));
+            }
+            return stations;
+        });
+    }
+    
+    private record StationRow(String stationId, String name, String address, double latitude,
+                              double longitude, int capacity, Station.StationStatus status,
+                              boolean chargingAvailable, double chargingRate,
+                              List<Bike.Snapshot> bikes, Set<String> reservedBikeIds) {
+        
+        static StationRow read(ResultSet row) throws SQLException {
+            return new StationRow(
+                    row.getString("station_id"),
+                    row.getString("name"),
+                    row.getString("address"),
+                    row.getDouble("latitude"),
+                    row.getDouble("longitude"),
+                    row.getInt("capacity"),
+                    Database.getEnum(row, "status", Station.StationStatus.class),
+                    row.getBoolean("charging_available"),
+                    row.getDouble("charging_rate"),
+                    new ArrayList<>(),
+                    new HashSet<>());
+        }
+        
+        Station.Snapshot toSnapshot() {
+            return new Station.Snapshot(stationId, name, address, latitude, longitude, capacity, status,
+                    chargingAvailable, chargingRate, bikes, reservedBikeIds);
+        }
+    }
+    
+    private record DockedBike(String stationId, boolean reserved, Bike.Snapshot bike) {
+        
+        static DockedBike read(ResultSet row) throws SQLException {
+            return new DockedBike(row.getString("docked_at"), row.getBoolean("reserved"),
+                    JdbcBikeRepository.read(row));
+        }
+    }
+}
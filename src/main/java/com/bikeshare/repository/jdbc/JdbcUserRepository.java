@@ -0,0 +1,217 @@
+package com.bikeshare.repository.jdbc;
+
+import com.bikeshare.model.User;
+import com.bikeshare.repository.Page;
+import com.bikeshare.repository.UserRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * UserRepository backed by the {@code users} table.
+ * Email uniqueness is enforced by a unique index; returned users are detached copies.
+ */
+public class JdbcUserRepository implements UserRepository {
+    
+    private static final String COLUMNS = "user_id, email, phone_number, first_name, last_name, status, "
+            + "membership_type, registration_date, last_active_date, account_balance, total_rides, "
+            + "total_spent, email_verified, phone_verified, suspension_count, current_ride_id";
+    
+    private static final String MERGE = "MERGE INTO users (" + COLUMNS + ") KEY (user_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM users";
+    
+    private final Database database;
+    
+    public JdbcUserRepository(Database database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null");
+        }
+        this.database = database;
+    }
+    
+    /**
+     * Saves a user.
+     * @param user the user to save
+     * @return saved user
+     * @throws IllegalArgumentException if another user already has the same email
+     */
+    @Override
+    public User save(User user) {
+        User.Snapshot state = user.snapshot();
+        database.withConnection(connection -> {
+            try {
+                return Database.update(connection, MERGE, statement -> bind(statement, state));
+            } catch (SQLException e) {
+                throw emailConflict(e, List.of(state));
+            }
+        });
+        return user;
+    }
+    
+    /**
+     * Saves a batch of users in one transaction; if any email conflicts, none are saved.
+     * @param users the users to save
+     * @return saved users
+     * @throws IllegalArgumentException if another user already has the email of a user in the batch
+     */
+    @Override
+    public List<User> saveAll(Collection<User> users) {
+        List<User.Snapshot> states = new ArrayList<>(users.size());
+        for (User user : users) {
+            states.add(user.snapshot());
+        }
+        database.inTransaction(connection -> {
+            try {
+                PreparedStatement statement = connection.prepare(MERGE);
+                for (User.Snapshot state : states) {
+                    bind(statement, state);
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            } catch (SQLException e) {
+                throw emailConflict(e, states);
+            }
+        });
+        return new ArrayList<>(users);
+    }
+    
+    @Override
+    public Optional<User> findById(String userId) {
+        return database.queryOne(SELECT + " WHERE user_id = ?",
+                statement -> statement.setString(1, userId), JdbcUserRepository::map);
+    }
+    
+    @Override
+    public List<User> findAll() {
+        return database.query(SELECT, Database.Binder.NONE, JdbcUserRepository::map);
+    }
+    
+    @Override
+    public Page<User> findAll(String afterToken, int limit) {
+        Page.checkLimit(limit);
+        List<User> fetched;
+        if (afterToken == null) {
+            fetched = database.query(SELECT + " ORDER BY user_id LIMIT ?",
+                    statement -> statement.setInt(1, limit + 1), JdbcUserRepository::map);
+        } else {
+            String after = Page.tokenParts(afterToken, 1)[0];
+            fetched = database.query(SELECT + " WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                    statement -> {
+                        statement.setString(1, after);
+                        statement.setInt(2, limit + 1);
+                    }, JdbcUserRepository::map);
+        }
+        return Page.of(fetched, limit, user -> Page.token(user.getUserId()));
+    }
+    
+    @Override
+    public Stream<User> streamAll() {
+        return database.stream(SELECT + " ORDER BY user_id", Database.Binder.NONE, JdbcUserRepository::map);
+    }
+    
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return database.queryOne(SELECT + " WHERE email = ?",
+                statement -> statement.setString(1, User.normalizeEmail(email)), JdbcUserRepository::map);
+    }
+    
+    @Override
+    public List<User> findByStatus(User.UserStatus status) {
+        return database.query(SELECT + " WHERE status = ?",
+                statement -> statement.setString(1, Database.name(status)), JdbcUserRepository::map);
+    }
+    
+    @Override
+    public List<User> findByMembershipType(User.MembershipType membershipType) {
+        return database.query(SELECT + " WHERE membership_type = ?",
+                statement -> statement.setString(1, Database.name(membershipType)), JdbcUserRepository::map);
+    }
+    
+    @Override
+    public List<User> findByRegistrationDateBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return database.query(SELECT + " WHERE registration_date > ? AND registration_date < ?",
+                statement -> {
+                    statement.setObject(1, startDate);
+                    statement.setObject(2, endDate);
+                }, JdbcUserRepository::map);
+    }
+    
+    @Override
+    public long count() {
+        return database.queryLong("SELECT COUNT(*) FROM users", Database.Binder.NONE);
+    }
+    
+    @Override
+    public void deleteById(String userId) {
+        database.update("DELETE FROM users WHERE user_id = ?", statement -> statement.setString(1, userId));
+    }
+    
+    @Override
+    public boolean existsById(String userId) {
+        return database.queryLong("SELECT COUNT(*) FROM users WHERE user_id = ?",
+                statement -> statement.setString(1, userId)) > 0;
+    }
+    
+    private static void bind(PreparedStatement statement, User.Snapshot state) throws SQLException {
+        statement.setString(1, state.userId());
+        statement.setString(2, state.email());
+        statement.setString(3, state.phoneNumber());
+        statement.setString(4, state.firstName());
+        statement.setString(5, state.lastName());
+        statement.setString(6, Database.name(state.status()));
+        statement.setString(7, Database.name(state.membershipType()));
+        statement.setObject(8, state.registrationDate());
+        statement.setObject(9, state.lastActiveDate());
+        statement.setDouble(10, state.accountBalance());
+        statement.setInt(11, state.totalRides());
+        statement.setDouble(12, state.totalSpent());
+        statement.setBoolean(13, state.emailVerified());
+        statement.setBoolean(14, state.phoneVerified());
+        statement.setInt(15, state.suspensionCount());
+        statement.setString(16, state.currentRideId());
+    }
+    
+    /**
+     * Turns a unique-index violation into the same error the in-memory repository raises;
+     * any other failure is passed on unchanged.
+     */
+    private static SQLException emailConflict(SQLException e, List<User.Snapshot> states) {
+        if (Database.isUniqueViolation(e)) {
+            String email = states.size() == 1 ? states.get(0).email() : "(batch)";
+            throw new IllegalArgumentException("Email already in use: " + email);
+        }
+        return e;
+    }
+    
+    private static User map(ResultSet row) throws SQLException {
+        return User.restore(new User.Snapshot(
+                row.getString("user_id"),
+                row.getString("email"),
+                row.getString("phone_number"),
+                row.getString("first_name"),
+                row.getString("last_name"),
+                Database.getEnum(row, "status", User.UserStatus.class),
+                Database.getEnum(row, "membership_type", User.MembershipType.class),
+                Database.getDateTime(row, "registration_date"),
+                Database.getDateTime(row, "last_active_date"),
+                row.getDouble("account_balance"),
+                row.getInt("total_rides"),
+                row.getDouble("total_spent"),
+                row.getBoolean("email_verified"),
+                row.getBoolean("phone_verified"),
+                row.getInt("suspension_count"),
+                row.getString("current_ride_id")));
+    }
+}
@@ -0,0 +1,120 @@
+package com.bikeshare.repository.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A pooled JDBC connection with its own prepared-statement cache.
+ * <p>
+ * Statements are keyed by SQL text and kept open across borrows, so hot queries are parsed
+ * and planned once per connection. The cache is LRU-bounded; evicted statements are closed.
+ * A pooled connection is used by one thread at a time and is not thread-safe.
+ */
+public class PooledConnection implements AutoCloseable {
+    
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Gets a prepared statement for the SQL, reusing a cached one when possible.
+     * The caller must not close the returned statement.
+     * @param sql the SQL text
+     * @return prepared statement with cleared parameters
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+    
+    /**
+     * Gets the underlying connection, e.g. for transaction control.
+     * @return the JDBC connection
+     */
+    public Connection connection() {
+        return connection;
+    }
+    
+    /**
+     * Gets the number of statements currently cached.
+     * @return cached statement count
+     */
+    public int cachedStatementCount() {
+        return statements.size();
+    }
+    
+    /**
+     * Restores auto-commit after a borrower left a transaction open.
+     * @return true if the connection can be handed out again
+     */
+    boolean resetForReuse() {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    boolean isOpen() {
+        try {
+            return !connection.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Closes all cached statements and the physical connection.
+     */
+    @Override
+    public void close() {
+        for (Iterator<PreparedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+            closeQuietly(it.next());
+            it.remove();
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Nothing useful to do when a connection fails to close
+        }
+    }
+    
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Statement is being discarded anyway
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.bikeshare.repository.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of repository mutations, split into fixed-size segment files that are
+ * written through memory-mapped buffers.
+ * <p>
+ * Each segment starts with a header carrying its sequence number, followed by CRC-framed
+ * records (see {@link JournalCodec}). Segments are pre-allocated, so the unwritten tail reads
+ * as zeros and replay stops there; a record cut short by a crash fails its CRC and is
+ * treated the same way. A journal never appends to a segment it did not create, so a torn
+ * tail is never overwritten.
+ * <p>
+ * Appends land in the page cache and survive a process crash as soon as they return;
+ * {@link #sync()} forces them to disk so they also survive a power failure.
+ */
+class Journal implements AutoCloseable {
+    
+    static final int SEGMENT_MAGIC = 0x42534A4C; // "BSJL"
+    static final int FORMAT_VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 16;
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final JournalCodec.Output output = new JournalCodec.Output();
+    private MappedByteBuffer segment;
+    private long segmentSequence;
+    private long appendedBytes;
+    private boolean closed;
+    
+    private Journal(Path directory, int segmentSize, long firstSequence) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        openSegment(firstSequence);
+    }
+    
+    /**
+     * Starts appending to a new segment after all existing ones.
+     * @param directory journal directory
+     * @param segmentSize size in bytes of each segment file
+     * @return journal positioned at the start of a fresh segment
+     */
+    static Journal open(Path directory, int segmentSize) {
+        List<Long> existing = segmentSequences(directory, 0);
+        long next = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+        return new Journal(directory, segmentSize, next);
+    }
+    
+    /**
+     * Appends one record.
+     * @param type record type
+     * @param encoder writes the payload
+     * @param value value to encode
+     * @param <T> payload type
+     * @throws IllegalArgumentException if the record cannot fit in a segment
+     */
+    synchronized <T> void append(RecordType type, BiConsumer<JournalCodec.Output, T> encoder, T value) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        output.reset();
+        encoder.accept(output, value);
+        ByteBuffer payload = output.buffer().flip();
+        int frameBytes = JournalCodec.FRAME_HEADER_BYTES + 1 + payload.remaining();
+        if (frameBytes > segmentSize - SEGMENT_HEADER_BYTES) {
+            throw new IllegalArgumentException("Record of " + frameBytes + " bytes exceeds the segment size");
+        }
+        if (frameBytes > segment.remaining()) {
+            roll();
+        }
+        JournalCodec.writeFrame(segment, type, payload);
+        appendedBytes += frameBytes;
+    }
+    
+    /**
+     * Closes the current segment and continues in a new one. Every record appended before
+     * this call is in a segment with a lower sequence number than the returned one.
+     * @return sequence number of the new segment
+     */
+    synchronized long roll() {
+        segment.force();
+        openSegment(segmentSequence + 1);
+        return segmentSequence;
+    }
+    
+    /**
+     * Forces appended records to the storage device.
+     */
+    void sync() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            current = segment;
+        }
+        current.force();
+    }
+    
+    /**
+     * Gets the number of bytes appended since the journal was opened.
+     * @return appended byte count
+     */
+    synchronized long getAppendedBytes() {
+        return appendedBytes;
+    }
+    
+    /**
+     * Deletes segments that are fully covered by a snapshot.
+     * @param sequence first segment to keep
+     */
+    void deleteSegmentsBefore(long sequence) {
+        for (long old : segmentSequences(directory, 0)) {
+            if (old >= sequence) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segmentPath(directory, old));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            segment.force();
+            closed = true;
+        }
+    }
+    
+    private void openSegment(long sequence) {
+        try (FileChannel channel = FileChannel.open(segmentPath(directory, sequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + sequence, e);
+        }
+        segment.putInt(SEGMENT_MAGIC);
+        segment.putInt(FORMAT_VERSION);
+        segment.putLong(sequence);
+        segmentSequence = sequence;
+    }
+    
+    // Replay
+    
+    /**
+     * Reads every intact record of the segments from a sequence number on, in append order.
+     * @param directory journal directory
+     * @param fromSequence first segment to read
+     * @param handler receives each record; its payload is only valid during the call
+     */
+    static void replay(Path directory, long fromSequence, Consumer<JournalCodec.Frame> handler) {
+        for (long sequence : segmentSequences(directory, fromSequence)) {
+            Path path = segmentPath(directory, sequence);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.remaining() < SEGMENT_HEADER_BYTES
+                        || buffer.getInt() != SEGMENT_MAGIC
+                        || buffer.getInt() != FORMAT_VERSION
+                        || buffer.getLong() != sequence) {
+                    throw new IllegalStateException("Corrupt journal segment header: " + path);
+                }
+                JournalCodec.Frame frame;
+                while ((frame = JournalCodec.readFrame(buffer)) != null) {
+                    handler.accept(frame);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read journal segment " + path, e);
+            }
+        }
+    }
+    
+    static Path segmentPath(Path directory, long sequence) {
+        return directory.resolve(String.format("journal-%016d.log", sequence));
+    }
+    
+    private static List<Long> segmentSequences(Path directory, long fromSequence) {
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("journal-") && name.endsWith(".log"))
+                    .map(name -> Long.parseLong(name, "journal-".length(), name.length() - ".log".length(), 10))
+                    .filter(sequence -> sequence >= fromSequence)
+                    .sorted()
+                    .forEach(sequences::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal directory " + directory, e);
+        }
+        return sequences;
+    }
+}
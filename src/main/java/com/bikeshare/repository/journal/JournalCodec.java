@@ -0,0 +1,307 @@
+package com.bikeshare.repository.journal;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.Station;
+import com.bikeshare.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of entity snapshots and record framing shared by journal segments and
+ * snapshot files.
+ * <p>
+ * A frame is {@code [int length][int crc][byte type][payload]} where length counts the type
+ * byte and payload, and the CRC covers the same bytes. A zero length marks the end of the
+ * written part of a pre-allocated segment; a bad CRC marks a torn write.
+ */
+final class JournalCodec {
+    
+    static final int FRAME_HEADER_BYTES = 8;
+    
+    private JournalCodec() {
+    }
+    
+    /**
+     * Growable heap buffer used to encode one record before it is framed.
+     */
+    static final class Output {
+        private ByteBuffer buffer = ByteBuffer.allocate(1024);
+        
+        void reset() {
+            buffer.clear();
+        }
+        
+        ByteBuffer buffer() {
+            return buffer;
+        }
+        
+        private ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            return buffer;
+        }
+        
+        void putByte(int value) {
+            ensure(1).put((byte) value);
+        }
+        
+        void putInt(int value) {
+            ensure(4).putInt(value);
+        }
+        
+        void putLong(long value) {
+            ensure(8).putLong(value);
+        }
+        
+        void putDouble(double value) {
+            ensure(8).putDouble(value);
+        }
+        
+        void putBoolean(boolean value) {
+            putByte(value ? 1 : 0);
+        }
+        
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length).put(bytes);
+        }
+        
+        void putEnum(Enum<?> value) {
+            putByte(value != null ? value.ordinal() : -1);
+        }
+        
+        void putDateTime(LocalDateTime value) {
+            if (value == null) {
+                putByte(0);
+                return;
+            }
+            putByte(1);
+            putLong(value.toEpochSecond(ZoneOffset.UTC));
+            putInt(value.getNano());
+        }
+    }
+    
+    // Framing
+    
+    /**
+     * Computes the CRC of a frame body (type byte and payload).
+     */
+    static int crc(byte type, ByteBuffer payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(type);
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Writes a complete frame for an encoded payload (position 0 to limit).
+     */
+    static void writeFrame(ByteBuffer target, RecordType type, ByteBuffer payload) {
+        target.putInt(payload.remaining() + 1);
+        target.putInt(crc(type.code, payload));
+        target.put(type.code);
+        target.put(payload.duplicate());
+    }
+    
+    /**
+     * Reads the frame at the source's position, advancing past it if it is valid.
+     * @return the payload as a slice with its type, or null at the end of data or a torn frame
+     */
+    static Frame readFrame(ByteBuffer source) {
+        if (source.remaining() < FRAME_HEADER_BYTES + 1) {
+            return null;
+        }
+        int start = source.position();
+        int length = source.getInt(start);
+        int storedCrc = source.getInt(start + 4);
+        if (length <= 0 || length > source.remaining() - FRAME_HEADER_BYTES) {
+            return null;
+        }
+        byte code = source.get(start + FRAME_HEADER_BYTES);
+        ByteBuffer payload = source.slice(start + FRAME_HEADER_BYTES + 1, length - 1);
+        RecordType type = RecordType.of(code);
+        if (type == null || crc(code, payload) != storedCrc) {
+            return null;
+        }
+        source.position(start + FRAME_HEADER_BYTES + length);
+        return new Frame(type, payload);
+    }
+    
+    record Frame(RecordType type, ByteBuffer payload) {
+    }
+    
+    // Entities
+    
+    // The write* variants take the snapshot themselves, so that a journal capturing them under
+    // its append lock records states in the same order as it records the appends
+    
+    static void writeBike(Output out, Bike bike) {
+        encode(out, bike.snapshot());
+    }
+    
+    static void writeStation(Output out, Station station) {
+        encode(out, station.snapshot());
+    }
+    
+    static void writeRide(Output out, Ride ride) {
+        encode(out, ride.snapshot());
+    }
+    
+    static void encode(Output out, Bike.Snapshot bike) {
+        out.putString(bike.bikeId());
+        out.putEnum(bike.type());
+        out.putEnum(bike.status());
+        out.putString(bike.currentStationId());
+        out.putDouble(bike.batteryLevel());
+        out.putInt(bike.totalRides());
+        out.putDouble(bike.totalDistance());
+        out.putDateTime(bike.lastMaintenanceDate());
+        out.putDateTime(bike.lastUsedDate());
+        out.putBoolean(bike.needsMaintenance());
+    }
+    
+    static Bike.Snapshot decodeBike(ByteBuffer in) {
+        return new Bike.Snapshot(
+                getString(in),
+                getEnum(in, Bike.BikeType.values()),
+                getEnum(in, Bike.BikeStatus.values()),
+                getString(in),
+                in.getDouble(),
+                in.getInt(),
+                in.getDouble(),
+                getDateTime(in),
+                getDateTime(in),
+                getBoolean(in));
+    }
+    
+    static void encode(Output out, Station.Snapshot station) {
+        out.putString(station.stationId());
+        out.putString(station.name());
+        out.putString(station.address());
+        out.putDouble(station.latitude());
+        out.putDouble(station.longitude());
+        out.putInt(station.capacity());
+        out.putEnum(station.status());
+        out.putBoolean(station.chargingAvailable());
+        out.putDouble(station.chargingRate());
+        out.putInt(station.dockedBikes().size());
+        for (Bike.Snapshot bike : station.dockedBikes()) {
+            encode(out, bike);
+        }
+        out.putInt(station.reservedBikeIds().size());
+        for (String bikeId : station.reservedBikeIds()) {
+            out.putString(bikeId);
+        }
+    }
+    
+    static Station.Snapshot decodeStation(ByteBuffer in) {
+        String stationId = getString(in);
+        String name = getString(in);
+        String address = getString(in);
+        double latitude = in.getDouble();
+        double longitude = in.getDouble();
+        int capacity = in.getInt();
+        Station.StationStatus status = getEnum(in, Station.StationStatus.values());
+        boolean chargingAvailable = getBoolean(in);
+        double chargingRate = in.getDouble();
+        int dockedCount = in.getInt();
+        List<Bike.Snapshot> docked = new ArrayList<>(dockedCount);
+        for (int i = 0; i < dockedCount; i++) {
+            docked.add(decodeBike(in));
+        }
+        int reservedCount = in.getInt();
+        Set<String> reserved = new HashSet<>();
+        for (int i = 0; i < reservedCount; i++) {
+            reserved.add(getString(in));
+        }
+        return new Station.Snapshot(stationId, name, address, latitude, longitude, capacity, status,
+                chargingAvailable, chargingRate, docked, reserved);
+    }
+    
+    static void encode(Output out, Ride.Snapshot ride) {
+        out.putString(ride.rideId());
+        out.putString(ride.userId());
+        out.putString(ride.bikeId());
+        out.putString(ride.startStationId());
+        out.putString(ride.endStationId());
+        out.putEnum(ride.status());
+        out.putDateTime(ride.startTime());
+        out.putDateTime(ride.endTime());
+        out.putDateTime(ride.pauseStartTime());
+        out.putLong(ride.totalPausedMinutes());
+        out.putDouble(ride.distance());
+        out.putDouble(ride.baseCost());
+        out.putDouble(ride.additionalCost());
+        out.putDouble(ride.discount());
+        out.putDouble(ride.finalCost());
+        out.putEnum(ride.membershipType());
+        out.putBoolean(ride.freeMinutesUsed());
+        out.putString(ride.notes());
+    }
+    
+    static Ride.Snapshot decodeRide(ByteBuffer in) {
+        return new Ride.Snapshot(
+                getString(in),
+                getString(in),
+                getString(in),
+                getString(in),
+                getString(in),
+                getEnum(in, Ride.RideStatus.values()),
+                getDateTime(in),
+                getDateTime(in),
+                getDateTime(in),
+                in.getLong(),
+                in.getDouble(),
+                in.getDouble(),
+                in.getDouble(),
+                in.getDouble(),
+                in.getDouble(),
+                getEnum(in, User.MembershipType.values()),
+                getBoolean(in),
+                getString(in));
+    }
+    
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static <E extends Enum<E>> E getEnum(ByteBuffer in, E[] values) {
+        byte ordinal = in.get();
+        return ordinal >= 0 ? values[ordinal] : null;
+    }
+    
+    private static boolean getBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+    
+    private static LocalDateTime getDateTime(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,36 @@
+package com.bikeshare.repository.journal;
+
+import java.time.Duration;
+
+/**
+ * Segment sizing, checkpointing and sync settings for a {@link JournaledStore}.
+ * @param segmentSize size in bytes of each pre-allocated journal segment
+ * @param checkpointBytes journal growth since the last snapshot that triggers a new one
+ * @param syncInterval how often appended records are forced to disk
+ */
+public record JournalPolicy(int segmentSize, long checkpointBytes, Duration syncInterval) {
+    
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    public static final long DEFAULT_CHECKPOINT_BYTES = 256L << 20;
+    public static final Duration DEFAULT_SYNC_INTERVAL = Duration.ofSeconds(1);
+    
+    public JournalPolicy {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("Segment size must be at least 4096 bytes");
+        }
+        if (checkpointBytes <= 0) {
+            throw new IllegalArgumentException("Checkpoint threshold must be positive");
+        }
+        if (syncInterval == null || syncInterval.isNegative() || syncInterval.isZero()) {
+            throw new IllegalArgumentException("Sync interval must be positive");
+        }
+    }
+    
+    /**
+     * Uses 64 MB segments, snapshots after 256 MB of journal and syncs every second.
+     * @return default policy
+     */
+    public static JournalPolicy defaults() {
+        return new JournalPolicy(DEFAULT_SEGMENT_SIZE, DEFAULT_CHECKPOINT_BYTES, DEFAULT_SYNC_INTERVAL);
+    }
+}
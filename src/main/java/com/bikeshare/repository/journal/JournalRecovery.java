@@ -0,0 +1,96 @@
+package com.bikeshare.repository.journal;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.Station;
+import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.RideRepository;
+import com.bikeshare.repository.StationRepository;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds snapshot and journal records into the latest state of each entity, then loads it
+ * into the repositories in one bulk save per repository.
+ * <p>
+ * Docked bikes are recorded both on their own and inside their station's record. Every
+ * record gets an increasing stamp, and each bike is rebuilt from whichever of the two was
+ * written last, so a station saved after one of its bikes changed does not roll it back.
+ */
+final class JournalRecovery {
+    
+    private final Map<String, Bike.Snapshot> bikes = new LinkedHashMap<>();
+    private final Map<String, Long> bikeStamps = new HashMap<>();
+    private final Map<String, Station.Snapshot> stations = new LinkedHashMap<>();
+    private final Map<String, Long> stationStamps = new HashMap<>();
+    private final Map<String, Ride> rides = new HashMap<>();
+    private long stamp;
+    
+    void apply(JournalCodec.Frame frame) {
+        ByteBuffer in = frame.payload();
+        switch (frame.type()) {
+            case BIKE_SAVED -> {
+                Bike.Snapshot bike = JournalCodec.decodeBike(in);
+                bikes.put(bike.bikeId(), bike);
+                bikeStamps.put(bike.bikeId(), stamp);
+            }
+            case BIKE_DELETED -> {
+                String bikeId = JournalCodec.getString(in);
+                bikes.remove(bikeId);
+                bikeStamps.remove(bikeId);
+            }
+            case STATION_SAVED -> {
+                Station.Snapshot station = JournalCodec.decodeStation(in);
+                stations.put(station.stationId(), station);
+                stationStamps.put(station.stationId(), stamp);
+            }
+            case STATION_DELETED -> {
+                String stationId = JournalCodec.getString(in);
+                stations.remove(stationId);
+                stationStamps.remove(stationId);
+            }
+            case RIDE_SAVED -> {
+                Ride ride = Ride.restore(JournalCodec.decodeRide(in));
+                rides.put(ride.getRideId(), ride);
+            }
+            case RIDE_DELETED -> rides.remove(JournalCodec.getString(in));
+            default -> throw new IllegalStateException("Unexpected journal record: " + frame.type());
+        }
+        stamp++;
+    }
+    
+    void load(RideRepository rideRepository, BikeRepository bikeRepository, StationRepository stationRepository) {
+        for (Station.Snapshot station : stations.values()) {
+            long stationStamp = stationStamps.get(station.stationId());
+            for (Bike.Snapshot docked : station.dockedBikes()) {
+                Long bikeStamp = bikeStamps.get(docked.bikeId());
+                if (bikeStamp != null && bikeStamp < stationStamp) {
+                    bikes.put(docked.bikeId(), docked);
+                    bikeStamps.put(docked.bikeId(), stationStamp);
+                }
+            }
+        }
+        
+        Map<String, Bike> restoredBikes = new LinkedHashMap<>();
+        for (Bike.Snapshot bike : bikes.values()) {
+            restoredBikes.put(bike.bikeId(), Bike.restore(bike));
+        }
+        bikeRepository.saveAll(restoredBikes.values());
+        
+        List<Station> restoredStations = new ArrayList<>(stations.size());
+        for (Station.Snapshot station : stations.values()) {
+            restoredStations.add(Station.restore(station, docked -> {
+                Bike bike = restoredBikes.get(docked.bikeId());
+                return bike != null ? bike : Bike.restore(docked);
+            }));
+        }
+        stationRepository.saveAll(restoredStations);
+        
+        rideRepository.saveAll(rides.values());
+    }
+}
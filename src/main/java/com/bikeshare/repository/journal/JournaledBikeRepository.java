@@ -0,0 +1,108 @@
+package com.bikeshare.repository.journal;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.BikeType;
+import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.Page;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * BikeRepository that records every save and delete in a {@link Journal} after applying it
+ * to a delegate repository. See {@link JournaledRideRepository}.
+ */
+public class JournaledBikeRepository implements BikeRepository {
+    
+    private final BikeRepository delegate;
+    private final Journal journal;
+    
+    JournaledBikeRepository(BikeRepository delegate, Journal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+    
+    @Override
+    public Bike save(Bike bike) {
+        delegate.save(bike);
+        journal.append(RecordType.BIKE_SAVED, JournalCodec::writeBike, bike);
+        return bike;
+    }
+    
+    @Override
+    public List<Bike> saveAll(Collection<Bike> bikes) {
+        List<Bike> saved = delegate.saveAll(bikes);
+        for (Bike bike : bikes) {
+            journal.append(RecordType.BIKE_SAVED, JournalCodec::writeBike, bike);
+        }
+        return saved;
+    }
+    
+    @Override
+    public boolean deleteById(String bikeId) {
+        boolean removed = delegate.deleteById(bikeId);
+        if (removed) {
+            journal.append(RecordType.BIKE_DELETED, JournalCodec.Output::putString, bikeId);
+        }
+        return removed;
+    }
+    
+    // Reads go straight to the delegate
+    
+    @Override
+    public Optional<Bike> findById(String bikeId) {
+        return delegate.findById(bikeId);
+    }
+    
+    @Override
+    public List<Bike> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Page<Bike> findAll(String afterToken, int limit) {
+        return delegate.findAll(afterToken, limit);
+    }
+    
+    @Override
+    public Stream<Bike> streamAll() {
+        return delegate.streamAll();
+    }
+    
+    @Override
+    public List<Bike> findByType(BikeType bikeType) {
+        return delegate.findByType(bikeType);
+    }
+    
+    @Override
+    public List<Bike> findAvailableBikes() {
+        return delegate.findAvailableBikes();
+    }
+    
+    @Override
+    public List<Bike> findByStationId(String stationId) {
+        return delegate.findByStationId(stationId);
+    }
+    
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+    
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+    
+    @Override
+    public long countAvailable() {
+        return delegate.countAvailable();
+    }
+    
+    @Override
+    public boolean existsById(String bikeId) {
+        return delegate.existsById(bikeId);
+    }
+}
@@ -0,0 +1,182 @@
+package com.bikeshare.repository.journal;
+
+import com.bikeshare.model.Ride;
+import com.bikeshare.repository.Page;
+import com.bikeshare.repository.RideRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * RideRepository that records every save and delete in a {@link Journal} after applying it
+ * to a delegate repository, typically an in-memory one.
+ * <p>
+ * Obtained from {@link JournaledStore}, which replays the journal into the delegate on
+ * startup. Each record carries the ride's full state, captured when the record is appended,
+ * so replay only needs the last record per ride.
+ */
+public class JournaledRideRepository implements RideRepository {
+    
+    private final RideRepository delegate;
+    private final Journal journal;
+    
+    JournaledRideRepository(RideRepository delegate, Journal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+    
+    @Override
+    public Ride save(Ride ride) {
+        delegate.save(ride);
+        journal.append(RecordType.RIDE_SAVED, JournalCodec::writeRide, ride);
+        return ride;
+    }
+    
+    @Override
+    public List<Ride> saveAll(Collection<Ride> rides) {
+        List<Ride> saved = delegate.saveAll(rides);
+        for (Ride ride : rides) {
+            journal.append(RecordType.RIDE_SAVED, JournalCodec::writeRide, ride);
+        }
+        return saved;
+    }
+    
+    @Override
+    public boolean deleteById(String rideId) {
+        boolean removed = delegate.deleteById(rideId);
+        if (removed) {
+            journal.append(RecordType.RIDE_DELETED, JournalCodec.Output::putString, rideId);
+        }
+        return removed;
+    }
+    
+    // Reads go straight to the delegate
+    
+    @Override
+    public Optional<Ride> findById(String rideId) {
+        return delegate.findById(rideId);
+    }
+    
+    @Override
+    public List<Ride> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public Page<Ride> findAll(String afterToken, int limit) {
+        return delegate.findAll(afterToken, limit);
+    }
+    
+    @Override
+    public Stream<Ride> streamAll() {
+        return delegate.streamAll();
+    }
+    
+    @Override
+    public List<Ride> findByUserId(String userId) {
+        return delegate.findByUserId(userId);
+    }
+    
+    @Override
+    public List<Ride> findByBikeId(String bikeId) {
+        return delegate.findByBikeId(bikeId);
+    }
+    
+    @Override
+    public List<Ride> findActiveRidesByUserId(String userId) {
+        return delegate.findActiveRidesByUserId(userId);
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByUserId(String userId) {
+        return delegate.findActiveRideByUserId(userId);
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByBikeId(String bikeId) {
+        return delegate.findActiveRideByBikeId(bikeId);
+    }
+    
+    @Override
+    public List<Ride> findCompletedRidesByUserId(String userId) {
+        return delegate.findCompletedRidesByUserId(userId);
+    }
+    
+    @Override
+    public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return delegate.findRidesBetween(startDate, endDate);
+    }
+    
+    @Override
+    public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, int offset, int limit) {
+        return delegate.findRidesBetween(startDate, endDate, offset, limit);
+    }
+    
+    @Override
+    public Page<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, String afterToken, int limit) {
+        return delegate.findRidesBetween(startDate, endDate, afterToken, limit);
+    }
+    
+    @Override
+    public Stream<Ride> streamRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return delegate.streamRidesBetween(startDate, endDate);
+    }
+    
+    @Override
+    public List<Ride> findByStartStationId(String stationId) {
+        return delegate.findByStartStationId(stationId);
+    }
+    
+    @Override
+    public List<Ride> findByEndStationId(String stationId) {
+        return delegate.findByEndStationId(stationId);
+    }
+    
+    @Override
+    public List<Ride> findRidesLongerThan(int minutes) {
+        return delegate.findRidesLongerThan(minutes);
+    }
+    
+    @Override
+    public List<Ride> findRidesWithCostHigherThan(double amount) {
+        return delegate.findRidesWithCostHigherThan(amount);
+    }
+    
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+    
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+    
+    @Override
+    public long countActiveRides() {
+        return delegate.countActiveRides();
+    }
+    
+    @Override
+    public long countCompletedRides() {
+        return delegate.countCompletedRides();
+    }
+    
+    @Override
+    public boolean existsById(String rideId) {
+        return delegate.existsById(rideId);
+    }
+    
+    @Override
+    public double calculateTotalRevenue() {
+        return delegate.calculateTotalRevenue();
+    }
+    
+    @Override
+    public long calculateTotalRideDuration() {
+        return delegate.calculateTotalRideDuration();
+    }
+}
@@ -0,0 +1,103 @@
+package com.bikeshare.repository.journal;
+
+import com.bikeshare.model.Station;
+import com.bikeshare.repository.StationRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * StationRepository that records every save and delete in a {@link Journal} after applying
+ * it to a delegate repository. Station records include the state of their docked bikes.
+ * See {@link JournaledRideRepository}.
+ */
+public class JournaledStationRepository implements StationRepository {
+    
+    private final StationRepository delegate;
+    private final Journal journal;
+    
+    JournaledStationRepository(StationRepository delegate, Journal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+    
+    @Override
+    public Station save(Station station) {
+        delegate.save(station);
+        journal.append(RecordType.STATION_SAVED, JournalCodec::writeStation, station);
+        return station;
+    }
+    
+    @Override
+    public List<Station> saveAll(Collection<Station> stations) {
+        List<Station> saved = delegate.saveAll(stations);
+        for (Station station : stations) {
+            journal.append(RecordType.STATION_SAVED, JournalCodec::writeStation, station);
+        }
+        return saved;
+    }
+    
+    @Override
+    public boolean deleteById(String stationId) {
+        boolean removed = delegate.deleteById(stationId);
+        if (removed) {
+            journal.append(RecordType.STATION_DELETED, JournalCodec.Output::putString, stationId);
+        }
+        return removed;
+    }
+    
+    // Reads go straight to the delegate
+    
+    @Override
+    public Optional<Station> findById(String stationId) {
+        return delegate.findById(stationId);
+    }
+    
+    @Override
+    public List<Station> findAll() {
+        return delegate.findAll();
+    }
+    
+    @Override
+    public List<Station> findByNameContaining(String name) {
+        return delegate.findByNameContaining(name);
+    }
+    
+    @Override
+    public List<Station> findStationsInArea(double minLatitude, double maxLatitude,
+                                          double minLongitude, double maxLongitude) {
+        return delegate.findStationsInArea(minLatitude, maxLatitude, minLongitude, maxLongitude);
+    }
+    
+    @Override
+    public List<Station> findStationsWithAvailableCapacity() {
+        return delegate.findStationsWithAvailableCapacity();
+    }
+    
+    @Override
+    public List<Station> findStationsWithAvailableBikes() {
+        return delegate.findStationsWithAvailableBikes();
+    }
+    
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+    
+    @Override
+    public long version() {
+        return delegate.version();
+    }
+    
+    @Override
+    public boolean existsById(String stationId) {
+        return delegate.existsById(stationId);
+    }
+    
+    @Override
+    public List<Station> findNearestStations(double latitude, double longitude,
+                                           double maxDistance, int limit) {
+        return delegate.findNearestStations(latitude, longitude, maxDistance, limit);
+    }
+}
@@ -0,0 +1,228 @@
+package com.bikeshare.repository.journal;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.Station;
+import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.RideRepository;
+import com.bikeshare.repository.StationRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable home for rides, bikes and stations held in in-memory repositories.
+ * <p>
+ * Opening a store restores the newest readable snapshot from its directory, replays the
+ * journal segments written after it and loads the result into the given (empty)
+ * repositories. From then on every save and delete through {@link #rides()},
+ * {@link #bikes()} and {@link #stations()} is appended to the journal.
+ * <p>
+ * A background thread forces the journal to disk every {@link JournalPolicy#syncInterval()}
+ * and takes a new snapshot once the journal has grown by
+ * {@link JournalPolicy#checkpointBytes()}, so a restart only replays a bounded tail. The two
+ * newest snapshots are kept, together with the segments needed to replay from the older
+ * one, in case the newest turns out to be unreadable.
+ * <p>
+ * Only mutations that go through a repository are recorded: an entity changed in memory
+ * must be saved again to reach the journal.
+ */
+public class JournaledStore implements AutoCloseable {
+    
+    private static final int RETAINED_SNAPSHOTS = 2;
+    
+    private final Path directory;
+    private final JournalPolicy policy;
+    private final RideRepository rideDelegate;
+    private final BikeRepository bikeDelegate;
+    private final StationRepository stationDelegate;
+    private final Journal journal;
+    private final JournaledRideRepository rides;
+    private final JournaledBikeRepository bikes;
+    private final JournaledStationRepository stations;
+    private final ScheduledExecutorService maintenance;
+    private final Object checkpointLock = new Object();
+    private volatile long checkpointedBytes;
+    private volatile boolean closed;
+    
+    private JournaledStore(Path directory, JournalPolicy policy, RideRepository rides,
+                           BikeRepository bikes, StationRepository stations) {
+        this.directory = directory;
+        this.policy = policy;
+        this.rideDelegate = rides;
+        this.bikeDelegate = bikes;
+        this.stationDelegate = stations;
+        recover();
+        this.journal = Journal.open(directory, policy.segmentSize());
+        this.rides = new JournaledRideRepository(rides, journal);
+        this.bikes = new JournaledBikeRepository(bikes, journal);
+        this.stations = new JournaledStationRepository(stations, journal);
+        
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = policy.syncInterval().toMillis();
+        maintenance.scheduleWithFixedDelay(this::maintain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Opens or creates a store with the default policy.
+     * @see #open(Path, RideRepository, BikeRepository, StationRepository, JournalPolicy)
+     */
+    public static JournaledStore open(Path directory, RideRepository rides, BikeRepository bikes,
+                                      StationRepository stations) {
+        return open(directory, rides, bikes, stations, JournalPolicy.defaults());
+    }
+    
+    /**
+     * Opens or creates a store and loads its contents into the given repositories.
+     * @param directory directory holding the journal and snapshots; created if missing
+     * @param rides empty repository that will hold the rides
+     * @param bikes empty repository that will hold the bikes
+     * @param stations empty repository that will hold the stations
+     * @param policy segment, checkpoint and sync settings
+     * @return the opened store
+     * @throws IllegalStateException if snapshots exist but none of them can be read
+     */
+    public static JournaledStore open(Path directory, RideRepository rides, BikeRepository bikes,
+                                      StationRepository stations, JournalPolicy policy) {
+        if (directory == null || rides == null || bikes == null || stations == null || policy == null) {
+            throw new IllegalArgumentException("Directory, repositories and policy cannot be null");
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal directory " + directory, e);
+        }
+        return new JournaledStore(directory, policy, rides, bikes, stations);
+    }
+    
+    public RideRepository rides() {
+        return rides;
+    }
+    
+    public BikeRepository bikes() {
+        return bikes;
+    }
+    
+    public StationRepository stations() {
+        return stations;
+    }
+    
+    /**
+     * Writes a snapshot of the current state and drops journal segments no longer needed.
+     * <p>
+     * The journal moves to a new segment before the state is read, so everything in older
+     * segments is reflected in the snapshot. Changes made while the snapshot is written may
+     * appear in it as well; replaying them again on recovery is harmless because every
+     * record carries an entity's full state.
+     */
+    public void checkpoint() {
+        synchronized (checkpointLock) {
+            long sequence = journal.roll();
+            long bytesAtRoll = journal.getAppendedBytes();
+            try (SnapshotFile.Writer writer = new SnapshotFile.Writer(directory, sequence)) {
+                try (Stream<Bike> bikes = bikeDelegate.streamAll()) {
+                    bikes.forEach(bike -> writer.write(RecordType.BIKE_SAVED, JournalCodec::writeBike, bike));
+                }
+                for (Station station : stationDelegate.findAll()) {
+                    writer.write(RecordType.STATION_SAVED, JournalCodec::writeStation, station);
+                }
+                // Streamed page by page, so the rides are never all copied at once
+                try (Stream<Ride> rides = rideDelegate.streamAll()) {
+                    rides.forEach(ride -> writer.write(RecordType.RIDE_SAVED, JournalCodec::writeRide, ride));
+                }
+                writer.commit();
+            }
+            checkpointedBytes = bytesAtRoll;
+            pruneSnapshots();
+        }
+    }
+    
+    /**
+     * Forces all appended records to disk.
+     */
+    public void sync() {
+        journal.sync();
+    }
+    
+    /**
+     * Stops background work and forces the journal to disk. The repositories must not be
+     * modified afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+    
+    private void recover() {
+        SnapshotFile.deleteIncomplete(directory);
+        JournalRecovery recovery = new JournalRecovery();
+        long fromSequence = 0;
+        List<Path> snapshots = SnapshotFile.list(directory);
+        if (!snapshots.isEmpty()) {
+            recovery = null;
+            for (Path snapshot : snapshots) {
+                JournalRecovery candidate = new JournalRecovery();
+                try {
+                    fromSequence = SnapshotFile.read(snapshot, candidate::apply);
+                    recovery = candidate;
+                    break;
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping unreadable snapshot " + snapshot + ": " + e.getMessage());
+                }
+            }
+            if (recovery == null) {
+                throw new IllegalStateException("No readable snapshot in " + directory);
+            }
+        }
+        Journal.replay(directory, fromSequence, recovery::apply);
+        recovery.load(rideDelegate, bikeDelegate, stationDelegate);
+    }
+    
+    private void pruneSnapshots() {
+        List<Path> snapshots = SnapshotFile.list(directory);
+        if (snapshots.size() < RETAINED_SNAPSHOTS) {
+            return;
+        }
+        try {
+            for (Path stale : snapshots.subList(RETAINED_SNAPSHOTS, snapshots.size())) {
+                Files.deleteIfExists(stale);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        journal.deleteSegmentsBefore(SnapshotFile.journalSequence(snapshots.get(RETAINED_SNAPSHOTS - 1)));
+    }
+    
+    private void maintain() {
+        if (closed) {
+            return;
+        }
+        try {
+            journal.sync();
+            if (journal.getAppendedBytes() - checkpointedBytes >= policy.checkpointBytes()) {
+                checkpoint();
+            }
+        } catch (RuntimeException e) {
+            // The journal still holds everything; the next tick tries again
+            System.err.println("Journal maintenance in " + directory + " failed: " + e.getMessage());
+        }
+    }
+}
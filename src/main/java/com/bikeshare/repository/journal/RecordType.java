@@ -0,0 +1,34 @@
+package com.bikeshare.repository.journal;
+
+/**
+ * Kinds of records in journal segments and snapshot files. The code is the byte stored on disk,
+ * so existing codes must never change.
+ */
+enum RecordType {
+    BIKE_SAVED(1),
+    BIKE_DELETED(2),
+    STATION_SAVED(3),
+    STATION_DELETED(4),
+    RIDE_SAVED(5),
+    RIDE_DELETED(6),
+    /** Last record of a snapshot file, carrying the number of records before it. */
+    SNAPSHOT_END(100);
+    
+    private static final RecordType[] BY_CODE = new RecordType[128];
+    
+    static {
+        for (RecordType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+    
+    final byte code;
+    
+    RecordType(int code) {
+        this.code = (byte) code;
+    }
+    
+    static RecordType of(byte code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+}
@@ -0,0 +1,224 @@
+package com.bikeshare.repository.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Compacted copy of the repositories' state that replaces the journal segments before it.
+ * <p>
+ * The file holds a header with the first journal segment that is <em>not</em> covered,
+ * the entities as ordinary journal records, and a closing record with the record count.
+ * It is written under a temporary name and renamed into place, so a snapshot either exists
+ * complete or not at all; the count guards against truncation by the file system.
+ */
+final class SnapshotFile {
+    
+    static final int SNAPSHOT_MAGIC = 0x4253534E; // "BSSN"
+    static final int HEADER_BYTES = 16;
+    
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final long READ_WINDOW_BYTES = 256L << 20;
+    
+    private SnapshotFile() {
+    }
+    
+    /**
+     * Streams records into a new snapshot file.
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path target;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+        private final JournalCodec.Output output = new JournalCodec.Output();
+        private long records;
+        private boolean committed;
+        
+        Writer(Path directory, long journalSequence) {
+            this.target = path(directory, journalSequence);
+            this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try {
+                this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create snapshot " + temporary, e);
+            }
+            buffer.putInt(SNAPSHOT_MAGIC);
+            buffer.putInt(Journal.FORMAT_VERSION);
+            buffer.putLong(journalSequence);
+        }
+        
+        <T> void write(RecordType type, BiConsumer<JournalCodec.Output, T> encoder, T value) {
+            output.reset();
+            encoder.accept(output, value);
+            frame(type, output.buffer().flip());
+            records++;
+        }
+        
+        /**
+         * Writes the closing record, forces the file to disk and renames it into place.
+         */
+        void commit() {
+            output.reset();
+            output.putLong(records);
+            frame(RecordType.SNAPSHOT_END, output.buffer().flip());
+            try {
+                drain();
+                channel.force(true);
+                channel.close();
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                committed = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot commit snapshot " + target, e);
+            }
+        }
+        
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        private void frame(RecordType type, ByteBuffer payload) {
+            int frameBytes = JournalCodec.FRAME_HEADER_BYTES + 1 + payload.remaining();
+            if (frameBytes > buffer.remaining()) {
+                drain();
+            }
+            if (frameBytes > buffer.remaining()) {
+                ByteBuffer large = ByteBuffer.allocate(frameBytes);
+                JournalCodec.writeFrame(large, type, payload);
+                writeFully(large.flip());
+            } else {
+                JournalCodec.writeFrame(buffer, type, payload);
+            }
+        }
+        
+        private void drain() {
+            writeFully(buffer.flip());
+            buffer.clear();
+        }
+        
+        private void writeFully(ByteBuffer source) {
+            try {
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write snapshot " + temporary, e);
+            }
+        }
+    }
+    
+    /**
+     * Reads a snapshot's records through sliding memory-mapped windows.
+     * @param file snapshot file
+     * @param handler receives each entity record; its payload is only valid during the call
+     * @return the first journal segment not covered by the snapshot
+     * @throws IllegalStateException if the snapshot is damaged or incomplete
+     */
+    static long read(Path file, Consumer<JournalCodec.Frame> handler) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IllegalStateException("Truncated snapshot: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != SNAPSHOT_MAGIC || header.getInt() != Journal.FORMAT_VERSION) {
+                throw new IllegalStateException("Not a snapshot: " + file);
+            }
+            long journalSequence = header.getLong();
+            
+            long records = 0;
+            long offset = HEADER_BYTES;
+            while (offset < size) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(READ_WINDOW_BYTES, size - offset));
+                JournalCodec.Frame frame;
+                while ((frame = JournalCodec.readFrame(window)) != null) {
+                    if (frame.type() == RecordType.SNAPSHOT_END) {
+                        if (frame.payload().getLong() != records) {
+                            throw new IllegalStateException("Incomplete snapshot: " + file);
+                        }
+                        return journalSequence;
+                    }
+                    handler.accept(frame);
+                    records++;
+                }
+                if (window.position() == 0) {
+                    // Not even one frame fits the window: damaged length or truncated file
+                    break;
+                }
+                // Remap so the frame that straddled the window's end starts the next one
+                offset += window.position();
+            }
+            throw new IllegalStateException("Snapshot has no end record: " + file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+    }
+    
+    static Path path(Path directory, long journalSequence) {
+        return directory.resolve(String.format("snapshot-%016d.snap", journalSequence));
+    }
+    
+    /**
+     * Lists committed snapshots, newest first.
+     * @param directory journal directory
+     * @return snapshot files
+     */
+    static List<Path> list(Path directory) {
+        List<Path> snapshots = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith("snapshot-") && name.endsWith(".snap");
+                    })
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .forEach(snapshots::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal directory " + directory, e);
+        }
+        return snapshots;
+    }
+    
+    /**
+     * Removes temporary files left by snapshots that were interrupted before their commit.
+     * @param directory journal directory
+     */
+    static void deleteIncomplete(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                if (path.getFileName().toString().endsWith(".snap.tmp")) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot clean journal directory " + directory, e);
+        }
+    }
+    
+    static long journalSequence(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name, "snapshot-".length(), name.length() - ".snap".length(), 10);
+    }
+}
@@ -0,0 +1,20 @@
+package com.bikeshare.repository.writebehind;
+
+/**
+ * How soon a write-behind repository persists changes to its durable store.
+ */
+public enum Durability {
+    
+    /**
+     * Every save or delete is written to the store before the call returns.
+     * Nothing is lost on a crash; no round trips are saved.
+     */
+    WRITE_THROUGH,
+    
+    /**
+     * Changes are buffered, coalesced per entity and written in batches when the buffer reaches
+     * the batch size or the flush interval elapses, whichever comes first. A crash loses at most
+     * the changes made since the last flush.
+     */
+    WRITE_BEHIND
+}
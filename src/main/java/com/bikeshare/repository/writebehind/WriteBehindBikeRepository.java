@@ -0,0 +1,142 @@
+package com.bikeshare.repository.writebehind;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.BikeType;
+import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.Page;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * BikeRepository that serves reads from a cache repository and persists changes to a
+ * durable store according to a {@link WriteBehindPolicy}.
+ * See {@link WriteBehindRideRepository} for the consistency model.
+ */
+public class WriteBehindBikeRepository implements BikeRepository, AutoCloseable {
+    
+    private final BikeRepository cache;
+    private final WriteBehindQueue<Bike> queue;
+    
+    /**
+     * Creates the repository and loads the store's bikes into the cache.
+     * @param cache fast repository serving reads, typically in-memory and initially empty
+     * @param store durable repository receiving the batched writes
+     * @param policy durability and batching settings
+     */
+    public WriteBehindBikeRepository(BikeRepository cache, BikeRepository store, WriteBehindPolicy policy) {
+        if (cache == null || store == null || policy == null) {
+            throw new IllegalArgumentException("Cache, store and policy cannot be null");
+        }
+        this.cache = cache;
+        cache.saveAll(store.findAll());
+        this.queue = new WriteBehindQueue<>("bikes", policy, Bike::getBikeId, store::saveAll, store::deleteById);
+    }
+    
+    @Override
+    public Bike save(Bike bike) {
+        cache.save(bike);
+        queue.save(bike);
+        return bike;
+    }
+    
+    @Override
+    public List<Bike> saveAll(Collection<Bike> bikes) {
+        List<Bike> saved = cache.saveAll(bikes);
+        for (Bike bike : bikes) {
+            queue.save(bike);
+        }
+        return saved;
+    }
+    
+    @Override
+    public boolean deleteById(String bikeId) {
+        boolean removed = cache.deleteById(bikeId);
+        if (removed) {
+            queue.delete(bikeId);
+        }
+        return removed;
+    }
+    
+    /**
+     * Writes all buffered changes to the store and waits for completion.
+     */
+    public void flush() {
+        queue.flush();
+    }
+    
+    /**
+     * Gets the number of bikes with changes not yet in the store.
+     * @return pending change count
+     */
+    public int getPendingCount() {
+        return queue.pendingCount();
+    }
+    
+    /**
+     * Stops background flushing and writes the remaining changes.
+     */
+    @Override
+    public void close() {
+        queue.close();
+    }
+    
+    // Reads are answered by the cache
+    
+    @Override
+    public Optional<Bike> findById(String bikeId) {
+        return cache.findById(bikeId);
+    }
+    
+    @Override
+    public List<Bike> findAll() {
+        return cache.findAll();
+    }
+    
+    @Override
+    public Page<Bike> findAll(String afterToken, int limit) {
+        return cache.findAll(afterToken, limit);
+    }
+    
+    @Override
+    public Stream<Bike> streamAll() {
+        return cache.streamAll();
+    }
+    
+    @Override
+    public List<Bike> findByType(BikeType bikeType) {
+        return cache.findByType(bikeType);
+    }
+    
+    @Override
+    public List<Bike> findAvailableBikes() {
+        return cache.findAvailableBikes();
+    }
+    
+    @Override
+    public List<Bike> findByStationId(String stationId) {
+        return cache.findByStationId(stationId);
+    }
+    
+    @Override
+    public long count() {
+        return cache.count();
+    }
+    
+    @Override
+    public long version() {
+        return cache.version();
+    }
+    
+    @Override
+    public long countAvailable() {
+        return cache.countAvailable();
+    }
+    
+    @Override
+    public boolean existsById(String bikeId) {
+        return cache.existsById(bikeId);
+    }
+}
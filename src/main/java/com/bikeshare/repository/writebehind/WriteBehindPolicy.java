@@ -0,0 +1,53 @@
+package com.bikeshare.repository.writebehind;
+
+import java.time.Duration;
+
+/**
+ * Durability and batching settings for one write-behind repository.
+ * @param durability when changes reach the store
+ * @param maxBatchSize number of dirty entities that triggers a flush
+ * @param flushInterval maximum time a change stays buffered
+ */
+public record WriteBehindPolicy(Durability durability, int maxBatchSize, Duration flushInterval) {
+    
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+    
+    public WriteBehindPolicy {
+        if (durability == null) {
+            throw new IllegalArgumentException("Durability cannot be null");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+    }
+    
+    /**
+     * Writes every change immediately.
+     * @return write-through policy
+     */
+    public static WriteBehindPolicy writeThrough() {
+        return new WriteBehindPolicy(Durability.WRITE_THROUGH, 1, DEFAULT_FLUSH_INTERVAL);
+    }
+    
+    /**
+     * Buffers changes with the default batch size and flush interval.
+     * @return write-behind policy
+     */
+    public static WriteBehindPolicy writeBehind() {
+        return writeBehind(DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+    
+    /**
+     * Buffers changes with the given thresholds.
+     * @param maxBatchSize number of dirty entities that triggers a flush
+     * @param flushInterval maximum time a change stays buffered
+     * @return write-behind policy
+     */
+    public static WriteBehindPolicy writeBehind(int maxBatchSize, Duration flushInterval) {
+        return new WriteBehindPolicy(Durability.WRITE_BEHIND, maxBatchSize, flushInterval);
+    }
+}
@@ -0,0 +1,187 @@
+package com.bikeshare.repository.writebehind;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Buffer of pending saves and deletes for one repository.
+ * <p>
+ * Changes are coalesced per entity ID, so an entity saved several times between flushes is
+ * written once, in its latest state. A flush drains the buffer and hands all saves to the
+ * store as one batch, then applies the deletes. Flushes are serialized, so changes reach the
+ * store in the order they were buffered. If the store fails, the drained changes go back
+ * into the buffer unless newer ones have superseded them.
+ *
+ * @param <T> entity type
+ */
+class WriteBehindQueue<T> implements AutoCloseable {
+    
+    /** A pending change: the entity to save, or null for a delete. */
+    private record Change<T>(T entity) {
+    }
+    
+    private final String name;
+    private final WriteBehindPolicy policy;
+    private final Function<T, String> idOf;
+    private final Consumer<List<T>> saveBatch;
+    private final Consumer<String> delete;
+    private final Map<String, Change<T>> pending = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private volatile RuntimeException lastFailure;
+    private volatile boolean closed;
+    
+    WriteBehindQueue(String name, WriteBehindPolicy policy, Function<T, String> idOf,
+                     Consumer<List<T>> saveBatch, Consumer<String> delete) {
+        this.name = name;
+        this.policy = policy;
+        this.idOf = idOf;
+        this.saveBatch = saveBatch;
+        this.delete = delete;
+        if (policy.durability() == Durability.WRITE_BEHIND) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "write-behind-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalMillis = policy.flushInterval().toMillis();
+            flusher.scheduleWithFixedDelay(this::backgroundFlush, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+    
+    /**
+     * Records that an entity must be saved.
+     * @param entity the entity to save
+     */
+    void save(T entity) {
+        enqueue(idOf.apply(entity), new Change<>(entity));
+    }
+    
+    /**
+     * Records that an entity must be deleted.
+     * @param id the entity ID
+     */
+    void delete(String id) {
+        enqueue(id, new Change<>(null));
+    }
+    
+    /**
+     * Writes all buffered changes to the store and waits for them to complete.
+     * @throws RuntimeException whatever the store threw; the changes stay buffered
+     */
+    void flush() {
+        synchronized (flushLock) {
+            List<String> ids = new ArrayList<>();
+            List<T> saves = new ArrayList<>();
+            List<String> deletes = new ArrayList<>();
+            for (Iterator<Map.Entry<String, Change<T>>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Change<T>> entry = it.next();
+                // remove(key, value) so a change that raced in after we read the entry stays queued
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    ids.add(entry.getKey());
+                    if (entry.getValue().entity() != null) {
+                        saves.add(entry.getValue().entity());
+                    } else {
+                        deletes.add(entry.getKey());
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+            
+            try {
+                if (!saves.isEmpty()) {
+                    saveBatch.accept(saves);
+                }
+                for (String id : deletes) {
+                    delete.accept(id);
+                }
+                lastFailure = null;
+            } catch (RuntimeException e) {
+                for (T entity : saves) {
+                    pending.putIfAbsent(idOf.apply(entity), new Change<>(entity));
+                }
+                for (String id : deletes) {
+                    pending.putIfAbsent(id, new Change<>(null));
+                }
+                lastFailure = e;
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of entities with unflushed changes.
+     * @return pending change count
+     */
+    int pendingCount() {
+        return pending.size();
+    }
+    
+    /**
+     * Gets the error of the most recent failed flush, if it has not succeeded since.
+     * @return last flush failure, or null
+     */
+    RuntimeException lastFailure() {
+        return lastFailure;
+    }
+    
+    /**
+     * Stops background flushing and writes all remaining changes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(policy.flushInterval().toMillis() * 10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+    
+    private void enqueue(String id, Change<T> change) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind queue " + name + " is closed");
+        }
+        pending.put(id, change);
+        if (policy.durability() == Durability.WRITE_THROUGH) {
+            flush();
+        } else if (pending.size() >= policy.maxBatchSize() && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::backgroundFlush);
+            } catch (RejectedExecutionException e) {
+                // Closing concurrently; close() flushes what is left
+                flushRequested.set(false);
+            }
+        }
+    }
+    
+    private void backgroundFlush() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Changes stay buffered and are retried on the next tick; callers can inspect lastFailure
+            System.err.println("Write-behind flush of " + name + " failed: " + e.getMessage());
+        }
+    }
+}
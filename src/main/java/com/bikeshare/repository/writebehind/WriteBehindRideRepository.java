@@ -0,0 +1,216 @@
+package com.bikeshare.repository.writebehind;
+
+import com.bikeshare.model.Ride;
+import com.bikeshare.repository.Page;
+import com.bikeshare.repository.RideRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * RideRepository that serves reads from a cache repository and persists changes to a
+ * durable store according to a {@link WriteBehindPolicy}.
+ * <p>
+ * The cache is loaded from the store on construction and is the source of truth for reads,
+ * so queries see buffered changes immediately. Saves and deletes update the cache and are
+ * queued for the store; under {@link Durability#WRITE_BEHIND} the several saves a ride
+ * causes during start and end collapse into one batched write.
+ */
+public class WriteBehindRideRepository implements RideRepository, AutoCloseable {
+    
+    private final RideRepository cache;
+    private final WriteBehindQueue<Ride> queue;
+    
+    /**
+     * Creates the repository and loads the store's rides into the cache.
+     * @param cache fast repository serving reads, typically in-memory and initially empty
+     * @param store durable repository receiving the batched writes
+     * @param policy durability and batching settings
+     */
+    public WriteBehindRideRepository(RideRepository cache, RideRepository store, WriteBehindPolicy policy) {
+        if (cache == null || store == null || policy == null) {
+            throw new IllegalArgumentException("Cache, store and policy cannot be null");
+        }
+        this.cache = cache;
+        cache.saveAll(store.findAll());
+        this.queue = new WriteBehindQueue<>("rides", policy, Ride::getRideId, store::saveAll, store::deleteById);
+    }
+    
+    @Override
+    public Ride save(Ride ride) {
+        cache.save(ride);
+        queue.save(ride);
+        return ride;
+    }
+    
+    @Override
+    public List<Ride> saveAll(Collection<Ride> rides) {
+        List<Ride> saved = cache.saveAll(rides);
+        for (Ride ride : rides) {
+            queue.save(ride);
+        }
+        return saved;
+    }
+    
+    @Override
+    public boolean deleteById(String rideId) {
+        boolean removed = cache.deleteById(rideId);
+        if (removed) {
+            queue.delete(rideId);
+        }
+        return removed;
+    }
+    
+    /**
+     * Writes all buffered changes to the store and waits for completion.
+     */
+    public void flush() {
+        queue.flush();
+    }
+    
+    /**
+     * Gets the number of rides with changes not yet in the store.
+     * @return pending change count
+     */
+    public int getPendingCount() {
+        return queue.pendingCount();
+    }
+    
+    /**
+     * Stops background flushing and writes the remaining changes.
+     */
+    @Override
+    public void close() {
+        queue.close();
+    }
+    
+    // Reads are answered by the cache
+    
+    @Override
+    public Optional<Ride> findById(String rideId) {
+        return cache.findById(rideId);
+    }
+    
+    @Override
+    public List<Ride> findAll() {
+        return cache.findAll();
+    }
+    
+    @Override
+    public Page<Ride> findAll(String afterToken, int limit) {
+        return cache.findAll(afterToken, limit);
+    }
+    
+    @Override
+    public Stream<Ride> streamAll() {
+        return cache.streamAll();
+    }
+    
+    @Override
+    public List<Ride> findByUserId(String userId) {
+        return cache.findByUserId(userId);
+    }
+    
+    @Override
+    public List<Ride> findByBikeId(String bikeId) {
+        return cache.findByBikeId(bikeId);
+    }
+    
+    @Override
+    public List<Ride> findActiveRidesByUserId(String userId) {
+        return cache.findActiveRidesByUserId(userId);
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByUserId(String userId) {
+        return cache.findActiveRideByUserId(userId);
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByBikeId(String bikeId) {
+        return cache.findActiveRideByBikeId(bikeId);
+    }
+    
+    @Override
+    public List<Ride> findCompletedRidesByUserId(String userId) {
+        return cache.findCompletedRidesByUserId(userId);
+    }
+    
+    @Override
+    public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return cache.findRidesBetween(startDate, endDate);
+    }
+    
+    @Override
+    public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, int offset, int limit) {
+        return cache.findRidesBetween(startDate, endDate, offset, limit);
+    }
+    
+    @Override
+    public Page<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, String afterToken, int limit) {
+        return cache.findRidesBetween(startDate, endDate, afterToken, limit);
+    }
+    
+    @Override
+    public Stream<Ride> streamRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return cache.streamRidesBetween(startDate, endDate);
+    }
+    
+    @Override
+    public List<Ride> findByStartStationId(String stationId) {
+        return cache.findByStartStationId(stationId);
+    }
+    
+    @Override
+    public List<Ride> findByEndStationId(String stationId) {
+        return cache.findByEndStationId(stationId);
+    }
+    
+    @Override
+    public List<Ride> findRidesLongerThan(int minutes) {
+        return cache.findRidesLongerThan(minutes);
+    }
+    
+    @Override
+    public List<Ride> findRidesWithCostHigherThan(double amount) {
+        return cache.findRidesWithCostHigherThan(amount);
+    }
+    
+    @Override
+    public long count() {
+        return cache.count();
+    }
+    
+    @Override
+    public long version() {
+        return cache.version();
+    }
+    
+    @Override
+    public long countActiveRides() {
+        return cache.countActiveRides();
+    }
+    
+    @Override
+    public long countCompletedRides() {
+        return cache.countCompletedRides();
+    }
+    
+    @Override
+    public boolean existsById(String rideId) {
+        return cache.existsById(rideId);
+    }
+    
+    @Override
+    public double calculateTotalRevenue() {
+        return cache.calculateTotalRevenue();
+    }
+    
+    @Override
+    public long calculateTotalRideDuration() {
+        return cache.calculateTotalRideDuration();
+    }
+}
@@ -0,0 +1,163 @@
+package com.bikeshare.repository.writebehind;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Station;
+import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.StationRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * StationRepository that serves reads from a cache repository and persists changes to a
+ * durable store according to a {@link WriteBehindPolicy}.
+ * See {@link WriteBehindRideRepository} for the consistency model.
+ */
+public class WriteBehindStationRepository implements StationRepository, AutoCloseable {
+    
+    private final StationRepository cache;
+    private final WriteBehindQueue<Station> queue;
+    
+    /**
+     * Creates the repository and loads the store's stations into the cache.
+     * @param cache fast repository serving reads, typically in-memory and initially empty
+     * @param store durable repository receiving the batched writes
+     * @param policy durability and batching settings
+     */
+    public WriteBehindStationRepository(StationRepository cache, StationRepository store,
+                                        WriteBehindPolicy policy) {
+        this(cache, store, policy, null);
+    }
+    
+    /**
+     * Creates the repository and loads the store's stations into the cache, docking the bike
+     * instances already held by {@code bikes} so that station and bike views share state.
+     * @param cache fast repository serving reads, typically in-memory and initially empty
+     * @param store durable repository receiving the batched writes
+     * @param policy durability and batching settings
+     * @param bikes repository whose bikes should be docked, or null to keep the store's copies
+     */
+    public WriteBehindStationRepository(StationRepository cache, StationRepository store,
+                                        WriteBehindPolicy policy, BikeRepository bikes) {
+        if (cache == null || store == null || policy == null) {
+            throw new IllegalArgumentException("Cache, store and policy cannot be null");
+        }
+        this.cache = cache;
+        List<Station> stations = store.findAll();
+        if (bikes != null) {
+            List<Station> relinked = new ArrayList<>(stations.size());
+            for (Station station : stations) {
+                relinked.add(Station.restore(station.snapshot(),
+                        state -> bikes.findById(state.bikeId()).orElseGet(() -> Bike.restore(state))));
+            }
+            stations = relinked;
+        }
+        cache.saveAll(stations);
+        this.queue = new WriteBehindQueue<>("stations", policy, Station::getStationId,
+                store::saveAll, store::deleteById);
+    }
+    
+    @Override
+    public Station save(Station station) {
+        cache.save(station);
+        queue.save(station);
+        return station;
+    }
+    
+    @Override
+    public List<Station> saveAll(Collection<Station> stations) {
+        List<Station> saved = cache.saveAll(stations);
+        for (Station station : stations) {
+            queue.save(station);
+        }
+        return saved;
+    }
+    
+    @Override
+    public boolean deleteById(String stationId) {
+        boolean removed = cache.deleteById(stationId);
+        if (removed) {
+            queue.delete(stationId);
+        }
+        return removed;
+    }
+    
+    /**
+     * Writes all buffered changes to the store and waits for completion.
+     */
+    public void flush() {
+        queue.flush();
+    }
+    
+    /**
+     * Gets the number of stations with changes not yet in the store.
+     * @return pending change count
+     */
+    public int getPendingCount() {
+        return queue.pendingCount();
+    }
+    
+    /**
+     * Stops background flushing and writes the remaining changes.
+     */
+    @Override
+    public void close() {
+        queue.close();
+    }
+    
+    // Reads are answered by the cache
+    
+    @Override
+    public Optional<Station> findById(String stationId) {
+        return cache.findById(stationId);
+    }
+    
+    @Override
+    public List<Station> findAll() {
+        return cache.findAll();
+    }
+    
+    @Override
+    public List<Station> findByNameContaining(String name) {
+        return cache.findByNameContaining(name);
+    }
+    
+    @Override
+    public List<Station> findStationsInArea(double minLatitude, double maxLatitude,
+                                          double minLongitude, double maxLongitude) {
+        return cache.findStationsInArea(minLatitude, maxLatitude, minLongitude, maxLongitude);
+    }
+    
+    @Override
+    public List<Station> findStationsWithAvailableCapacity() {
+        return cache.findStationsWithAvailableCapacity();
+    }
+    
+    @Override
+    public List<Station> findStationsWithAvailableBikes() {
+        return cache.findStationsWithAvailableBikes();
+    }
+    
+    @Override
+    public long count() {
+        return cache.count();
+    }
+    
+    @Override
+    public long version() {
+        return cache.version();
+    }
+    
+    @Override
+    public boolean existsById(String stationId) {
+        return cache.existsById(stationId);
+    }
+    
+    @Override
+    public List<Station> findNearestStations(double latitude, double longitude,
+                                           double maxDistance, int limit) {
+        return cache.findNearestStations(latitude, longitude, maxDistance, limit);
+    }
+}
@@ -0,0 +1,142 @@
+package com.bikeshare.repository.writebehind;
+
+import com.bikeshare.model.User;
+import com.bikeshare.repository.Page;
+import com.bikeshare.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * UserRepository that serves reads from a cache repository and persists changes to a
+ * durable store according to a {@link WriteBehindPolicy}.
+ * Email uniqueness is enforced by the cache when the user is saved, before the write is queued.
+ * See {@link WriteBehindRideRepository} for the consistency model.
+ */
+public class WriteBehindUserRepository implements UserRepository, AutoCloseable {
+    
+    private final UserRepository cache;
+    private final WriteBehindQueue<User> queue;
+    
+    /**
+     * Creates the repository and loads the store's users into the cache.
+     * @param cache fast repository serving reads, typically in-memory and initially empty
+     * @param store durable repository receiving the batched writes
+     * @param policy durability and batching settings
+     */
+    public WriteBehindUserRepository(UserRepository cache, UserRepository store, WriteBehindPolicy policy) {
+        if (cache == null || store == null || policy == null) {
+            throw new IllegalArgumentException("Cache, store and policy cannot be null");
+        }
+        this.cache = cache;
+        cache.saveAll(store.findAll());
+        this.queue = new WriteBehindQueue<>("users", policy, User::getUserId, store::saveAll, store::deleteById);
+    }
+    
+    @Override
+    public User save(User user) {
+        cache.save(user);
+        queue.save(user);
+        return user;
+    }
+    
+    @Override
+    public List<User> saveAll(Collection<User> users) {
+        List<User> saved = cache.saveAll(users);
+        for (User user : users) {
+            queue.save(user);
+        }
+        return saved;
+    }
+    
+    @Override
+    public void deleteById(String userId) {
+        if (cache.existsById(userId)) {
+            cache.deleteById(userId);
+            queue.delete(userId);
+        }
+    }
+    
+    /**
+     * Writes all buffered changes to the store and waits for completion.
+     */
+    public void flush() {
+        queue.flush();
+    }
+    
+    /**
+     * Gets the number of users with changes not yet in the store.
+     * @return pending change count
+     */
+    public int getPendingCount() {
+        return queue.pendingCount();
+    }
+    
+    /**
+     * Stops background flushing and writes the remaining changes.
+     */
+    @Override
+    public void close() {
+        queue.close();
+    }
+    
+    // Reads are answered by the cache
+    
+    @Override
+    public Optional<User> findById(String userId) {
+        return cache.findById(userId);
+    }
+    
+    @Override
+    public List<User> findAll() {
+        return cache.findAll();
+    }
+    
+    @Override
+    public Page<User> findAll(String afterToken, int limit) {
+        return cache.findAll(afterToken, limit);
+    }
+    
+    @Override
+    public Stream<User> streamAll() {
+        return cache.streamAll();
+    }
+    
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return cache.findByEmail(email);
+    }
+    
+    @Override
+    public List<User> findByStatus(User.UserStatus status) {
+        return cache.findByStatus(status);
+    }
+    
+    @Override
+    public List<User> findByMembershipType(User.MembershipType membershipType) {
+        return cache.findByMembershipType(membershipType);
+    }
+    
+    @Override
+    public List<User> findByRegistrationDateBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        return cache.findByRegistrationDateBetween(startDate, endDate);
+    }
+    
+    @Override
+    public long count() {
+        return cache.count();
+    }
+    
+    @Override
+    public long version() {
+        return cache.version();
+    }
+    
+    @Override
+    public boolean existsById(String userId) {
+        return cache.existsById(userId);
+    }
+}
@@ -184,6 +184,14 @@ public class BikeService {
         return new BikeStatistics(totalBikes, availableBikes, rentedBikes, maintenanceBikes);
     }
     
+    /**
+     * Gets a counter that moves whenever bike data changes, so views built from it can be cached.
+     * @return the change count, or -1 if the repository does not track changes
+     */
+    public long getDataVersion() {
+        return bikeRepository.version();
+    }
+    
     /**
      * Validates bike ID.
      * @param bikeId The bike ID to validate
@@ -3,12 +3,15 @@ package com.bikeshare.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import com.bikeshare.model.Bike;
 import com.bikeshare.model.Ride;
 import com.bikeshare.model.Station;
 import com.bikeshare.model.User;
 import com.bikeshare.repository.RideRepository;
+import com.bikeshare.service.analytics.ExactRouteCounter;
+import com.bikeshare.service.analytics.RouteCounter;
 import com.bikeshare.service.exception.ActiveRideExistsException;
 import com.bikeshare.service.exception.InvalidRideOperationException;
 import com.bikeshare.service.exception.RideNotFoundException;
@@ -23,9 +26,10 @@ public class RideService {
     private final BikeService bikeService;
     private final StationService stationService;
     private final UserService userService;
+    private final RouteCounter routeCounter;
     
     /**
-     * Constructor for RideService.
+     * Constructor for RideService. Popular routes are counted exactly.
      * @param rideRepository The ride repository for data access
      * @param bikeService Service for bike operations
      * @param stationService Service for station operations
@@ -33,10 +37,27 @@ public class RideService {
      */
     public RideService(RideRepository rideRepository, BikeService bikeService, 
                       StationService stationService, UserService userService) {
+        this(rideRepository, bikeService, stationService, userService, new ExactRouteCounter());
+    }
+    
+    /**
+     * Constructor for RideService.
+     * @param rideRepository The ride repository for data access
+     * @param bikeService Service for bike operations
+     * @param stationService Service for station operations
+     * @param userService Service for user operations
+     * @param routeCounter Empty counter for popular route queries; it is seeded with the rides
+     *        already completed in the repository and then fed as rides complete
+     */
+    public RideService(RideRepository rideRepository, BikeService bikeService, 
+                      StationService stationService, UserService userService,
+                      RouteCounter routeCounter) {
         this.rideRepository = rideRepository;
         this.bikeService = bikeService;
         this.stationService = stationService;
         this.userService = userService;
+        this.routeCounter = routeCounter;
+        seedRouteCounter();
     }
     
     /**
@@ -51,8 +72,7 @@ public class RideService {
     public Ride startRide(String userId, String bikeId, String startStationId) {
         // Validate user exists and can start a ride
     User user = userService.getUserById(userId);
-        List<Ride> activeRides = rideRepository.findActiveRidesByUserId(userId);
-        if (!activeRides.isEmpty()) {
+        if (rideRepository.findActiveRideByUserId(userId).isPresent()) {
             throw new ActiveRideExistsException("User already has an active ride");
         }
         
@@ -61,6 +81,9 @@ public class RideService {
         if (!bike.isAvailable()) {
             throw new InvalidRideOperationException("Bike is not available for rental");
         }
+        if (rideRepository.findActiveRideByBikeId(bikeId).isPresent()) {
+            throw new InvalidRideOperationException("Bike is already in use on another ride");
+        }
         
         // Validate station exists
         Station startStation = stationService.findStationById(startStationId);
@@ -98,6 +121,12 @@ public class RideService {
         if (ride.isCompleted()) {
             throw new InvalidRideOperationException("Ride is already completed");
         }
+        boolean active = rideRepository.findActiveRideByBikeId(ride.getBikeId())
+                .filter(activeRide -> activeRide.getRideId().equals(ride.getRideId()))
+                .isPresent();
+        if (!active) {
+            throw new InvalidRideOperationException("Ride is not active");
+        }
         
         // Validate end station exists and has capacity
     Station endStation = stationService.findStationById(endStationId);
@@ -120,7 +149,9 @@ public class RideService {
     bikeService.returnBike(ride.getBikeId(), endStation);
         stationService.addBikeToStation(endStationId);
         
-        return rideRepository.save(ride);
+        Ride savedRide = rideRepository.save(ride);
+        routeCounter.recordRoute(savedRide.getStartStationId(), savedRide.getEndStationId());
+        return savedRide;
     }
     
     /**
@@ -174,6 +205,27 @@ public class RideService {
         return rideRepository.findRidesBetween(startDate, endDate);
     }
     
+    /**
+     * Gets one page of rides within a date range, ordered by start time.
+     * @param startDate Start of the date range
+     * @param endDate End of the date range
+     * @param offset Number of matching rides to skip
+     * @param limit Maximum number of rides to return
+     * @return List of at most limit rides within the date range
+     */
+    public List<Ride> getRidesBetween(LocalDateTime startDate, LocalDateTime endDate, int offset, int limit) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must be before end date");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return rideRepository.findRidesBetween(startDate, endDate, offset, limit);
+    }
+    
     /**
      * Gets rides that started from a specific station.
      * @param stationId The start station ID
@@ -225,15 +277,37 @@ public class RideService {
     }
     
     /**
-     * Gets popular routes (station pairs).
+     * Gets a counter that moves whenever ride data changes, so views built from it can be cached.
+     * @return the change count, or -1 if the repository does not track changes
+     */
+    public long getDataVersion() {
+        return rideRepository.version();
+    }
+    
+    /**
+     * Gets popular routes (station pairs) among completed rides, including those already stored
+     * when the service was created.
+     * Frequencies are exact or estimated depending on the configured RouteCounter.
      * @param limit Maximum number of routes to return
-     * @return List of popular routes with their frequency
+     * @return List of popular routes with their frequency, most frequent first
+     * @throws IllegalArgumentException if limit is not positive
      */
     public List<RouteFrequency> getPopularRoutes(int limit) {
-    List<Ride> completedRides = rideRepository.findCompletedRidesByUserId("");
-        // Implementation would group by start-end station pairs and count frequency
-        // This is a simplified version - actual implementation would use database aggregation
-        return List.of(); // Placeholder
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return routeCounter.topRoutes(limit);
+    }
+    
+    /**
+     * Records the routes of rides completed before this service was created, such as rides
+     * restored from a journal or loaded from a database. Streams the repository page by page.
+     */
+    private void seedRouteCounter() {
+        try (Stream<Ride> rides = rideRepository.streamAll()) {
+            rides.filter(ride -> ride.isCompleted() && ride.getEndStationId() != null)
+                    .forEach(ride -> routeCounter.recordRoute(ride.getStartStationId(), ride.getEndStationId()));
+        }
     }
     
     /**
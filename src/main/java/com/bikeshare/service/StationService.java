@@ -155,7 +155,7 @@ public class StationService {
             int toAdd = bikeCount - current;
             for (int i = 0; i < toAdd; i++) {
                 // Add placeholder available bike to station inventory
-                station.addBike(new com.bikeshare.model.Bike("AUTO-" + System.nanoTime(), com.bikeshare.model.Bike.BikeType.STANDARD));
+                station.addBike(placeholderBike(station));
             }
         } else if (bikeCount < current) {
             int toRemove = current - bikeCount;
@@ -182,7 +182,7 @@ public class StationService {
             throw new InvalidStationOperationException("Station is at full capacity");
         }
     // Add a placeholder bike for count increment
-    station.addBike(new com.bikeshare.model.Bike("AUTO-" + System.nanoTime(), com.bikeshare.model.Bike.BikeType.STANDARD));
+    station.addBike(placeholderBike(station));
         stationRepository.save(station);
     }
     
@@ -241,6 +241,35 @@ public class StationService {
                                    totalCapacity, totalBikes);
     }
     
+    /**
+     * Gets a counter that moves whenever station data changes, so views built from it can be
+     * cached. Bike changes count too, since they change the availability of their station.
+     * @return the change count, or -1 if a repository does not track changes
+     */
+    public long getDataVersion() {
+        long stations = stationRepository.version();
+        long bikes = bikeRepository.version();
+        return stations < 0 || bikes < 0 ? -1 : stations + bikes;
+    }
+    
+    /**
+     * Creates a placeholder bike for a count-only inventory change. Its ID names the station and
+     * the lowest slot without a placeholder, so IDs are reused as bikes come and go and the
+     * bike ID registry stays bounded by total capacity instead of growing with every ride.
+     */
+    private static com.bikeshare.model.Bike placeholderBike(Station station) {
+        java.util.Set<String> docked = new java.util.HashSet<>();
+        for (com.bikeshare.model.Bike bike : station.getAllBikes()) {
+            docked.add(bike.getBikeId());
+        }
+        int slot = 0;
+        while (docked.contains("AUTO-" + station.getStationId() + "-" + slot)) {
+            slot++;
+        }
+        return new com.bikeshare.model.Bike("AUTO-" + station.getStationId() + "-" + slot,
+                com.bikeshare.model.Bike.BikeType.STANDARD);
+    }
+    
     /**
      * Validates station creation parameters.
      */
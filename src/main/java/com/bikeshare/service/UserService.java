@@ -62,8 +62,13 @@ public class UserService {
             user.setPhoneNumber(phoneNumber);
         }
         
-        // Save user
-        User savedUser = userRepository.save(user);
+        // Save user; the repository rejects the email if a concurrent signup claimed it first
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("User with email " + email + " already exists");
+        }
         
         // Send welcome notification
         try {
@@ -321,6 +326,14 @@ public class UserService {
         return userRepository.findByMembershipType(membershipType);
     }
     
+    /**
+     * Counts registered users.
+     * @return number of users
+     */
+    public long getUserCount() {
+        return userRepository.count();
+    }
+    
     /**
      * Gets users registered within a date range.
      * @param startDate start date
@@ -338,6 +351,14 @@ public class UserService {
         return userRepository.findByRegistrationDateBetween(startDate, endDate);
     }
     
+    /**
+     * Gets a counter that moves whenever user data changes, so views built from it can be cached.
+     * @return the change count, or -1 if the repository does not track changes
+     */
+    public long getDataVersion() {
+        return userRepository.version();
+    }
+    
     /**
      * Deletes a user account (soft delete).
      * @param userId the user ID
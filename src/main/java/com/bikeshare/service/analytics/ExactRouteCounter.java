@@ -0,0 +1,56 @@
+package com.bikeshare.service.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bikeshare.service.RideService.RouteFrequency;
+
+/**
+ * Route counter that keeps one striped counter per station pair.
+ * Counts are exact; memory grows with the number of distinct routes seen.
+ * Top-K queries select with a bounded heap, O(routes * log K).
+ */
+public class ExactRouteCounter implements RouteCounter {
+    
+    private final Map<Route, LongAdder> counts = new ConcurrentHashMap<>();
+    
+    @Override
+    public void recordRoute(String startStationId, String endStationId) {
+        counts.computeIfAbsent(Route.of(startStationId, endStationId), route -> new LongAdder())
+                .increment();
+    }
+    
+    @Override
+    public List<RouteFrequency> topRoutes(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        
+        // Min-heap of the best K so far; the root is the first candidate to drop
+        Comparator<RouteFrequency> byFrequency = Comparator.comparingLong(RouteFrequency::getFrequency);
+        PriorityQueue<RouteFrequency> best = new PriorityQueue<>(byFrequency);
+        counts.forEach((route, count) -> {
+            long frequency = count.sum();
+            if (best.size() < limit) {
+                best.add(route.withFrequency(frequency));
+            } else if (frequency > best.peek().getFrequency()) {
+                best.poll();
+                best.add(route.withFrequency(frequency));
+            }
+        });
+        
+        List<RouteFrequency> result = new ArrayList<>(best);
+        result.sort(byFrequency.reversed());
+        return result;
+    }
+    
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+}
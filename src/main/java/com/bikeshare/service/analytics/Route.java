@@ -0,0 +1,20 @@
+package com.bikeshare.service.analytics;
+
+import com.bikeshare.service.RideService.RouteFrequency;
+
+/**
+ * Start/end station pair used as key by the route counters.
+ */
+record Route(String startStationId, String endStationId) {
+    
+    static Route of(String startStationId, String endStationId) {
+        if (startStationId == null || endStationId == null) {
+            throw new IllegalArgumentException("Route station IDs cannot be null");
+        }
+        return new Route(startStationId, endStationId);
+    }
+    
+    RouteFrequency withFrequency(long frequency) {
+        return new RouteFrequency(startStationId, endStationId, frequency);
+    }
+}
@@ -0,0 +1,34 @@
+package com.bikeshare.service.analytics;
+
+import java.util.List;
+
+import com.bikeshare.service.RideService.RouteFrequency;
+
+/**
+ * Streaming counter of start-to-end station pairs, fed as rides complete.
+ * Implementations answer top-K queries without touching the ride repository.
+ */
+public interface RouteCounter {
+    
+    /**
+     * Records one completed ride on a route.
+     * @param startStationId the station where the ride started
+     * @param endStationId the station where the ride ended
+     * @throws IllegalArgumentException if either station ID is null
+     */
+    void recordRoute(String startStationId, String endStationId);
+    
+    /**
+     * Gets the most frequent routes, most frequent first.
+     * @param limit maximum number of routes to return
+     * @return list of at most limit routes with their (possibly estimated) frequency
+     * @throws IllegalArgumentException if limit is not positive
+     */
+    List<RouteFrequency> topRoutes(int limit);
+    
+    /**
+     * Checks whether reported frequencies are exact counts.
+     * @return true for exact counters, false for approximate ones
+     */
+    boolean isExact();
+}
@@ -0,0 +1,116 @@
+package com.bikeshare.service.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.bikeshare.service.RideService.RouteFrequency;
+
+/**
+ * Approximate route counter based on the Space-Saving heavy-hitters algorithm.
+ * At most {@code capacity} routes are monitored. When a new route arrives and the table is full,
+ * the least frequent route is evicted and the newcomer inherits its count plus one.
+ * Reported frequencies never undercount and overcount by at most N / capacity,
+ * where N is the number of recorded rides. Memory stays bounded however many routes exist.
+ */
+public class SpaceSavingRouteCounter implements RouteCounter {
+    
+    public static final int DEFAULT_CAPACITY = 1000;
+    
+    private final int capacity;
+    private final Map<Route, Counter> counters;
+    private final TreeSet<Counter> byCount;
+    private long sequence;
+    
+    public SpaceSavingRouteCounter() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Creates a counter monitoring at most the given number of routes.
+     * @param capacity maximum number of monitored routes
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public SpaceSavingRouteCounter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+        this.byCount = new TreeSet<>(Comparator
+                .comparingLong((Counter c) -> c.count)
+                .thenComparingLong(c -> c.sequence));
+    }
+    
+    @Override
+    public synchronized void recordRoute(String startStationId, String endStationId) {
+        Route route = Route.of(startStationId, endStationId);
+        Counter counter = counters.get(route);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count++;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(route, 1, 0);
+            counters.put(route, counter);
+        } else {
+            // Replace the minimum; its count becomes the newcomer's error bound
+            Counter evicted = byCount.pollFirst();
+            counters.remove(evicted.route);
+            counter = new Counter(route, evicted.count + 1, evicted.count);
+            counters.put(route, counter);
+        }
+        counter.sequence = ++sequence;
+        byCount.add(counter);
+    }
+    
+    @Override
+    public synchronized List<RouteFrequency> topRoutes(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<RouteFrequency> result = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> it = byCount.descendingIterator();
+        while (it.hasNext() && result.size() < limit) {
+            Counter counter = it.next();
+            result.add(counter.route.withFrequency(counter.count));
+        }
+        return result;
+    }
+    
+    /**
+     * Gets the maximum overestimation of a route's reported frequency.
+     * @param startStationId the start station ID
+     * @param endStationId the end station ID
+     * @return error bound, or -1 if the route is not currently monitored
+     */
+    public synchronized long getErrorBound(String startStationId, String endStationId) {
+        Counter counter = counters.get(Route.of(startStationId, endStationId));
+        return counter != null ? counter.error : -1;
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    @Override
+    public boolean isExact() {
+        return false;
+    }
+    
+    private static final class Counter {
+        final Route route;
+        final long error;
+        long count;
+        long sequence;
+        
+        Counter(Route route, long count, long error) {
+            this.route = route;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.bikeshare.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent hash map from int keys to objects, meant for stores and indexes keyed by
+ * {@link com.bikeshare.model.IdRegistry} handles.
+ * <p>
+ * Entries live in flat parallel arrays with linear probing, so each one costs an int and a
+ * reference instead of a node object and a boxed key. The map is split into segments with a
+ * table each: writers to a segment are serialized by a lock, while readers take an optimistic
+ * {@link StampedLock} read and only block when a write overlapped. Null values are not
+ * supported, since an empty slot is a null value.
+ * <p>
+ * Remapping functions run under their segment's writer lock and may read and update the map,
+ * including other keys. Iteration works on a copy of each segment and is weakly consistent.
+ *
+ * @param <V> type of the values
+ */
+public final class IntObjectHashMap<V> {
+    
+    private static final int SEGMENT_BITS = 4;
+    private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+    private static final int MIN_CAPACITY = 8;
+    
+    /**
+     * Computes a new value for a key.
+     * @param <V> type of the values
+     */
+    @FunctionalInterface
+    public interface EntryFunction<V> {
+        /**
+         * @param key the key
+         * @param value the current value, or null if absent
+         * @return the new value, or null to remove the entry
+         */
+        V apply(int key, V value);
+    }
+    
+    /**
+     * Receives entries during iteration.
+     * @param <V> type of the values
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+    
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    
+    public IntObjectHashMap() {
+        this(0);
+    }
+    
+    /**
+     * Creates a map sized to hold a number of entries without growing.
+     * @param expectedSize expected number of entries
+     */
+    public IntObjectHashMap(int expectedSize) {
+        long perSegment = (long) expectedSize / SEGMENT_COUNT + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity * 2L < perSegment * 3 && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+    
+    public V get(int key) {
+        int hash = hash(key);
+        return cast(segmentFor(hash).get(key, hash));
+    }
+    
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * Associates a value with a key.
+     * @return the previous value, or null if there was none
+     * @throws NullPointerException if the value is null
+     */
+    public V put(int key, V value) {
+        requireValue(value);
+        int hash = hash(key);
+        return cast(segmentFor(hash).put(key, hash, value, false));
+    }
+    
+    /**
+     * Associates a value with a key unless the key already has one.
+     * @return the existing value, or null if the value was stored
+     * @throws NullPointerException if the value is null
+     */
+    public V putIfAbsent(int key, V value) {
+        requireValue(value);
+        int hash = hash(key);
+        return cast(segmentFor(hash).put(key, hash, value, true));
+    }
+    
+    /**
+     * Removes a key.
+     * @return the removed value, or null if the key was absent
+     */
+    public V remove(int key) {
+        int hash = hash(key);
+        return cast(segmentFor(hash).remove(key, hash, null));
+    }
+    
+    /**
+     * Removes a key only while it maps to the given value.
+     * @return true if the entry was removed
+     */
+    public boolean remove(int key, Object value) {
+        if (value == null) {
+            return false;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+    
+    /**
+     * Replaces the value of a key with the result of a function, atomically with respect to
+     * other writers of the key.
+     * @return the new value, or null if the entry was removed or not created
+     */
+    public V compute(int key, EntryFunction<V> remapping) {
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, remapping, false);
+    }
+    
+    /**
+     * Like {@link #compute(int, EntryFunction)}, but only calls the function if the key is present.
+     */
+    public V computeIfPresent(int key, EntryFunction<V> remapping) {
+        int hash = hash(key);
+        return segmentFor(hash).compute(key, hash, remapping, true);
+    }
+    
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * Copies the values.
+     * @return a new list holding every value in no particular order
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        forEach((key, value) -> values.add(value));
+        return values;
+    }
+    
+    /**
+     * Visits every entry. The action is called outside any lock and may update the map.
+     * @param action callback receiving each key and value
+     */
+    public void forEach(EntryConsumer<? super V> action) {
+        for (Segment segment : segments) {
+            Table copy = segment.copy();
+            for (int i = 0; i < copy.values.length; i++) {
+                Object value = copy.values[i];
+                if (value != null) {
+                    action.accept(copy.keys[i], cast(value));
+                }
+            }
+        }
+    }
+    
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+    
+    /**
+     * Fibonacci hashing: spreads dense handles evenly over the segments, whose choice uses
+     * the top bits, and over the slots, which use the low bits folded with the high ones.
+     */
+    private static int hash(int key) {
+        return key * 0x9E3779B9;
+    }
+    
+    private static int home(int hash, int mask) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+    
+    private static void requireValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported");
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+    
+    private record Table(int[] keys, Object[] values) {
+        Table(int capacity) {
+            this(new int[capacity], new Object[capacity]);
+        }
+        
+        /**
+         * Finds the slot of a key. Probing is bounded by the capacity, so a reader racing
+         * with a writer always terminates; its stamp then fails validation.
+         * @return the slot, or -1 if the key is absent
+         */
+        int find(int key, int hash) {
+            int mask = keys.length - 1;
+            int slot = home(hash, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                if (values[slot] == null) {
+                    return -1;
+                }
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+        
+        void insert(int key, int hash, Object value) {
+            int mask = keys.length - 1;
+            int slot = home(hash, mask);
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+        
+        /**
+         * Empties a slot and shifts later entries of the probe run back into the gap, so
+         * lookups never need tombstones.
+         */
+        void delete(int slot) {
+            int mask = keys.length - 1;
+            int gap = slot;
+            for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                int home = home(hash(keys[i]), mask);
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            values[gap] = null;
+        }
+    }
+    
+    private static final class Segment {
+        // Serializes writers; reentrant so remapping functions can update the map
+        private final ReentrantLock writers = new ReentrantLock();
+        // Held in write mode only while the table changes, never across a remapping function
+        private final StampedLock lock = new StampedLock();
+        private volatile Table table;
+        private volatile int size;
+        
+        Segment(int capacity) {
+            this.table = new Table(capacity);
+        }
+        
+        Object get(int key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            Object value = lookup(table, key, hash);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    value = lookup(table, key, hash);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+        
+        Object put(int key, int hash, Object value, boolean onlyIfAbsent) {
+            writers.lock();
+            try {
+                Object previous = lookup(table, key, hash);
+                if (previous == null || !onlyIfAbsent) {
+                    store(key, hash, value);
+                }
+                return previous;
+            } finally {
+                writers.unlock();
+            }
+        }
+        
+        Object remove(int key, int hash, Object expected) {
+            writers.lock();
+            try {
+                Object previous = lookup(table, key, hash);
+                if (previous == null || (expected != null && !expected.equals(previous))) {
+                    return null;
+                }
+                delete(key, hash);
+                return previous;
+            } finally {
+                writers.unlock();
+            }
+        }
+        
+        <V> V compute(int key, int hash, EntryFunction<V> remapping, boolean onlyIfPresent) {
+            writers.lock();
+            try {
+                V current = cast(lookup(table, key, hash));
+                if (current == null && onlyIfPresent) {
+                    return null;
+                }
+                V updated = remapping.apply(key, current);
+                // The function may have changed this segment, so look the key up again
+                if (updated != null) {
+                    store(key, hash, updated);
+                } else if (lookup(table, key, hash) != null) {
+                    delete(key, hash);
+                }
+                return updated;
+            } finally {
+                writers.unlock();
+            }
+        }
+        
+        Table copy() {
+            long stamp = lock.readLock();
+            try {
+                return new Table(table.keys.clone(), table.values.clone());
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        
+        private static Object lookup(Table table, int key, int hash) {
+            int slot = table.find(key, hash);
+            return slot >= 0 ? table.values[slot] : null;
+        }
+        
+        private void store(int key, int hash, Object value) {
+            long stamp = lock.writeLock();
+            try {
+                Table current = table;
+                int slot = current.find(key, hash);
+                if (slot >= 0) {
+                    current.values[slot] = value;
+                    return;
+                }
+                if ((size + 1) * 3L > current.keys.length * 2L) {
+                    current = grow(current);
+                }
+                current.insert(key, hash, value);
+                size++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        
+        private void delete(int key, int hash) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = table.find(key, hash);
+                if (slot >= 0) {
+                    table.delete(slot);
+                    size--;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        
+        private Table grow(Table old) {
+            Table grown = new Table(old.keys.length * 2);
+            for (int i = 0; i < old.keys.length; i++) {
+                if (old.values[i] != null) {
+                    grown.insert(old.keys[i], hash(old.keys[i]), old.values[i]);
+                }
+            }
+            table = grown;
+            return grown;
+        }
+    }
+}
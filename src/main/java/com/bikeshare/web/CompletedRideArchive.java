@@ -0,0 +1,776 @@
+package com.bikeshare.web;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.bikeshare.model.IdRegistry;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+
+/**
+ * Columnar cold store for completed rides, used by {@link InMemoryRideRepository}.
+ * <p>
+ * Each ride is a row spread over primitive arrays: timestamps as epoch seconds plus nanos,
+ * user, bike and station IDs as {@link IdRegistry} handles, costs as doubles, and the ride ID as UTF-8
+ * bytes in a shared heap. The rare fields of a completed ride (pause state and notes) live in
+ * a side map, so a typical row costs roughly 150 bytes instead of the ~800 a {@code Ride}
+ * with its strings, {@code LocalDateTime}s and index entries takes.
+ * <p>
+ * Lookups by ride ID use an open-addressing table of row numbers. Lookups by user, bike and
+ * station use per-handle row lists. Start-time order is kept as a few sorted runs of rows:
+ * a range query sorts the rows appended since the last one into a new run and merges it into
+ * earlier runs only while they are at most twice its size, so each row is merged a logarithmic
+ * number of times, and queries binary-search every run. Removed rows are flagged and skipped until they make up
+ * half of the rows; the columns are then compacted and every index renumbered.
+ * Rides are materialized as new {@code Ride} instances on every read.
+ * <p>
+ * All access goes through a read-write lock.
+ */
+class CompletedRideArchive {
+    
+    private static final Ride.RideStatus[] STATUSES = Ride.RideStatus.values();
+    private static final User.MembershipType[] MEMBERSHIPS = User.MembershipType.values();
+    
+    private static final byte FREE_MINUTES_USED = 1;
+    private static final byte HAS_EXTRAS = 2;
+    private static final byte DELETED = 4;
+    
+    // Smaller archives are not worth compacting
+    private static final int MIN_COMPACT_ROWS = 64;
+    
+    /** Fields that are almost always empty once a ride has ended. */
+    private record Extras(LocalDateTime pauseStartTime, long totalPausedMinutes, String notes) {
+    }
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Columns, indexed by row
+    private byte[] idBytes = new byte[1024];
+    private int idBytesLength;
+    private int[] idEnd = new int[0];
+    private int[] idHash = new int[0];
+    private int[] userHandles = new int[0];
+    private int[] bikeHandles = new int[0];
+    private int[] startStationHandles = new int[0];
+    private int[] endStationHandles = new int[0];
+    private long[] startSeconds = new long[0];
+    private int[] startNanos = new int[0];
+    private long[] endSeconds = new long[0];
+    private int[] endNanos = new int[0];
+    private double[] distances = new double[0];
+    private double[] baseCosts = new double[0];
+    private double[] additionalCosts = new double[0];
+    private double[] discounts = new double[0];
+    private double[] finalCosts = new double[0];
+    private long[] activeMinutes = new long[0];
+    private byte[] statuses = new byte[0];
+    private byte[] memberships = new byte[0];
+    private byte[] flags = new byte[0];
+    private final Map<Integer, Extras> extras = new HashMap<>();
+    private int rowCount;
+    private int liveCount;
+    
+    // Ride ID -> row + 1 (0 = empty), linear probing
+    private int[] slots = new int[16];
+    
+    private final RowLists rowsByUser = new RowLists();
+    private final RowLists rowsByBike = new RowLists();
+    private final RowLists rowsByStartStation = new RowLists();
+    private final RowLists rowsByEndStation = new RowLists();
+    
+    // Rows [0, sortedRows) in sorted runs, largest (oldest) first; later rows are sorted lazily
+    private final List<int[]> startRuns = new ArrayList<>();
+    private int sortedRows;
+    
+    /**
+     * Checks whether a ride can be archived: it must have ended and have a start time.
+     * @param ride the ride
+     * @return true if the ride can move to the archive
+     */
+    static boolean accepts(Ride ride) {
+        return ride.getEndTime() != null && ride.getStartTime() != null;
+    }
+    
+    /**
+     * Appends a completed ride. The caller guarantees that its ID is not archived yet.
+     * @param ride a ride for which {@link #accepts(Ride)} holds
+     */
+    void add(Ride ride) {
+        lock.writeLock().lock();
+        try {
+            if (rowCount == userHandles.length) {
+                grow();
+            }
+            int row = rowCount;
+            Ride.Snapshot state = ride.snapshot();
+            byte[] id = state.rideId().getBytes(StandardCharsets.UTF_8);
+            if (idBytesLength + id.length > idBytes.length) {
+                idBytes = Arrays.copyOf(idBytes, Math.max(idBytes.length * 3 / 2, idBytesLength + id.length));
+            }
+            System.arraycopy(id, 0, idBytes, idBytesLength, id.length);
+            idBytesLength += id.length;
+            idEnd[row] = idBytesLength;
+            idHash[row] = hash(id, 0, id.length);
+            
+            userHandles[row] = ride.getUserHandle();
+            bikeHandles[row] = ride.getBikeHandle();
+            startStationHandles[row] = ride.getStartStationHandle();
+            endStationHandles[row] = ride.getEndStationHandle();
+            startSeconds[row] = state.startTime().toEpochSecond(ZoneOffset.UTC);
+            startNanos[row] = state.startTime().getNano();
+            endSeconds[row] = state.endTime().toEpochSecond(ZoneOffset.UTC);
+            endNanos[row] = state.endTime().getNano();
+            distances[row] = state.distance();
+            baseCosts[row] = state.baseCost();
+            additionalCosts[row] = state.additionalCost();
+            discounts[row] = state.discount();
+            finalCosts[row] = state.finalCost();
+            activeMinutes[row] = ride.getActiveMinutes();
+            statuses[row] = (byte) state.status().ordinal();
+            memberships[row] = (byte) (state.membershipType() != null ? state.membershipType().ordinal() : -1);
+            byte rowFlags = state.freeMinutesUsed() ? FREE_MINUTES_USED : 0;
+            if (state.pauseStartTime() != null || state.totalPausedMinutes() != 0 || state.notes() != null) {
+                extras.put(row, new Extras(state.pauseStartTime(), state.totalPausedMinutes(), state.notes()));
+                rowFlags |= HAS_EXTRAS;
+            }
+            flags[row] = rowFlags;
+            
+            rowsByUser.add(userHandles[row], row);
+            rowsByBike.add(bikeHandles[row], row);
+            rowsByStartStation.add(startStationHandles[row], row);
+            rowsByEndStation.add(endStationHandles[row], row);
+            
+            insertSlot(row);
+            rowCount++;
+            liveCount++;
+            if (liveCount * 2 > slots.length) {
+                rehash(slots.length * 2);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Removes a ride from the archive.
+     * @param rideId the ride ID
+     * @return the removed ride, or null if it was not archived
+     */
+    Ride remove(String rideId) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(rideId);
+            if (slot < 0) {
+                return null;
+            }
+            int row = slots[slot] - 1;
+            Ride ride = materialize(row);
+            flags[row] |= DELETED;
+            extras.remove(row);
+            deleteSlot(slot);
+            liveCount--;
+            if (rowCount >= MIN_COMPACT_ROWS && liveCount * 2 < rowCount) {
+                compact();
+            }
+            return ride;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    Ride find(String rideId) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(rideId);
+            return slot >= 0 ? materialize(slots[slot] - 1) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    boolean contains(String rideId) {
+        lock.readLock().lock();
+        try {
+            return findSlot(rideId) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    List<Ride> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Ride> result = new ArrayList<>(liveCount);
+            for (int row = 0; row < rowCount; row++) {
+                if ((flags[row] & DELETED) == 0) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    List<Ride> findByUserId(String userId) {
+        return findByHandle(rowsByUser, IdRegistry.USERS.find(userId));
+    }
+    
+    List<Ride> findByBikeId(String bikeId) {
+        return findByHandle(rowsByBike, IdRegistry.BIKES.find(bikeId));
+    }
+    
+    List<Ride> findByStartStationId(String stationId) {
+        return findByHandle(rowsByStartStation, IdRegistry.STATIONS.find(stationId));
+    }
+    
+    List<Ride> findByEndStationId(String stationId) {
+        return findByHandle(rowsByEndStation, IdRegistry.STATIONS.find(stationId));
+    }
+    
+    List<Ride> findLongerThan(long minutes) {
+        lock.readLock().lock();
+        try {
+            List<Ride> result = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                if (activeMinutes[row] > minutes && (flags[row] & DELETED) == 0) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    List<Ride> findCostHigherThan(double amount) {
+        lock.readLock().lock();
+        try {
+            List<Ride> result = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                if (finalCosts[row] > amount && (flags[row] & DELETED) == 0) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Finds rides that started strictly between two instants, ordered by start time and ride ID.
+     * @param after exclusive lower bound
+     * @param before exclusive upper bound
+     * @param maxResults maximum number of rides to return
+     * @return the first matching rides in start-time order
+     */
+    List<Ride> findStartedBetween(LocalDateTime after, LocalDateTime before, long maxResults) {
+        return findStartedAfter(after, null, before, maxResults);
+    }
+    
+    /**
+     * Finds rides that come after a (start time, ride ID) key and started before an instant,
+     * ordered by start time and ride ID. Continues a keyset page.
+     * @param afterStart start time of the key
+     * @param afterRideId ride ID of the key, or null to skip every ride starting at afterStart
+     * @param before exclusive upper bound
+     * @param maxResults maximum number of rides to return
+     * @return the first matching rides in start-time order
+     */
+    List<Ride> findStartedAfter(LocalDateTime afterStart, String afterRideId, LocalDateTime before,
+                                long maxResults) {
+        sortStartOrder();
+        long afterSeconds = afterStart.toEpochSecond(ZoneOffset.UTC);
+        int afterNanos = afterStart.getNano();
+        byte[] afterId = afterRideId != null ? afterRideId.getBytes(StandardCharsets.UTF_8) : null;
+        long beforeSeconds = before.toEpochSecond(ZoneOffset.UTC);
+        int beforeNanos = before.getNano();
+        lock.readLock().lock();
+        try {
+            List<Ride> result = new ArrayList<>();
+            // First position past the lower key in each run
+            int[] positions = new int[startRuns.size()];
+            for (int r = 0; r < positions.length; r++) {
+                int[] run = startRuns.get(r);
+                int low = 0;
+                int high = run.length;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (compareKey(run[mid], afterSeconds, afterNanos, afterId) <= 0) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                positions[r] = low;
+            }
+            while (result.size() < maxResults) {
+                int next = -1;
+                for (int r = 0; r < positions.length; r++) {
+                    int[] run = startRuns.get(r);
+                    if (positions[r] < run.length
+                            && (next < 0 || compareRows(run[positions[r]], startRuns.get(next)[positions[next]]) < 0)) {
+                        next = r;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                int row = startRuns.get(next)[positions[next]++];
+                if (compareStart(row, beforeSeconds, beforeNanos) >= 0) {
+                    break;
+                }
+                if ((flags[row] & DELETED) == 0) {
+                    result.add(materialize(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private List<Ride> findByHandle(RowLists index, int handle) {
+        lock.readLock().lock();
+        try {
+            if (handle < 0) {
+                return new ArrayList<>();
+            }
+            int[] rows = index.rows(handle);
+            int count = index.size(handle);
+            List<Ride> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if ((flags[rows[i]] & DELETED) == 0) {
+                    result.add(materialize(rows[i]));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Ride materialize(int row) {
+        Extras extra = (flags[row] & HAS_EXTRAS) != 0 ? extras.get(row) : null;
+        return Ride.restore(new Ride.Snapshot(
+                rideId(row),
+                IdRegistry.USERS.id(userHandles[row]),
+                IdRegistry.BIKES.id(bikeHandles[row]),
+                IdRegistry.STATIONS.id(startStationHandles[row]),
+                IdRegistry.STATIONS.id(endStationHandles[row]),
+                STATUSES[statuses[row]],
+                LocalDateTime.ofEpochSecond(startSeconds[row], startNanos[row], ZoneOffset.UTC),
+                LocalDateTime.ofEpochSecond(endSeconds[row], endNanos[row], ZoneOffset.UTC),
+                extra != null ? extra.pauseStartTime() : null,
+                extra != null ? extra.totalPausedMinutes() : 0L,
+                distances[row],
+                baseCosts[row],
+                additionalCosts[row],
+                discounts[row],
+                finalCosts[row],
+                memberships[row] >= 0 ? MEMBERSHIPS[memberships[row]] : null,
+                (flags[row] & FREE_MINUTES_USED) != 0,
+                extra != null ? extra.notes() : null));
+    }
+    
+    private String rideId(int row) {
+        int start = idStart(row);
+        return new String(idBytes, start, idEnd[row] - start, StandardCharsets.UTF_8);
+    }
+    
+    private int idStart(int row) {
+        return row == 0 ? 0 : idEnd[row - 1];
+    }
+    
+    private void grow() {
+        resize(Math.max(16, userHandles.length * 3 / 2));
+    }
+    
+    private void resize(int capacity) {
+        idEnd = Arrays.copyOf(idEnd, capacity);
+        idHash = Arrays.copyOf(idHash, capacity);
+        userHandles = Arrays.copyOf(userHandles, capacity);
+        bikeHandles = Arrays.copyOf(bikeHandles, capacity);
+        startStationHandles = Arrays.copyOf(startStationHandles, capacity);
+        endStationHandles = Arrays.copyOf(endStationHandles, capacity);
+        startSeconds = Arrays.copyOf(startSeconds, capacity);
+        startNanos = Arrays.copyOf(startNanos, capacity);
+        endSeconds = Arrays.copyOf(endSeconds, capacity);
+        endNanos = Arrays.copyOf(endNanos, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        baseCosts = Arrays.copyOf(baseCosts, capacity);
+        additionalCosts = Arrays.copyOf(additionalCosts, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+        finalCosts = Arrays.copyOf(finalCosts, capacity);
+        activeMinutes = Arrays.copyOf(activeMinutes, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        memberships = Arrays.copyOf(memberships, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+    
+    // Ride ID table
+    
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+    
+    private int findSlot(String rideId) {
+        if (rideId == null) {
+            return -1;
+        }
+        byte[] id = rideId.getBytes(StandardCharsets.UTF_8);
+        int mask = slots.length - 1;
+        for (int slot = hash(id, 0, id.length) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (Arrays.equals(idBytes, idStart(row), idEnd[row], id, 0, id.length)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    private void insertSlot(int row) {
+        int mask = slots.length - 1;
+        int slot = idHash[row] & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+    
+    private void deleteSlot(int slot) {
+        // Backward-shift deletion keeps probe sequences intact without tombstones
+        int mask = slots.length - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slots[next] == 0) {
+                break;
+            }
+            int home = idHash[slots[next] - 1] & mask;
+            boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (movable) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+    }
+    
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int row = 0; row < rowCount; row++) {
+            if ((flags[row] & DELETED) == 0) {
+                insertSlot(row);
+            }
+        }
+    }
+    
+    // Compaction
+    
+    /**
+     * Drops deleted rows, moving live rows down in order. Row order is kept, so the row lists
+     * and start-time runs stay sorted once renumbered.
+     */
+    private void compact() {
+        int[] newRows = new int[rowCount];
+        Map<Integer, Extras> kept = new HashMap<>();
+        int live = 0;
+        int liveSorted = 0;
+        int bytes = 0;
+        int oldStart = 0;
+        for (int row = 0; row < rowCount; row++) {
+            int oldEnd = idEnd[row];
+            if ((flags[row] & DELETED) != 0) {
+                newRows[row] = -1;
+                oldStart = oldEnd;
+                continue;
+            }
+            // Live rows only ever move down, so copying in place never overwrites unread data
+            System.arraycopy(idBytes, oldStart, idBytes, bytes, oldEnd - oldStart);
+            bytes += oldEnd - oldStart;
+            oldStart = oldEnd;
+            idEnd[live] = bytes;
+            idHash[live] = idHash[row];
+            userHandles[live] = userHandles[row];
+            bikeHandles[live] = bikeHandles[row];
+            startStationHandles[live] = startStationHandles[row];
+            endStationHandles[live] = endStationHandles[row];
+            startSeconds[live] = startSeconds[row];
+            startNanos[live] = startNanos[row];
+            endSeconds[live] = endSeconds[row];
+            endNanos[live] = endNanos[row];
+            distances[live] = distances[row];
+            baseCosts[live] = baseCosts[row];
+            additionalCosts[live] = additionalCosts[row];
+            discounts[live] = discounts[row];
+            finalCosts[live] = finalCosts[row];
+            activeMinutes[live] = activeMinutes[row];
+            statuses[live] = statuses[row];
+            memberships[live] = memberships[row];
+            flags[live] = flags[row];
+            if ((flags[row] & HAS_EXTRAS) != 0) {
+                kept.put(live, extras.get(row));
+            }
+            if (row < sortedRows) {
+                liveSorted++;
+            }
+            newRows[row] = live++;
+        }
+        extras.clear();
+        extras.putAll(kept);
+        idBytesLength = bytes;
+        idBytes = Arrays.copyOf(idBytes, Math.max(1024, bytes * 3 / 2));
+        rowCount = live;
+        resize(Math.max(16, live * 3 / 2));
+        
+        int capacity = 16;
+        while (capacity < live * 2) {
+            capacity *= 2;
+        }
+        rehash(capacity);
+        rowsByUser.renumber(newRows);
+        rowsByBike.renumber(newRows);
+        rowsByStartStation.renumber(newRows);
+        rowsByEndStation.renumber(newRows);
+        
+        List<int[]> runs = new ArrayList<>(startRuns);
+        startRuns.clear();
+        for (int[] run : runs) {
+            int count = renumber(run, run.length, newRows);
+            if (count > 0) {
+                startRuns.add(Arrays.copyOf(run, count));
+                mergeSmallRuns();
+            }
+        }
+        sortedRows = liveSorted;
+    }
+    
+    /**
+     * Renumbers rows in place after a compaction, dropping deleted ones.
+     * @return the number of rows kept at the front of the array
+     */
+    private static int renumber(int[] rows, int count, int[] newRows) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (newRows[rows[i]] >= 0) {
+                rows[kept++] = newRows[rows[i]];
+            }
+        }
+        return kept;
+    }
+    
+    // Start-time order
+    
+    private int compareStart(int row, long seconds, int nanos) {
+        int bySeconds = Long.compare(startSeconds[row], seconds);
+        return bySeconds != 0 ? bySeconds : Integer.compare(startNanos[row], nanos);
+    }
+    
+    /**
+     * Compares a row with a (start time, ride ID) key; without a ride ID only start times count.
+     */
+    private int compareKey(int row, long seconds, int nanos, byte[] rideId) {
+        int byStart = compareStart(row, seconds, nanos);
+        if (byStart != 0 || rideId == null) {
+            return byStart;
+        }
+        return compareIds(idBytes, idStart(row), idEnd[row], rideId, 0, rideId.length);
+    }
+    
+    private int compareRows(int a, int b) {
+        int byStart = compareStart(a, startSeconds[b], startNanos[b]);
+        if (byStart != 0) {
+            return byStart;
+        }
+        return compareIds(idBytes, idStart(a), idEnd[a], idBytes, idStart(b), idEnd[b]);
+    }
+    
+    /**
+     * Orders encoded ride IDs the way {@link String#compareTo} orders them, as the hot tier does.
+     * For ASCII IDs that is plain byte order; other IDs are decoded first, since UTF-8 byte order
+     * is code point order, which differs from UTF-16 order for characters above U+FFFF.
+     */
+    private static int compareIds(byte[] a, int aFrom, int aTo, byte[] b, int bFrom, int bTo) {
+        if (isAscii(a, aFrom, aTo) && isAscii(b, bFrom, bTo)) {
+            return Arrays.compare(a, aFrom, aTo, b, bFrom, bTo);
+        }
+        return new String(a, aFrom, aTo - aFrom, StandardCharsets.UTF_8)
+                .compareTo(new String(b, bFrom, bTo - bFrom, StandardCharsets.UTF_8));
+    }
+    
+    private static boolean isAscii(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void sortStartOrder() {
+        lock.readLock().lock();
+        try {
+            if (sortedRows == rowCount) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (sortedRows == rowCount) {
+                return;
+            }
+            startRuns.add(sortRows(sortedRows, rowCount));
+            sortedRows = rowCount;
+            mergeSmallRuns();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Merges the newest run into its predecessor while the predecessor is no larger than twice
+     * its size, which keeps run sizes shrinking geometrically and so leaves O(log n) runs.
+     */
+    private void mergeSmallRuns() {
+        int count = startRuns.size();
+        while (count > 1 && startRuns.get(count - 2).length <= 2 * startRuns.get(count - 1).length) {
+            int[] newer = startRuns.remove(--count);
+            int[] older = startRuns.get(count - 1);
+            int[] merged = new int[older.length + newer.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < older.length && j < newer.length) {
+                merged[k++] = compareRows(older[i], newer[j]) <= 0 ? older[i++] : newer[j++];
+            }
+            while (i < older.length) {
+                merged[k++] = older[i++];
+            }
+            while (j < newer.length) {
+                merged[k++] = newer[j++];
+            }
+            startRuns.set(count - 1, merged);
+        }
+    }
+    
+    /**
+     * Sorts a range of rows by start time without boxing: a primitive sort on
+     * (start second, row) keys, then a comparator sort of each run sharing one second.
+     */
+    private int[] sortRows(int from, int to) {
+        int count = to - from;
+        long base = Long.MAX_VALUE;
+        for (int row = from; row < to; row++) {
+            base = Math.min(base, startSeconds[row]);
+        }
+        long[] keys = new long[count];
+        boolean packable = true;
+        for (int row = from; row < to && packable; row++) {
+            long offset = startSeconds[row] - base;
+            packable = offset < (1L << 31);
+            keys[row - from] = (offset << 32) | row;
+        }
+        int[] rows = new int[count];
+        if (!packable) {
+            // Start times spread over more than 68 years: fall back to a plain comparator sort
+            Integer[] boxed = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                boxed[i] = from + i;
+            }
+            Arrays.sort(boxed, this::compareRows);
+            for (int i = 0; i < count; i++) {
+                rows[i] = boxed[i];
+            }
+            return rows;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count; i++) {
+            rows[i] = (int) keys[i];
+        }
+        for (int runStart = 0; runStart < count; ) {
+            int runEnd = runStart + 1;
+            while (runEnd < count && startSeconds[rows[runEnd]] == startSeconds[rows[runStart]]) {
+                runEnd++;
+            }
+            if (runEnd - runStart > 1) {
+                Integer[] run = new Integer[runEnd - runStart];
+                for (int i = 0; i < run.length; i++) {
+                    run[i] = rows[runStart + i];
+                }
+                Arrays.sort(run, this::compareRows);
+                for (int i = 0; i < run.length; i++) {
+                    rows[runStart + i] = run[i];
+                }
+            }
+            runStart = runEnd;
+        }
+        return rows;
+    }
+    
+    /**
+     * Growable row lists per handle.
+     */
+    private static final class RowLists {
+        private int[][] rows = new int[16][];
+        private int[] sizes = new int[16];
+        
+        void add(int handle, int row) {
+            if (handle < 0) {
+                return;
+            }
+            if (handle >= rows.length) {
+                int capacity = Math.max(handle + 1, rows.length * 2);
+                rows = Arrays.copyOf(rows, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+            }
+            int[] list = rows[handle];
+            if (list == null) {
+                list = rows[handle] = new int[4];
+            } else if (sizes[handle] == list.length) {
+                list = rows[handle] = Arrays.copyOf(list, list.length * 2);
+            }
+            list[sizes[handle]++] = row;
+        }
+        
+        int[] rows(int handle) {
+            return handle < rows.length && rows[handle] != null ? rows[handle] : new int[0];
+        }
+        
+        int size(int handle) {
+            return handle < sizes.length ? sizes[handle] : 0;
+        }
+        
+        void renumber(int[] newRows) {
+            for (int handle = 0; handle < rows.length; handle++) {
+                if (rows[handle] != null) {
+                    sizes[handle] = CompletedRideArchive.renumber(rows[handle], sizes[handle], newRows);
+                }
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.bikeshare.repository.BikeRepository;
 import com.bikeshare.repository.StationRepository;
 import com.bikeshare.repository.UserRepository;
 
+import java.util.List;
+
 /**
  * Simple data loader to populate in-memory repositories for demos.
  * Replace with DB seeding if a database is used.
@@ -26,20 +28,20 @@ public class DataLoader {
         // Minimal seed; extend as needed for labs
     Station s1 = new Station("S-001", "Slussen", "", 59.319, 18.074, 20);
     Station s2 = new Station("S-002", "KTH Campus", "", 59.349, 18.073, 25);
-        stations.save(s1);
-        stations.save(s2);
+        stations.saveAll(List.of(s1, s2));
 
     Bike b1 = new Bike("B-001", Bike.BikeType.STANDARD);
-    b1.setCurrentStationId(s1.getStationId());
+    s1.addBike(b1);
     bikes.save(b1);
     Bike b2 = new Bike("B-002", Bike.BikeType.ELECTRIC);
-    b2.setCurrentStationId(s1.getStationId());
+    s1.addBike(b2);
     bikes.save(b2);
     Bike b3 = new Bike("B-003", Bike.BikeType.PREMIUM);
     b3.markAsBroken();
     bikes.save(b3);
 
-        User u = new User("U-001", "student@example.se", "Anna", "Svensson");
+        // User IDs are personnummer and must pass the checksum
+        User u = new User("900101-1239", "student@example.se", "Anna", "Svensson");
         users.save(u);
     }
 }
@@ -0,0 +1,67 @@
+package com.bikeshare.web;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Partitions entity IDs by an enum attribute (status, membership, type, ...).
+ * Every constant has a pre-allocated concurrent bucket, so lookups never allocate and
+ * the bucket map itself is never mutated after construction.
+ *
+ * @param <E> the enum type partitioned on
+ */
+class EnumPartition<E extends Enum<E>> {
+    
+    private final Map<E, Set<String>> buckets;
+    
+    EnumPartition(Class<E> enumType) {
+        Map<E, Set<String>> map = new EnumMap<>(enumType);
+        for (E constant : enumType.getEnumConstants()) {
+            map.put(constant, ConcurrentHashMap.newKeySet());
+        }
+        this.buckets = Collections.unmodifiableMap(map);
+    }
+    
+    /**
+     * Adds an entity ID to the bucket of the given constant.
+     * @param key the enum value (ignored if null)
+     * @param id the entity ID
+     */
+    void add(E key, String id) {
+        if (key != null) {
+            buckets.get(key).add(id);
+        }
+    }
+    
+    /**
+     * Removes an entity ID from the bucket of the given constant.
+     * @param key the enum value (ignored if null)
+     * @param id the entity ID
+     */
+    void remove(E key, String id) {
+        if (key != null) {
+            buckets.get(key).remove(id);
+        }
+    }
+    
+    /**
+     * Gets the IDs in a bucket.
+     * @param key the enum value
+     * @return live, weakly consistent view of the IDs (empty if key is null)
+     */
+    Set<String> get(E key) {
+        return key != null ? buckets.get(key) : Set.of();
+    }
+    
+    /**
+     * Gets the number of IDs in a bucket.
+     * @param key the enum value
+     * @return bucket size (0 if key is null)
+     */
+    int count(E key) {
+        return key != null ? buckets.get(key).size() : 0;
+    }
+}
@@ -2,62 +2,124 @@ package com.bikeshare.web;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.bikeshare.model.Bike;
+import com.bikeshare.model.BikeListener;
 import com.bikeshare.model.BikeType;
+import com.bikeshare.model.IdRegistry;
 import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.Page;
+import com.bikeshare.util.IntObjectHashMap;
 
 /**
  * Simple in-memory implementation of BikeRepository for demonstration purposes.
+ * <p>
+ * Bikes are partitioned by type, and the IDs of currently rentable bikes are kept in a set
+ * that stored bikes update through a {@link BikeListener}, so type and availability queries
+ * only touch matching bikes and countAvailable is constant time. The same listener keeps a
+ * station to bikes index current as bikes are docked and undocked. Bikes and the station index
+ * are keyed by {@link IdRegistry} handle; a sorted set of bike IDs serves keyset pages.
+ * Saves, deletes and reported changes all move the {@link #version()} counter.
  */
 public class InMemoryBikeRepository implements BikeRepository {
     
-    private final Map<String, Bike> bikes = new ConcurrentHashMap<>();
+    private final IntObjectHashMap<Bike> bikes = new IntObjectHashMap<>();
+    private final NavigableSet<String> bikeIds = new ConcurrentSkipListSet<>();
+    private final EnumPartition<Bike.BikeType> bikesByType = new EnumPartition<>(Bike.BikeType.class);
+    private final Set<String> availableBikeIds = ConcurrentHashMap.newKeySet();
+    private final IntSecondaryIndex bikesByStation = new IntSecondaryIndex();
+    private final LongAdder version = new LongAdder();
+    private final BikeListener indexListener = new BikeListener() {
+        @Override
+        public void bikeStateChanged(Bike bike) {
+            reindex(bike, () -> updateAvailability(bike));
+        }
+        
+        @Override
+        public void bikeStationChanged(Bike bike, String previousStationId) {
+            reindex(bike, () -> {
+                bikesByStation.remove(IdRegistry.STATIONS.find(previousStationId), bike.getBikeId());
+                bikesByStation.add(bike.getCurrentStationHandle(), bike.getBikeId());
+            });
+        }
+    };
     
     @Override
     public Bike save(Bike bike) {
-        bikes.put(bike.getBikeId(), bike);
+        String bikeId = bike.getBikeId();
+        bikes.compute(bike.getHandle(), (handle, previous) -> {
+            if (previous != null) {
+                bikesByType.remove(previous.getType(), bikeId);
+                bikesByStation.remove(previous.getCurrentStationHandle(), bikeId);
+                if (previous != bike) {
+                    previous.removeListener(indexListener);
+                }
+            }
+            bikeIds.add(bikeId);
+            bikesByType.add(bike.getType(), bikeId);
+            bikesByStation.add(bike.getCurrentStationHandle(), bikeId);
+            updateAvailability(bike);
+            if (previous != bike) {
+                bike.addListener(indexListener);
+            }
+            return bike;
+        });
+        version.increment();
         return bike;
     }
     
     @Override
     public Optional<Bike> findById(String bikeId) {
-        return Optional.ofNullable(bikes.get(bikeId));
+        return Optional.ofNullable(get(bikeId));
     }
     
     @Override
     public List<Bike> findAll() {
-        return new ArrayList<>(bikes.values());
+        return bikes.values();
+    }
+    
+    @Override
+    public Page<Bike> findAll(String afterToken, int limit) {
+        Page.checkLimit(limit);
+        NavigableSet<String> ids = afterToken != null
+                ? bikeIds.tailSet(Page.tokenParts(afterToken, 1)[0], false)
+                : bikeIds;
+        List<Bike> fetched = new ArrayList<>();
+        for (String bikeId : ids) {
+            Bike bike = get(bikeId);
+            if (bike != null && fetched.add(bike) && fetched.size() > limit) {
+                break;
+            }
+        }
+        return Page.of(fetched, limit, bike -> Page.token(bike.getBikeId()));
     }
     
     @Override
     public List<Bike> findByType(BikeType bikeType) {
-        return bikes.values().stream()
-                .filter(bike -> switch (bike.getType()) {
-                    case STANDARD -> bikeType == BikeType.STANDARD;
-                    case ELECTRIC -> bikeType == BikeType.ELECTRIC;
-                    case PREMIUM -> bikeType == BikeType.MOUNTAIN || bikeType == BikeType.CARGO;
-                })
-                .collect(Collectors.toList());
+        if (bikeType == null) {
+            return new ArrayList<>();
+        }
+        return resolve(bikesByType.get(switch (bikeType) {
+            case STANDARD -> Bike.BikeType.STANDARD;
+            case ELECTRIC -> Bike.BikeType.ELECTRIC;
+            case MOUNTAIN, CARGO -> Bike.BikeType.PREMIUM;
+        }));
     }
     
     @Override
     public List<Bike> findAvailableBikes() {
-        return bikes.values().stream()
-                .filter(Bike::isAvailable)
-                .collect(Collectors.toList());
+        return resolve(availableBikeIds);
     }
     
     @Override
     public List<Bike> findByStationId(String stationId) {
-        return bikes.values().stream()
-                .filter(bike -> Objects.equals(bike.getCurrentStationId(), stationId))
-                .collect(Collectors.toList());
+        return resolve(bikesByStation.get(IdRegistry.STATIONS.find(stationId)));
     }
     
     @Override
@@ -67,18 +129,71 @@ public class InMemoryBikeRepository implements BikeRepository {
     
     @Override
     public long countAvailable() {
-        return bikes.values().stream()
-                .mapToLong(bike -> bike.isAvailable() ? 1 : 0)
-                .sum();
+        return availableBikeIds.size();
+    }
+    
+    @Override
+    public long version() {
+        return version.sum();
     }
     
     @Override
     public boolean deleteById(String bikeId) {
-        return bikes.remove(bikeId) != null;
+        boolean[] removed = new boolean[1];
+        bikes.computeIfPresent(IdRegistry.BIKES.find(bikeId), (handle, bike) -> {
+            bikeIds.remove(bikeId);
+            bikesByType.remove(bike.getType(), bikeId);
+            bikesByStation.remove(bike.getCurrentStationHandle(), bikeId);
+            availableBikeIds.remove(bikeId);
+            bike.removeListener(indexListener);
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            version.increment();
+        }
+        return removed[0];
     }
     
     @Override
     public boolean existsById(String bikeId) {
-        return bikes.containsKey(bikeId);
+        return bikes.containsKey(IdRegistry.BIKES.find(bikeId));
+    }
+    
+    private Bike get(String bikeId) {
+        return bikes.get(IdRegistry.BIKES.find(bikeId));
+    }
+    
+    /**
+     * Applies an index update for a stored bike that reported a change.
+     * Runs under the bike's map entry so it is serialized with save and delete.
+     */
+    private void reindex(Bike bike, Runnable update) {
+        bikes.computeIfPresent(bike.getHandle(), (handle, stored) -> {
+            if (stored == bike) {
+                update.run();
+            }
+            return stored;
+        });
+        version.increment();
+    }
+    
+    private void updateAvailability(Bike bike) {
+        if (bike.isAvailable()) {
+            availableBikeIds.add(bike.getBikeId());
+        } else {
+            availableBikeIds.remove(bike.getBikeId());
+        }
+    }
+    
+    private List<Bike> resolve(Set<String> bikeIds) {
+        List<Bike> result = new ArrayList<>(bikeIds.size());
+        for (String bikeId : bikeIds) {
+            Bike bike = get(bikeId);
+            if (bike != null) {
+                result.add(bike);
+            }
+        }
+        return result;
     }
 }
@@ -1,150 +1,566 @@
 package com.bikeshare.web;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
+import com.bikeshare.model.IdRegistry;
 import com.bikeshare.model.Ride;
+import com.bikeshare.repository.Page;
 import com.bikeshare.repository.RideRepository;
+import com.bikeshare.util.IntObjectHashMap;
 
 /**
  * Simple in-memory implementation of RideRepository for demonstration purposes.
+ * Lookups by user, bike and station go through secondary indexes that are maintained
+ * on save and delete, so they cost O(result size) instead of a scan over all rides.
+ * Active rides are additionally tracked in a registry keyed by user and by bike, which
+ * makes the "does this user already ride?" check a constant-time lookup. Date range queries
+ * walk a skip-list ordered by start time and only touch the rides inside the range; the same
+ * order serves keyset pages, so {@link #streamAll()} runs in constant memory.
+ * Ride counts, revenue and duration totals, like the {@link #version()} change counter, are
+ * maintained incrementally with striped adders.
+ * <p>
+ * Completed rides beyond the most recent {@link #DEFAULT_HOT_COMPLETED_RIDES} move to a
+ * {@link CompletedRideArchive}, a columnar store that keeps historical rides at a fraction of
+ * their object size. Every query covers both tiers. Rides read from the archive are fresh
+ * instances, so changes to them only take effect once they are saved again, which brings
+ * them back to the hot tier. Completed rides passed to {@link #saveAll(Collection)} that are
+ * not in the hot tier go straight to the archive.
  */
 public class InMemoryRideRepository implements RideRepository {
     
+    public static final int DEFAULT_HOT_COMPLETED_RIDES = 10_000;
+    
+    // Order of findRidesBetween results, matching the start-time index and the archive
+    private static final Comparator<Ride> START_ORDER = Comparator
+            .comparing(Ride::getStartTime)
+            .thenComparing(Ride::getRideId);
+    
     private final Map<String, Ride> rides = new ConcurrentHashMap<>();
+    private final CompletedRideArchive archive = new CompletedRideArchive();
+    
+    // Keyed by IdRegistry handle
+    private final IntSecondaryIndex ridesByUser = new IntSecondaryIndex();
+    private final IntSecondaryIndex ridesByBike = new IntSecondaryIndex();
+    private final IntSecondaryIndex ridesByStartStation = new IntSecondaryIndex();
+    private final IntSecondaryIndex ridesByEndStation = new IntSecondaryIndex();
+    
+    private final NavigableSet<StartTimeKey> ridesByStartTime = new ConcurrentSkipListSet<>();
+    
+    // Active-ride registry: user/bike handle -> ID of the ride that has not ended yet
+    private final IntObjectHashMap<String> activeRidesByUser = new IntObjectHashMap<>();
+    private final IntObjectHashMap<String> activeRidesByBike = new IntObjectHashMap<>();
+    
+    // What each ride currently contributes to the indexes and aggregates; rides are mutated
+    // in place on completion, so the previous state has to be remembered separately
+    private final Map<String, IndexedState> indexedStates = new ConcurrentHashMap<>();
+    
+    // Aggregates over all rides, adjusted by the delta of every save and delete
+    private final LongAdder activeRideCount = new LongAdder();
+    private final LongAdder completedRideCount = new LongAdder();
+    private final LongAdder totalRevenueCents = new LongAdder();
+    private final LongAdder totalRideMinutes = new LongAdder();
+    private final LongAdder version = new LongAdder();
+    
+    // Completed rides still in the hot tier, oldest first, waiting to move to the archive
+    private final int hotCompletedLimit;
+    private final Queue<String> completedQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger completedQueueSize = new AtomicInteger();
+    private final ReentrantLock archiving = new ReentrantLock();
+    
+    public InMemoryRideRepository() {
+        this(DEFAULT_HOT_COMPLETED_RIDES);
+    }
+    
+    /**
+     * Creates a repository that keeps the given number of completed rides as objects.
+     * @param hotCompletedLimit completed rides kept in the hot tier before older ones are archived
+     */
+    public InMemoryRideRepository(int hotCompletedLimit) {
+        if (hotCompletedLimit < 0) {
+            throw new IllegalArgumentException("Hot completed ride limit cannot be negative");
+        }
+        this.hotCompletedLimit = hotCompletedLimit;
+    }
     
     @Override
     public Ride save(Ride ride) {
-        rides.put(ride.getRideId(), ride);
+        // Index maintenance runs inside compute so writes to the same ride are serialized
+        rides.compute(ride.getRideId(), (rideId, previous) -> {
+            if (previous == null) {
+                unarchive(rideId);
+            } else if (previous != ride) {
+                unindex(previous);
+            }
+            index(ride);
+            return ride;
+        });
+        version.increment();
+        archiveOverflow();
         return ride;
     }
     
+    @Override
+    public List<Ride> saveAll(Collection<Ride> batch) {
+        List<Ride> saved = new ArrayList<>(batch.size());
+        for (Ride ride : batch) {
+            if (CompletedRideArchive.accepts(ride) && !rides.containsKey(ride.getRideId())) {
+                // Historical rides skip the hot indexes entirely
+                rides.compute(ride.getRideId(), (rideId, previous) -> {
+                    if (previous != null) {
+                        if (previous != ride) {
+                            unindex(previous);
+                        }
+                        index(ride);
+                        return ride;
+                    }
+                    unarchive(rideId);
+                    archive.add(ride);
+                    add(IndexedState.of(ride));
+                    return null;
+                });
+            } else {
+                save(ride);
+            }
+            saved.add(ride);
+        }
+        version.increment();
+        return saved;
+    }
+    
     @Override
     public Optional<Ride> findById(String rideId) {
-        return Optional.ofNullable(rides.get(rideId));
+        if (rideId == null) {
+            return Optional.empty();
+        }
+        // Hot tier first: a ride being archived is added to the archive before it leaves the map
+        Ride ride = rides.get(rideId);
+        return Optional.ofNullable(ride != null ? ride : archive.find(rideId));
     }
     
     @Override
     public List<Ride> findAll() {
-        return new ArrayList<>(rides.values());
+        List<Ride> result = new ArrayList<>(rides.values());
+        result.addAll(archive.findAll());
+        return result;
+    }
+    
+    @Override
+    public Page<Ride> findAll(String afterToken, int limit) {
+        return findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX, afterToken, limit);
     }
     
     @Override
     public List<Ride> findByUserId(String userId) {
-        return rides.values().stream()
-                .filter(ride -> Objects.equals(ride.getUserId(), userId))
-                .collect(Collectors.toList());
+        List<Ride> result = resolve(ridesByUser.get(IdRegistry.USERS.find(userId)));
+        result.addAll(archive.findByUserId(userId));
+        return result;
     }
     
     @Override
     public List<Ride> findByBikeId(String bikeId) {
-        return rides.values().stream()
-                .filter(ride -> Objects.equals(ride.getBikeId(), bikeId))
-                .collect(Collectors.toList());
+        List<Ride> result = resolve(ridesByBike.get(IdRegistry.BIKES.find(bikeId)));
+        result.addAll(archive.findByBikeId(bikeId));
+        return result;
     }
     
     @Override
     public List<Ride> findActiveRidesByUserId(String userId) {
-        return rides.values().stream()
-                .filter(ride -> Objects.equals(ride.getUserId(), userId))
-                .filter(ride -> ride.getEndTime() == null)
-                .collect(Collectors.toList());
+        return findActiveRideByUserId(userId)
+                .map(List::of)
+                .orElseGet(List::of);
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByUserId(String userId) {
+        return activeRide(activeRidesByUser, IdRegistry.USERS.find(userId));
+    }
+    
+    @Override
+    public Optional<Ride> findActiveRideByBikeId(String bikeId) {
+        return activeRide(activeRidesByBike, IdRegistry.BIKES.find(bikeId));
     }
     
     @Override
     public List<Ride> findCompletedRidesByUserId(String userId) {
-        return rides.values().stream()
-                .filter(ride -> Objects.equals(ride.getUserId(), userId))
+        List<Ride> result = ridesByUser.get(IdRegistry.USERS.find(userId)).stream()
+                .map(rides::get)
+                .filter(Objects::nonNull)
                 .filter(ride -> ride.getEndTime() != null)
                 .collect(Collectors.toList());
+        result.addAll(archive.findByUserId(userId));
+        return result;
     }
     
     @Override
     public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate) {
-        return rides.values().stream()
-                .filter(ride -> {
-                    LocalDateTime rideStart = ride.getStartTime();
-                    return rideStart.isAfter(startDate) && rideStart.isBefore(endDate);
-                })
-                .collect(Collectors.toList());
+        return findRidesBetween(startDate, endDate, 0, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public List<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        if (!startDate.isBefore(endDate) || limit == 0) {
+            return new ArrayList<>();
+        }
+        return findStarted(startDate, null, endDate, offset, limit);
+    }
+    
+    @Override
+    public Page<Ride> findRidesBetween(LocalDateTime startDate, LocalDateTime endDate, String afterToken, int limit) {
+        Page.checkLimit(limit);
+        StartTimeKey after = afterToken != null ? StartTimeKey.fromToken(afterToken) : null;
+        if (!startDate.isBefore(endDate)) {
+            return new Page<>(List.of(), null);
+        }
+        List<Ride> fetched = findStarted(startDate, after, endDate, 0, limit + 1);
+        return Page.of(fetched, limit, ride -> StartTimeKey.of(ride).toToken());
     }
     
     @Override
     public List<Ride> findByStartStationId(String stationId) {
-        return rides.values().stream()
-                .filter(ride -> Objects.equals(ride.getStartStationId(), stationId))
-                .collect(Collectors.toList());
+        List<Ride> result = resolve(ridesByStartStation.get(IdRegistry.STATIONS.find(stationId)));
+        result.addAll(archive.findByStartStationId(stationId));
+        return result;
     }
     
     @Override
     public List<Ride> findByEndStationId(String stationId) {
-        return rides.values().stream()
-                .filter(ride -> Objects.equals(ride.getEndStationId(), stationId))
-                .collect(Collectors.toList());
+        List<Ride> result = resolve(ridesByEndStation.get(IdRegistry.STATIONS.find(stationId)));
+        result.addAll(archive.findByEndStationId(stationId));
+        return result;
     }
     
     @Override
     public List<Ride> findRidesLongerThan(int minutes) {
-    return rides.values().stream()
+    List<Ride> result = rides.values().stream()
         .filter(ride -> ride.getActiveMinutes() > minutes)
         .collect(Collectors.toList());
+    result.addAll(archive.findLongerThan(minutes));
+    return result;
     }
     
     @Override
     public List<Ride> findRidesWithCostHigherThan(double amount) {
-    return rides.values().stream()
+    List<Ride> result = rides.values().stream()
         .filter(ride -> ride.getFinalCost() > amount)
         .collect(Collectors.toList());
+    result.addAll(archive.findCostHigherThan(amount));
+    return result;
     }
     
     @Override
     public long count() {
-        return rides.size();
+        return rides.size() + archive.size();
     }
     
     @Override
     public long countActiveRides() {
-        return rides.values().stream()
-                .mapToLong(ride -> ride.getEndTime() == null ? 1 : 0)
-                .sum();
+        return activeRideCount.sum();
     }
     
     @Override
     public long countCompletedRides() {
-        return rides.values().stream()
-                .mapToLong(ride -> ride.getEndTime() != null ? 1 : 0)
-                .sum();
+        return completedRideCount.sum();
     }
     
     @Override
     public boolean deleteById(String rideId) {
-        return rides.remove(rideId) != null;
+        if (rideId == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        rides.compute(rideId, (id, ride) -> {
+            if (ride != null) {
+                unindex(ride);
+                removed[0] = true;
+            } else {
+                removed[0] = unarchive(id);
+            }
+            return null;
+        });
+        if (removed[0]) {
+            version.increment();
+        }
+        return removed[0];
     }
     
     @Override
     public boolean existsById(String rideId) {
-        return rides.containsKey(rideId);
+        return rideId != null && (rides.containsKey(rideId) || archive.contains(rideId));
     }
     
     @Override
     public double calculateTotalRevenue() {
-    return rides.values().stream()
-        .filter(ride -> ride.getEndTime() != null)
-        .mapToDouble(Ride::getFinalCost)
-        .sum();
+        return totalRevenueCents.sum() / 100.0;
     }
     
     @Override
     public long calculateTotalRideDuration() {
-    return rides.values().stream()
-        .filter(ride -> ride.getEndTime() != null)
-        .mapToLong(Ride::getActiveMinutes)
-        .sum();
+        return totalRideMinutes.sum();
+    }
+    
+    @Override
+    public long version() {
+        return version.sum();
+    }
+    
+    /**
+     * Merges the rides of both tiers that started strictly between two instants, in start order.
+     * @param after keyset position to continue after, or null to start at the beginning of the range
+     */
+    private List<Ride> findStarted(LocalDateTime startDate, StartTimeKey after, LocalDateTime endDate,
+                                   int offset, int limit) {
+        // Both bounds are exclusive: skip rides starting exactly at startDate, stop before endDate
+        StartTimeKey lower = StartTimeKey.first(startDate.plusNanos(1));
+        boolean inclusive = true;
+        if (after != null && after.compareTo(lower) >= 0) {
+            lower = after;
+            inclusive = false;
+        }
+        
+        // Each tier contributes at most offset + limit rides in order; merge them and cut the page
+        long needed = (long) offset + limit;
+        List<Ride> hot = new ArrayList<>();
+        for (StartTimeKey key : ridesByStartTime.subSet(lower, inclusive, StartTimeKey.first(endDate), false)) {
+            Ride ride = rides.get(key.rideId());
+            if (ride != null) {
+                hot.add(ride);
+                if (hot.size() >= needed) {
+                    break;
+                }
+            }
+        }
+        List<Ride> cold = inclusive
+                ? archive.findStartedBetween(startDate, endDate, needed)
+                : archive.findStartedAfter(lower.startTime(), lower.rideId(), endDate, needed);
+        
+        List<Ride> result = new ArrayList<>();
+        int h = 0;
+        int c = 0;
+        long position = 0;
+        while ((h < hot.size() || c < cold.size()) && result.size() < limit) {
+            Ride next;
+            if (c >= cold.size() || (h < hot.size() && START_ORDER.compare(hot.get(h), cold.get(c)) <= 0)) {
+                next = hot.get(h++);
+            } else {
+                next = cold.get(c++);
+            }
+            if (position++ >= offset) {
+                result.add(next);
+            }
+        }
+        return result;
+    }
+    
+    private void index(Ride ride) {
+        String rideId = ride.getRideId();
+        ridesByStartTime.add(new StartTimeKey(ride.getStartTime(), rideId));
+        ridesByUser.add(ride.getUserHandle(), rideId);
+        ridesByBike.add(ride.getBikeHandle(), rideId);
+        ridesByStartStation.add(ride.getStartStationHandle(), rideId);
+        
+        IndexedState state = IndexedState.of(ride);
+        IndexedState previous = indexedStates.put(rideId, state);
+        if (previous != null) {
+            ridesByEndStation.move(previous.endStationHandle(), state.endStationHandle(), rideId);
+            subtract(previous);
+        } else {
+            ridesByEndStation.add(state.endStationHandle(), rideId);
+        }
+        add(state);
+        if (state.ended() && (previous == null || !previous.ended())) {
+            completedQueue.add(rideId);
+            completedQueueSize.incrementAndGet();
+        }
+        
+        if (ride.getEndTime() == null) {
+            activeRidesByUser.put(ride.getUserHandle(), rideId);
+            activeRidesByBike.put(ride.getBikeHandle(), rideId);
+        } else {
+            activeRidesByUser.remove(ride.getUserHandle(), rideId);
+            activeRidesByBike.remove(ride.getBikeHandle(), rideId);
+        }
+    }
+    
+    private void unindex(Ride ride) {
+        IndexedState previous = unlink(ride);
+        if (previous != null) {
+            subtract(previous);
+        }
+    }
+    
+    /**
+     * Removes a ride from the hot indexes but leaves its contribution to the aggregates.
+     * @return the state the ride was indexed with
+     */
+    private IndexedState unlink(Ride ride) {
+        String rideId = ride.getRideId();
+        ridesByStartTime.remove(new StartTimeKey(ride.getStartTime(), rideId));
+        ridesByUser.remove(ride.getUserHandle(), rideId);
+        ridesByBike.remove(ride.getBikeHandle(), rideId);
+        ridesByStartStation.remove(ride.getStartStationHandle(), rideId);
+        IndexedState previous = indexedStates.remove(rideId);
+        if (previous != null) {
+            ridesByEndStation.remove(previous.endStationHandle(), rideId);
+        }
+        activeRidesByUser.remove(ride.getUserHandle(), rideId);
+        activeRidesByBike.remove(ride.getBikeHandle(), rideId);
+        return previous;
+    }
+    
+    /**
+     * Drops a ride from the archive, e.g. because it is saved again. Must run inside a
+     * compute on the ride's key.
+     * @return true if the ride was archived
+     */
+    private boolean unarchive(String rideId) {
+        Ride archived = archive.remove(rideId);
+        if (archived == null) {
+            return false;
+        }
+        subtract(IndexedState.of(archived));
+        return true;
+    }
+    
+    /**
+     * Moves the oldest completed rides to the archive while the hot tier holds more than the
+     * limit. Only one thread archives at a time; the others carry on.
+     */
+    private void archiveOverflow() {
+        if (completedQueueSize.get() <= hotCompletedLimit || !archiving.tryLock()) {
+            return;
+        }
+        try {
+            while (completedQueueSize.get() > hotCompletedLimit) {
+                String rideId = completedQueue.poll();
+                if (rideId == null) {
+                    break;
+                }
+                completedQueueSize.decrementAndGet();
+                rides.computeIfPresent(rideId, (id, ride) -> {
+                    if (!CompletedRideArchive.accepts(ride)) {
+                        return ride;
+                    }
+                    // Into the archive before leaving the map, so readers always find it in one tier
+                    archive.add(ride);
+                    unlink(ride);
+                    return null;
+                });
+            }
+        } finally {
+            archiving.unlock();
+        }
+    }
+    
+    private void add(IndexedState state) {
+        if (state.ended()) {
+            completedRideCount.increment();
+            totalRevenueCents.add(state.revenueCents());
+            totalRideMinutes.add(state.activeMinutes());
+        } else {
+            activeRideCount.increment();
+        }
+    }
+    
+    private void subtract(IndexedState state) {
+        if (state.ended()) {
+            completedRideCount.decrement();
+            totalRevenueCents.add(-state.revenueCents());
+            totalRideMinutes.add(-state.activeMinutes());
+        } else {
+            activeRideCount.decrement();
+        }
+    }
+    
+    private Optional<Ride> activeRide(IntObjectHashMap<String> registry, int handle) {
+        String rideId = registry.get(handle);
+        return rideId != null ? Optional.ofNullable(rides.get(rideId)) : Optional.empty();
+    }
+    
+    private List<Ride> resolve(Set<String> rideIds) {
+        List<Ride> result = new ArrayList<>(rideIds.size());
+        for (String rideId : rideIds) {
+            Ride ride = rides.get(rideId);
+            if (ride != null) {
+                result.add(ride);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Mutable ride attributes as last seen by the indexes and aggregates.
+     * Revenue is kept in whole cents so repeated add/subtract cycles stay exact.
+     */
+    private record IndexedState(int endStationHandle, boolean ended, long revenueCents, long activeMinutes) {
+        
+        static IndexedState of(Ride ride) {
+            boolean ended = ride.getEndTime() != null;
+            return new IndexedState(
+                    ride.getEndStationHandle(),
+                    ended,
+                    ended ? Math.round(ride.getFinalCost() * 100.0) : 0L,
+                    ended ? ride.getActiveMinutes() : 0L);
+        }
+    }
+    
+    /**
+     * Skip-list key ordering rides by start time, with the ride ID as tie-breaker.
+     * A null ride ID sorts before every ride starting at the same instant and serves as range bound.
+     */
+    private record StartTimeKey(LocalDateTime startTime, String rideId) implements Comparable<StartTimeKey> {
+        
+        private static final Comparator<StartTimeKey> ORDER = Comparator
+                .comparing(StartTimeKey::startTime)
+                .thenComparing(StartTimeKey::rideId, Comparator.nullsFirst(Comparator.naturalOrder()));
+        
+        static StartTimeKey first(LocalDateTime startTime) {
+            return new StartTimeKey(startTime, null);
+        }
+        
+        static StartTimeKey of(Ride ride) {
+            return new StartTimeKey(ride.getStartTime(), ride.getRideId());
+        }
+        
+        static StartTimeKey fromToken(String token) {
+            String[] parts = Page.tokenParts(token, 2);
+            try {
+                return new StartTimeKey(LocalDateTime.parse(parts[0]), parts[1]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid page token", e);
+            }
+        }
+        
+        String toToken() {
+            return Page.token(startTime.toString(), rideId);
+        }
+        
+        @Override
+        public int compareTo(StartTimeKey other) {
+            return ORDER.compare(this, other);
+        }
     }
 }
@@ -1,33 +1,79 @@
 package com.bikeshare.web;
 
+import com.bikeshare.model.IdRegistry;
 import com.bikeshare.model.Station;
 import com.bikeshare.repository.StationRepository;
+import com.bikeshare.util.IntObjectHashMap;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
  * Simple in-memory implementation of StationRepository for demonstration purposes.
+ * Nearest-station queries are answered from a geo grid and bounding-box queries from a k-d tree,
+ * both kept in sync on save and delete. Bulk loads through saveAll build a balanced tree at once.
+ * Stations are stored by {@link IdRegistry} handle. Saves and deletes move the {@link #version()}
+ * counter.
  */
 public class InMemoryStationRepository implements StationRepository {
     
-    private final Map<String, Station> stations = new ConcurrentHashMap<>();
+    private final IntObjectHashMap<Station> stations = new IntObjectHashMap<>();
+    private final StationGridIndex grid = new StationGridIndex();
+    private final StationKdTree kdTree = new StationKdTree();
+    private final LongAdder version = new LongAdder();
     
     @Override
     public Station save(Station station) {
-        stations.put(station.getStationId(), station);
+        Station[] replaced = new Station[1];
+        stations.compute(station.getHandle(), (handle, previous) -> {
+            if (previous != null) {
+                grid.remove(previous);
+            }
+            grid.add(station);
+            replaced[0] = previous;
+            return station;
+        });
+        // The tree is only told once the station is stored, so a rebuild snapshot taken after
+        // this insert cannot miss it
+        boolean rebuild = false;
+        if (replaced[0] == null || !sameLocation(replaced[0], station)) {
+            if (replaced[0] != null) {
+                rebuild = kdTree.markStale();
+            }
+            rebuild |= kdTree.insert(station);
+        }
+        if (rebuild) {
+            kdTree.rebuild(stations::values);
+        }
+        version.increment();
         return station;
     }
     
+    @Override
+    public List<Station> saveAll(Collection<Station> toSave) {
+        for (Station station : toSave) {
+            stations.compute(station.getHandle(), (handle, previous) -> {
+                if (previous != null) {
+                    grid.remove(previous);
+                }
+                grid.add(station);
+                return station;
+            });
+        }
+        kdTree.rebuild(stations::values);
+        version.increment();
+        return new ArrayList<>(toSave);
+    }
+    
     @Override
     public Optional<Station> findById(String stationId) {
-        return Optional.ofNullable(stations.get(stationId));
+        return Optional.ofNullable(get(stationId));
     }
     
     @Override
     public List<Station> findAll() {
-        return new ArrayList<>(stations.values());
+        return stations.values();
     }
     
     @Override
@@ -40,14 +86,7 @@ public class InMemoryStationRepository implements StationRepository {
     @Override
     public List<Station> findStationsInArea(double minLatitude, double maxLatitude, 
                                           double minLongitude, double maxLongitude) {
-        return stations.values().stream()
-                .filter(station -> {
-                    double lat = station.getLatitude();
-                    double lon = station.getLongitude();
-                    return lat >= minLatitude && lat <= maxLatitude && 
-                           lon >= minLongitude && lon <= maxLongitude;
-                })
-                .collect(Collectors.toList());
+        return kdTree.findInArea(minLatitude, maxLatitude, minLongitude, maxLongitude, this::get);
     }
     
     @Override
@@ -69,51 +108,47 @@ public class InMemoryStationRepository implements StationRepository {
         return stations.size();
     }
     
+    @Override
+    public long version() {
+        return version.sum();
+    }
+    
     @Override
     public boolean deleteById(String stationId) {
-        return stations.remove(stationId) != null;
+        if (stationId == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        stations.computeIfPresent(IdRegistry.STATIONS.find(stationId), (handle, station) -> {
+            grid.remove(station);
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0] && kdTree.markStale()) {
+            kdTree.rebuild(stations::values);
+        }
+        if (removed[0]) {
+            version.increment();
+        }
+        return removed[0];
     }
     
     @Override
     public boolean existsById(String stationId) {
-        return stations.containsKey(stationId);
+        return stations.containsKey(IdRegistry.STATIONS.find(stationId));
     }
     
     @Override
     public List<Station> findNearestStations(double latitude, double longitude, 
                                            double maxDistance, int limit) {
-        return stations.values().stream()
-                .map(station -> new StationDistance(station, 
-                    calculateDistance(latitude, longitude, 
-                                    station.getLatitude(), station.getLongitude())))
-                .filter(sd -> sd.distance <= maxDistance)
-                .sorted(Comparator.comparing(sd -> sd.distance))
-                .limit(limit)
-                .map(sd -> sd.station)
-                .collect(Collectors.toList());
+        return grid.findNearest(latitude, longitude, maxDistance, limit, this::get);
     }
     
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        // Haversine formula for calculating distance between two points on Earth
-        final int R = 6371; // Radius of the earth in km
-        
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
+    private Station get(String stationId) {
+        return stations.get(IdRegistry.STATIONS.find(stationId));
     }
     
-    private static class StationDistance {
-        final Station station;
-        final double distance;
-        
-        StationDistance(Station station, double distance) {
-            this.station = station;
-            this.distance = distance;
-        }
+    private static boolean sameLocation(Station a, Station b) {
+        return a.getLatitude() == b.getLatitude() && a.getLongitude() == b.getLongitude();
     }
 }
@@ -1,55 +1,133 @@
 package com.bikeshare.web;
 
+import com.bikeshare.model.IdRegistry;
 import com.bikeshare.model.User;
+import com.bikeshare.model.UserListener;
+import com.bikeshare.repository.Page;
 import com.bikeshare.repository.UserRepository;
+import com.bikeshare.util.IntObjectHashMap;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
  * Simple in-memory implementation of UserRepository for demonstration purposes.
+ * <p>
+ * Emails are indexed (normalized email to user ID) so findByEmail is a hash lookup. The index
+ * also enforces uniqueness: claiming an email is a single putIfAbsent, so of two concurrent
+ * signups with the same email exactly one succeeds. Stored users are observed so that
+ * {@link User#setEmail(String)} moves the index entry, or is rejected if the email is taken.
+ * Status and membership are partitioned per enum constant and kept current the same way, so
+ * findByStatus and findByMembershipType only touch the matching users. Users themselves are
+ * stored by {@link IdRegistry} handle; a sorted set of user IDs serves keyset pages. Saves,
+ * deletes and status or membership changes move the {@link #version()} counter.
  */
 public class InMemoryUserRepository implements UserRepository {
     
-    private final Map<String, User> users = new ConcurrentHashMap<>();
+    private final IntObjectHashMap<User> users = new IntObjectHashMap<>();
+    private final NavigableSet<String> userIds = new ConcurrentSkipListSet<>();
+    private final Map<String, String> userIdsByEmail = new ConcurrentHashMap<>();
+    private final EnumPartition<User.UserStatus> usersByStatus = new EnumPartition<>(User.UserStatus.class);
+    private final EnumPartition<User.MembershipType> usersByMembership =
+            new EnumPartition<>(User.MembershipType.class);
+    private final LongAdder version = new LongAdder();
+    private final UserListener indexListener = new UserListener() {
+        @Override
+        public void emailChanging(User user, String oldEmail, String newEmail) {
+            onEmailChanging(user, oldEmail, newEmail);
+        }
+        
+        @Override
+        public void statusChanged(User user, User.UserStatus oldStatus) {
+            reindex(user, () -> usersByStatus.remove(oldStatus, user.getUserId()));
+        }
+        
+        @Override
+        public void membershipChanged(User user, User.MembershipType oldMembershipType) {
+            reindex(user, () -> usersByMembership.remove(oldMembershipType, user.getUserId()));
+        }
+    };
     
+    /**
+     * Saves a user, claiming its email in the index.
+     * @param user the user to save
+     * @return saved user
+     * @throws IllegalArgumentException if another user already has the same email
+     */
     @Override
     public User save(User user) {
-        users.put(user.getUserId(), user);
+        String userId = user.getUserId();
+        users.compute(user.getHandle(), (handle, previous) -> {
+            claimEmail(user.getEmail(), userId);
+            if (previous != null) {
+                if (!previous.getEmail().equals(user.getEmail())) {
+                    releaseEmail(previous.getEmail(), userId);
+                }
+                usersByStatus.remove(previous.getStatus(), userId);
+                usersByMembership.remove(previous.getMembershipType(), userId);
+                if (previous != user) {
+                    previous.removeListener(indexListener);
+                }
+            }
+            userIds.add(userId);
+            usersByStatus.add(user.getStatus(), userId);
+            usersByMembership.add(user.getMembershipType(), userId);
+            if (previous != user) {
+                user.addListener(indexListener);
+            }
+            return user;
+        });
+        version.increment();
         return user;
     }
     
     @Override
     public Optional<User> findById(String userId) {
-        return Optional.ofNullable(users.get(userId));
+        return Optional.ofNullable(get(userId));
     }
     
     @Override
     public List<User> findAll() {
-        return new ArrayList<>(users.values());
+        return users.values();
+    }
+    
+    @Override
+    public Page<User> findAll(String afterToken, int limit) {
+        Page.checkLimit(limit);
+        NavigableSet<String> ids = afterToken != null
+                ? userIds.tailSet(Page.tokenParts(afterToken, 1)[0], false)
+                : userIds;
+        List<User> fetched = new ArrayList<>();
+        for (String userId : ids) {
+            User user = get(userId);
+            if (user != null && fetched.add(user) && fetched.size() > limit) {
+                break;
+            }
+        }
+        return Page.of(fetched, limit, user -> Page.token(user.getUserId()));
     }
     
     @Override
     public Optional<User> findByEmail(String email) {
-        return users.values().stream()
-                .filter(user -> Objects.equals(user.getEmail(), email))
-                .findFirst();
+        if (email == null) {
+            return Optional.empty();
+        }
+        String userId = userIdsByEmail.get(User.normalizeEmail(email));
+        return userId != null ? Optional.ofNullable(get(userId)) : Optional.empty();
     }
     
     @Override
     public List<User> findByStatus(User.UserStatus status) {
-        return users.values().stream()
-                .filter(user -> user.getStatus() == status)
-                .collect(Collectors.toList());
+        return resolve(usersByStatus.get(status));
     }
     
     @Override
     public List<User> findByMembershipType(User.MembershipType membershipType) {
-        return users.values().stream()
-                .filter(user -> user.getMembershipType() == membershipType)
-                .collect(Collectors.toList());
+        return resolve(usersByMembership.get(membershipType));
     }
     
     @Override
@@ -67,13 +145,87 @@ public class InMemoryUserRepository implements UserRepository {
         return users.size();
     }
     
+    @Override
+    public long version() {
+        return version.sum();
+    }
+    
     @Override
     public void deleteById(String userId) {
-        users.remove(userId);
+        users.computeIfPresent(IdRegistry.USERS.find(userId), (handle, user) -> {
+            String id = user.getUserId();
+            userIds.remove(id);
+            releaseEmail(user.getEmail(), id);
+            usersByStatus.remove(user.getStatus(), id);
+            usersByMembership.remove(user.getMembershipType(), id);
+            user.removeListener(indexListener);
+            return null;
+        });
+        version.increment();
     }
     
     @Override
     public boolean existsById(String userId) {
-        return users.containsKey(userId);
+        return users.containsKey(IdRegistry.USERS.find(userId));
+    }
+    
+    private User get(String userId) {
+        return users.get(IdRegistry.USERS.find(userId));
+    }
+    
+    /**
+     * Moves a stored user to its current status and membership buckets after a change.
+     * Runs under the user's map entry so it is serialized with save and delete; removing the
+     * old value and adding the current one converges even if changes are reported out of order.
+     */
+    private void reindex(User user, Runnable removeOld) {
+        String userId = user.getUserId();
+        users.computeIfPresent(user.getHandle(), (handle, stored) -> {
+            if (stored == user) {
+                removeOld.run();
+                usersByStatus.add(user.getStatus(), userId);
+                usersByMembership.add(user.getMembershipType(), userId);
+            }
+            return stored;
+        });
+        version.increment();
+    }
+    
+    private List<User> resolve(Set<String> userIds) {
+        List<User> result = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            User user = get(userId);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Keeps the email index in step with email changes of stored users, vetoing taken emails.
+     * Runs under the user's map entry, like save and delete, so a user deleted or replaced
+     * concurrently cannot be left owning the new email.
+     */
+    private void onEmailChanging(User user, String oldEmail, String newEmail) {
+        String userId = user.getUserId();
+        users.computeIfPresent(user.getHandle(), (handle, stored) -> {
+            if (stored == user) {
+                claimEmail(newEmail, userId);
+                releaseEmail(oldEmail, userId);
+            }
+            return stored;
+        });
+    }
+    
+    private void claimEmail(String email, String userId) {
+        String owner = userIdsByEmail.putIfAbsent(email, userId);
+        if (owner != null && !owner.equals(userId)) {
+            throw new IllegalArgumentException("Email already in use: " + email);
+        }
+    }
+    
+    private void releaseEmail(String email, String userId) {
+        userIdsByEmail.remove(email, userId);
     }
 }
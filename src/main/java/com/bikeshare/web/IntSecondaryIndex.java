@@ -0,0 +1,75 @@
+package com.bikeshare.web;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bikeshare.model.IdRegistry;
+import com.bikeshare.util.IntObjectHashMap;
+
+/**
+ * {@link SecondaryIndex} for attributes stored as {@link IdRegistry} handles, kept in an
+ * {@link IntObjectHashMap} so keys are neither boxed nor wrapped in map nodes.
+ * {@link IdRegistry#NONE} plays the role of a null key and is ignored.
+ */
+class IntSecondaryIndex {
+    
+    private final IntObjectHashMap<Set<String>> index = new IntObjectHashMap<>();
+    
+    /**
+     * Adds an entity ID under the given handle.
+     * @param handle the attribute handle (ignored if NONE)
+     * @param id the entity ID
+     */
+    void add(int handle, String id) {
+        if (handle == IdRegistry.NONE) {
+            return;
+        }
+        index.compute(handle, (key, ids) -> {
+            Set<String> bucket = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            bucket.add(id);
+            return bucket;
+        });
+    }
+    
+    /**
+     * Removes an entity ID from the given handle, dropping the bucket once it is empty.
+     * @param handle the attribute handle (ignored if NONE)
+     * @param id the entity ID
+     */
+    void remove(int handle, String id) {
+        if (handle == IdRegistry.NONE) {
+            return;
+        }
+        index.computeIfPresent(handle, (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+    
+    /**
+     * Moves an entity ID from one handle to another.
+     * @param oldHandle the previous attribute handle (may be NONE)
+     * @param newHandle the new attribute handle (may be NONE)
+     * @param id the entity ID
+     */
+    void move(int oldHandle, int newHandle, String id) {
+        if (oldHandle == newHandle) {
+            return;
+        }
+        remove(oldHandle, id);
+        add(newHandle, id);
+    }
+    
+    /**
+     * Gets the IDs indexed under a handle.
+     * @param handle the attribute handle
+     * @return live, weakly consistent view of the IDs (empty if none or handle is NONE)
+     */
+    Set<String> get(int handle) {
+        if (handle == IdRegistry.NONE) {
+            return Set.of();
+        }
+        Set<String> ids = index.get(handle);
+        return ids != null ? ids : Set.of();
+    }
+}
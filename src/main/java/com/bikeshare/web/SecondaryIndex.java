@@ -0,0 +1,94 @@
+package com.bikeshare.web;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Concurrent one-to-many index from an attribute value to the IDs of the entities carrying it.
+ * Used by the in-memory repositories to answer finder queries without scanning the primary store.
+ * Null keys are ignored, so optional attributes (e.g. the end station of an active ride) can be
+ * indexed without special casing.
+ *
+ * @param <K> type of the indexed attribute
+ */
+class SecondaryIndex<K> {
+
+    private final Map<K, Set<String>> index = new ConcurrentHashMap<>();
+
+    /**
+     * Adds an entity ID under the given key.
+     * @param key the attribute value (ignored if null)
+     * @param id the entity ID
+     */
+    void add(K key, String id) {
+        if (key == null) {
+            return;
+        }
+        // Mutate inside compute so a concurrent remove cannot drop the bucket we are adding to
+        index.compute(key, (k, ids) -> {
+            Set<String> bucket = ids != null ? ids : ConcurrentHashMap.newKeySet();
+            bucket.add(id);
+            return bucket;
+        });
+    }
+
+    /**
+     * Removes an entity ID from the given key, dropping the bucket once it is empty.
+     * @param key the attribute value (ignored if null)
+     * @param id the entity ID
+     */
+    void remove(K key, String id) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Moves an entity ID from one key to another.
+     * @param oldKey the previous attribute value (may be null)
+     * @param newKey the new attribute value (may be null)
+     * @param id the entity ID
+     */
+    void move(K oldKey, K newKey, String id) {
+        if (oldKey != null && oldKey.equals(newKey)) {
+            return;
+        }
+        remove(oldKey, id);
+        add(newKey, id);
+    }
+
+    /**
+     * Gets the IDs indexed under a key.
+     * @param key the attribute value
+     * @return live, weakly consistent view of the IDs (empty if none or key is null)
+     */
+    Set<String> get(K key) {
+        if (key == null) {
+            return Set.of();
+        }
+        Set<String> ids = index.get(key);
+        return ids != null ? ids : Set.of();
+    }
+    
+    /**
+     * Gets the number of distinct keys that currently have at least one ID.
+     * @return number of non-empty buckets
+     */
+    int keyCount() {
+        return index.size();
+    }
+    
+    /**
+     * Visits every non-empty bucket.
+     * @param action callback receiving each key and a live view of its IDs
+     */
+    void forEach(BiConsumer<? super K, Set<String>> action) {
+        index.forEach(action);
+    }
+}
@@ -1,20 +1,33 @@
 package com.bikeshare.web;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
+import com.bikeshare.model.Station;
+import com.bikeshare.service.BikeService;
+import com.bikeshare.service.RideService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,24 +35,95 @@ import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * Simple embedded web server for the BikeShare system.
- * Provides a basic web interface for demonstration and testing purposes.
+ * Provides a basic web interface for demonstration and testing purposes, and a read-only
+ * JSON API over the bike, station, ride and user services.
  */
 public class SimpleBikeShareWebServer {
     
     private static final int DEFAULT_PORT = 8080;
+    // Pending connections the OS queues for the acceptor; the default of 50 drops bursts
+    private static final int ACCEPT_QUEUE_SIZE = 1024;
+    // Held Swish status requests are answered before the 30 s idle timeout of common proxies
+    private static final int MAX_STATUS_WAIT_SECONDS = 25;
+    private static final long STATUS_CHECK_INTERVAL_MILLIS = 1000;
+    // Station changes within one tick are coalesced into one event
+    private static final long AVAILABILITY_TICK_MILLIS = 1000;
+    
+    /**
+     * How the server executes requests.
+     */
+    public enum ExecutionMode {
+        /** On Jetty's bounded pool of platform threads, so blocking calls limit concurrency. */
+        CLASSIC,
+        /** On a new virtual thread per request; only selectors and acceptors use the pool. */
+        VIRTUAL
+    }
+    
     private final Server server;
+    private final ServerConnector connector;
+    private final ExecutionMode mode;
     private final ObjectMapper objectMapper;
+    private final WebServices services;
+    private final SwishStatusWatcher swishStatus;
+    private final StationAvailabilityFeed availabilityFeed;
     
     public SimpleBikeShareWebServer() {
         this(DEFAULT_PORT);
     }
     
+    /**
+     * Creates a server over in-memory repositories holding the demo data.
+     * @param port port to listen on, or 0 for any free port
+     */
     public SimpleBikeShareWebServer(int port) {
-        this.server = new Server(port);
+        this(port, WebServices.inMemoryDemo());
+    }
+    
+    /**
+     * Creates a server whose API serves data from the given services.
+     * @param port port to listen on, or 0 for any free port
+     * @param services services behind the API
+     */
+    public SimpleBikeShareWebServer(int port, WebServices services) {
+        this(port, services, ExecutionMode.CLASSIC);
+    }
+    
+    /**
+     * Creates a server whose API serves data from the given services.
+     * @param port port to listen on, or 0 for any free port
+     * @param services services behind the API
+     * @param mode how requests are executed
+     */
+    public SimpleBikeShareWebServer(int port, WebServices services, ExecutionMode mode) {
+        if (services == null || mode == null) {
+            throw new IllegalArgumentException("Services and execution mode cannot be null");
+        }
+        this.mode = mode;
+        this.server = new Server(createThreadPool(mode));
+        this.connector = new ServerConnector(server);
+        connector.setPort(port);
+        connector.setAcceptQueueSize(ACCEPT_QUEUE_SIZE);
+        server.addConnector(connector);
         this.objectMapper = createObjectMapper();
+        this.services = services;
+        this.swishStatus = new SwishStatusWatcher(services.swish(), objectMapper.writer(),
+                STATUS_CHECK_INTERVAL_MILLIS);
+        this.availabilityFeed = new StationAvailabilityFeed(services.stations(),
+                objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT), AVAILABILITY_TICK_MILLIS);
         setupServer();
     }
     
+    private static QueuedThreadPool createThreadPool(ExecutionMode mode) {
+        QueuedThreadPool threadPool = new QueuedThreadPool();
+        threadPool.setName("bikeshare-web");
+        if (mode == ExecutionMode.VIRTUAL) {
+            // Jetty hands each request to this executor instead of a pooled thread
+            threadPool.setVirtualThreadsExecutor(Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("bikeshare-web-virtual-", 0).factory()));
+        }
+        return threadPool;
+    }
+    
     private ObjectMapper createObjectMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
@@ -53,12 +137,18 @@ public class SimpleBikeShareWebServer {
         context.setContextPath("/");
         
         // Static content servlet
-        context.addServlet(new ServletHolder(new StaticContentServlet()), "/");
-        
+        context.addServlet(new ServletHolder(new StaticContentServlet(StaticAssetCache.load("/webapp"))), "/");
+    
     // API endpoints
     context.addServlet(new ServletHolder(new ApiServlet()), "/api/*");
+    ServletHolder stationStream = new ServletHolder(new StationStreamServlet());
+    stationStream.setAsyncSupported(true);
+    context.addServlet(stationStream, "/api/stations/stream");
     context.addServlet(new ServletHolder(new ValidationServlet()), "/api/validate/*");
-    context.addServlet(new ServletHolder(new PaymentsServlet()), "/api/payments/*");
+    ServletHolder payments = new ServletHolder(new PaymentsServlet());
+    // Status long-polls are held with startAsync
+    payments.setAsyncSupported(true);
+    context.addServlet(payments, "/api/payments/*");
         
         server.setHandler(context);
     }
@@ -74,20 +164,27 @@ public class SimpleBikeShareWebServer {
             baseUrl = null;
         }
         if (baseUrl == null || baseUrl.isBlank()) {
-            int actualPort = -1;
-            if (server.getConnectors().length > 0 && server.getConnectors()[0] instanceof ServerConnector sc) {
-                actualPort = sc.getLocalPort();
-            }
+            int actualPort = getPort();
             baseUrl = "http://localhost:" + (actualPort > 0 ? actualPort : DEFAULT_PORT) + "/";
         }
-
-        System.out.println("BikeShare Web Server started on " + baseUrl);
+        
+        System.out.println("BikeShare Web Server started on " + baseUrl + " (" + mode.name().toLowerCase() + " threads)");
         System.out.println("Open your browser to view the testing platform dashboard");
-        System.out.println("Endpoints: GET /api/*, POST /api/validate/age, POST /api/payments/swish/*");
+        System.out.println("Endpoints: GET /api/*, GET /api/stations/stream (SSE), POST /api/validate/age, POST /api/payments/swish/*");
+    }
+    
+    /**
+     * Gets the port the server listens on, which is only known after start when created with port 0.
+     * @return the local port, or -1 if not started
+     */
+    public int getPort() {
+        return connector.getLocalPort();
     }
     
     public void stop() throws Exception {
         server.stop();
+        swishStatus.close();
+        availabilityFeed.close();
     }
     
     public void waitForShutdown() throws InterruptedException {
@@ -95,50 +192,72 @@ public class SimpleBikeShareWebServer {
     }
     
     /**
-     * Servlet for serving static HTML, CSS, and JavaScript files
+     * Servlet for serving static HTML, CSS, and JavaScript files.
+     * Files come from a {@link StaticAssetCache} loaded at startup, in the smallest encoding the
+     * browser accepts, and conditional requests for an unchanged file are answered with 304.
      */
     private static class StaticContentServlet extends HttpServlet {
         
+        private final StaticAssetCache assets;
+        
+        StaticContentServlet(StaticAssetCache assets) {
+            this.assets = assets;
+        }
+        
         @Override
         protected void doGet(HttpServletRequest req, HttpServletResponse resp) 
                 throws ServletException, IOException {
             
-            String path = req.getPathInfo();
-            if (path == null || "/".equals(path)) {
+            // As the default servlet, the whole path is the servlet path and there is no path info
+            String path = req.getPathInfo() != null ? req.getPathInfo() : req.getServletPath();
+            if (path == null || path.isEmpty() || "/".equals(path)) {
                 path = "/index.html";
             }
             
-            // Serve static files from resources
-            InputStream inputStream = getClass().getResourceAsStream("/webapp" + path);
-            if (inputStream == null) {
+            StaticAssetCache.Asset asset = assets.get(path);
+            if (asset == null) {
                 resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                resp.setContentType("text/html");
+                // The request path is not echoed back, so the page cannot carry injected markup
+                resp.setContentType("text/html; charset=UTF-8");
                 resp.getWriter().write("<!DOCTYPE html><html><head><title>404 - Not Found</title></head>"
-                    + "<body><h1>404 - File Not Found</h1><p>The requested file was not found: " + path + "</p></body></html>");
+                    + "<body><h1>404 - File Not Found</h1><p>The requested file was not found.</p></body></html>");
                 return;
             }
             
-            // Set content type based on file extension
-            if (path.endsWith(".html")) {
-                resp.setContentType("text/html; charset=UTF-8");
-            } else if (path.endsWith(".css")) {
-                resp.setContentType("text/css; charset=UTF-8");
-            } else if (path.endsWith(".js")) {
-                resp.setContentType("application/javascript; charset=UTF-8");
+            StaticAssetCache.Variant variant = asset.select(req.getHeader("Accept-Encoding"));
+            resp.setHeader("Vary", "Accept-Encoding");
+            resp.setHeader("ETag", variant.etag());
+            resp.setHeader("Cache-Control", asset.cacheControl());
+            if (StaticAssetCache.matches(req.getHeader("If-None-Match"), variant.etag())) {
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
             }
             
-            // Copy content to response
-            byte[] buffer = inputStream.readAllBytes();
-            resp.getOutputStream().write(buffer);
-            inputStream.close();
+            resp.setContentType(asset.contentType());
+            if (variant.encoding() != null) {
+                resp.setHeader("Content-Encoding", variant.encoding());
+            }
+            resp.setContentLength(variant.body().length);
+            resp.getOutputStream().write(variant.body());
         }
     }
     
     /**
-     * REST API servlet for BikeShare operations
+     * REST API servlet for BikeShare operations.
+     * Each endpoint serves a {@link VersionedSnapshotCache}, so its JSON is only rebuilt
+     * after the services' data changed.
      */
     private class ApiServlet extends HttpServlet {
         
+        private final Map<String, VersionedSnapshotCache> endpoints = Map.of(
+                "/bikes", cached(services.bikes()::getDataVersion, this::bikeData),
+                "/stations", cached(services.stations()::getDataVersion, this::stationData),
+                "/users", cached(services.users()::getDataVersion, this::userData),
+                "/rides", cached(services.rides()::getDataVersion, this::rideData),
+                // The station version covers bike changes as well
+                "/stats", cached(VersionedSnapshotCache.combined(services.stations()::getDataVersion,
+                        services.rides()::getDataVersion), this::stats));
+        
         @Override
         protected void doGet(HttpServletRequest req, HttpServletResponse resp) 
                 throws ServletException, IOException {
@@ -147,100 +266,82 @@ public class SimpleBikeShareWebServer {
             resp.setHeader("Access-Control-Allow-Origin", "*");
             
             String pathInfo = req.getPathInfo();
+            VersionedSnapshotCache endpoint = pathInfo != null ? endpoints.get(pathInfo) : null;
+            if (endpoint == null) {
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                resp.getWriter().write("{\"error\": \"Endpoint not found: " + pathInfo + "\"}");
+                return;
+            }
+            byte[] json;
             try {
-                switch (pathInfo) {
-                    case "/bikes":
-                        handleGetBikes(resp);
-                        break;
-                    case "/stations":
-                        handleGetStations(resp);
-                        break;
-                    case "/users":
-                        handleGetUsers(resp);
-                        break;
-                    case "/rides":
-                        handleGetRides(resp);
-                        break;
-                    case "/stats":
-                        handleGetStats(resp);
-                        break;
-                    default:
-                        resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                        resp.getWriter().write("{\"error\": \"Endpoint not found: " + pathInfo + "\"}");
-                }
+                json = endpoint.get();
             } catch (Exception e) {
                 resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
                 resp.getWriter().write("{\"error\": \"" + e.getMessage() + "\"}");
+                return;
             }
+            resp.setContentLength(json.length);
+            resp.getOutputStream().write(json);
         }
         
-        private void handleGetBikes(HttpServletResponse resp) throws IOException {
-            // Sample bike data for demonstration
-            Map<String, Object> bikeData = new HashMap<>();
-            bikeData.put("message", "BikeShare API - Bikes Endpoint");
-            bikeData.put("totalBikes", 15);
-            bikeData.put("availableBikes", 12);
-            bikeData.put("status", "operational");
-            bikeData.put("note", "This is sample data for testing. Implement actual BikeService integration.");
-            objectMapper.writeValue(resp.getWriter(), bikeData);
+        private VersionedSnapshotCache cached(LongSupplier version, Supplier<?> view) {
+            return new VersionedSnapshotCache(version, view, objectMapper.writer());
         }
         
-        private void handleGetStations(HttpServletResponse resp) throws IOException {
-            // Sample station data for demonstration
-            Map<String, Object> stationData = new HashMap<>();
-            stationData.put("message", "BikeShare API - Stations Endpoint");
-            stationData.put("totalStations", 8);
-            stationData.put("activeStations", 7);
-            stationData.put("status", "operational");
-            stationData.put("note", "This is sample data for testing. Implement actual StationService integration.");
-            objectMapper.writeValue(resp.getWriter(), stationData);
+        private BikeService.BikeStatistics bikeData() {
+            return services.bikes().getBikeStatistics();
         }
         
-        private void handleGetUsers(HttpServletResponse resp) throws IOException {
-            // Sample user data for demonstration
-            Map<String, Object> userData = new HashMap<>();
-            userData.put("message", "BikeShare API - Users Endpoint");
-            userData.put("note", "User data requires authentication in a real system");
-            userData.put("registeredUsers", 42);
-            userData.put("activeUsers", 38);
-            objectMapper.writeValue(resp.getWriter(), userData);
+        private Map<String, Object> stationData() {
+            List<Station.Availability> availability = services.stations().getAllStations().stream()
+                    .map(Station::getAvailability)
+                    .sorted(Comparator.comparing(Station.Availability::stationId))
+                    .toList();
+            Map<String, Object> stationData = new LinkedHashMap<>();
+            stationData.put("summary", services.stations().getStationStatistics());
+            stationData.put("stations", availability);
+            return stationData;
         }
         
-        private void handleGetRides(HttpServletResponse resp) throws IOException {
-            // Sample ride data for demonstration
-            Map<String, Object> rideData = new HashMap<>();
-            rideData.put("message", "BikeShare API - Rides Endpoint");
-            rideData.put("totalRides", 156);
-            rideData.put("activeRides", 3);
-            rideData.put("completedRides", 153);
-            rideData.put("note", "This is sample data for testing. Implement actual RideService integration.");
-            objectMapper.writeValue(resp.getWriter(), rideData);
+        private Map<String, Object> userData() {
+            Map<String, Object> userData = new LinkedHashMap<>();
+            userData.put("registeredUsers", services.users().getUserCount());
+            userData.put("activeUsers", services.users().getActiveUsers().size());
+            return userData;
         }
         
-        private void handleGetStats(HttpServletResponse resp) throws IOException {
-            // Sample statistics for demonstration
-            Map<String, Object> stats = new HashMap<>();
-            
-            Map<String, Object> bikeStats = new HashMap<>();
-            bikeStats.put("totalBikes", 15);
-            bikeStats.put("availableBikes", 12);
-            bikeStats.put("maintenanceBikes", 2);
-            bikeStats.put("rentedBikes", 1);
-            
-            Map<String, Object> stationStats = new HashMap<>();
-            stationStats.put("totalStations", 8);
-            stationStats.put("activeStations", 7);
-            stationStats.put("fullStations", 2);
-            stationStats.put("emptyStations", 1);
-            
-            stats.put("bikeStats", bikeStats);
-            stats.put("stationStats", stationStats);
+        private RideService.RideAnalytics rideData() {
+            return services.rides().getRideAnalytics();
+        }
+        
+        private Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("bikeStats", services.bikes().getBikeStatistics());
+            stats.put("stationStats", services.stations().getStationStatistics());
+            stats.put("rideStats", services.rides().getRideAnalytics());
+            // Time the snapshot was taken, i.e. of the last change seen
             stats.put("lastUpdated", System.currentTimeMillis());
+            return stats;
+        }
+    }
+    
+    /**
+     * Server-Sent Events stream of station availability changes, see {@link StationAvailabilityFeed}
+     */
+    private class StationStreamServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/event-stream; charset=UTF-8");
+            resp.setHeader("Cache-Control", "no-cache");
+            resp.setHeader("Access-Control-Allow-Origin", "*");
             
-            objectMapper.writeValue(resp.getWriter(), stats);
+            AsyncContext async = req.startAsync();
+            // Open until the client leaves or the server stops
+            async.setTimeout(0);
+            availabilityFeed.subscribe(async);
         }
     }
-
+    
     /**
      * Simple validation API to exercise backend logic from the UI
      */
@@ -249,7 +350,7 @@ public class SimpleBikeShareWebServer {
         protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
             resp.setContentType("application/json; charset=UTF-8");
             resp.setHeader("Access-Control-Allow-Origin", "*");
-
+            
             String path = req.getPathInfo();
             if (path == null) path = "";
             try {
@@ -261,11 +362,9 @@ public class SimpleBikeShareWebServer {
             );
                     String idNumber = (String) body.get("idNumber");
                     boolean auth = body.get("auth") != null && Boolean.TRUE.equals(body.get("auth"));
-
-            // Use factory to allow swapping in buggy implementations for exercises
-            boolean adult = com.bikeshare.service.validation.AgeCheckFactory
-                .create()
-                .isAdult(idNumber, auth);
+            
+            // AgeCheckFactory by default, so buggy implementations can be swapped in for exercises
+            boolean adult = services.ageCheck().isAdult(idNumber, auth);
                     Map<String, Object> result = new HashMap<>();
                     result.put("adult", adult);
                     result.put("checkedAt", System.currentTimeMillis());
@@ -282,7 +381,7 @@ public class SimpleBikeShareWebServer {
                 objectMapper.writeValue(resp.getWriter(), Map.of("error", e.getMessage()));
             }
         }
-
+        
         @Override
         protected void doOptions(HttpServletRequest req, HttpServletResponse resp) {
             resp.setHeader("Access-Control-Allow-Origin", "*");
@@ -290,43 +389,53 @@ public class SimpleBikeShareWebServer {
             resp.setHeader("Access-Control-Allow-Headers", "Content-Type");
         }
     }
-
+    
     /**
-     * Simple payments API stubs for Swish flows from UI
+     * Payments API for Swish flows from the UI.
+     * <p>
+     * {@code /swish/status} answers at once, or when the body has {@code "waitSeconds"} holds the
+     * request until the payment is completed or the wait (at most 25 s) runs out. Held requests
+     * occupy no thread; see {@link SwishStatusWatcher}.
      */
     private class PaymentsServlet extends HttpServlet {
+        // Bodies are bound to records by readers built once rather than parsed into maps per request
+        private final ObjectReader paymentRequestReader = objectMapper.readerFor(SwishPaymentRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        private final ObjectReader statusQueryReader = objectMapper.readerFor(SwishStatusQuery.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        
         @Override
         protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
             resp.setContentType("application/json; charset=UTF-8");
             resp.setHeader("Access-Control-Allow-Origin", "*");
-
+            
             String path = req.getPathInfo();
             if (path == null) path = "";
             try {
                 if ("/swish/request".equals(path)) {
-            Map<String, Object> body = objectMapper.readValue(
-                req.getInputStream(),
-                new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {}
-            );
-                    String phone = (String) body.get("phone");
-                    double amount = body.get("amount") instanceof Number ? ((Number) body.get("amount")).doubleValue() : 0.0;
-                    String message = (String) body.getOrDefault("message", "BikeShare ride");
-                    // Return fake request id for demo
+                    SwishPaymentRequest body = paymentRequestReader.readValue(req.getInputStream());
+                    String phone = body.phone();
+                    double amount = body.amount() != null ? body.amount() : 0.0;
+                    String message = body.message() != null ? body.message() : "BikeShare ride";
                     objectMapper.writeValue(resp.getWriter(), Map.of(
-                            "requestId", "swish-" + System.currentTimeMillis(),
+                            "requestId", services.swish().requestPayment(phone, amount, message),
                             "phone", phone,
                             "amount", amount,
                             "message", message
                     ));
                 } else if ("/swish/status".equals(path)) {
-            Map<String, Object> body = objectMapper.readValue(
-                req.getInputStream(),
-                new com.fasterxml.jackson.core.type.TypeReference<Map<String, Object>>() {}
-            );
-                    String requestId = (String) body.get("requestId");
-                    // Random-ish demo status
-                    boolean paid = requestId != null && requestId.hashCode() % 2 == 0;
-                    objectMapper.writeValue(resp.getWriter(), Map.of("requestId", requestId, "paid", paid));
+                    SwishStatusQuery query = statusQueryReader.readValue(req.getInputStream());
+                    if (query.requestId() == null) {
+                        throw new IllegalArgumentException("requestId is required");
+                    }
+                    int waitSeconds = query.waitSeconds() != null ? query.waitSeconds() : 0;
+                    if (waitSeconds > 0) {
+                        swishStatus.hold(query.requestId(), req.startAsync(),
+                                TimeUnit.SECONDS.toMillis(Math.min(waitSeconds, MAX_STATUS_WAIT_SECONDS)));
+                    } else {
+                        boolean paid = services.swish().isPaymentCompleted(query.requestId());
+                        objectMapper.writeValue(resp.getWriter(), Map.of("requestId", query.requestId(), "paid", paid));
+                    }
                 } else {
                     resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
                     objectMapper.writeValue(resp.getWriter(), Map.of("error", "Unknown payments endpoint"));
@@ -336,7 +445,7 @@ public class SimpleBikeShareWebServer {
                 objectMapper.writeValue(resp.getWriter(), Map.of("error", e.getMessage()));
             }
         }
-
+        
         @Override
         protected void doOptions(HttpServletRequest req, HttpServletResponse resp) {
             resp.setHeader("Access-Control-Allow-Origin", "*");
@@ -346,20 +455,43 @@ public class SimpleBikeShareWebServer {
     }
     
     /**
-     * Main method to start the web server
+     * Body of {@code /swish/request}.
+     */
+    private record SwishPaymentRequest(String phone, Double amount, String message) {
+    }
+    
+    /**
+     * Body of {@code /swish/status}; {@code waitSeconds} asks for a long poll.
+     */
+    private record SwishStatusQuery(String requestId, Integer waitSeconds) {
+    }
+    
+    /**
+     * Main method to start the web server.
+     * Arguments: an optional port and {@code --threads=classic|virtual} (default classic).
      */
     public static void main(String[] args) throws Exception {
         int port = DEFAULT_PORT;
-        if (args.length > 0) {
-            try {
-                port = Integer.parseInt(args[0]);
-            } catch (NumberFormatException e) {
-                System.err.println("Invalid port number: " + args[0]);
-                System.exit(1);
+        ExecutionMode mode = ExecutionMode.CLASSIC;
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                try {
+                    mode = ExecutionMode.valueOf(arg.substring("--threads=".length()).toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid thread mode, expected classic or virtual: " + arg);
+                    System.exit(1);
+                }
+            } else {
+                try {
+                    port = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid port number: " + arg);
+                    System.exit(1);
+                }
             }
         }
         
-        SimpleBikeShareWebServer webServer = new SimpleBikeShareWebServer(port);
+        SimpleBikeShareWebServer webServer = new SimpleBikeShareWebServer(port, WebServices.inMemoryDemo(), mode);
         
         // Add shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -0,0 +1,273 @@
+package com.bikeshare.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Static web assets, read from the classpath and compressed once at startup.
+ * <p>
+ * Every file under the resource directory is kept in memory as-is and, for text types, as gzip
+ * and deflate encodings when those are smaller. Each encoding has its own strong ETag derived
+ * from the content, so a browser revalidating an unchanged asset gets a 304 without any body.
+ * Files whose name carries a content hash (such as {@code app.3f9a1c2b.js}) never change under
+ * that name and may be cached for a year; everything else must be revalidated on each use.
+ */
+final class StaticAssetCache {
+    
+    // A dot-separated run of at least 8 hex digits before the extension, e.g. app.3f9a1c2b.js
+    private static final Pattern FINGERPRINTED = Pattern.compile(".*\\.[0-9a-fA-F]{8,}\\.[^./]+$");
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "html", "text/html; charset=UTF-8",
+            "css", "text/css; charset=UTF-8",
+            "js", "application/javascript; charset=UTF-8",
+            "json", "application/json; charset=UTF-8",
+            "svg", "image/svg+xml",
+            "txt", "text/plain; charset=UTF-8",
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "ico", "image/x-icon");
+    
+    private final Map<String, Asset> assets;
+    
+    private StaticAssetCache(Map<String, Asset> assets) {
+        this.assets = assets;
+    }
+    
+    /**
+     * One encoding of an asset.
+     * @param encoding the Content-Encoding, or null for the unencoded bytes
+     * @param body the bytes to send, shared and not to be modified
+     * @param etag the quoted strong entity tag of these bytes
+     */
+    record Variant(String encoding, byte[] body, String etag) {
+    }
+    
+    /**
+     * A cached asset and its encodings, smallest first, ending with the unencoded one.
+     * @param contentType the Content-Type to send
+     * @param cacheControl the Cache-Control to send
+     * @param variants the encodings to choose from
+     */
+    record Asset(String contentType, String cacheControl, List<Variant> variants) {
+        
+        /**
+         * Picks the smallest encoding the client accepts.
+         * @param acceptEncoding the request's Accept-Encoding header, may be null
+         * @return the variant to send
+         */
+        Variant select(String acceptEncoding) {
+            for (Variant variant : variants) {
+                if (variant.encoding() == null || accepts(acceptEncoding, variant.encoding())) {
+                    return variant;
+                }
+            }
+            return variants.get(variants.size() - 1);
+        }
+    }
+    
+    /**
+     * Loads and compresses every file under a classpath directory, from a directory or a jar.
+     * @param root the resource directory, such as {@code /webapp}
+     * @return the loaded assets, keyed by their path below the root
+     * @throws UncheckedIOException if the resources cannot be read
+     */
+    static StaticAssetCache load(String root) {
+        URL url = StaticAssetCache.class.getResource(root);
+        if (url == null) {
+            return new StaticAssetCache(Map.of());
+        }
+        try {
+            URI uri = url.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                FileSystem jar;
+                try {
+                    jar = FileSystems.newFileSystem(uri, Map.of());
+                } catch (FileSystemAlreadyExistsException e) {
+                    jar = FileSystems.getFileSystem(uri);
+                }
+                return new StaticAssetCache(loadTree(jar.getPath(root)));
+            }
+            return new StaticAssetCache(loadTree(Path.of(uri)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load static assets from " + root, e);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid resource location " + url, e);
+        }
+    }
+    
+    /**
+     * Gets a cached asset.
+     * @param path the request path, such as {@code /index.html}
+     * @return the asset, or null if there is none at that path
+     */
+    Asset get(String path) {
+        return assets.get(path);
+    }
+    
+    /**
+     * Tells whether an If-None-Match header matches an entity tag, using the weak comparison
+     * HTTP prescribes for this header.
+     * @param ifNoneMatch the header value, may be null
+     * @param etag the quoted entity tag of the current representation
+     * @return true if the client's copy is current
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the Cache-Control for an asset path: a year for fingerprinted names, otherwise
+     * revalidation on each use.
+     * @param path the asset path, such as {@code /app.3f9a1c2b.js}
+     * @return the Cache-Control value
+     */
+    static String cacheControl(String path) {
+        return FINGERPRINTED.matcher(path).matches() ? IMMUTABLE : REVALIDATE;
+    }
+    
+    private static Map<String, Asset> loadTree(Path root) throws IOException {
+        Map<String, Asset> assets = new HashMap<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                StringBuilder path = new StringBuilder();
+                for (Path part : root.relativize(file)) {
+                    path.append('/').append(part);
+                }
+                assets.put(path.toString(), toAsset(path.toString(), Files.readAllBytes(file)));
+            }
+        }
+        return Map.copyOf(assets);
+    }
+    
+    private static Asset toAsset(String path, byte[] content) throws IOException {
+        String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        String contentType = CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+        String etag = etag(content);
+        
+        List<Variant> variants = new ArrayList<>();
+        if (isCompressible(contentType)) {
+            addIfSmaller(variants, "gzip", gzip(content), content.length, etag);
+            addIfSmaller(variants, "deflate", deflate(content), content.length, etag);
+            variants.sort((a, b) -> Integer.compare(a.body().length, b.body().length));
+        }
+        variants.add(new Variant(null, content, "\"" + etag + "\""));
+        return new Asset(contentType, cacheControl(path), List.copyOf(variants));
+    }
+    
+    private static void addIfSmaller(List<Variant> variants, String encoding, byte[] encoded,
+                                     int originalLength, String etag) {
+        if (encoded.length < originalLength) {
+            // Each encoding is a different representation, so it needs a tag of its own
+            variants.add(new Variant(encoding, encoded, "\"" + etag + "-" + encoding + "\""));
+        }
+    }
+    
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json") || contentType.startsWith("image/svg+xml");
+    }
+    
+    private static boolean accepts(String acceptEncoding, String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        // An entry naming the coding wins over "*", wherever it appears in the header
+        Double exact = null;
+        Double wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String coding = parts[0].trim();
+            if (coding.equalsIgnoreCase(encoding)) {
+                exact = quality(parts);
+            } else if (coding.equals("*")) {
+                wildcard = quality(parts);
+            }
+        }
+        Double q = exact != null ? exact : wildcard;
+        return q != null && q > 0;
+    }
+    
+    private static double quality(String[] parts) {
+        // "gzip;q=0" explicitly refuses the encoding
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+    
+    private static String etag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] deflate(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(out, deflater)) {
+            deflate.write(content);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
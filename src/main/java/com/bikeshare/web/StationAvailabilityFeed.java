@@ -0,0 +1,275 @@
+package com.bikeshare.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.bikeshare.model.Station;
+import com.bikeshare.model.StationListener;
+import com.bikeshare.service.StationService;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+/**
+ * Server-Sent Events feed of station availability.
+ * <p>
+ * Stations report changes through a {@link StationListener}, which only marks the station as
+ * dirty. Once per tick the dirty stations are read, and those whose availability differs from
+ * what clients were last sent go out as a single {@code availability} event, so a burst of
+ * docking at one station costs one entry in one event. Each event is serialized once and
+ * shared by all clients. A new client first gets a {@code snapshot} event of every station;
+ * stations that disappear are announced in a {@code removed} event.
+ * <p>
+ * Every client has its own virtual thread writing to its connection from a small backlog, so
+ * a slow client never holds up the tick. A client that falls a full backlog behind is
+ * disconnected; {@code EventSource} reconnects and starts over from a snapshot. Only live
+ * station objects report changes: the station list is re-read when the station version
+ * moves, and once at start for repositories that do not track changes.
+ */
+final class StationAvailabilityFeed implements AutoCloseable {
+    
+    private static final int CLIENT_BACKLOG = 16;
+    // Comment lines keep idle connections open through proxies and reveal dead clients
+    private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+    
+    private final StationService stations;
+    private final ObjectWriter writer;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final StationListener listener = station -> dirty.add(station.getStationId());
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService ticker;
+    // Guards the fields below: a tick and a new client's snapshot must not interleave
+    private final ReentrantLock publishing = new ReentrantLock();
+    private Map<String, Station> watched = new HashMap<>();
+    private final Map<String, Station.Availability> published = new TreeMap<>();
+    private long watchedVersion = Long.MIN_VALUE;
+    private long lastSentNanos = System.nanoTime();
+    
+    /**
+     * @param stations the stations to follow
+     * @param writer serializes event data; must not indent, as an event's data is one line
+     * @param tickMillis time between events
+     */
+    StationAvailabilityFeed(StationService stations, ObjectWriter writer, long tickMillis) {
+        this.stations = stations;
+        this.writer = writer;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "station-availability");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tick();
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Streams events to an asynchronous request until the client disconnects.
+     * @param async the started asynchronous request, with response headers set
+     * @throws IOException if the snapshot cannot be serialized
+     */
+    void subscribe(AsyncContext async) throws IOException {
+        Client client = new Client(async);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                client.close();
+            }
+            
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                client.close();
+            }
+            
+            @Override
+            public void onError(AsyncEvent event) {
+                client.close();
+            }
+            
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        publishing.lock();
+        try {
+            client.offer(event("snapshot", published.values()));
+            clients.add(client);
+        } finally {
+            publishing.unlock();
+        }
+        client.start();
+    }
+    
+    /**
+     * Stops the feed and disconnects all clients.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        publishing.lock();
+        try {
+            for (Station station : watched.values()) {
+                station.removeListener(listener);
+            }
+            watched = new HashMap<>();
+        } finally {
+            publishing.unlock();
+        }
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+    
+    private void tick() {
+        publishing.lock();
+        try {
+            List<String> removed = refreshWatched();
+            List<Station.Availability> changed = new ArrayList<>();
+            for (String stationId : dirty) {
+                dirty.remove(stationId);
+                Station station = watched.get(stationId);
+                if (station == null) {
+                    continue;
+                }
+                Station.Availability availability = station.getAvailability();
+                if (!availability.equals(published.put(stationId, availability))) {
+                    changed.add(availability);
+                }
+            }
+            if (!removed.isEmpty()) {
+                broadcast(event("removed", removed));
+            }
+            if (!changed.isEmpty()) {
+                broadcast(event("availability", changed));
+            } else if (System.nanoTime() - lastSentNanos >= HEARTBEAT_NANOS) {
+                broadcast(HEARTBEAT);
+            }
+        } catch (RuntimeException | IOException e) {
+            // Dirty stations already taken are re-read on their next change
+            System.err.println("Station availability tick failed: " + e.getMessage());
+        } finally {
+            publishing.unlock();
+        }
+    }
+    
+    /**
+     * Follows stations added or replaced since the last read of the station list.
+     * @return IDs of stations that are gone
+     */
+    private List<String> refreshWatched() {
+        long version = stations.getDataVersion();
+        if (version == watchedVersion || (version < 0 && watchedVersion != Long.MIN_VALUE)) {
+            return List.of();
+        }
+        watchedVersion = version;
+        Map<String, Station> current = new HashMap<>();
+        for (Station station : stations.getAllStations()) {
+            current.put(station.getStationId(), station);
+            Station previous = watched.remove(station.getStationId());
+            if (previous != station) {
+                if (previous != null) {
+                    previous.removeListener(listener);
+                }
+                station.addListener(listener);
+                dirty.add(station.getStationId());
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (Station gone : watched.values()) {
+            gone.removeListener(listener);
+            if (published.remove(gone.getStationId()) != null) {
+                removed.add(gone.getStationId());
+            }
+        }
+        watched = current;
+        return removed;
+    }
+    
+    private void broadcast(byte[] event) {
+        lastSentNanos = System.nanoTime();
+        for (Client client : clients) {
+            client.offer(event);
+        }
+    }
+    
+    private byte[] event(String name, Object data) throws IOException {
+        return ("event: " + name + "\ndata: " + writer.writeValueAsString(data) + "\n\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * One connected client and the thread writing to it.
+     */
+    private final class Client {
+        private final AsyncContext async;
+        private final BlockingQueue<byte[]> backlog = new ArrayBlockingQueue<>(CLIENT_BACKLOG);
+        private volatile Thread sender;
+        private volatile boolean closed;
+        
+        Client(AsyncContext async) {
+            this.async = async;
+        }
+        
+        void start() {
+            sender = Thread.ofVirtual().name("station-availability-client").start(this::send);
+            if (closed) {
+                sender.interrupt();
+            }
+        }
+        
+        void offer(byte[] event) {
+            if (!backlog.offer(event)) {
+                close();
+            }
+        }
+        
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            clients.remove(this);
+            Thread thread = sender;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+        
+        private void send() {
+            try {
+                OutputStream out = async.getResponse().getOutputStream();
+                while (!closed) {
+                    out.write(backlog.take());
+                    out.flush();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client disconnected
+            } catch (InterruptedException e) {
+                // Closed by the feed
+            } finally {
+                close();
+                try {
+                    async.complete();
+                } catch (IllegalStateException e) {
+                    // Already completed by the container
+                }
+            }
+        }
+    }
+}
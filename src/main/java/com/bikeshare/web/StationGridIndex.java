@@ -0,0 +1,198 @@
+package com.bikeshare.web;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.bikeshare.model.Station;
+
+/**
+ * Uniform latitude/longitude grid over station IDs, used for nearest-station queries.
+ * A k-nearest query visits cells in rings around the query point and stops as soon as no
+ * unvisited cell can hold a closer station than the k-th best found so far, so the cost
+ * depends on the station density near the point rather than on the total station count.
+ * Columns wrap around at the antimeridian, so stations just across ±180° are neighbours.
+ */
+class StationGridIndex {
+    
+    /** Default cell edge of 0.01 degrees, roughly 1.1 km north-south. */
+    static final double DEFAULT_CELL_DEGREES = 0.01;
+    
+    private static final double EARTH_RADIUS_KM = 6371;
+    
+    // Ring lower bounds use distances along meridians/parallels; shave a little off so that
+    // the shorter great-circle path can never make us stop too early
+    private static final double LOWER_BOUND_SAFETY = 0.95;
+    
+    private final double cellDegrees;
+    private final double cellHeightKm;
+    // Columns evenly divide the 360 degrees of longitude, so wrapping keeps every column whole
+    private final int columns;
+    private final double columnDegrees;
+    private final SecondaryIndex<Long> cells = new SecondaryIndex<>();
+    
+    StationGridIndex() {
+        this(DEFAULT_CELL_DEGREES);
+    }
+    
+    StationGridIndex(double cellDegrees) {
+        if (cellDegrees <= 0 || cellDegrees > 10) {
+            throw new IllegalArgumentException("Cell size must be between 0 and 10 degrees");
+        }
+        this.cellDegrees = cellDegrees;
+        this.cellHeightKm = EARTH_RADIUS_KM * Math.toRadians(cellDegrees);
+        this.columns = (int) Math.ceil(360 / cellDegrees - 1e-9);
+        this.columnDegrees = 360.0 / columns;
+    }
+    
+    void add(Station station) {
+        cells.add(cellOf(station.getLatitude(), station.getLongitude()), station.getStationId());
+    }
+    
+    void remove(Station station) {
+        cells.remove(cellOf(station.getLatitude(), station.getLongitude()), station.getStationId());
+    }
+    
+    /**
+     * Finds the stations closest to a point, nearest first.
+     * @param latitude query latitude
+     * @param longitude query longitude
+     * @param maxDistance maximum distance in kilometers
+     * @param limit maximum number of stations to return
+     * @param resolver lookup from station ID to the current station (may return null)
+     * @return up to limit stations within maxDistance, ordered by distance
+     */
+    List<Station> findNearest(double latitude, double longitude, double maxDistance, int limit,
+                              Function<String, Station> resolver) {
+        if (limit <= 0 || maxDistance < 0) {
+            return new ArrayList<>();
+        }
+        
+        // Max-heap on distance holding the best candidates so far
+        PriorityQueue<Candidate> best = new PriorityQueue<>(
+                Comparator.comparingDouble(Candidate::distance).reversed());
+        
+        int centerRow = row(latitude);
+        int centerCol = column(longitude);
+        int latRings = (int) Math.ceil(maxDistance / cellHeightKm) + 1;
+        double minCellWidthKm = cellWidthKm(Math.min(90.0, Math.abs(latitude) + latRings * cellDegrees));
+        int lonRings = minCellWidthKm > 0
+                ? (int) Math.min(Integer.MAX_VALUE / 4, Math.ceil(maxDistance / minCellWidthKm) + 1)
+                : Integer.MAX_VALUE / 4;
+        // Rings wider than half the columns have wrapped all the way around
+        int maxRing = Math.max(latRings, Math.min(lonRings, columns / 2 + 1));
+        
+        // When the search area spans more cells than are occupied, visiting occupied cells is cheaper
+        long cellsInArea = (2L * maxRing + 1) * Math.min(2L * maxRing + 1, columns);
+        if (cellsInArea > 4L * cells.keyCount()) {
+            cells.forEach((cell, ids) -> collect(ids, latitude, longitude, maxDistance, limit, resolver, best));
+            return drain(best);
+        }
+        
+        double minCellKm = Math.min(cellHeightKm, minCellWidthKm) * LOWER_BOUND_SAFETY;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            visitRing(centerRow, centerCol, ring, latitude, longitude, maxDistance, limit, resolver, best);
+            // Every station in ring + 1 or further lies at least ring whole cells away
+            if (best.size() == limit && best.peek().distance() <= ring * minCellKm) {
+                break;
+            }
+        }
+        return drain(best);
+    }
+    
+    private void visitRing(int centerRow, int centerCol, int ring, double latitude, double longitude,
+                           double maxDistance, int limit, Function<String, Station> resolver,
+                           PriorityQueue<Candidate> best) {
+        if (ring == 0) {
+            collect(cells.get(key(centerRow, centerCol)), latitude, longitude, maxDistance, limit, resolver, best);
+            return;
+        }
+        // Once a ring is wider than the grid, its columns repeat; visit each wrapped column once
+        int span = Math.min(2 * ring + 1, columns);
+        for (int dc = -ring; dc < -ring + span; dc++) {
+            collect(cells.get(key(centerRow - ring, centerCol + dc)), latitude, longitude, maxDistance, limit, resolver, best);
+            collect(cells.get(key(centerRow + ring, centerCol + dc)), latitude, longitude, maxDistance, limit, resolver, best);
+        }
+        // The side columns are new only while they have not wrapped onto columns of inner rings
+        boolean leftIsNew = 2 * ring <= columns;
+        boolean rightIsNew = 2 * ring < columns;
+        for (int dr = -ring + 1; dr <= ring - 1; dr++) {
+            if (leftIsNew) {
+                collect(cells.get(key(centerRow + dr, centerCol - ring)), latitude, longitude, maxDistance, limit, resolver, best);
+            }
+            if (rightIsNew) {
+                collect(cells.get(key(centerRow + dr, centerCol + ring)), latitude, longitude, maxDistance, limit, resolver, best);
+            }
+        }
+    }
+    
+    private static void collect(Set<String> stationIds, double latitude, double longitude, double maxDistance,
+                                int limit, Function<String, Station> resolver, PriorityQueue<Candidate> best) {
+        for (String stationId : stationIds) {
+            Station station = resolver.apply(stationId);
+            if (station == null) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, station.getLatitude(), station.getLongitude());
+            if (distance > maxDistance) {
+                continue;
+            }
+            if (best.size() < limit) {
+                best.add(new Candidate(station, distance));
+            } else if (distance < best.peek().distance()) {
+                best.poll();
+                best.add(new Candidate(station, distance));
+            }
+        }
+    }
+    
+    private static List<Station> drain(PriorityQueue<Candidate> best) {
+        List<Candidate> ordered = new ArrayList<>(best);
+        ordered.sort(Comparator.comparingDouble(Candidate::distance));
+        List<Station> result = new ArrayList<>(ordered.size());
+        for (Candidate candidate : ordered) {
+            result.add(candidate.station());
+        }
+        return result;
+    }
+    
+    /**
+     * Haversine distance between two points on Earth.
+     * @return distance in kilometers
+     */
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+    
+    private double cellWidthKm(double latitude) {
+        return EARTH_RADIUS_KM * Math.toRadians(columnDegrees) * Math.cos(Math.toRadians(latitude));
+    }
+    
+    private long cellOf(double latitude, double longitude) {
+        return key(row(latitude), column(longitude));
+    }
+    
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+    
+    private int column(double longitude) {
+        return (int) Math.floor((longitude + 180) / columnDegrees);
+    }
+    
+    private long key(int row, int column) {
+        return ((long) row << 32) | Math.floorMod(column, columns);
+    }
+    
+    private record Candidate(Station station, double distance) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.bikeshare.web;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.bikeshare.model.Station;
+
+/**
+ * 2-d tree over station coordinates, used for bounding-box queries.
+ * The tree is immutable: inserts copy the path from the root and publish a new root, so queries
+ * never lock and always see a consistent tree. Bulk loads build a balanced tree by median splits.
+ * Deleted or moved stations leave stale nodes behind that queries skip; the tree is rebuilt once
+ * stale nodes or unbalanced inserts make up a large share of it.
+ * Box queries cost O(sqrt(n) + k) on a balanced tree.
+ */
+class StationKdTree {
+    
+    private static final int MIN_REBUILD_THRESHOLD = 16;
+    
+    private volatile Node root;
+    private int builtSize;
+    private int insertsSinceBuild;
+    private int staleNodes;
+    
+    /**
+     * Replaces the tree with a balanced tree over the current stations.
+     * The stations are read while holding the tree lock, so a station stored before a concurrent
+     * {@link #insert} is either in the snapshot or inserted into the new tree afterwards.
+     * @param stations supplies the current stations
+     */
+    synchronized void rebuild(Supplier<Collection<Station>> stations) {
+        Node[] nodes = stations.get().stream()
+                .map(station -> new Node(station.getStationId(), station.getLatitude(), station.getLongitude(),
+                        null, null))
+                .toArray(Node[]::new);
+        root = build(nodes, 0, nodes.length, 0);
+        builtSize = nodes.length;
+        insertsSinceBuild = 0;
+        staleNodes = 0;
+    }
+    
+    /**
+     * Inserts a station by copying the search path.
+     * @param station the station to insert
+     * @return true if the tree has become unbalanced enough to warrant a rebuild
+     */
+    synchronized boolean insert(Station station) {
+        double lat = station.getLatitude();
+        double lon = station.getLongitude();
+        
+        List<Node> path = new ArrayList<>();
+        List<Boolean> wentLeft = new ArrayList<>();
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            boolean left = coordinate(lat, lon, depth) < node.coordinate(depth);
+            path.add(node);
+            wentLeft.add(left);
+            node = left ? node.left : node.right;
+            depth++;
+        }
+        
+        Node copy = new Node(station.getStationId(), lat, lon, null, null);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node parent = path.get(i);
+            copy = wentLeft.get(i)
+                    ? new Node(parent.stationId, parent.lat, parent.lon, copy, parent.right)
+                    : new Node(parent.stationId, parent.lat, parent.lon, parent.left, copy);
+        }
+        root = copy;
+        insertsSinceBuild++;
+        return insertsSinceBuild > Math.max(MIN_REBUILD_THRESHOLD, builtSize);
+    }
+    
+    /**
+     * Records that a node no longer matches a live station.
+     * @return true if stale nodes have grown large enough to warrant a rebuild
+     */
+    synchronized boolean markStale() {
+        staleNodes++;
+        return staleNodes > Math.max(MIN_REBUILD_THRESHOLD, (builtSize + insertsSinceBuild) / 2);
+    }
+    
+    /**
+     * Finds the stations inside a bounding box (inclusive).
+     * @param resolver lookup from station ID to the current station (may return null)
+     * @return matching stations in tree order
+     */
+    List<Station> findInArea(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude,
+                             Function<String, Station> resolver) {
+        List<Station> result = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        Node start = root;
+        if (start != null) {
+            pending.push(start);
+            depths.push(0);
+        }
+        
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int depth = depths.pop();
+            if (node.lat >= minLatitude && node.lat <= maxLatitude
+                    && node.lon >= minLongitude && node.lon <= maxLongitude) {
+                Station station = resolver.apply(node.stationId);
+                // Skip stale nodes left behind by deleted or moved stations
+                if (station != null && station.getLatitude() == node.lat && station.getLongitude() == node.lon
+                        && seen.add(node.stationId)) {
+                    result.add(station);
+                }
+            }
+            double split = node.coordinate(depth);
+            double min = depth % 2 == 0 ? minLatitude : minLongitude;
+            double max = depth % 2 == 0 ? maxLatitude : maxLongitude;
+            if (node.left != null && min <= split) {
+                pending.push(node.left);
+                depths.push(depth + 1);
+            }
+            if (node.right != null && max >= split) {
+                pending.push(node.right);
+                depths.push(depth + 1);
+            }
+        }
+        return result;
+    }
+    
+    private static Node build(Node[] nodes, int from, int to, int depth) {
+        if (from >= to) {
+            return null;
+        }
+        Comparator<Node> axis = depth % 2 == 0
+                ? Comparator.comparingDouble(n -> n.lat)
+                : Comparator.comparingDouble(n -> n.lon);
+        Arrays.sort(nodes, from, to, axis);
+        int mid = (from + to) >>> 1;
+        Node median = nodes[mid];
+        return new Node(median.stationId, median.lat, median.lon,
+                build(nodes, from, mid, depth + 1),
+                build(nodes, mid + 1, to, depth + 1));
+    }
+    
+    private static double coordinate(double lat, double lon, int depth) {
+        return depth % 2 == 0 ? lat : lon;
+    }
+    
+    private static final class Node {
+        final String stationId;
+        final double lat;
+        final double lon;
+        final Node left;
+        final Node right;
+        
+        Node(String stationId, double lat, double lon, Node left, Node right) {
+            this.stationId = stationId;
+            this.lat = lat;
+            this.lon = lon;
+            this.left = left;
+            this.right = right;
+        }
+        
+        double coordinate(int depth) {
+            return StationKdTree.coordinate(lat, lon, depth);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.bikeshare.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.bikeshare.service.payment.SwishPaymentService;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+/**
+ * Holds long-poll requests for the status of Swish payments and answers them once paid.
+ * <p>
+ * Held requests occupy no thread. Every tick, each payment with waiting clients is checked
+ * once, however many clients wait for it, and each check runs on its own virtual thread so a
+ * slow Swish call delays neither the other payments nor the next tick. A request that is
+ * still unpaid when its wait runs out is answered with {@code paid: false}, and the client
+ * polls again.
+ */
+final class SwishStatusWatcher implements AutoCloseable {
+    
+    private final SwishPaymentService swish;
+    private final ObjectWriter writer;
+    private final Map<String, Watch> watches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService checks;
+    
+    /**
+     * Clients waiting for one payment. Guarded by the map: only changed inside compute calls.
+     */
+    private static final class Watch {
+        final List<AsyncContext> held = new ArrayList<>();
+        boolean checking;
+    }
+    
+    /**
+     * @param swish the service asked for payment status
+     * @param writer serializes the status responses
+     * @param checkIntervalMillis time between status checks of a waited-for payment
+     */
+    SwishStatusWatcher(SwishPaymentService swish, ObjectWriter writer, long checkIntervalMillis) {
+        this.swish = swish;
+        this.writer = writer;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "swish-status");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checks = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("swish-status-check-", 0).factory());
+        ticker.scheduleWithFixedDelay(this::checkWatched, checkIntervalMillis, checkIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Holds an asynchronous request until the payment is completed or the wait runs out.
+     * @param requestId the payment request ID
+     * @param async the started asynchronous request
+     * @param waitMillis how long to hold the request
+     */
+    void hold(String requestId, AsyncContext async, long waitMillis) {
+        async.setTimeout(waitMillis);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                // Whoever takes the request off the watch answers it, so a payment completing
+                // at the same moment does not answer twice
+                if (release(requestId, async)) {
+                    respond(async, requestId, false);
+                }
+            }
+            
+            @Override
+            public void onError(AsyncEvent event) {
+                release(requestId, async);
+            }
+            
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+            
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        watches.compute(requestId, (id, watch) -> {
+            Watch target = watch != null ? watch : new Watch();
+            target.held.add(async);
+            return target;
+        });
+    }
+    
+    /**
+     * Stops checking payments. Requests still held are left to the server to close.
+     */
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        checks.shutdownNow();
+    }
+    
+    private boolean release(String requestId, AsyncContext async) {
+        boolean[] removed = new boolean[1];
+        watches.computeIfPresent(requestId, (id, watch) -> {
+            removed[0] = watch.held.remove(async);
+            return watch.held.isEmpty() && !watch.checking ? null : watch;
+        });
+        return removed[0];
+    }
+    
+    private void checkWatched() {
+        for (String requestId : watches.keySet()) {
+            boolean[] start = new boolean[1];
+            watches.computeIfPresent(requestId, (id, watch) -> {
+                // A payment whose previous check is still running is skipped this tick
+                start[0] = !watch.checking;
+                watch.checking = true;
+                return watch;
+            });
+            if (start[0]) {
+                try {
+                    checks.execute(() -> check(requestId));
+                } catch (RejectedExecutionException e) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private void check(String requestId) {
+        boolean paid = false;
+        try {
+            paid = swish.isPaymentCompleted(requestId);
+        } catch (RuntimeException e) {
+            // Treated as unpaid; the payment is checked again on the next tick
+            System.err.println("Swish status check of " + requestId + " failed: " + e.getMessage());
+        }
+        List<AsyncContext> answered = new ArrayList<>();
+        boolean completed = paid;
+        watches.computeIfPresent(requestId, (id, watch) -> {
+            watch.checking = false;
+            if (completed) {
+                answered.addAll(watch.held);
+                watch.held.clear();
+            }
+            return watch.held.isEmpty() ? null : watch;
+        });
+        for (AsyncContext async : answered) {
+            respond(async, requestId, true);
+        }
+    }
+    
+    private void respond(AsyncContext async, String requestId, boolean paid) {
+        try {
+            writer.writeValue(async.getResponse().getOutputStream(), Map.of("requestId", requestId, "paid", paid));
+        } catch (IOException | IllegalStateException e) {
+            // The client is gone or the request already ended; there is nobody left to answer
+        } finally {
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.bikeshare.web;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Serialized JSON view of live data that is only rebuilt when the data changes.
+ * <p>
+ * The cached bytes are tagged with the version of their source as read before the view was
+ * built. Requests at that version share them; the first request after a change rebuilds while
+ * concurrent ones wait for its result, so a burst of polls costs one serialization. A change
+ * made during a rebuild leaves the tag behind the source, so a completed change is never
+ * served stale. Sources that do not track changes (version -1) are serialized per request.
+ */
+final class VersionedSnapshotCache {
+    
+    private final LongSupplier version;
+    private final Supplier<?> view;
+    private final ObjectWriter writer;
+    // Not a monitor, so virtual threads waiting for a rebuild do not pin their carrier
+    private final ReentrantLock rebuilding = new ReentrantLock();
+    private volatile Snapshot current;
+    
+    /**
+     * @param version current version of the source, increasing with every change
+     * @param view builds the object to serialize from the source
+     * @param writer serializes the view
+     */
+    VersionedSnapshotCache(LongSupplier version, Supplier<?> view, ObjectWriter writer) {
+        this.version = version;
+        this.view = view;
+        this.writer = writer;
+    }
+    
+    /**
+     * Combines the versions of several sources into one that moves whenever any of them does.
+     * @param sources the source versions
+     * @return their sum, or -1 while any source does not track changes
+     */
+    static LongSupplier combined(LongSupplier... sources) {
+        return () -> {
+            long sum = 0;
+            for (LongSupplier source : sources) {
+                long version = source.getAsLong();
+                if (version < 0) {
+                    return -1;
+                }
+                sum += version;
+            }
+            return sum;
+        };
+    }
+    
+    /**
+     * Gets the serialized view at the current version of the source.
+     * @return JSON bytes, shared between callers and not to be modified
+     * @throws IOException if the view cannot be serialized
+     */
+    byte[] get() throws IOException {
+        long requested = version.getAsLong();
+        if (requested < 0) {
+            return writer.writeValueAsBytes(view.get());
+        }
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version() >= requested) {
+            return snapshot.json();
+        }
+        rebuilding.lock();
+        try {
+            // Another caller may have rebuilt while this one waited
+            snapshot = current;
+            if (snapshot != null && snapshot.version() >= requested) {
+                return snapshot.json();
+            }
+            long building = version.getAsLong();
+            snapshot = new Snapshot(building, writer.writeValueAsBytes(view.get()));
+            current = snapshot;
+            return snapshot.json();
+        } finally {
+            rebuilding.unlock();
+        }
+    }
+    
+    private record Snapshot(long version, byte[] json) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.bikeshare.web;
+
+import com.bikeshare.model.User;
+import com.bikeshare.repository.BikeRepository;
+import com.bikeshare.repository.RideRepository;
+import com.bikeshare.repository.StationRepository;
+import com.bikeshare.repository.UserRepository;
+import com.bikeshare.service.BikeService;
+import com.bikeshare.service.NotificationService;
+import com.bikeshare.service.PaymentService;
+import com.bikeshare.service.RideService;
+import com.bikeshare.service.StationService;
+import com.bikeshare.service.UserService;
+import com.bikeshare.service.payment.SwishPaymentService;
+import com.bikeshare.service.validation.AgeCheck;
+import com.bikeshare.service.validation.AgeCheckFactory;
+
+/**
+ * The services behind the web API.
+ *
+ * @param bikes bike service
+ * @param stations station service
+ * @param rides ride service
+ * @param users user service
+ * @param ageCheck age check behind the validation endpoint, which may block on BankID
+ * @param swish Swish integration behind the payment endpoints
+ */
+public record WebServices(BikeService bikes, StationService stations, RideService rides, UserService users,
+                          AgeCheck ageCheck, SwishPaymentService swish) {
+    
+    public WebServices {
+        if (bikes == null || stations == null || rides == null || users == null
+                || ageCheck == null || swish == null) {
+            throw new IllegalArgumentException("Services cannot be null");
+        }
+    }
+    
+    /**
+     * Wires the services to the given repositories. Notifications are written to standard
+     * output, payments are declined and Swish is simulated, as the demo has no providers for
+     * them. The age check comes from {@link AgeCheckFactory}.
+     * @return services backed by the repositories
+     */
+    public static WebServices of(BikeRepository bikeRepository, StationRepository stationRepository,
+                                 RideRepository rideRepository, UserRepository userRepository) {
+        BikeService bikes = new BikeService(bikeRepository);
+        StationService stations = new StationService(stationRepository, bikeRepository);
+        UserService users = new UserService(userRepository, new ConsoleNotifications(), new NoPayments());
+        RideService rides = new RideService(rideRepository, bikes, stations, users);
+        return new WebServices(bikes, stations, rides, users, AgeCheckFactory.create(), new DemoSwish());
+    }
+    
+    /**
+     * Creates services over fresh in-memory repositories loaded with the {@link DataLoader} demo data.
+     * @return demo services
+     */
+    public static WebServices inMemoryDemo() {
+        BikeRepository bikes = new InMemoryBikeRepository();
+        StationRepository stations = new InMemoryStationRepository();
+        UserRepository users = new InMemoryUserRepository();
+        new DataLoader(bikes, stations, users).loadDemoData();
+        return of(bikes, stations, new InMemoryRideRepository(), users);
+    }
+    
+    private static class ConsoleNotifications implements NotificationService {
+        @Override
+        public void sendWelcomeEmail(User user) {
+            send(user, "Welcome to BikeShare");
+        }
+        
+        @Override
+        public void sendActivationConfirmation(User user) {
+            send(user, "Account activated");
+        }
+        
+        @Override
+        public void sendSuspensionNotification(User user, String reason) {
+            send(user, "Account suspended: " + reason);
+        }
+        
+        @Override
+        public void sendReactivationNotification(User user) {
+            send(user, "Account reactivated");
+        }
+        
+        @Override
+        public void sendFundsAddedNotification(User user, double amount) {
+            send(user, String.format("%.2f SEK added", amount));
+        }
+        
+        @Override
+        public void sendMembershipChangeNotification(User user, User.MembershipType oldMembership,
+                                                     User.MembershipType newMembership) {
+            send(user, "Membership changed from " + oldMembership + " to " + newMembership);
+        }
+        
+        @Override
+        public void sendRideCompletionNotification(User user, String rideId, double cost) {
+            send(user, String.format("Ride %s completed, %.2f SEK", rideId, cost));
+        }
+        
+        @Override
+        public void sendLowBalanceWarning(User user, double currentBalance) {
+            send(user, String.format("Low balance: %.2f SEK", currentBalance));
+        }
+        
+        private void send(User user, String message) {
+            System.out.println(String.format("Notification to %s: %s", user.getEmail(), message));
+        }
+    }
+    
+    private static class NoPayments implements PaymentService {
+        @Override
+        public String processPayment(String paymentMethodId, double amount, String userId) throws PaymentException {
+            throw new PaymentException("No payment provider configured");
+        }
+        
+        @Override
+        public String processRefund(String originalPaymentId, double amount) throws PaymentException {
+            throw new PaymentException("No payment provider configured");
+        }
+        
+        @Override
+        public boolean validatePaymentMethod(String paymentMethodId, String userId) {
+            return false;
+        }
+    }
+    
+    /**
+     * Simulated Swish: whether a request counts as paid is decided by its ID.
+     */
+    private static class DemoSwish implements SwishPaymentService {
+        @Override
+        public String requestPayment(String phoneNumber, double amount, String message) {
+            return "swish-" + System.currentTimeMillis();
+        }
+        
+        @Override
+        public boolean isPaymentCompleted(String paymentRequestId) {
+            return paymentRequestId != null && paymentRequestId.hashCode() % 2 == 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+-- Schema for the H2-backed JDBC repositories (com.bikeshare.repository.jdbc).
+-- Every statement is idempotent so the schema can be applied on each startup.
+-- Enums are stored by name; timestamps are local date-times without zone.
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id             VARCHAR(13)      PRIMARY KEY,
+    email               VARCHAR(254)     NOT NULL,
+    phone_number        VARCHAR(20),
+    first_name          VARCHAR(100)     NOT NULL,
+    last_name           VARCHAR(100)     NOT NULL,
+    status              VARCHAR(32)      NOT NULL,
+    membership_type     VARCHAR(32)      NOT NULL,
+    registration_date   TIMESTAMP        NOT NULL,
+    last_active_date    TIMESTAMP,
+    account_balance     DOUBLE PRECISION NOT NULL,
+    total_rides         INT              NOT NULL,
+    total_spent         DOUBLE PRECISION NOT NULL,
+    email_verified      BOOLEAN          NOT NULL,
+    phone_verified      BOOLEAN          NOT NULL,
+    suspension_count    INT              NOT NULL,
+    current_ride_id     VARCHAR(64)
+);
+
+-- Emails are stored normalized (trimmed, lower case), so uniqueness is case-insensitive
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_email ON users (email);
+CREATE INDEX IF NOT EXISTS ix_users_status ON users (status);
+CREATE INDEX IF NOT EXISTS ix_users_membership_type ON users (membership_type);
+CREATE INDEX IF NOT EXISTS ix_users_registration_date ON users (registration_date);
+
+CREATE TABLE IF NOT EXISTS bikes (
+    bike_id                 VARCHAR(64)      PRIMARY KEY,
+    type                    VARCHAR(32)      NOT NULL,
+    status                  VARCHAR(32)      NOT NULL,
+    current_station_id      VARCHAR(64),
+    battery_level           DOUBLE PRECISION NOT NULL,
+    total_rides             INT              NOT NULL,
+    total_distance          DOUBLE PRECISION NOT NULL,
+    last_maintenance_date   TIMESTAMP,
+    last_used_date          TIMESTAMP,
+    needs_maintenance       BOOLEAN          NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_bikes_type ON bikes (type);
+CREATE INDEX IF NOT EXISTS ix_bikes_current_station ON bikes (current_station_id);
+CREATE INDEX IF NOT EXISTS ix_bikes_availability ON bikes (status, needs_maintenance);
+
+CREATE TABLE IF NOT EXISTS stations (
+    station_id          VARCHAR(64)      PRIMARY KEY,
+    name                VARCHAR(200)     NOT NULL,
+    address             VARCHAR(500)     NOT NULL,
+    latitude            DOUBLE PRECISION NOT NULL,
+    longitude           DOUBLE PRECISION NOT NULL,
+    capacity            INT              NOT NULL,
+    status              VARCHAR(32)      NOT NULL,
+    charging_available  BOOLEAN          NOT NULL,
+    charging_rate       DOUBLE PRECISION NOT NULL
+);
+
+-- Bounding-box prefilter for area and nearest-station queries
+CREATE INDEX IF NOT EXISTS ix_stations_location ON stations (latitude, longitude);
+
+-- Bikes docked at a station; a bike is docked at most once
+CREATE TABLE IF NOT EXISTS station_bikes (
+    bike_id     VARCHAR(64) PRIMARY KEY,
+    station_id  VARCHAR(64) NOT NULL,
+    reserved    BOOLEAN     NOT NULL,
+    CONSTRAINT fk_station_bikes_station FOREIGN KEY (station_id)
+        REFERENCES stations (station_id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS ix_station_bikes_station ON station_bikes (station_id);
+
+CREATE TABLE IF NOT EXISTS rides (
+    ride_id                 VARCHAR(64)      PRIMARY KEY,
+    user_id                 VARCHAR(13)      NOT NULL,
+    bike_id                 VARCHAR(64)      NOT NULL,
+    start_station_id        VARCHAR(64)      NOT NULL,
+    end_station_id          VARCHAR(64),
+    status                  VARCHAR(32)      NOT NULL,
+    start_time              TIMESTAMP        NOT NULL,
+    end_time                TIMESTAMP,
+    pause_start_time        TIMESTAMP,
+    total_paused_minutes    BIGINT           NOT NULL,
+    -- Billable minutes, fixed once the ride has ended (NULL while active)
+    active_minutes          BIGINT,
+    distance                DOUBLE PRECISION NOT NULL,
+    base_cost               DOUBLE PRECISION NOT NULL,
+    additional_cost         DOUBLE PRECISION NOT NULL,
+    discount                DOUBLE PRECISION NOT NULL,
+    final_cost              DOUBLE PRECISION NOT NULL,
+    membership_type         VARCHAR(32),
+    free_minutes_used       BOOLEAN          NOT NULL,
+    notes                   VARCHAR(1000)
+);
+
+CREATE INDEX IF NOT EXISTS ix_rides_user ON rides (user_id, end_time);
+CREATE INDEX IF NOT EXISTS ix_rides_bike ON rides (bike_id, end_time);
+CREATE INDEX IF NOT EXISTS ix_rides_start_station ON rides (start_station_id);
+CREATE INDEX IF NOT EXISTS ix_rides_end_station ON rides (end_station_id);
+CREATE INDEX IF NOT EXISTS ix_rides_start_time ON rides (start_time, ride_id);
+CREATE INDEX IF NOT EXISTS ix_rides_end_time ON rides (end_time);
+CREATE INDEX IF NOT EXISTS ix_rides_final_cost ON rides (final_cost);
@@ -0,0 +1,318 @@
+package com.bikeshare.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a station's free-bike count and derived status follow changes made both through
+ * the station and directly on docked bikes.
+ */
+@DisplayName("Station availability tracking")
+class StationAvailabilityTest {
+    
+    private static Station newStation(int capacity) {
+        return new Station("ST-AV", "Availability", "Testgatan 1", 59.33, 18.06, capacity);
+    }
+    
+    @Test
+    @DisplayName("Renting the last docked bike through the bike empties the station")
+    void rentalThroughBikeUpdatesStatus() {
+        // Arrange
+        Station station = newStation(5);
+        Bike bike = new Bike("AV-1", Bike.BikeType.STANDARD);
+        station.addBike(bike);
+        
+        // Act
+        bike.startRide();
+        
+        // Assert
+        assertEquals(0, station.getAvailableBikeCount());
+        assertEquals(Station.StationStatus.EMPTY, station.getStatus());
+        
+        // Act - the ride ends at the same dock
+        bike.endRide(1.0);
+        
+        // Assert
+        assertEquals(1, station.getAvailableBikeCount());
+        assertEquals(Station.StationStatus.ACTIVE, station.getStatus());
+    }
+    
+    @Test
+    @DisplayName("Bike changes do not override maintenance or deactivation")
+    void bikeChangesKeepManualStatus() {
+        // Arrange
+        Station station = newStation(5);
+        Bike bike = new Bike("AV-2", Bike.BikeType.STANDARD);
+        station.addBike(bike);
+        station.setMaintenance();
+        
+        // Act
+        bike.startRide();
+        
+        // Assert
+        assertEquals(Station.StationStatus.MAINTENANCE, station.getStatus());
+        assertEquals(0, station.getAvailableBikeCount());
+    }
+    
+    @Test
+    @DisplayName("A reserved bike is not counted as free after it changes itself")
+    void reservedBikeStaysOutOfFreeCount() {
+        // Arrange
+        Station station = newStation(5);
+        Bike bike = new Bike("AV-3", Bike.BikeType.STANDARD);
+        station.addBike(bike);
+        station.reserveBike("AV-3");
+        
+        // Act - the reserved bike is ridden and returned without the reservation being cancelled
+        bike.startRide();
+        bike.endRide(0.5);
+        
+        // Assert
+        assertEquals(0, station.getAvailableBikeCount());
+        assertTrue(station.getAvailableBikesByType(Bike.BikeType.STANDARD).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Listeners notified during a reservation can read the availability")
+    void reservationListenersCanReadAvailability() {
+        // Arrange
+        Station station = newStation(5);
+        station.addBike(new Bike("AV-4", Bike.BikeType.STANDARD));
+        station.addBike(new Bike("AV-5", Bike.BikeType.STANDARD));
+        List<Integer> seen = new CopyOnWriteArrayList<>();
+        station.addListener(changed -> seen.add(changed.getAvailability().availableBikes()));
+        
+        // Act - a listener reading under the station's write lock would never return
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> station.reserveBike("AV-4"));
+        
+        // Assert
+        assertFalse(seen.isEmpty());
+        assertEquals(1, seen.get(seen.size() - 1));
+        assertEquals(Bike.BikeStatus.RESERVED, station.getAllBikes().stream()
+                .filter(bike -> bike.getBikeId().equals("AV-4")).findFirst().orElseThrow().getStatus());
+    }
+    
+    @Test
+    @DisplayName("A reservation the bike refuses leaves the station unchanged")
+    void refusedReservationIsRolledBack() {
+        // Arrange - a docked bike goes to maintenance by itself
+        Station station = newStation(5);
+        Bike bike = new Bike("AV-6", Bike.BikeType.STANDARD);
+        station.addBike(bike);
+        bike.sendToMaintenance();
+        
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> station.reserveBike("AV-6"));
+        assertTrue(station.getReservedBikeIds().isEmpty());
+        
+        // Act - once serviced, the bike is free and can be reserved
+        bike.completeMaintenance();
+        
+        // Assert
+        assertEquals(1, station.getAvailableBikeCount());
+        station.reserveBike("AV-6");
+        assertEquals(0, station.getAvailableBikeCount());
+        assertEquals(Bike.BikeStatus.RESERVED, bike.getStatus());
+    }
+    
+    @Test
+    @DisplayName("Looking for a bike skips one that is listed as free but was just rented")
+    void availableBikeSkipsStaleFreeEntries() {
+        // Arrange - the test listener runs before the station's own, so the free set is stale in it
+        Station station = newStation(5);
+        Bike[] found = new Bike[1];
+        Bike[] renting = new Bike[1];
+        List<Bike> bikes = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Bike bike = new Bike("AV-S" + i, Bike.BikeType.STANDARD);
+            bike.addListener(changed -> {
+                if (changed == renting[0]) {
+                    found[0] = station.getAvailableBike(Bike.BikeType.STANDARD);
+                }
+            });
+            station.addBike(bike);
+            bikes.add(bike);
+        }
+        // The bike the free set lists first is the one a lookup would pick
+        renting[0] = station.getAvailableBikesByType(Bike.BikeType.STANDARD).get(0);
+        
+        // Act
+        renting[0].startRide();
+        
+        // Assert
+        bikes.remove(renting[0]);
+        assertSame(bikes.get(0), found[0]);
+    }
+    
+    @Test
+    @DisplayName("Counts and status stay exact while bikes change themselves during docking and undocking")
+    void countsStayExactUnderConcurrentChanges() throws Exception {
+        // Arrange - riders own some bikes, the dock worker moves the others in and out
+        int riders = 4;
+        int rounds = 2_000;
+        Station station = newStation(riders + 4);
+        List<Bike> ridden = new ArrayList<>();
+        for (int i = 0; i < riders; i++) {
+            Bike bike = new Bike("AV-R" + i, Bike.BikeType.STANDARD);
+            station.addBike(bike);
+            ridden.add(bike);
+        }
+        List<Bike> moved = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            moved.add(new Bike("AV-M" + i, Bike.BikeType.STANDARD));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(riders + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        
+        // Act
+        try {
+            for (Bike bike : ridden) {
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < rounds; round++) {
+                        bike.startRide();
+                        bike.endRide(0.1);
+                        if (bike.needsMaintenance()) {
+                            // Every 100th ride takes the bike out of service until serviced
+                            bike.sendToMaintenance();
+                            bike.completeMaintenance();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < rounds; round++) {
+                    for (Bike bike : moved) {
+                        station.addBike(bike);
+                    }
+                    for (Bike bike : moved) {
+                        station.removeBike(bike.getBikeId());
+                    }
+                }
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // Assert
+        long free = station.getAllBikes().stream().filter(Bike::isAvailable).count();
+        assertEquals(riders, free, "Every ridden bike ended available at the dock");
+        assertEquals(free, station.getAvailableBikeCount());
+        assertEquals(free, station.getAvailableBikesByType(Bike.BikeType.STANDARD).size());
+        assertEquals(Station.StationStatus.ACTIVE, station.getStatus());
+    }
+    
+    @Test
+    @DisplayName("Free bikes per type match a scan of the docked bikes after random changes")
+    void freeBikesPerTypeMatchScan() {
+        // Arrange
+        Station station = newStation(8);
+        List<Bike> fleet = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            fleet.add(new Bike("AV-T" + i, Bike.BikeType.values()[i % Bike.BikeType.values().length]));
+        }
+        Random random = new Random(8L);
+        
+        for (int step = 0; step < 3_000; step++) {
+            // Act - one change through the station or directly on a bike
+            Bike bike = fleet.get(random.nextInt(fleet.size()));
+            String bikeId = bike.getBikeId();
+            boolean docked = station.getAllBikes().contains(bike);
+            boolean reserved = station.getReservedBikeIds().contains(bikeId);
+            Bike.BikeStatus status = bike.getStatus();
+            switch (random.nextInt(8)) {
+                case 0 -> {
+                    if (!docked && !station.isFull() && status == Bike.BikeStatus.AVAILABLE) {
+                        station.addBike(bike);
+                    }
+                }
+                case 1 -> {
+                    if (docked && !reserved) {
+                        station.removeBike(bikeId);
+                    }
+                }
+                case 2 -> {
+                    if (docked && !reserved && status == Bike.BikeStatus.AVAILABLE) {
+                        station.reserveBike(bikeId);
+                    } else if (reserved) {
+                        station.cancelReservation(bikeId);
+                    }
+                }
+                case 3 -> {
+                    if ((status == Bike.BikeStatus.AVAILABLE || status == Bike.BikeStatus.RESERVED)
+                            && bike.getBatteryLevel() >= 10.0) {
+                        bike.startRide();
+                    }
+                }
+                case 4 -> {
+                    if (status == Bike.BikeStatus.IN_USE) {
+                        bike.endRide(random.nextInt(30));
+                    }
+                }
+                case 5 -> {
+                    if (status == Bike.BikeStatus.MAINTENANCE) {
+                        bike.completeMaintenance();
+                    } else if (status != Bike.BikeStatus.IN_USE) {
+                        bike.sendToMaintenance();
+                    }
+                }
+                case 6 -> {
+                    if (status != Bike.BikeStatus.IN_USE) {
+                        bike.markAsBroken();
+                    }
+                }
+                default -> {
+                    if (bike.getType() == Bike.BikeType.ELECTRIC) {
+                        bike.chargeBattery(random.nextInt(60));
+                    }
+                }
+            }
+            
+            // Assert - the original scan: docked, available and not reserved
+            int total = 0;
+            for (Bike.BikeType type : Bike.BikeType.values()) {
+                Set<String> expected = station.getAllBikes().stream()
+                        .filter(candidate -> candidate.getType() == type)
+                        .filter(Bike::isAvailable)
+                        .filter(candidate -> !station.getReservedBikeIds().contains(candidate.getBikeId()))
+                        .map(Bike::getBikeId)
+                        .collect(Collectors.toSet());
+                Set<String> actual = station.getAvailableBikesByType(type).stream()
+                        .map(Bike::getBikeId)
+                        .collect(Collectors.toSet());
+                assertEquals(expected, actual, "Step " + step + ", " + type);
+                assertEquals(expected.size(), station.getAvailableBikeCount(type));
+                total += expected.size();
+            }
+            assertEquals(total, station.getAvailableBikeCount());
+        }
+    }
+}
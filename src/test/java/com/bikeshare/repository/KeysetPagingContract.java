@@ -0,0 +1,179 @@
+package com.bikeshare.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+
+/**
+ * Keyset paging tests shared by every repository backend. Subclasses assign the repositories
+ * in their own {@code @BeforeEach}.
+ */
+public abstract class KeysetPagingContract {
+    
+    private static final int PAGE_SIZE = 7;
+    
+    protected BikeRepository bikes;
+    protected UserRepository users;
+    protected RideRepository rides;
+    
+    @Test
+    @DisplayName("Bike pages cover every bike once, in ID order")
+    void bikePagesCoverEveryBike() {
+        // Arrange
+        List<String> expected = saveBikes(25);
+        
+        // Act
+        List<String> paged = walk(bikes::findAll, Bike::getBikeId);
+        
+        // Assert
+        assertEquals(expected, paged);
+        assertEquals(expected, bikes.streamAll().map(Bike::getBikeId).collect(Collectors.toList()));
+    }
+    
+    @Test
+    @DisplayName("User pages cover every user once, in ID order")
+    void userPagesCoverEveryUser() {
+        List<String> expected = saveUsers(15);
+        
+        assertEquals(expected, walk(users::findAll, User::getUserId));
+        assertEquals(expected, users.streamAll().map(User::getUserId).collect(Collectors.toList()));
+    }
+    
+    @Test
+    @DisplayName("Ride pages cover every ride once, in start order")
+    void ridePagesCoverEveryRide() {
+        // Arrange
+        List<String> expected = saveRides(20);
+        LocalDateTime from = LocalDateTime.now().minusHours(1);
+        LocalDateTime to = LocalDateTime.now().plusHours(1);
+        
+        // Act & Assert
+        assertEquals(expected, walk(rides::findAll, Ride::getRideId));
+        assertEquals(expected, walk((after, limit) -> rides.findRidesBetween(from, to, after, limit), Ride::getRideId));
+        assertEquals(expected, rides.streamRidesBetween(from, to).map(Ride::getRideId).collect(Collectors.toList()));
+    }
+    
+    @Test
+    @DisplayName("The largest allowed limit returns everything on one page")
+    void largestLimitReturnsEverything() {
+        // Arrange
+        List<String> bikeIds = saveBikes(3);
+        List<String> userIds = saveUsers(3);
+        List<String> rideIds = saveRides(3);
+        
+        // Act
+        Page<Bike> bikePage = bikes.findAll(null, Page.MAX_LIMIT);
+        Page<User> userPage = users.findAll(null, Page.MAX_LIMIT);
+        Page<Ride> ridePage = rides.findAll(null, Page.MAX_LIMIT);
+        Page<Ride> betweenPage = rides.findRidesBetween(LocalDateTime.now().minusHours(1),
+                LocalDateTime.now().plusHours(1), null, Page.MAX_LIMIT);
+        
+        // Assert
+        assertEquals(bikeIds, bikePage.items().stream().map(Bike::getBikeId).collect(Collectors.toList()));
+        assertEquals(userIds, userPage.items().stream().map(User::getUserId).collect(Collectors.toList()));
+        assertEquals(rideIds, ridePage.items().stream().map(Ride::getRideId).collect(Collectors.toList()));
+        assertEquals(rideIds, betweenPage.items().stream().map(Ride::getRideId).collect(Collectors.toList()));
+        assertFalse(bikePage.hasNext() || userPage.hasNext() || ridePage.hasNext() || betweenPage.hasNext());
+    }
+    
+    @Test
+    @DisplayName("A limit of Integer.MAX_VALUE is rejected instead of overflowing")
+    void rejectsLimitThatWouldOverflow() {
+        saveRides(1);
+        
+        assertThrows(IllegalArgumentException.class, () -> bikes.findAll(null, Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> users.findAll(null, Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> rides.findAll(null, Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> rides.findRidesBetween(
+                LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1), null, Integer.MAX_VALUE));
+    }
+    
+    @Test
+    @DisplayName("Malformed after-tokens are rejected")
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> bikes.findAll("not a token!", 5));
+        assertThrows(IllegalArgumentException.class, () -> users.findAll("not a token!", 5));
+        // Decodes, but the ride key needs a start time and a ride ID
+        assertThrows(IllegalArgumentException.class, () -> rides.findAll(Page.token("R1"), 5));
+        assertThrows(IllegalArgumentException.class, () -> rides.findAll(Page.token("yesterday", "R1"), 5));
+    }
+    
+    /**
+     * Follows next-tokens from the first page to the last, checking each page's size.
+     */
+    private static <T> List<String> walk(BiFunction<String, Integer, Page<T>> query, Function<T, String> idOf) {
+        List<String> ids = new ArrayList<>();
+        Page<T> page = query.apply(null, PAGE_SIZE);
+        while (true) {
+            assertTrue(page.items().size() <= PAGE_SIZE, "Page should not exceed the limit");
+            page.items().forEach(item -> ids.add(idOf.apply(item)));
+            if (!page.hasNext()) {
+                return ids;
+            }
+            assertEquals(PAGE_SIZE, page.items().size(), "Only the last page may be short");
+            page = query.apply(page.nextToken(), PAGE_SIZE);
+        }
+    }
+    
+    private List<String> saveBikes(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            Bike bike = new Bike(String.format("PAGE-B%03d", i), Bike.BikeType.STANDARD);
+            bikes.save(bike);
+            ids.add(bike.getBikeId());
+        }
+        ids.sort(Comparator.naturalOrder());
+        return ids;
+    }
+    
+    private List<String> saveUsers(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            User user = new User(personnummer(i), "page" + i + "@example.com", "Page", "User" + i);
+            users.save(user);
+            ids.add(user.getUserId());
+        }
+        ids.sort(Comparator.naturalOrder());
+        return ids;
+    }
+    
+    private List<String> saveRides(int count) {
+        for (int i = 0; i < count; i++) {
+            rides.save(new Ride(String.format("PAGE-R%03d", count - i), personnummer(i), "PAGE-B000", "S-001"));
+        }
+        // Read back, as a store may keep start times at a coarser precision
+        return rides.findAll().stream()
+                .sorted(Comparator.comparing(Ride::getStartTime).thenComparing(Ride::getRideId))
+                .map(Ride::getRideId)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Builds a valid personnummer (YYMMDD-NNNC, Luhn check digit) from a serial number.
+     */
+    protected static String personnummer(int serial) {
+        String digits = String.format("900101%03d", serial);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int product = (digits.charAt(i) - '0') * (i % 2 == 0 ? 2 : 1);
+            sum += product > 9 ? product - 9 : product;
+        }
+        return digits.substring(0, 6) + "-" + digits.substring(6) + (10 - sum % 10) % 10;
+    }
+}
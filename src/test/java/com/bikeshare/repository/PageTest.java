@@ -0,0 +1,106 @@
+package com.bikeshare.repository;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for keyset page tokens, page size checks and page-fed streams.
+ */
+@DisplayName("Keyset pages")
+class PageTest {
+    
+    @Test
+    @DisplayName("Tokens round-trip their key parts, including empty and non-ASCII parts")
+    void tokensRoundTrip() {
+        // Arrange
+        String[] keyParts = {"2024-05-01T08:15:30", "ride-Ö-1", ""};
+        
+        // Act
+        String token = Page.token(keyParts);
+        
+        // Assert
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), "Token should be URL-safe");
+        assertArrayEquals(keyParts, Page.tokenParts(token, 3));
+    }
+    
+    @Test
+    @DisplayName("Tokens that are not Base64 are rejected")
+    void rejectsTokensThatAreNotBase64() {
+        assertThrows(IllegalArgumentException.class, () -> Page.tokenParts("not a token!", 1));
+    }
+    
+    @Test
+    @DisplayName("Tokens with the wrong number of key parts are rejected")
+    void rejectsTokensWithWrongPartCount() {
+        String token = Page.token("a", "b");
+        
+        assertThrows(IllegalArgumentException.class, () -> Page.tokenParts(token, 1));
+        assertThrows(IllegalArgumentException.class, () -> Page.tokenParts(token, 3));
+    }
+    
+    @Test
+    @DisplayName("Limits must be positive and leave room for the extra item fetched")
+    void checksLimitBounds() {
+        assertThrows(IllegalArgumentException.class, () -> Page.checkLimit(0));
+        assertThrows(IllegalArgumentException.class, () -> Page.checkLimit(-1));
+        assertThrows(IllegalArgumentException.class, () -> Page.checkLimit(Integer.MAX_VALUE));
+        assertDoesNotThrow(() -> Page.checkLimit(1));
+        assertDoesNotThrow(() -> Page.checkLimit(Page.MAX_LIMIT));
+    }
+    
+    @Test
+    @DisplayName("A page built from limit + 1 items keeps limit items and a next token")
+    void buildsPageFromOneExtraItem() {
+        // Act
+        Page<String> page = Page.of(List.of("a", "b", "c"), 2, Page::token);
+        
+        // Assert
+        assertEquals(List.of("a", "b"), page.items());
+        assertTrue(page.hasNext());
+        assertArrayEquals(new String[] {"b"}, Page.tokenParts(page.nextToken(), 1));
+    }
+    
+    @Test
+    @DisplayName("A page built from at most limit items is the last page")
+    void buildsLastPage() {
+        Page<String> page = Page.of(List.of("a", "b"), 2, Page::token);
+        
+        assertEquals(List.of("a", "b"), page.items());
+        assertFalse(page.hasNext());
+        assertNull(page.nextToken());
+    }
+    
+    @Test
+    @DisplayName("Streams walk every page in order")
+    void streamsEveryPage() {
+        // Arrange - more items than one stream batch, keyed by their position
+        List<Integer> all = IntStream.range(0, Page.STREAM_BATCH_SIZE * 2 + 7).boxed().collect(Collectors.toList());
+        List<String> tokensSeen = new ArrayList<>();
+        
+        // Act
+        List<Integer> streamed = Page.<Integer>stream((after, limit) -> {
+            tokensSeen.add(after);
+            int from = after == null ? 0 : Integer.parseInt(Page.tokenParts(after, 1)[0]) + 1;
+            List<Integer> fetched = all.subList(from, Math.min(all.size(), from + limit + 1));
+            return Page.of(fetched, limit, item -> Page.token(String.valueOf(item)));
+        }).collect(Collectors.toList());
+        
+        // Assert
+        assertEquals(all, streamed);
+        assertEquals(3, tokensSeen.size(), "Each page should be fetched once");
+        assertNull(tokensSeen.get(0), "The first page has no after-token");
+    }
+}
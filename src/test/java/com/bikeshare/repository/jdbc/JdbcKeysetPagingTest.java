@@ -0,0 +1,29 @@
+package com.bikeshare.repository.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+
+import com.bikeshare.repository.KeysetPagingContract;
+
+/**
+ * Keyset paging over the JDBC repositories on a private in-memory H2 database.
+ */
+@DisplayName("Keyset paging: JDBC repositories")
+class JdbcKeysetPagingTest extends KeysetPagingContract {
+    
+    private Database database;
+    
+    @BeforeEach
+    void createRepositories() {
+        database = Database.inMemory("paging-" + System.nanoTime());
+        bikes = new JdbcBikeRepository(database);
+        users = new JdbcUserRepository(database);
+        rides = new JdbcRideRepository(database);
+    }
+    
+    @AfterEach
+    void closeDatabase() {
+        database.close();
+    }
+}
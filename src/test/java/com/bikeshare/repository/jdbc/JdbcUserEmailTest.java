@@ -0,0 +1,110 @@
+package com.bikeshare.repository.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.User;
+
+/**
+ * Tests that the unique email index rejects duplicates the same way the in-memory
+ * repository does and leaves the stored users untouched.
+ */
+@DisplayName("JDBC user email uniqueness")
+class JdbcUserEmailTest {
+    
+    private Database database;
+    private JdbcUserRepository users;
+    
+    @BeforeEach
+    void createRepository() {
+        database = Database.inMemory("emails-" + System.nanoTime());
+        users = new JdbcUserRepository(database);
+        users.save(new User("900101-0017", "anna@example.com", "Anna", "Berg"));
+    }
+    
+    @AfterEach
+    void closeDatabase() {
+        database.close();
+    }
+    
+    @Test
+    @DisplayName("A new user with a taken email is rejected, whatever its case")
+    void rejectsDuplicateOnInsert() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> users.save(new User("900101-0025", "Anna@Example.com", "Other", "Anna")));
+        assertFalse(users.existsById("900101-0025"));
+        assertEquals("900101-0017", users.findByEmail("anna@example.com").orElseThrow().getUserId());
+        assertEquals(1, users.count());
+    }
+    
+    @Test
+    @DisplayName("Changing an email to a taken one is rejected and the stored row keeps its old email")
+    void rejectsDuplicateOnUpdate() {
+        // Arrange
+        users.save(new User("900101-0025", "bo@example.com", "Bo", "Ek"));
+        User bo = users.findById("900101-0025").orElseThrow();
+        bo.setEmail("anna@example.com");
+        
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> users.save(bo));
+        assertEquals("bo@example.com", users.findById("900101-0025").orElseThrow().getEmail());
+        assertEquals("900101-0017", users.findByEmail("anna@example.com").orElseThrow().getUserId());
+    }
+    
+    @Test
+    @DisplayName("A batch with one conflicting email saves none of its users")
+    void rejectsWholeBatch() {
+        // Arrange
+        List<User> batch = List.of(
+                new User("900101-0025", "bo@example.com", "Bo", "Ek"),
+                new User("900101-0033", "anna@example.com", "Cecilia", "Lund"));
+        
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> users.saveAll(batch));
+        assertFalse(users.existsById("900101-0025"));
+        assertFalse(users.existsById("900101-0033"));
+        assertFalse(users.findByEmail("bo@example.com").isPresent());
+    }
+    
+    @Test
+    @DisplayName("An email given up by one user can be taken by another")
+    void releasedEmailCanBeReused() {
+        // Arrange
+        User anna = users.findById("900101-0017").orElseThrow();
+        anna.setEmail("anna.berg@example.com");
+        users.save(anna);
+        
+        // Act
+        users.save(new User("900101-0025", "anna@example.com", "Anna", "Ek"));
+        
+        // Assert
+        assertEquals("900101-0025", users.findByEmail("anna@example.com").orElseThrow().getUserId());
+        assertEquals("900101-0017", users.findByEmail("anna.berg@example.com").orElseThrow().getUserId());
+        assertTrue(users.existsById("900101-0017"));
+    }
+    
+    @Test
+    @DisplayName("Saving a user again with an unchanged email is not a conflict")
+    void resavingIsNotAConflict() {
+        // Arrange
+        User anna = users.findById("900101-0017").orElseThrow();
+        anna.setFirstName("Annika");
+        
+        // Act
+        users.save(anna);
+        
+        // Assert
+        assertEquals("Annika", users.findByEmail("anna@example.com").orElseThrow().getFirstName());
+        assertEquals(1, users.count());
+    }
+}
@@ -0,0 +1,208 @@
+package com.bikeshare.repository.journal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.Station;
+import com.bikeshare.model.User;
+import com.bikeshare.web.InMemoryBikeRepository;
+import com.bikeshare.web.InMemoryRideRepository;
+import com.bikeshare.web.InMemoryStationRepository;
+
+/**
+ * Tests that a journaled store comes back with the same data after a restart, after a crash
+ * that tore or cut short the last journal record, and when the newest snapshot is unreadable.
+ */
+@DisplayName("Journaled store recovery")
+class JournaledStoreRecoveryTest {
+    
+    // No background checkpoints; the tests take them explicitly
+    private static final JournalPolicy POLICY = new JournalPolicy(64 * 1024, Long.MAX_VALUE, Duration.ofHours(1));
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    @DisplayName("Saves and deletes of every entity survive a restart")
+    void restoresAfterRestart() {
+        // Arrange
+        try (JournaledStore store = open()) {
+            Station station = new Station("J-S1", "Journal", "Loggatan 1", 59.33, 18.06, 10);
+            Bike docked = new Bike("J-B1", Bike.BikeType.ELECTRIC);
+            station.addBike(docked);
+            store.bikes().save(docked);
+            store.stations().save(station);
+            store.bikes().save(new Bike("J-B2", Bike.BikeType.STANDARD));
+            saveRides(store, "J-R1", "J-R2", "J-R3");
+            store.rides().deleteById("J-R2");
+            Ride ride = store.rides().findById("J-R3").orElseThrow();
+            ride.complete("J-S1", 2.5, Bike.BikeType.STANDARD, User.MembershipType.BASIC, 0.0);
+            store.rides().save(ride);
+        }
+        
+        // Act
+        try (JournaledStore store = open()) {
+            // Assert
+            assertEquals(Set.of("J-R1", "J-R3"), rideIds(store));
+            assertTrue(store.rides().findById("J-R3").orElseThrow().isCompleted());
+            assertEquals(2, store.bikes().count());
+            Station station = store.stations().findById("J-S1").orElseThrow();
+            assertEquals(1, station.getTotalBikeCount());
+            assertEquals(1, station.getAvailableBikeCount());
+        }
+    }
+    
+    @Test
+    @DisplayName("A torn last record is dropped and everything before it is kept")
+    void dropsTornLastRecord() throws IOException {
+        // Arrange - flip a byte inside the last record, as a crash mid-write can leave it
+        try (JournaledStore store = open()) {
+            saveRides(store, "T-R1", "T-R2", "T-R3", "T-R4");
+        }
+        Path segment = lastSegment();
+        long end = endOfRecords(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end - 10);
+            file.write(file.read() ^ 0x5A);
+        }
+        
+        // Act & Assert
+        try (JournaledStore store = open()) {
+            assertEquals(Set.of("T-R1", "T-R2", "T-R3"), rideIds(store));
+            saveRides(store, "T-R5");
+        }
+        // The torn segment is never appended to, so later segments replay after it
+        try (JournaledStore store = open()) {
+            assertEquals(Set.of("T-R1", "T-R2", "T-R3", "T-R5"), rideIds(store));
+        }
+    }
+    
+    @Test
+    @DisplayName("A last record cut short by a crash is dropped")
+    void dropsRecordCutShort() throws IOException {
+        // Arrange - segments are pre-allocated, so an unfinished record ends in zeros
+        try (JournaledStore store = open()) {
+            saveRides(store, "C-R1", "C-R2", "C-R3");
+        }
+        Path segment = lastSegment();
+        long end = endOfRecords(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end - 6);
+            file.write(new byte[6]);
+        }
+        
+        // Act & Assert
+        try (JournaledStore store = open()) {
+            assertEquals(Set.of("C-R1", "C-R2"), rideIds(store));
+        }
+    }
+    
+    @Test
+    @DisplayName("An unreadable newest snapshot falls back to the older one and its journal")
+    void recoversFromOlderSnapshot() throws IOException {
+        // Arrange - two snapshots, with changes after each of them
+        try (JournaledStore store = open()) {
+            saveRides(store, "S-R1");
+            store.checkpoint();
+            saveRides(store, "S-R2");
+            store.rides().deleteById("S-R1");
+            store.checkpoint();
+            saveRides(store, "S-R3");
+        }
+        List<Path> snapshots = SnapshotFile.list(directory);
+        assertEquals(2, snapshots.size());
+        corrupt(snapshots.get(0));
+        
+        // Act & Assert
+        try (JournaledStore store = open()) {
+            assertEquals(Set.of("S-R2", "S-R3"), rideIds(store));
+        }
+    }
+    
+    @Test
+    @DisplayName("Opening fails when no snapshot can be read")
+    void failsWithoutReadableSnapshot() throws IOException {
+        // Arrange
+        try (JournaledStore store = open()) {
+            saveRides(store, "F-R1");
+            store.checkpoint();
+        }
+        for (Path snapshot : SnapshotFile.list(directory)) {
+            corrupt(snapshot);
+        }
+        
+        // Act & Assert
+        assertThrows(IllegalStateException.class, this::open);
+    }
+    
+    private JournaledStore open() {
+        return JournaledStore.open(directory, new InMemoryRideRepository(), new InMemoryBikeRepository(),
+                new InMemoryStationRepository(), POLICY);
+    }
+    
+    private static void saveRides(JournaledStore store, String... rideIds) {
+        for (String rideId : rideIds) {
+            store.rides().save(new Ride(rideId, "900101-0017", "J-B1", "J-S1"));
+        }
+    }
+    
+    private static Set<String> rideIds(JournaledStore store) {
+        return store.rides().findAll().stream()
+                .map(Ride::getRideId)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+    
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("journal-"))
+                    .filter(path -> {
+                        try {
+                            return endOfRecords(path) > Journal.SEGMENT_HEADER_BYTES;
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .max(Path::compareTo)
+                    .orElseThrow();
+        }
+    }
+    
+    /**
+     * Finds the end of the written records in a pre-allocated segment.
+     */
+    private static long endOfRecords(Path segment) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] == 0) {
+            end--;
+        }
+        return end;
+    }
+    
+    private static void corrupt(Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() / 2);
+            raf.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+            raf.seek(0);
+            raf.writeInt(0);
+        }
+    }
+}
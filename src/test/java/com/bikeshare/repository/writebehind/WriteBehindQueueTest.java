@@ -0,0 +1,241 @@
+package com.bikeshare.repository.writebehind;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+import com.bikeshare.web.InMemoryRideRepository;
+
+/**
+ * Tests that buffered changes are coalesced per entity, survive a failed store, and reach the
+ * store in their latest state.
+ */
+@DisplayName("Write-behind queue")
+class WriteBehindQueueTest {
+    
+    // Long enough that the background flusher never runs during a test
+    private static final WriteBehindPolicy BUFFERED = WriteBehindPolicy.writeBehind(1_000, Duration.ofHours(1));
+    
+    private record Item(String id, int version) {
+    }
+    
+    /** Store double recording every batch and delete, optionally failing them. */
+    private static final class RecordingStore {
+        final List<List<Item>> batches = new CopyOnWriteArrayList<>();
+        final List<String> deletes = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+        
+        void saveBatch(List<Item> items) {
+            if (failing) {
+                throw new IllegalStateException("Store unavailable");
+            }
+            batches.add(List.copyOf(items));
+        }
+        
+        void delete(String id) {
+            if (failing) {
+                throw new IllegalStateException("Store unavailable");
+            }
+            deletes.add(id);
+        }
+        
+        Map<String, Integer> savedVersions() {
+            Map<String, Integer> versions = new TreeMap<>();
+            for (List<Item> batch : batches) {
+                for (Item item : batch) {
+                    assertNull(versions.put(item.id(), item.version()), "Saved once: " + item.id());
+                }
+            }
+            return versions;
+        }
+    }
+    
+    @Test
+    @DisplayName("Repeated saves of one entity are written once, in their latest state")
+    void coalescesSavesPerEntity() {
+        // Arrange
+        RecordingStore store = new RecordingStore();
+        WriteBehindQueue<Item> queue = queue(store, BUFFERED);
+        
+        // Act
+        for (int version = 1; version <= 5; version++) {
+            queue.save(new Item("A", version));
+            queue.save(new Item("B", version * 10));
+        }
+        queue.save(new Item("C", 1));
+        queue.delete("C");
+        queue.delete("D");
+        assertEquals(4, queue.pendingCount());
+        queue.flush();
+        
+        // Assert
+        assertEquals(1, store.batches.size(), "All saves go out as one batch");
+        assertEquals(Map.of("A", 5, "B", 50), store.savedVersions());
+        assertEquals(List.of("C", "D"), sorted(store.deletes));
+        assertEquals(0, queue.pendingCount());
+        assertNull(queue.lastFailure());
+    }
+    
+    @Test
+    @DisplayName("A failed flush keeps its changes buffered and the retry writes the newest ones")
+    void requeuesAfterFailedStore() {
+        // Arrange
+        RecordingStore store = new RecordingStore();
+        WriteBehindQueue<Item> queue = queue(store, BUFFERED);
+        queue.save(new Item("A", 1));
+        queue.save(new Item("B", 1));
+        queue.delete("C");
+        store.failing = true;
+        
+        // Act
+        assertThrows(IllegalStateException.class, queue::flush);
+        queue.save(new Item("A", 2));
+        queue.delete("B");
+        store.failing = false;
+        queue.flush();
+        
+        // Assert - changes made during the outage win over the re-queued ones
+        assertEquals(Map.of("A", 2), store.savedVersions());
+        assertEquals(List.of("B", "C"), sorted(store.deletes));
+        assertEquals(0, queue.pendingCount());
+        assertNull(queue.lastFailure(), "A successful flush clears the failure");
+    }
+    
+    @Test
+    @DisplayName("The last failure is reported until a flush succeeds")
+    void reportsLastFailure() {
+        // Arrange
+        RecordingStore store = new RecordingStore();
+        WriteBehindQueue<Item> queue = queue(store, BUFFERED);
+        queue.save(new Item("A", 1));
+        store.failing = true;
+        
+        // Act
+        RuntimeException failure = assertThrows(IllegalStateException.class, queue::flush);
+        
+        // Assert
+        assertSame(failure, queue.lastFailure());
+        assertEquals(1, queue.pendingCount());
+        assertTrue(store.batches.isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Reaching the batch size flushes in the background")
+    void flushesWhenBatchIsFull() throws InterruptedException {
+        // Arrange
+        RecordingStore store = new RecordingStore();
+        WriteBehindQueue<Item> queue = queue(store, WriteBehindPolicy.writeBehind(3, Duration.ofHours(1)));
+        
+        // Act
+        queue.save(new Item("A", 1));
+        queue.save(new Item("B", 1));
+        queue.save(new Item("C", 1));
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (store.batches.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        
+        // Assert
+        assertEquals(Map.of("A", 1, "B", 1, "C", 1), store.savedVersions());
+        queue.close();
+    }
+    
+    @Test
+    @DisplayName("Write-through writes each change before returning")
+    void writeThroughIsImmediate() {
+        // Arrange
+        RecordingStore store = new RecordingStore();
+        WriteBehindQueue<Item> queue = queue(store, WriteBehindPolicy.writeThrough());
+        
+        // Act
+        queue.save(new Item("A", 1));
+        queue.save(new Item("A", 2));
+        queue.delete("A");
+        
+        // Assert
+        assertEquals(List.of(List.of(new Item("A", 1)), List.of(new Item("A", 2))), store.batches);
+        assertEquals(List.of("A"), store.deletes);
+        assertEquals(0, queue.pendingCount());
+    }
+    
+    @Test
+    @DisplayName("Closing writes the remaining changes and rejects new ones")
+    void closeFlushes() {
+        // Arrange
+        RecordingStore store = new RecordingStore();
+        WriteBehindQueue<Item> queue = queue(store, BUFFERED);
+        queue.save(new Item("A", 1));
+        
+        // Act
+        queue.close();
+        
+        // Assert
+        assertEquals(Map.of("A", 1), store.savedVersions());
+        assertThrows(IllegalStateException.class, () -> queue.save(new Item("B", 1)));
+    }
+    
+    @Test
+    @DisplayName("A ride saved at start and end reaches the store once, and a failed store loses nothing")
+    void rideRepositoryRetriesFailedStore() {
+        // Arrange
+        FlakyRideStore store = new FlakyRideStore();
+        WriteBehindRideRepository rides = new WriteBehindRideRepository(new InMemoryRideRepository(), store, BUFFERED);
+        Ride ride = new Ride("WB-R1", "900101-0017", "WB-B1", "WB-S1");
+        rides.save(ride);
+        ride.complete("WB-S2", 1.5, Bike.BikeType.STANDARD, User.MembershipType.BASIC, 0.0);
+        rides.save(ride);
+        store.failing = true;
+        
+        // Act
+        assertThrows(IllegalStateException.class, rides::flush);
+        
+        // Assert - the cache still answers reads and the change is retried
+        assertTrue(rides.findById("WB-R1").orElseThrow().isCompleted());
+        assertEquals(1, rides.getPendingCount());
+        store.failing = false;
+        rides.close();
+        assertEquals(1, store.batchCount);
+        assertTrue(store.findById("WB-R1").orElseThrow().isCompleted());
+    }
+    
+    /** Ride store that counts batches and can be made to fail. */
+    private static final class FlakyRideStore extends InMemoryRideRepository {
+        volatile boolean failing;
+        int batchCount;
+        
+        @Override
+        public List<Ride> saveAll(Collection<Ride> batch) {
+            if (failing) {
+                throw new IllegalStateException("Store unavailable");
+            }
+            batchCount++;
+            return super.saveAll(batch);
+        }
+    }
+    
+    private static WriteBehindQueue<Item> queue(RecordingStore store, WriteBehindPolicy policy) {
+        return new WriteBehindQueue<>("test", policy, Item::id, store::saveBatch, store::delete);
+    }
+    
+    private static List<String> sorted(List<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        copy.sort(null);
+        return copy;
+    }
+}
@@ -0,0 +1,90 @@
+package com.bikeshare.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+import com.bikeshare.repository.RideRepository;
+import com.bikeshare.repository.jdbc.Database;
+import com.bikeshare.repository.jdbc.JdbcBikeRepository;
+import com.bikeshare.repository.jdbc.JdbcRideRepository;
+import com.bikeshare.repository.jdbc.JdbcStationRepository;
+import com.bikeshare.repository.jdbc.JdbcUserRepository;
+import com.bikeshare.web.InMemoryBikeRepository;
+import com.bikeshare.web.InMemoryRideRepository;
+import com.bikeshare.web.InMemoryStationRepository;
+import com.bikeshare.web.InMemoryUserRepository;
+import com.bikeshare.web.WebServices;
+
+/**
+ * Tests that popular routes include rides completed before the service was created.
+ */
+@DisplayName("Popular routes after a restart")
+class RideServiceRouteSeedTest {
+    
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 8, 0);
+    
+    @Test
+    @DisplayName("Stored completed rides are counted in the in-memory repository")
+    void seedsFromInMemoryRides() {
+        // Arrange
+        InMemoryRideRepository rides = new InMemoryRideRepository();
+        storeRides(rides);
+        
+        // Act
+        RideService service = WebServices.of(new InMemoryBikeRepository(), new InMemoryStationRepository(),
+                rides, new InMemoryUserRepository()).rides();
+        
+        // Assert
+        assertEquals(List.of("S1->S2:3", "S2->S1:1"), routes(service.getPopularRoutes(5)));
+    }
+    
+    @Test
+    @DisplayName("Stored completed rides are counted in the JDBC repository")
+    void seedsFromJdbcRides() {
+        // Arrange
+        Database database = Database.inMemory("routes-" + System.nanoTime());
+        try {
+            storeRides(new JdbcRideRepository(database));
+            
+            // Act - a new service over the same database, as after a restart
+            RideService service = WebServices.of(new JdbcBikeRepository(database),
+                    new JdbcStationRepository(database), new JdbcRideRepository(database),
+                    new JdbcUserRepository(database)).rides();
+            
+            // Assert
+            assertEquals(List.of("S1->S2:3", "S2->S1:1"), routes(service.getPopularRoutes(5)));
+        } finally {
+            database.close();
+        }
+    }
+    
+    private static void storeRides(RideRepository rides) {
+        rides.save(completed("SEED-1", "S1", "S2", 0));
+        rides.save(completed("SEED-2", "S1", "S2", 1));
+        rides.save(completed("SEED-3", "S1", "S2", 2));
+        rides.save(completed("SEED-4", "S2", "S1", 3));
+        // Still riding, so not a route yet
+        rides.save(new Ride("SEED-5", "900101-0017", "B5", "S2"));
+    }
+    
+    private static Ride completed(String rideId, String from, String to, int minute) {
+        LocalDateTime start = START.plusMinutes(minute);
+        return Ride.restore(new Ride.Snapshot(rideId, "900101-0017", "B" + minute, from, to,
+                Ride.RideStatus.COMPLETED, start, start.plusMinutes(12), null, 0, 2.0, 6.0, 0.0, 0.0, 6.0,
+                User.MembershipType.BASIC, false, null));
+    }
+    
+    private static List<String> routes(List<RideService.RouteFrequency> routes) {
+        return routes.stream()
+                .map(route -> route.getStartStationId() + "->" + route.getEndStationId() + ":" + route.getFrequency())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,65 @@
+package com.bikeshare.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.IdRegistry;
+import com.bikeshare.model.Station;
+import com.bikeshare.web.InMemoryBikeRepository;
+import com.bikeshare.web.InMemoryStationRepository;
+
+/**
+ * Tests that count-only station inventory changes do not register a new bike ID each time.
+ */
+@DisplayName("Station inventory and the ID registry")
+class StationInventoryIdTest {
+    
+    @Test
+    @DisplayName("Returning and removing bikes reuses placeholder IDs")
+    void placeholderIdsAreReused() {
+        // Arrange
+        StationService stations = new StationService(new InMemoryStationRepository(), new InMemoryBikeRepository());
+        stations.createStation("ST-INV", "Inventory", 59.33, 18.06, 3);
+        stations.addBikeToStation("ST-INV");
+        stations.removeBikeFromStation("ST-INV");
+        int registered = IdRegistry.BIKES.size();
+        
+        // Act - one return and one rental per ride, as RideService does
+        for (int ride = 0; ride < 1_000; ride++) {
+            stations.addBikeToStation("ST-INV");
+            stations.addBikeToStation("ST-INV");
+            stations.removeBikeFromStation("ST-INV");
+            stations.removeBikeFromStation("ST-INV");
+        }
+        stations.updateStationBikeCount("ST-INV", 3);
+        
+        // Assert
+        assertTrue(IdRegistry.BIKES.size() - registered <= 3, "At most one new ID per dock");
+        assertEquals(3, stations.findStationById("ST-INV").getTotalBikeCount());
+    }
+    
+    @Test
+    @DisplayName("Bikes can only be moved to stations that exist")
+    void unknownStationIdsAreNotRegistered() {
+        // Arrange
+        Bike bike = new Bike("INV-B1", Bike.BikeType.STANDARD);
+        new Station("ST-INV-KNOWN", "Known", "Testgatan 2", 59.33, 18.06, 5);
+        int registered = IdRegistry.STATIONS.size();
+        
+        // Act
+        bike.setCurrentStationId("ST-INV-KNOWN");
+        
+        // Assert
+        assertEquals("ST-INV-KNOWN", bike.getCurrentStationId());
+        assertThrows(IllegalArgumentException.class, () -> bike.setCurrentStationId("ST-INV-NOWHERE"));
+        assertEquals(registered, IdRegistry.STATIONS.size());
+        bike.setCurrentStationId(null);
+        assertNull(bike.getCurrentStationId());
+    }
+}
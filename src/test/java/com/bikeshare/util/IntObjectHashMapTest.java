@@ -0,0 +1,182 @@
+package com.bikeshare.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the segmented int-keyed map: single-threaded behaviour against a HashMap,
+ * growth and removal with backward shifting, and concurrent writers and readers.
+ */
+@DisplayName("IntObjectHashMap")
+class IntObjectHashMapTest {
+    
+    @Test
+    @DisplayName("Random puts, removes and computes behave like a HashMap")
+    void behavesLikeHashMap() {
+        // Arrange - a narrow key range forces long probe runs and frequent removals inside them
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        int[] specialKeys = {Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0};
+        
+        // Act & Assert
+        for (int op = 0; op < 50_000; op++) {
+            int key = op % 97 == 0 ? specialKeys[random.nextInt(specialKeys.length)] : random.nextInt(2_000) - 500;
+            String value = "v" + op;
+            switch (random.nextInt(6)) {
+                case 0, 1 -> assertEquals(expected.put(key, value), map.put(key, value));
+                case 2 -> assertEquals(expected.remove(key), map.remove(key));
+                case 3 -> assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                case 4 -> {
+                    String current = expected.get(key);
+                    assertEquals(current != null && expected.remove(key, current), map.remove(key, current));
+                }
+                default -> assertEquals(
+                        expected.compute(key, (k, v) -> v == null ? value : v.length() % 2 == 0 ? null : v + "x"),
+                        map.compute(key, (k, v) -> v == null ? value : v.length() % 2 == 0 ? null : v + "x"));
+            }
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Integer, String> visited = new HashMap<>();
+        map.forEach((key, value) -> assertNull(visited.put(key, value), "Each entry is visited once"));
+        assertEquals(expected, visited);
+        assertEquals(expected.size(), map.values().size());
+    }
+    
+    @Test
+    @DisplayName("Growing from the minimum capacity keeps every entry, and removals keep the rest reachable")
+    void growsAndRemoves() {
+        // Arrange
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        int count = 100_000;
+        
+        // Act
+        for (int key = 0; key < count; key++) {
+            assertNull(map.put(key, key));
+        }
+        for (int key = 0; key < count; key += 2) {
+            assertEquals(key, map.remove(key));
+        }
+        
+        // Assert
+        assertEquals(count / 2, map.size());
+        for (int key = 0; key < count; key++) {
+            assertEquals(key % 2 == 0 ? null : Integer.valueOf(key), map.get(key), "Key " + key);
+        }
+    }
+    
+    @Test
+    @DisplayName("Conditional operations only act in the documented cases")
+    void conditionalOperations() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>(4);
+        
+        assertNull(map.computeIfPresent(7, (key, value) -> "never"));
+        assertFalse(map.containsKey(7));
+        assertNull(map.compute(7, (key, value) -> null), "Returning null for an absent key creates nothing");
+        assertTrue(map.isEmpty());
+        
+        assertNull(map.putIfAbsent(7, "a"));
+        assertEquals("a", map.putIfAbsent(7, "b"));
+        assertFalse(map.remove(7, "b"));
+        assertFalse(map.remove(7, null));
+        assertEquals("a!", map.computeIfPresent(7, (key, value) -> value + "!"));
+        assertTrue(map.remove(7, "a!"));
+        assertTrue(map.isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Null values are rejected")
+    void rejectsNullValues() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+        
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+        assertThrows(NullPointerException.class, () -> map.putIfAbsent(1, null));
+    }
+    
+    @Test
+    @DisplayName("Concurrent writers lose no updates while readers see stable keys throughout growth")
+    void concurrentWritersAndReaders() throws Exception {
+        // Arrange - stable keys are never written again and must stay visible while tables grow
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        int stable = 1_000;
+        for (int key = 0; key < stable; key++) {
+            map.put(-1 - key, key);
+        }
+        int writers = 6;
+        int perWriter = 20_000;
+        int sharedCounters = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> tasks = new ArrayList<>();
+        
+        // Act
+        try {
+            for (int writer = 0; writer < writers; writer++) {
+                int base = writer * perWriter;
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        map.put(base + i, i);
+                        if (i % 3 == 0) {
+                            map.remove(base + i);
+                        }
+                        map.compute(1_000_000 + i % sharedCounters, (key, count) -> count == null ? 1 : count + 1);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> reader = executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    for (int key = 0; key < stable; key++) {
+                        assertEquals(key, map.get(-1 - key));
+                    }
+                }
+                return null;
+            });
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            reader.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // Assert
+        int total = 0;
+        for (int i = 0; i < sharedCounters; i++) {
+            total += map.get(1_000_000 + i);
+        }
+        assertEquals(writers * perWriter, total, "Every compute is counted exactly once");
+        for (int writer = 0; writer < writers; writer++) {
+            for (int i = 0; i < perWriter; i++) {
+                int key = writer * perWriter + i;
+                assertEquals(i % 3 == 0 ? null : Integer.valueOf(i), map.get(key), "Key " + key);
+            }
+        }
+        int kept = perWriter - (perWriter + 2) / 3;
+        assertEquals(stable + writers * kept + sharedCounters, map.size());
+    }
+}
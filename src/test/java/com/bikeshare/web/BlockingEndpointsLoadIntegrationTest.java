@@ -0,0 +1,162 @@
+package com.bikeshare.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.bikeshare.service.auth.BankIDService;
+import com.bikeshare.service.payment.SwishPaymentService;
+import com.bikeshare.service.validation.AgeCheck;
+import com.bikeshare.service.validation.AgeValidator;
+import com.bikeshare.web.SimpleBikeShareWebServer.ExecutionMode;
+
+/**
+ * Load test for endpoints that block on external services: the age check waits for a BankID
+ * stand-in and the Swish status check for a payment stand-in. All requests are sent at once,
+ * and the stand-ins record how many of them were being served at the same time.
+ */
+@DisplayName("Blocking endpoints under concurrent load")
+class BlockingEndpointsLoadIntegrationTest {
+    
+    private static final int CONCURRENT_REQUESTS = 1000;
+    private static final long SERVICE_DELAY_MS = 500;
+    // QueuedThreadPool default, shared with Jetty's selectors and acceptors
+    private static final int CLASSIC_MAX_THREADS = 200;
+    
+    private static final Map<String, String> REQUEST_BODIES = Map.of(
+            "/api/validate/age", "{\"idNumber\": \"199001011239\", \"auth\": true}",
+            "/api/payments/swish/status", "{\"requestId\": \"swish-1\"}");
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private ExecutorService clientThreads;
+    private HttpClient client;
+    private SimpleBikeShareWebServer server;
+    
+    @BeforeEach
+    void setUp() {
+        clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientThreads)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+        clientThreads.shutdownNow();
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"/api/validate/age", "/api/payments/swish/status"})
+    @DisplayName("Classic threads cap concurrent blocking calls at the pool size")
+    void classicThreadsCapConcurrency(String path) throws Exception {
+        long elapsed = runLoad(ExecutionMode.CLASSIC, path);
+        
+        assertThat(peakInFlight.get()).isLessThanOrEqualTo(CLASSIC_MAX_THREADS);
+        // At most a pool's worth of requests overlap, so they are served in several waves
+        assertThat(elapsed).isGreaterThanOrEqualTo(
+                SERVICE_DELAY_MS * (CONCURRENT_REQUESTS / CLASSIC_MAX_THREADS));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"/api/validate/age", "/api/payments/swish/status"})
+    @DisplayName("Virtual threads serve blocking calls beyond the pool size")
+    void virtualThreadsExceedPoolSize(String path) throws Exception {
+        runLoad(ExecutionMode.VIRTUAL, path);
+        
+        // Elapsed time is not asserted: it is bounded by how fast the client opens connections
+        assertThat(peakInFlight.get()).isGreaterThan(CLASSIC_MAX_THREADS);
+    }
+    
+    /**
+     * Starts a server in the given mode and sends all requests to one endpoint at once.
+     * @return milliseconds until the last response arrived
+     */
+    private long runLoad(ExecutionMode mode, String path) throws Exception {
+        WebServices demo = WebServices.inMemoryDemo();
+        WebServices services = new WebServices(demo.bikes(), demo.stations(), demo.rides(), demo.users(),
+                slowAgeCheck(), slowSwish());
+        server = new SimpleBikeShareWebServer(0, services, mode);
+        server.start();
+        
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(REQUEST_BODIES.get(path)))
+                .build();
+        long start = System.nanoTime();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(CONCURRENT_REQUESTS);
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertThat(response.get().statusCode()).isEqualTo(200);
+        }
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        
+        System.out.printf("%s %s: %d requests in %d ms, at most %d in a blocking call at once%n",
+                mode, path, CONCURRENT_REQUESTS, elapsed, peakInFlight.get());
+        return elapsed;
+    }
+    
+    private AgeCheck slowAgeCheck() {
+        BankIDService bankId = personalNumber -> {
+            block();
+            return true;
+        };
+        AgeValidator validator = new AgeValidator(idNumber -> idNumber.matches("\\d{12}"), bankId);
+        return (idNumber, authenticated) -> validator.isAdult(idNumber);
+    }
+    
+    private SwishPaymentService slowSwish() {
+        return new SwishPaymentService() {
+            @Override
+            public String requestPayment(String phoneNumber, double amount, String message) {
+                block();
+                return "swish-1";
+            }
+            
+            @Override
+            public boolean isPaymentCompleted(String paymentRequestId) {
+                block();
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Simulates a remote call, recording how many are in progress.
+     */
+    private void block() {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(SERVICE_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+import com.bikeshare.repository.Page;
+
+/**
+ * Tests that every ride query answers the same whether completed rides are kept as objects,
+ * moved to the {@link CompletedRideArchive}, or split between both tiers.
+ */
+@DisplayName("Completed ride archive equivalence")
+class CompletedRideArchiveEquivalenceTest {
+    
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 8, 0);
+    // Ties on start time are broken by ride ID; these IDs sort differently as UTF-8 bytes
+    // (code points) and as Java strings (UTF-16 units), e.g. U+FF21 against U+1F600
+    private static final String[] ID_SUFFIXES = {"a", "B", "Ö", "Ａ", "😀"};
+    
+    private final List<Ride> rides = new ArrayList<>();
+    private InMemoryRideRepository hot;
+    private InMemoryRideRepository archived;
+    private InMemoryRideRepository mixed;
+    
+    @BeforeEach
+    void saveSameRidesToEachTiering() {
+        for (int slot = 0; slot < 8; slot++) {
+            for (int i = 0; i < ID_SUFFIXES.length; i++) {
+                boolean active = slot == 7 && i % 2 == 0;
+                rides.add(ride("R" + slot + "-" + ID_SUFFIXES[i], slot, i, active));
+            }
+        }
+        hot = new InMemoryRideRepository(Integer.MAX_VALUE);
+        archived = new InMemoryRideRepository(0);
+        mixed = new InMemoryRideRepository(7);
+        for (Ride ride : rides) {
+            hot.save(Ride.restore(ride.snapshot()));
+            archived.save(Ride.restore(ride.snapshot()));
+            mixed.save(Ride.restore(ride.snapshot()));
+        }
+    }
+    
+    @Test
+    @DisplayName("Ride IDs with equal start times are ordered as Java strings in every tier")
+    void tiesAreOrderedAsStrings() {
+        // Arrange - the order the hot tier's skip list and the merge comparator use
+        List<String> expected = rides.stream()
+                .sorted(Comparator.comparing(Ride::getStartTime).thenComparing(Ride::getRideId))
+                .map(Ride::getRideId)
+                .collect(Collectors.toList());
+        
+        // Act & Assert
+        for (InMemoryRideRepository repository : List.of(hot, archived, mixed)) {
+            assertEquals(expected, ids(repository.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX)));
+            assertEquals(expected, repository.streamAll().map(Ride::getRideId).collect(Collectors.toList()));
+        }
+    }
+    
+    @Test
+    @DisplayName("Keyset pages of every size cover the same rides in the same order")
+    void keysetPagesMatchAtEveryBoundary() {
+        List<String> expected = ids(hot.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX));
+        
+        for (int limit = 1; limit <= rides.size() + 1; limit++) {
+            assertEquals(expected, walk(archived, limit), "All archived, page size " + limit);
+            assertEquals(expected, walk(mixed, limit), "Split tiers, page size " + limit);
+        }
+    }
+    
+    @Test
+    @DisplayName("Offset pages and date ranges match the hot tier")
+    void offsetPagesAndRangesMatch() {
+        for (int from = -1; from <= 8; from++) {
+            LocalDateTime start = BASE.plusMinutes(from * 10L);
+            LocalDateTime end = start.plusMinutes(35);
+            List<String> expected = ids(hot.findRidesBetween(start, end));
+            assertEquals(expected, ids(archived.findRidesBetween(start, end)));
+            assertEquals(expected, ids(mixed.findRidesBetween(start, end)));
+            for (int offset = 0; offset <= expected.size(); offset++) {
+                for (int limit = 1; limit <= 3; limit++) {
+                    List<String> page = ids(hot.findRidesBetween(start, end, offset, limit));
+                    assertEquals(page, ids(archived.findRidesBetween(start, end, offset, limit)));
+                    assertEquals(page, ids(mixed.findRidesBetween(start, end, offset, limit)));
+                }
+            }
+        }
+    }
+    
+    @Test
+    @DisplayName("Lookups by ID, user, bike and station match the hot tier")
+    void lookupsMatch() {
+        for (InMemoryRideRepository repository : List.of(archived, mixed)) {
+            assertEquals(idSet(hot.findAll()), idSet(repository.findAll()));
+            for (Ride ride : rides) {
+                assertEquals(ride.getRideId(), repository.findById(ride.getRideId()).orElseThrow().getRideId());
+                assertTrue(repository.existsById(ride.getRideId()));
+            }
+            for (int index = 0; index < ID_SUFFIXES.length; index++) {
+                int i = index;
+                assertSameRides(hot, repository, r -> r.findByUserId("U" + (i % 2)));
+                assertSameRides(hot, repository, r -> r.findCompletedRidesByUserId("U" + (i % 2)));
+                assertSameRides(hot, repository, r -> r.findActiveRidesByUserId("U" + (i % 2)));
+                assertSameRides(hot, repository, r -> r.findByBikeId("B" + i));
+                assertSameRides(hot, repository, r -> r.findByStartStationId("S" + i));
+                assertSameRides(hot, repository, r -> r.findByEndStationId("S" + (i + 1) % ID_SUFFIXES.length));
+            }
+        }
+    }
+    
+    @Test
+    @DisplayName("Duration and cost filters, counts and totals match the hot tier")
+    void filtersAndAggregatesMatch() {
+        for (InMemoryRideRepository repository : List.of(archived, mixed)) {
+            for (int minutes = 0; minutes <= 40; minutes += 5) {
+                int threshold = minutes;
+                assertSameRides(hot, repository, r -> r.findRidesLongerThan(threshold));
+            }
+            for (double amount = 0; amount <= 20; amount += 2.5) {
+                double threshold = amount;
+                assertSameRides(hot, repository, r -> r.findRidesWithCostHigherThan(threshold));
+            }
+            assertEquals(hot.count(), repository.count());
+            assertEquals(hot.countActiveRides(), repository.countActiveRides());
+            assertEquals(hot.countCompletedRides(), repository.countCompletedRides());
+            assertEquals(hot.calculateTotalRevenue(), repository.calculateTotalRevenue(), 1e-9);
+            assertEquals(hot.calculateTotalRideDuration(), repository.calculateTotalRideDuration());
+        }
+    }
+    
+    @Test
+    @DisplayName("Deleting archived rides removes them from every query")
+    void deletesMatch() {
+        // Act
+        for (Ride ride : rides.subList(0, 12)) {
+            assertEquals(hot.deleteById(ride.getRideId()), archived.deleteById(ride.getRideId()));
+            mixed.deleteById(ride.getRideId());
+        }
+        
+        // Assert
+        List<String> expected = ids(hot.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX));
+        assertEquals(expected, ids(archived.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX)));
+        assertEquals(expected, ids(mixed.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX)));
+        assertSameRides(hot, archived, r -> r.findByUserId("U0"));
+        assertEquals(hot.count(), archived.count());
+        assertEquals(hot.calculateTotalRevenue(), archived.calculateTotalRevenue(), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Interleaved saves, range queries and deletes match the hot tier across compactions")
+    void interleavedChangesMatch() {
+        // Arrange - fresh repositories; range queries between saves leave several sorted runs
+        InMemoryRideRepository hotOnly = new InMemoryRideRepository(Integer.MAX_VALUE);
+        InMemoryRideRepository archiveOnly = new InMemoryRideRepository(0);
+        Random random = new Random(17);
+        List<String> saved = new ArrayList<>();
+        
+        for (int round = 0; round < 600; round++) {
+            // Act
+            int action = random.nextInt(10);
+            if (action < 5 || saved.isEmpty()) {
+                String rideId = "X" + round + ID_SUFFIXES[round % ID_SUFFIXES.length];
+                Ride ride = ride(rideId, random.nextInt(20), random.nextInt(ID_SUFFIXES.length), false);
+                if (random.nextInt(4) == 0) {
+                    ride.setNotes("note " + round);
+                }
+                hotOnly.save(Ride.restore(ride.snapshot()));
+                archiveOnly.save(Ride.restore(ride.snapshot()));
+                saved.add(rideId);
+            } else if (action < 9) {
+                // Deleting more often than saving later on pushes the archive past its compaction threshold
+                String rideId = saved.remove(random.nextInt(saved.size()));
+                assertEquals(hotOnly.deleteById(rideId), archiveOnly.deleteById(rideId));
+            } else {
+                LocalDateTime start = BASE.plusMinutes(random.nextInt(200) - 10L);
+                LocalDateTime end = start.plusMinutes(random.nextInt(120));
+                assertEquals(ids(hotOnly.findRidesBetween(start, end)), ids(archiveOnly.findRidesBetween(start, end)));
+            }
+            
+            // Assert
+            if (round % 50 == 49) {
+                assertEquals(ids(hotOnly.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX)),
+                        ids(archiveOnly.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX)), "Round " + round);
+                assertEquals(walk(hotOnly, 7), walk(archiveOnly, 7));
+                assertEquals(hotOnly.count(), archiveOnly.count());
+                for (int user = 0; user < 2; user++) {
+                    String userId = "U" + user;
+                    assertSameRides(hotOnly, archiveOnly, r -> r.findByUserId(userId));
+                }
+                for (String rideId : saved) {
+                    assertEquals(hotOnly.findById(rideId).orElseThrow().getNotes(),
+                            archiveOnly.findById(rideId).orElseThrow().getNotes());
+                }
+            }
+        }
+        for (String rideId : List.copyOf(saved).subList(0, saved.size() * 3 / 4)) {
+            hotOnly.deleteById(rideId);
+            archiveOnly.deleteById(rideId);
+            saved.remove(rideId);
+        }
+        assertEquals(ids(hotOnly.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX)),
+                ids(archiveOnly.findRidesBetween(LocalDateTime.MIN, LocalDateTime.MAX)));
+        assertSameRides(hotOnly, archiveOnly, r -> r.findRidesLongerThan(10));
+        assertSameRides(hotOnly, archiveOnly, r -> r.findByBikeId("B1"));
+        assertSameRides(hotOnly, archiveOnly, r -> r.findByEndStationId("S2"));
+    }
+    
+    private static Ride ride(String rideId, int slot, int index, boolean active) {
+        LocalDateTime start = BASE.plusMinutes(slot * 10L);
+        LocalDateTime end = active ? null : start.plusMinutes(5L * (index + 1) + slot);
+        return Ride.restore(new Ride.Snapshot(rideId, "U" + (index % 2), "B" + index, "S" + index,
+                active ? null : "S" + (index + 1) % ID_SUFFIXES.length,
+                active ? Ride.RideStatus.ACTIVE : Ride.RideStatus.COMPLETED,
+                start, end, null, 0, 1.5 * index, 2.0, 0.5 * slot, 0.0,
+                active ? 0.0 : 2.0 + 0.5 * slot + index,
+                User.MembershipType.BASIC, false, null));
+    }
+    
+    private static List<String> walk(InMemoryRideRepository repository, int limit) {
+        List<String> ids = new ArrayList<>();
+        Page<Ride> page = repository.findAll(null, limit);
+        ids.addAll(ids(page.items()));
+        while (page.hasNext()) {
+            page = repository.findAll(page.nextToken(), limit);
+            ids.addAll(ids(page.items()));
+        }
+        return ids;
+    }
+    
+    private static void assertSameRides(InMemoryRideRepository expected, InMemoryRideRepository actual,
+                                   Function<InMemoryRideRepository, List<Ride>> query) {
+        assertEquals(idSet(query.apply(expected)), idSet(query.apply(actual)));
+    }
+    
+    private static List<String> ids(List<Ride> rides) {
+        return rides.stream().map(Ride::getRideId).collect(Collectors.toList());
+    }
+    
+    private static Set<String> idSet(List<Ride> rides) {
+        return rides.stream().map(Ride::getRideId).collect(Collectors.toCollection(TreeSet::new));
+    }
+}
@@ -0,0 +1,198 @@
+package com.bikeshare.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+
+/**
+ * Asynchronous request that records what is written to it, for tests of long-lived responses.
+ * Timeouts and client errors are raised by the test; writes can be held to play a slow client.
+ */
+class FakeAsyncContext implements AsyncContext {
+    
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final List<AsyncListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger completions = new AtomicInteger();
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile CountDownLatch writesHeld;
+    private volatile long timeout;
+    
+    private final ServletOutputStream out = new ServletOutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            CountDownLatch held = writesHeld;
+            if (held != null) {
+                try {
+                    held.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while the client was not reading");
+                }
+            }
+            synchronized (written) {
+                written.write(bytes, offset, length);
+            }
+        }
+        
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+        
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    };
+    
+    // Only the output stream of the response is used by the code under test
+    private final ServletResponse response = (ServletResponse) Proxy.newProxyInstance(
+            ServletResponse.class.getClassLoader(), new Class<?>[] {ServletResponse.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getOutputStream")) {
+                    return out;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    
+    /**
+     * Makes every following write wait until {@link #resumeWrites()}.
+     */
+    void holdWrites() {
+        writesHeld = new CountDownLatch(1);
+    }
+    
+    void resumeWrites() {
+        CountDownLatch held = writesHeld;
+        writesHeld = null;
+        if (held != null) {
+            held.countDown();
+        }
+    }
+    
+    /**
+     * Lets the wait of the request run out, as the container does.
+     */
+    void expire() throws IOException {
+        for (AsyncListener listener : listeners) {
+            listener.onTimeout(new AsyncEvent(this));
+        }
+    }
+    
+    /**
+     * Reports that the client connection broke.
+     */
+    void fail(Throwable cause) throws IOException {
+        for (AsyncListener listener : listeners) {
+            listener.onError(new AsyncEvent(this, cause));
+        }
+    }
+    
+    String body() {
+        synchronized (written) {
+            return written.toString(StandardCharsets.UTF_8);
+        }
+    }
+    
+    int completions() {
+        return completions.get();
+    }
+    
+    boolean awaitCompletion(long millis) throws InterruptedException {
+        return completed.await(millis, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public ServletRequest getRequest() {
+        return null;
+    }
+    
+    @Override
+    public ServletResponse getResponse() {
+        return response;
+    }
+    
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+        return true;
+    }
+    
+    @Override
+    public void dispatch() {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void dispatch(String path) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void dispatch(ServletContext context, String path) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void complete() {
+        if (completions.incrementAndGet() > 1) {
+            return;
+        }
+        completed.countDown();
+        for (AsyncListener listener : listeners) {
+            try {
+                listener.onComplete(new AsyncEvent(this));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+    
+    @Override
+    public void start(Runnable run) {
+        new Thread(run).start();
+    }
+    
+    @Override
+    public void addListener(AsyncListener listener) {
+        listeners.add(listener);
+    }
+    
+    @Override
+    public void addListener(AsyncListener listener, ServletRequest request, ServletResponse response) {
+        listeners.add(listener);
+    }
+    
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> type) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+    
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+}
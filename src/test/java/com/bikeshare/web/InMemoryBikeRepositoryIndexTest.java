@@ -0,0 +1,192 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.BikeType;
+import com.bikeshare.model.Station;
+
+/**
+ * Tests that indexed bike queries answer the same as a brute-force filter over
+ * {@link InMemoryBikeRepository#findAll()} while bikes are ridden, serviced, moved between
+ * stations, replaced and deleted in random order.
+ */
+@DisplayName("InMemoryBikeRepository indexes")
+class InMemoryBikeRepositoryIndexTest {
+    
+    private static final int BIKES = 16;
+    private static final int STATIONS = 4;
+    private static final int STEPS = 2_000;
+    
+    @Test
+    @DisplayName("Type partitions and the available set match a scan")
+    void partitionsMatchScan() {
+        mutateAndCheck(12L, bikes -> {
+            for (BikeType type : BikeType.values()) {
+                assertEquals(ids(bikes.findAll().stream().filter(bike -> matches(bike, type))),
+                        ids(bikes.findByType(type).stream()), type.name());
+            }
+            List<String> available = ids(bikes.findAll().stream().filter(Bike::isAvailable));
+            assertEquals(available, ids(bikes.findAvailableBikes().stream()));
+            assertEquals(available.size(), bikes.countAvailable());
+        });
+    }
+    
+    @Test
+    @DisplayName("Bikes by station match a scan as bikes are docked, undocked and moved")
+    void bikesByStationMatchScan() {
+        mutateAndCheck(13L, bikes -> {
+            for (int i = 0; i < STATIONS; i++) {
+                String stationId = station(i);
+                List<String> expected = ids(bikes.findAll().stream()
+                        .filter(bike -> stationId.equals(bike.getCurrentStationId())));
+                assertEquals(expected, ids(bikes.findByStationId(stationId).stream()), stationId);
+            }
+        });
+    }
+    
+    /**
+     * Applies a seeded sequence of bike changes, running the check after every step.
+     */
+    private static void mutateAndCheck(long seed, Consumer<InMemoryBikeRepository> check) {
+        InMemoryBikeRepository bikes = new InMemoryBikeRepository();
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < STATIONS; i++) {
+            stations.add(new Station(station(i), "Index " + i, "Indexgatan " + i, 59.3 + i * 0.01, 18.0, 50));
+        }
+        List<Bike> detached = new ArrayList<>();
+        Random random = new Random(seed);
+        for (int step = 0; step < STEPS; step++) {
+            String bikeId = bike(random.nextInt(BIKES));
+            Optional<Bike> stored = bikes.findById(bikeId);
+            switch (random.nextInt(8)) {
+                case 0 -> {
+                    // Add a bike, or replace the stored one with a new instance, possibly of another type
+                    Bike.BikeType[] types = Bike.BikeType.values();
+                    Bike bike = new Bike(bikeId, types[random.nextInt(types.length)]);
+                    if (random.nextBoolean()) {
+                        bike.setCurrentStationId(station(random.nextInt(STATIONS)));
+                    }
+                    stored.ifPresent(detached::add);
+                    bikes.save(bike);
+                }
+                case 1, 2 -> stored.ifPresent(bike -> ride(bike, random));
+                case 3 -> stored.ifPresent(bike -> service(bike, random));
+                case 4 -> stored.ifPresent(bike -> {
+                    // Undock from a station, dock at one, or move the bike directly
+                    Optional<Station> dock = dockOf(stations, bike);
+                    Station target = stations.get(random.nextInt(STATIONS));
+                    if (dock.isPresent()) {
+                        if (!dock.get().getReservedBikeIds().contains(bikeId)) {
+                            dock.get().removeBike(bikeId);
+                        }
+                    } else if (random.nextBoolean() && bike.getStatus() == Bike.BikeStatus.AVAILABLE) {
+                        target.addBike(bike);
+                    } else {
+                        bike.setCurrentStationId(random.nextInt(3) == 0 ? null : target.getStationId());
+                    }
+                });
+                case 5 -> stored.ifPresent(bike -> {
+                    bikes.deleteById(bikeId);
+                    detached.add(bike);
+                });
+                case 6 -> {
+                    // Bikes no longer stored may change freely without touching the indexes
+                    if (!detached.isEmpty()) {
+                        Bike bike = detached.get(random.nextInt(detached.size()));
+                        ride(bike, random);
+                        if (dockOf(stations, bike).isEmpty()) {
+                            bike.setCurrentStationId(station(random.nextInt(STATIONS)));
+                        }
+                    }
+                }
+                default -> stored.ifPresent(bikes::save);
+            }
+            check.accept(bikes);
+        }
+    }
+    
+    private static Optional<Station> dockOf(List<Station> stations, Bike bike) {
+        return stations.stream().filter(station -> station.getAllBikes().contains(bike)).findFirst();
+    }
+    
+    /**
+     * Moves a bike one step through reserve, ride and return.
+     */
+    private static void ride(Bike bike, Random random) {
+        switch (bike.getStatus()) {
+            case AVAILABLE -> {
+                if (random.nextBoolean()) {
+                    bike.reserve();
+                } else if (bike.getBatteryLevel() >= 10.0) {
+                    bike.startRide();
+                }
+            }
+            case RESERVED -> {
+                if (bike.getBatteryLevel() >= 10.0) {
+                    bike.startRide();
+                }
+            }
+            case IN_USE -> bike.endRide(random.nextInt(25));
+            default -> {
+            }
+        }
+    }
+    
+    /**
+     * Sends a bike to maintenance, marks it broken, completes its maintenance or charges it.
+     */
+    private static void service(Bike bike, Random random) {
+        if (bike.getStatus() == Bike.BikeStatus.IN_USE) {
+            return;
+        }
+        switch (random.nextInt(4)) {
+            case 0 -> bike.sendToMaintenance();
+            case 1 -> bike.markAsBroken();
+            case 2 -> {
+                if (bike.getStatus() == Bike.BikeStatus.MAINTENANCE) {
+                    bike.completeMaintenance();
+                }
+            }
+            default -> {
+                if (bike.getType() == Bike.BikeType.ELECTRIC) {
+                    bike.chargeBattery(random.nextInt(80));
+                }
+            }
+        }
+    }
+    
+    /**
+     * The type mapping findByType used before the partitions existed.
+     */
+    private static boolean matches(Bike bike, BikeType type) {
+        return switch (bike.getType()) {
+            case STANDARD -> type == BikeType.STANDARD;
+            case ELECTRIC -> type == BikeType.ELECTRIC;
+            case PREMIUM -> type == BikeType.MOUNTAIN || type == BikeType.CARGO;
+        };
+    }
+    
+    private static List<String> ids(Stream<Bike> bikes) {
+        return bikes.map(Bike::getBikeId).sorted().collect(Collectors.toList());
+    }
+    
+    private static String bike(int n) {
+        return "IX-BK" + n;
+    }
+    
+    private static String station(int n) {
+        return "IX-ST" + n;
+    }
+}
@@ -0,0 +1,20 @@
+package com.bikeshare.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+
+import com.bikeshare.repository.KeysetPagingContract;
+
+/**
+ * Keyset paging over the in-memory repositories, including rides served by the archive.
+ */
+@DisplayName("Keyset paging: in-memory repositories")
+class InMemoryKeysetPagingTest extends KeysetPagingContract {
+    
+    @BeforeEach
+    void createRepositories() {
+        bikes = new InMemoryBikeRepository();
+        users = new InMemoryUserRepository();
+        rides = new InMemoryRideRepository();
+    }
+}
@@ -0,0 +1,282 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.bikeshare.model.Bike;
+import com.bikeshare.model.Ride;
+import com.bikeshare.model.User;
+import com.bikeshare.repository.Page;
+
+/**
+ * Tests that every indexed ride query answers the same as a brute-force filter over
+ * {@link InMemoryRideRepository#findAll()} while rides start, pause, end, are cancelled,
+ * replaced, deleted and archived in random order.
+ * Each test runs once with every completed ride kept hot and once with most of them archived.
+ */
+@DisplayName("InMemoryRideRepository indexes")
+class InMemoryRideRepositoryIndexTest {
+    
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 5, 1, 8, 0);
+    private static final int USERS = 10;
+    private static final int BIKES = 12;
+    private static final int STATIONS = 6;
+    private static final int STEPS = 600;
+    private static final int CHECK_EVERY = 20;
+    private static final Comparator<Ride> START_ORDER = Comparator
+            .comparing(Ride::getStartTime)
+            .thenComparing(Ride::getRideId);
+    
+    @ParameterizedTest(name = "hot completed limit {0}")
+    @ValueSource(ints = {Integer.MAX_VALUE, 4})
+    @DisplayName("Lookups by user, bike and station match a scan")
+    void secondaryIndexesMatchScan(int hotCompletedLimit) {
+        mutateAndCheck(new InMemoryRideRepository(hotCompletedLimit), 1L, rides -> {
+            for (int i = 0; i < USERS; i++) {
+                String userId = user(i);
+                assertSameIds(scan(rides, ride -> userId.equals(ride.getUserId())), rides.findByUserId(userId));
+                assertSameIds(scan(rides, ride -> userId.equals(ride.getUserId()) && ride.getEndTime() != null),
+                        rides.findCompletedRidesByUserId(userId));
+            }
+            for (int i = 0; i < BIKES; i++) {
+                String bikeId = bike(i);
+                assertSameIds(scan(rides, ride -> bikeId.equals(ride.getBikeId())), rides.findByBikeId(bikeId));
+            }
+            for (int i = 0; i < STATIONS; i++) {
+                String stationId = station(i);
+                assertSameIds(scan(rides, ride -> stationId.equals(ride.getStartStationId())),
+                        rides.findByStartStationId(stationId));
+                assertSameIds(scan(rides, ride -> stationId.equals(ride.getEndStationId())),
+                        rides.findByEndStationId(stationId));
+            }
+        });
+    }
+    
+    @ParameterizedTest(name = "hot completed limit {0}")
+    @ValueSource(ints = {Integer.MAX_VALUE, 4})
+    @DisplayName("The active-ride registry matches a scan for unfinished rides")
+    void activeRegistryMatchesScan(int hotCompletedLimit) {
+        mutateAndCheck(new InMemoryRideRepository(hotCompletedLimit), 2L, rides -> {
+            List<Ride> unfinished = scan(rides, ride -> ride.getEndTime() == null);
+            assertEquals(unfinished.size(), rides.countActiveRides());
+            for (int i = 0; i < USERS; i++) {
+                String userId = user(i);
+                Optional<String> expected = unfinished.stream()
+                        .filter(ride -> userId.equals(ride.getUserId()))
+                        .map(Ride::getRideId)
+                        .findFirst();
+                assertEquals(expected, rides.findActiveRideByUserId(userId).map(Ride::getRideId), userId);
+                assertEquals(expected.map(Set::of).orElseGet(Set::of), idSet(rides.findActiveRidesByUserId(userId)));
+            }
+            for (int i = 0; i < BIKES; i++) {
+                String bikeId = bike(i);
+                Optional<String> expected = unfinished.stream()
+                        .filter(ride -> bikeId.equals(ride.getBikeId()))
+                        .map(Ride::getRideId)
+                        .findFirst();
+                assertEquals(expected, rides.findActiveRideByBikeId(bikeId).map(Ride::getRideId), bikeId);
+            }
+        });
+    }
+    
+    @ParameterizedTest(name = "hot completed limit {0}")
+    @ValueSource(ints = {Integer.MAX_VALUE, 4})
+    @DisplayName("Start-time ranges, offset pages and keyset pages match a sorted scan")
+    void startTimeRangesMatchScan(int hotCompletedLimit) {
+        Random ranges = new Random(3L);
+        mutateAndCheck(new InMemoryRideRepository(hotCompletedLimit), 3L, rides -> {
+            for (int query = 0; query < 10; query++) {
+                LocalDateTime from = BASE.plusMinutes(ranges.nextInt(2_100) - 50);
+                LocalDateTime to = from.plusMinutes(ranges.nextInt(600));
+                // Both bounds are exclusive
+                List<String> expected = ids(rides.findAll().stream()
+                        .filter(ride -> ride.getStartTime().isAfter(from) && ride.getStartTime().isBefore(to))
+                        .sorted(START_ORDER)
+                        .collect(Collectors.toList()));
+                assertEquals(expected, ids(rides.findRidesBetween(from, to)));
+                int offset = ranges.nextInt(expected.size() + 2);
+                int limit = 1 + ranges.nextInt(5);
+                int first = Math.min(offset, expected.size());
+                int last = Math.min(offset + limit, expected.size());
+                assertEquals(expected.subList(first, last), ids(rides.findRidesBetween(from, to, offset, limit)));
+            }
+            List<String> everything = ids(rides.findAll().stream().sorted(START_ORDER).collect(Collectors.toList()));
+            int limit = 1 + ranges.nextInt(9);
+            List<String> walked = new ArrayList<>();
+            Page<Ride> page = rides.findAll(null, limit);
+            walked.addAll(ids(page.items()));
+            while (page.hasNext()) {
+                page = rides.findAll(page.nextToken(), limit);
+                walked.addAll(ids(page.items()));
+            }
+            assertEquals(everything, walked, "Keyset pages of " + limit);
+        });
+    }
+    
+    @ParameterizedTest(name = "hot completed limit {0}")
+    @ValueSource(ints = {Integer.MAX_VALUE, 4})
+    @DisplayName("Counts, revenue and duration totals match sums over a scan")
+    void aggregatesMatchScan(int hotCompletedLimit) {
+        mutateAndCheck(new InMemoryRideRepository(hotCompletedLimit), 4L, rides -> {
+            List<Ride> all = rides.findAll();
+            List<Ride> ended = scan(rides, ride -> ride.getEndTime() != null);
+            assertEquals(all.size(), rides.count());
+            assertEquals(all.size() - ended.size(), rides.countActiveRides());
+            assertEquals(ended.size(), rides.countCompletedRides());
+            assertEquals(ended.stream().mapToDouble(Ride::getFinalCost).sum(), rides.calculateTotalRevenue(), 1e-6);
+            assertEquals(ended.stream().mapToLong(Ride::getActiveMinutes).sum(), rides.calculateTotalRideDuration());
+        });
+    }
+    
+    /**
+     * Applies a seeded sequence of ride mutations, running the check every few steps and at the end.
+     * At most one ride per user and per bike is unfinished at a time, as RideService guarantees.
+     */
+    private static void mutateAndCheck(InMemoryRideRepository rides, long seed,
+                                       Consumer<InMemoryRideRepository> check) {
+        Random random = new Random(seed);
+        int nextId = 0;
+        for (int step = 1; step <= STEPS; step++) {
+            List<Ride> all = sortedById(rides.findAll());
+            List<Ride> unfinished = all.stream().filter(ride -> ride.getEndTime() == null).collect(Collectors.toList());
+            switch (random.nextInt(8)) {
+                case 0, 1 -> {
+                    // Start a ride for a user and bike that are not riding
+                    String userId = user(random.nextInt(USERS));
+                    String bikeId = bike(random.nextInt(BIKES));
+                    boolean busy = unfinished.stream()
+                            .anyMatch(ride -> ride.getUserId().equals(userId) || ride.getBikeId().equals(bikeId));
+                    if (!busy) {
+                        rides.save(active(rideId(nextId++), userId, bikeId, random));
+                    }
+                }
+                case 2 -> {
+                    // End a ride in place, as RideService does
+                    if (!unfinished.isEmpty()) {
+                        Ride ride = unfinished.get(random.nextInt(unfinished.size()));
+                        ride.complete(station(random.nextInt(STATIONS)), random.nextInt(20),
+                                Bike.BikeType.STANDARD, User.MembershipType.BASIC, 0.0);
+                        rides.save(ride);
+                    }
+                }
+                case 3 -> {
+                    // Pause or cancel a ride in place
+                    if (!unfinished.isEmpty()) {
+                        Ride ride = unfinished.get(random.nextInt(unfinished.size()));
+                        if (ride.isActive() && random.nextBoolean()) {
+                            ride.pause();
+                        } else {
+                            ride.cancel("Changed plans");
+                        }
+                        rides.save(ride);
+                    }
+                }
+                case 4 -> {
+                    // Replace a ride with a different instance that moves it to other keys
+                    if (!all.isEmpty()) {
+                        Ride ride = all.get(random.nextInt(all.size()));
+                        if (ride.getEndTime() != null) {
+                            rides.save(completed(ride.getRideId(), random));
+                        }
+                    }
+                }
+                case 5 -> {
+                    if (!all.isEmpty()) {
+                        rides.deleteById(all.get(random.nextInt(all.size())).getRideId());
+                    }
+                }
+                case 6 -> {
+                    // Historical rides in bulk, which skip the hot tier when the repository archives
+                    List<Ride> batch = new ArrayList<>();
+                    for (int i = random.nextInt(3); i >= 0; i--) {
+                        batch.add(completed(rideId(nextId++), random));
+                    }
+                    rides.saveAll(batch);
+                }
+                default -> {
+                    // Save a completed ride again, which brings an archived one back to the hot tier
+                    List<Ride> finished = all.stream()
+                            .filter(ride -> ride.getEndTime() != null)
+                            .collect(Collectors.toList());
+                    if (!finished.isEmpty()) {
+                        rides.save(finished.get(random.nextInt(finished.size())));
+                    }
+                }
+            }
+            if (step % CHECK_EVERY == 0) {
+                check.accept(rides);
+            }
+        }
+        check.accept(rides);
+    }
+    
+    private static Ride active(String rideId, String userId, String bikeId, Random random) {
+        LocalDateTime start = BASE.plusMinutes(random.nextInt(2_000));
+        return Ride.restore(new Ride.Snapshot(rideId, userId, bikeId, station(random.nextInt(STATIONS)), null,
+                Ride.RideStatus.ACTIVE, start, null, null, 0, 0.0, 0.0, 0.0, 0.0, 0.0,
+                User.MembershipType.BASIC, false, null));
+    }
+    
+    private static Ride completed(String rideId, Random random) {
+        LocalDateTime start = BASE.plusMinutes(random.nextInt(2_000));
+        double cost = random.nextInt(3_000) / 100.0;
+        return Ride.restore(new Ride.Snapshot(rideId, user(random.nextInt(USERS)), bike(random.nextInt(BIKES)),
+                station(random.nextInt(STATIONS)), station(random.nextInt(STATIONS)), Ride.RideStatus.COMPLETED,
+                start, start.plusMinutes(1 + random.nextInt(90)), null, 0, 2.0, cost, 0.0, 0.0, cost,
+                User.MembershipType.BASIC, false, null));
+    }
+    
+    private static List<Ride> scan(InMemoryRideRepository rides, Predicate<Ride> filter) {
+        return rides.findAll().stream().filter(filter).collect(Collectors.toList());
+    }
+    
+    private static void assertSameIds(List<Ride> expected, List<Ride> actual) {
+        assertEquals(expected.size(), actual.size(), "No ride is listed twice");
+        assertEquals(idSet(expected), idSet(actual));
+    }
+    
+    private static List<String> ids(List<Ride> rides) {
+        return rides.stream().map(Ride::getRideId).collect(Collectors.toList());
+    }
+    
+    private static Set<String> idSet(List<Ride> rides) {
+        return rides.stream().map(Ride::getRideId).collect(Collectors.toCollection(TreeSet::new));
+    }
+    
+    private static List<Ride> sortedById(List<Ride> rides) {
+        List<Ride> sorted = new ArrayList<>(rides);
+        sorted.sort(Comparator.comparing(Ride::getRideId));
+        return sorted;
+    }
+    
+    private static String rideId(int n) {
+        return String.format("IX-R%04d", n);
+    }
+    
+    private static String user(int n) {
+        return "IX-U" + n;
+    }
+    
+    private static String bike(int n) {
+        return "IX-B" + n;
+    }
+    
+    private static String station(int n) {
+        return "IX-S" + n;
+    }
+}
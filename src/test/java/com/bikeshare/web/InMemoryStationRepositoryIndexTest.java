@@ -0,0 +1,151 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.Station;
+
+/**
+ * Tests that nearest-station queries answered from the geo grid match a brute-force
+ * distance sort over {@link InMemoryStationRepository#findAll()} while stations are added,
+ * moved and removed.
+ */
+@DisplayName("InMemoryStationRepository nearest stations")
+class InMemoryStationRepositoryIndexTest {
+    
+    private static final double MIN_LATITUDE = 59.20;
+    private static final double MIN_LONGITUDE = 17.80;
+    private static final double SPAN = 0.40;
+    
+    @Test
+    @DisplayName("Nearest stations match a distance sort after adds, moves and deletes")
+    void nearestStationsMatchScan() {
+        // Arrange
+        InMemoryStationRepository stations = new InMemoryStationRepository();
+        Random random = new Random(6L);
+        int nextId = 0;
+        
+        for (int step = 1; step <= 400; step++) {
+            // Act
+            List<Station> all = sortedById(stations.findAll());
+            switch (random.nextInt(6)) {
+                case 0, 1 -> stations.save(station(geoId(nextId++), random));
+                case 2 -> {
+                    // Move a station by saving a new instance under the same ID
+                    if (!all.isEmpty()) {
+                        stations.save(station(all.get(random.nextInt(all.size())).getStationId(), random));
+                    }
+                }
+                case 3 -> {
+                    if (!all.isEmpty()) {
+                        stations.deleteById(all.get(random.nextInt(all.size())).getStationId());
+                    }
+                }
+                case 4 -> {
+                    List<Station> batch = new ArrayList<>();
+                    for (int i = random.nextInt(4); i >= 0; i--) {
+                        batch.add(station(geoId(nextId++), random));
+                    }
+                    stations.saveAll(batch);
+                }
+                default -> {
+                    // Re-save an unchanged station
+                    if (!all.isEmpty()) {
+                        stations.save(all.get(random.nextInt(all.size())));
+                    }
+                }
+            }
+            
+            // Assert
+            if (step % 10 == 0) {
+                for (int query = 0; query < 10; query++) {
+                    // Query points reach a little outside the stations' area
+                    double latitude = MIN_LATITUDE - 0.05 + random.nextDouble() * (SPAN + 0.1);
+                    double longitude = MIN_LONGITUDE - 0.05 + random.nextDouble() * (SPAN + 0.1);
+                    double maxDistance = query == 0 ? 1_000 : random.nextDouble() * 8;
+                    int limit = 1 + random.nextInt(12);
+                    assertEquals(nearestByScan(stations, latitude, longitude, maxDistance, limit),
+                            ids(stations.findNearestStations(latitude, longitude, maxDistance, limit)),
+                            "Near " + latitude + "," + longitude + " within " + maxDistance + " km");
+                }
+            }
+        }
+    }
+    
+    @Test
+    @DisplayName("Nearest stations across the antimeridian match a distance sort")
+    void nearestStationsWrapAroundAntimeridian() {
+        // Arrange - stations on both sides of ±180° near Fiji
+        InMemoryStationRepository stations = new InMemoryStationRepository();
+        Random random = new Random(180L);
+        for (int i = 0; i < 60; i++) {
+            double offset = random.nextDouble() * 0.3;
+            double longitude = random.nextBoolean() ? 180 - offset : -180 + offset;
+            stations.save(new Station(geoId(i), "Station " + i, "Datumslinjen 1",
+                    -17.0 + random.nextDouble() * 0.3, longitude, 10));
+        }
+        
+        for (int query = 0; query < 200; query++) {
+            // Act
+            double offset = random.nextDouble() * 0.05;
+            double latitude = -17.0 + random.nextDouble() * 0.3;
+            double longitude = random.nextBoolean() ? 180 - offset : -180 + offset;
+            double maxDistance = 0.5 + random.nextDouble() * 10;
+            int limit = 1 + random.nextInt(8);
+            
+            // Assert
+            assertEquals(nearestByScan(stations, latitude, longitude, maxDistance, limit),
+                    ids(stations.findNearestStations(latitude, longitude, maxDistance, limit)),
+                    "Near " + latitude + "," + longitude + " within " + maxDistance + " km");
+        }
+    }
+    
+    private static List<String> nearestByScan(InMemoryStationRepository stations, double latitude,
+                                              double longitude, double maxDistance, int limit) {
+        return stations.findAll().stream()
+                .filter(station -> distance(latitude, longitude, station) <= maxDistance)
+                .sorted(Comparator.comparingDouble(station -> distance(latitude, longitude, station)))
+                .limit(limit)
+                .map(Station::getStationId)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Haversine distance in kilometers, as the repository computed it before the grid existed.
+     */
+    private static double distance(double latitude, double longitude, Station station) {
+        double latDistance = Math.toRadians(station.getLatitude() - latitude);
+        double lonDistance = Math.toRadians(station.getLongitude() - longitude);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(station.getLatitude()))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+    
+    private static Station station(String stationId, Random random) {
+        return new Station(stationId, "Station " + stationId, "Gridgatan 1",
+                MIN_LATITUDE + random.nextDouble() * SPAN, MIN_LONGITUDE + random.nextDouble() * SPAN, 10);
+    }
+    
+    private static List<Station> sortedById(List<Station> stations) {
+        List<Station> sorted = new ArrayList<>(stations);
+        sorted.sort(Comparator.comparing(Station::getStationId));
+        return sorted;
+    }
+    
+    private static List<String> ids(List<Station> stations) {
+        return stations.stream().map(Station::getStationId).collect(Collectors.toList());
+    }
+    
+    private static String geoId(int n) {
+        return String.format("GEO-S%03d", n);
+    }
+}
@@ -0,0 +1,212 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.model.User;
+
+/**
+ * Tests that indexed user queries answer the same as a brute-force filter over
+ * {@link InMemoryUserRepository#findAll()} while users sign up, change email, status and
+ * membership, are replaced and are deleted in random order.
+ */
+@DisplayName("InMemoryUserRepository indexes")
+class InMemoryUserRepositoryIndexTest {
+    
+    private static final int USERS = 10;
+    private static final int EMAILS = 14;
+    private static final int STEPS = 1_500;
+    
+    @Test
+    @DisplayName("Email lookups and uniqueness match a scan")
+    void emailIndexMatchesScan() {
+        mutateAndCheck(11L, users -> {
+            for (int i = 0; i < EMAILS; i++) {
+                String email = email(i);
+                Optional<String> expected = users.findAll().stream()
+                        .filter(user -> user.getEmail().equals(email))
+                        .map(User::getUserId)
+                        .findFirst();
+                assertEquals(expected, users.findByEmail(email).map(User::getUserId), email);
+                assertEquals(expected, users.findByEmail(email.toUpperCase(Locale.ROOT)).map(User::getUserId));
+            }
+        });
+    }
+    
+    @Test
+    @DisplayName("Status and membership partitions match a scan")
+    void partitionsMatchScan() {
+        mutateAndCheck(12L, users -> {
+            for (User.UserStatus status : User.UserStatus.values()) {
+                assertEquals(ids(users.findAll().stream().filter(user -> user.getStatus() == status)),
+                        ids(users.findByStatus(status).stream()), status.name());
+            }
+            for (User.MembershipType membership : User.MembershipType.values()) {
+                assertEquals(ids(users.findAll().stream().filter(user -> user.getMembershipType() == membership)),
+                        ids(users.findByMembershipType(membership).stream()), membership.name());
+            }
+        });
+    }
+    
+    @Test
+    @DisplayName("An email change racing a delete or replacement never leaves the email claimed")
+    void emailChangeRacingRemovalReleasesEmail() throws Exception {
+        // Arrange
+        InMemoryUserRepository users = new InMemoryUserRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 2_000; round++) {
+                String userId = personnummer(round % USERS);
+                User user = new User(userId, "before@example.com", "Index", "Tester");
+                users.save(user);
+                boolean replace = round % 2 == 0;
+                CyclicBarrier start = new CyclicBarrier(2);
+                
+                // Act
+                Future<?> change = executor.submit(() -> {
+                    start.await();
+                    user.setEmail("after@example.com");
+                    return null;
+                });
+                Future<?> removal = executor.submit(() -> {
+                    start.await();
+                    if (replace) {
+                        users.save(new User(userId, "other@example.com", "Index", "Tester"));
+                    } else {
+                        users.deleteById(userId);
+                    }
+                    return null;
+                });
+                change.get(5, TimeUnit.SECONDS);
+                removal.get(5, TimeUnit.SECONDS);
+                
+                // Assert - the detached user's emails can be taken by someone else
+                User next = new User(personnummer(USERS + round % USERS), "after@example.com", "Next", "Tester");
+                users.save(next);
+                users.deleteById(next.getUserId());
+                users.deleteById(userId);
+                assertEquals(0, users.count(), "Round " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Applies a seeded sequence of user changes, running the check after every step.
+     * Changes that would give two stored users the same email must be rejected, and only those.
+     */
+    private static void mutateAndCheck(long seed, Consumer<InMemoryUserRepository> check) {
+        InMemoryUserRepository users = new InMemoryUserRepository();
+        List<User> detached = new ArrayList<>();
+        Random random = new Random(seed);
+        for (int step = 0; step < STEPS; step++) {
+            List<User> all = new ArrayList<>(users.findAll());
+            all.sort(Comparator.comparing(User::getUserId));
+            String userId = personnummer(random.nextInt(USERS));
+            String email = email(random.nextInt(EMAILS));
+            boolean taken = all.stream()
+                    .anyMatch(user -> user.getEmail().equals(email) && !user.getUserId().equals(userId));
+            Optional<User> stored = users.findById(userId);
+            switch (random.nextInt(7)) {
+                case 0 -> {
+                    // Sign up, or replace the stored user with a new instance
+                    User user = new User(userId, randomCase(email, random), "Index", "Tester");
+                    if (taken) {
+                        assertThrows(IllegalArgumentException.class, () -> users.save(user));
+                    } else {
+                        stored.ifPresent(detached::add);
+                        users.save(user);
+                    }
+                }
+                case 1 -> stored.ifPresent(user -> {
+                    String before = user.getEmail();
+                    if (taken) {
+                        assertThrows(IllegalArgumentException.class, () -> user.setEmail(randomCase(email, random)));
+                        assertEquals(before, user.getEmail(), "A rejected change leaves the email alone");
+                    } else {
+                        user.setEmail(randomCase(email, random));
+                    }
+                });
+                case 2 -> stored.ifPresent(user -> {
+                    if (user.getStatus() == User.UserStatus.PENDING_VERIFICATION) {
+                        user.verifyEmail();
+                        user.activate();
+                    } else if (user.getStatus() == User.UserStatus.SUSPENDED) {
+                        user.reactivate();
+                    } else if (user.getStatus() == User.UserStatus.ACTIVE) {
+                        user.suspend("Unpaid fees");
+                    }
+                });
+                case 3 -> stored.ifPresent(user -> {
+                    if (user.getStatus() == User.UserStatus.ACTIVE) {
+                        user.updateMembership(User.MembershipType.values()[
+                                random.nextInt(User.MembershipType.values().length)]);
+                    } else if (random.nextInt(4) == 0) {
+                        user.deactivate();
+                    }
+                });
+                case 4 -> stored.ifPresent(user -> {
+                    users.deleteById(userId);
+                    detached.add(user);
+                });
+                case 5 -> {
+                    // Users no longer stored may change freely without touching the indexes
+                    if (!detached.isEmpty()) {
+                        User user = detached.get(random.nextInt(detached.size()));
+                        user.setEmail(email);
+                        if (user.getStatus() == User.UserStatus.PENDING_VERIFICATION) {
+                            user.verifyEmail();
+                            user.activate();
+                        }
+                    }
+                }
+                default -> stored.ifPresent(users::save);
+            }
+            check.accept(users);
+        }
+    }
+    
+    private static String randomCase(String email, Random random) {
+        return random.nextBoolean() ? email : email.toUpperCase(Locale.ROOT);
+    }
+    
+    private static String email(int n) {
+        return "index" + n + "@example.com";
+    }
+    
+    /**
+     * Builds a valid personnummer with the given serial number.
+     */
+    private static String personnummer(int serial) {
+        String digits = String.format("850615%03d", 500 + serial);
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int product = (digits.charAt(i) - '0') * (i % 2 == 0 ? 2 : 1);
+            sum += product > 9 ? product - 9 : product;
+        }
+        return digits.substring(0, 6) + "-" + digits.substring(6) + (10 - sum % 10) % 10;
+    }
+    
+    private static List<String> ids(Stream<User> users) {
+        return users.map(User::getUserId).sorted().collect(Collectors.toList());
+    }
+}
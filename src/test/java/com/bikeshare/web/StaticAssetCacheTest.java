@@ -0,0 +1,117 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Tests content negotiation, ETag matching and cache lifetimes of {@link StaticAssetCache}.
+ */
+@DisplayName("StaticAssetCache")
+class StaticAssetCacheTest {
+    
+    private static final StaticAssetCache.Variant GZIP = variant("gzip");
+    private static final StaticAssetCache.Variant DEFLATE = variant("deflate");
+    private static final StaticAssetCache.Variant IDENTITY = variant(null);
+    
+    // Smallest first, as the cache orders them
+    private static final StaticAssetCache.Asset ASSET = new StaticAssetCache.Asset(
+            "text/html; charset=UTF-8", "no-cache", List.of(GZIP, DEFLATE, IDENTITY));
+    
+    private static StaticAssetCache.Variant variant(String encoding) {
+        String tag = encoding == null ? "\"abc\"" : "\"abc-" + encoding + "\"";
+        return new StaticAssetCache.Variant(encoding, tag.getBytes(StandardCharsets.UTF_8), tag);
+    }
+    
+    @ParameterizedTest(name = "Accept-Encoding \"{0}\" selects {1}")
+    @CsvSource(value = {
+        "NULL, identity",
+        "'', identity",
+        "gzip, gzip",
+        "'gzip, deflate, br', gzip",
+        "deflate, deflate",
+        "GZIP, gzip",
+        "br, identity",
+        "*, gzip",
+        "'gzip;q=0, deflate', deflate",
+        "'gzip;q=0, deflate;q=0', identity",
+        "'*, gzip;q=0', deflate",
+        "'gzip;q=0, *', deflate",
+        "'*;q=0, deflate', deflate",
+        "'*;q=0', identity",
+        "'gzip; q=0.5', gzip",
+        "'gzip;q=oops, deflate', deflate"
+    }, nullValues = "NULL")
+    @DisplayName("The smallest variant the client accepts is selected")
+    void selectsSmallestAcceptedVariant(String acceptEncoding, String expected) {
+        // Act
+        StaticAssetCache.Variant selected = ASSET.select(acceptEncoding);
+        
+        // Assert
+        assertEquals(expected, selected.encoding() == null ? "identity" : selected.encoding());
+    }
+    
+    @Test
+    @DisplayName("An asset without compressed variants is always sent as-is")
+    void uncompressedAssetIgnoresAcceptEncoding() {
+        // Arrange
+        StaticAssetCache.Asset image = new StaticAssetCache.Asset("image/png", "no-cache", List.of(IDENTITY));
+        
+        // Act & Assert
+        assertNull(image.select("gzip, deflate").encoding());
+    }
+    
+    @ParameterizedTest(name = "If-None-Match \"{0}\" matches: {1}")
+    @CsvSource(value = {
+        "NULL, false",
+        "'\"abc\"', true",
+        "'W/\"abc\"', true",
+        "'\"old\", \"abc\"', true",
+        "'\"old\",W/\"abc\"', true",
+        "*, true",
+        "'\"old\"', false",
+        "'\"abc-gzip\"', false",
+        "abc, false"
+    }, nullValues = "NULL")
+    @DisplayName("If-None-Match uses the weak comparison and accepts lists and *")
+    void matchesIfNoneMatch(String ifNoneMatch, boolean expected) {
+        // Act & Assert
+        assertEquals(expected, StaticAssetCache.matches(ifNoneMatch, "\"abc\""));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @CsvSource({
+        "/app.3f9a1c2b.js, true",
+        "/css/site.DEADBEEF.css, true",
+        "/bundle.0123456789abcdef.js, true",
+        "/app.3f9a1c2.js, false",
+        "/app.js, false",
+        "/index.html, false",
+        "/app.3f9a1c2g.js, false",
+        "/app-3f9a1c2b.js, false",
+        "/v.3f9a1c2b/app.js, false",
+        "/3f9a1c2b.js, false"
+    })
+    @DisplayName("Only names with a content hash before the extension are cached for a year")
+    void fingerprintedNamesAreImmutable(String path, boolean immutable) {
+        // Act
+        String cacheControl = StaticAssetCache.cacheControl(path);
+        
+        // Assert
+        if (immutable) {
+            assertTrue(cacheControl.contains("immutable"), cacheControl);
+        } else {
+            assertFalse(cacheControl.contains("max-age"), cacheControl);
+            assertEquals("no-cache", cacheControl);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.service.StationService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests the events {@link StationAvailabilityFeed} sends to subscribed clients.
+ */
+@DisplayName("StationAvailabilityFeed")
+class StationAvailabilityFeedTest {
+    
+    private static final long TICK_MILLIS = 20;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final InMemoryStationRepository repository = new InMemoryStationRepository();
+    private final StationService stations = new StationService(repository, new InMemoryBikeRepository());
+    private StationAvailabilityFeed feed;
+    
+    private record Event(String name, JsonNode data) {
+    }
+    
+    @BeforeEach
+    void setUp() {
+        stations.createStation("FEED-A", "Feed A", 59.33, 18.06, 40);
+        stations.createStation("FEED-B", "Feed B", 59.34, 18.07, 40);
+        stations.addBikeToStation("FEED-A");
+        feed = new StationAvailabilityFeed(stations, MAPPER.writer(), TICK_MILLIS);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+    
+    @Test
+    @DisplayName("A new client first gets a snapshot of every station")
+    void subscribeSendsSnapshot() throws Exception {
+        // Arrange
+        FakeAsyncContext async = new FakeAsyncContext();
+        
+        // Act
+        feed.subscribe(async);
+        List<Event> events = awaitEvents(async, received -> !received.isEmpty());
+        
+        // Assert
+        Event snapshot = events.get(0);
+        assertEquals("snapshot", snapshot.name());
+        assertEquals(2, snapshot.data().size());
+        assertEquals("FEED-A", snapshot.data().get(0).get("stationId").asText());
+        assertEquals(1, snapshot.data().get(0).get("totalBikes").asInt());
+        assertEquals("FEED-B", snapshot.data().get(1).get("stationId").asText());
+        assertEquals(0, snapshot.data().get(1).get("totalBikes").asInt());
+    }
+    
+    @Test
+    @DisplayName("A burst of dock and undock changes goes out as one availability entry per station")
+    void changesAreCoalescedPerTick() throws Exception {
+        // Arrange
+        FakeAsyncContext async = new FakeAsyncContext();
+        feed.subscribe(async);
+        awaitEvents(async, received -> !received.isEmpty());
+        
+        // Act - far more changes than ticks pass while they are made
+        int changes = 0;
+        for (int i = 0; i < 10; i++) {
+            stations.addBikeToStation("FEED-A");
+            stations.addBikeToStation("FEED-A");
+            stations.removeBikeFromStation("FEED-A");
+            stations.addBikeToStation("FEED-B");
+            changes += 4;
+        }
+        List<Event> events = awaitEvents(async, received -> totalBikes(received, "FEED-A") == 11
+                && totalBikes(received, "FEED-B") == 10);
+        
+        // Assert
+        List<Event> availability = events.stream().filter(event -> event.name().equals("availability")).toList();
+        assertTrue(availability.size() < changes / 4, availability.size() + " events for " + changes + " changes");
+        for (Event event : availability) {
+            Set<String> stationIds = new HashSet<>();
+            for (JsonNode entry : event.data()) {
+                assertTrue(stationIds.add(entry.get("stationId").asText()), "One entry per station in " + event);
+            }
+        }
+    }
+    
+    @Test
+    @DisplayName("A deleted station is announced in a removed event")
+    void deletedStationIsAnnounced() throws Exception {
+        // Arrange
+        FakeAsyncContext async = new FakeAsyncContext();
+        feed.subscribe(async);
+        awaitEvents(async, received -> !received.isEmpty());
+        
+        // Act
+        repository.deleteById("FEED-B");
+        List<Event> events = awaitEvents(async, received -> received.stream().anyMatch(e -> e.name().equals("removed")));
+        
+        // Assert
+        Event removed = events.stream().filter(event -> event.name().equals("removed")).findFirst().orElseThrow();
+        assertEquals(1, removed.data().size());
+        assertEquals("FEED-B", removed.data().get(0).asText());
+    }
+    
+    @Test
+    @DisplayName("A client that stops reading is disconnected once its backlog is full, others keep going")
+    void slowClientIsDisconnected() throws Exception {
+        // Arrange - the slow client's first write, the snapshot, never finishes
+        FakeAsyncContext slow = new FakeAsyncContext();
+        slow.holdWrites();
+        FakeAsyncContext healthy = new FakeAsyncContext();
+        feed.subscribe(slow);
+        feed.subscribe(healthy);
+        
+        // Act - one change per tick, more ticks than the backlog holds
+        for (int i = 0; i < 40 && !slow.awaitCompletion(0); i++) {
+            if (i % 2 == 0) {
+                stations.addBikeToStation("FEED-B");
+            } else {
+                stations.removeBikeFromStation("FEED-B");
+            }
+            Thread.sleep(3 * TICK_MILLIS);
+        }
+        
+        // Assert
+        assertTrue(slow.awaitCompletion(5_000), "Slow client disconnected");
+        assertEquals("", slow.body());
+        slow.resumeWrites();
+        assertFalse(healthy.awaitCompletion(0));
+        stations.addBikeToStation("FEED-A");
+        awaitEvents(healthy, received -> totalBikes(received, "FEED-A") == 2);
+        assertEquals("", slow.body());
+    }
+    
+    /**
+     * Last total bike count sent for a station, or -1 if none was sent.
+     */
+    private static int totalBikes(List<Event> events, String stationId) {
+        int totalBikes = -1;
+        for (Event event : events) {
+            if (event.name().equals("snapshot") || event.name().equals("availability")) {
+                for (JsonNode entry : event.data()) {
+                    if (entry.get("stationId").asText().equals(stationId)) {
+                        totalBikes = entry.get("totalBikes").asInt();
+                    }
+                }
+            }
+        }
+        return totalBikes;
+    }
+    
+    private static List<Event> awaitEvents(FakeAsyncContext async, Predicate<List<Event>> condition)
+            throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        List<Event> events = events(async);
+        while (!condition.test(events) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(TICK_MILLIS);
+            events = events(async);
+        }
+        assertTrue(condition.test(events), "Events received: " + events);
+        return events;
+    }
+    
+    private static List<Event> events(FakeAsyncContext async) throws IOException {
+        List<Event> events = new ArrayList<>();
+        for (String block : async.body().split("\n\n")) {
+            if (block.startsWith("event: ")) {
+                String[] lines = block.split("\n", 2);
+                events.add(new Event(lines[0].substring("event: ".length()),
+                        MAPPER.readTree(lines[1].substring("data: ".length()))));
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,178 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bikeshare.service.payment.SwishPaymentService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests how {@link SwishStatusWatcher} answers held status requests as payments complete,
+ * waits run out and clients go away.
+ */
+@DisplayName("SwishStatusWatcher")
+class SwishStatusWatcherTest {
+    
+    private static final long TICK_MILLIS = 10;
+    private static final long WAIT_MILLIS = 60_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final StubSwish swish = new StubSwish();
+    private final SwishStatusWatcher watcher = new SwishStatusWatcher(swish, MAPPER.writer(), TICK_MILLIS);
+    
+    @AfterEach
+    void tearDown() {
+        watcher.close();
+    }
+    
+    @Test
+    @DisplayName("Every client waiting for a payment is answered once it completes")
+    void completedPaymentAnswersAllWaitingClients() throws Exception {
+        // Arrange
+        List<FakeAsyncContext> waiting = List.of(new FakeAsyncContext(), new FakeAsyncContext(), new FakeAsyncContext());
+        FakeAsyncContext other = new FakeAsyncContext();
+        for (FakeAsyncContext async : waiting) {
+            watcher.hold("swish-1", async, WAIT_MILLIS);
+        }
+        watcher.hold("swish-2", other, WAIT_MILLIS);
+        swish.awaitChecks("swish-1", 3);
+        
+        // Act
+        swish.paid.add("swish-1");
+        
+        // Assert
+        for (FakeAsyncContext async : waiting) {
+            assertTrue(async.awaitCompletion(5_000));
+            assertEquals(WAIT_MILLIS, async.getTimeout());
+            assertAnswered(async, true);
+        }
+        assertEquals(0, other.completions());
+        assertEquals(1, swish.peakConcurrentChecks.get(), "One check at a time, however many clients wait");
+        Thread.sleep(10 * TICK_MILLIS);
+        for (FakeAsyncContext async : waiting) {
+            assertEquals(1, async.completions());
+        }
+    }
+    
+    @Test
+    @DisplayName("A wait running out during a check is answered unpaid, and only once")
+    void timeoutDuringCheckAnswersOnce() throws Exception {
+        // Arrange - the next check blocks until released
+        FakeAsyncContext async = new FakeAsyncContext();
+        swish.blockChecks();
+        watcher.hold("swish-1", async, WAIT_MILLIS);
+        assertTrue(swish.checkStarted.await(5, TimeUnit.SECONDS));
+        
+        // Act
+        async.expire();
+        swish.paid.add("swish-1");
+        swish.releaseChecks();
+        
+        // Assert
+        assertAnswered(async, false);
+        assertEquals(1, async.completions());
+        // The payment is not stuck as being checked: a new client still gets an answer
+        FakeAsyncContext retry = new FakeAsyncContext();
+        watcher.hold("swish-1", retry, WAIT_MILLIS);
+        assertTrue(retry.awaitCompletion(5_000));
+        assertAnswered(retry, true);
+        assertEquals(1, async.completions());
+    }
+    
+    @Test
+    @DisplayName("A client that errors out is dropped and the payment is no longer checked for it")
+    void erroredClientIsReleased() throws Exception {
+        // Arrange
+        FakeAsyncContext async = new FakeAsyncContext();
+        watcher.hold("swish-1", async, WAIT_MILLIS);
+        swish.awaitChecks("swish-1", 2);
+        
+        // Act
+        async.fail(new IOException("Connection reset"));
+        int checksAtError = swish.checks("swish-1");
+        swish.paid.add("swish-1");
+        Thread.sleep(20 * TICK_MILLIS);
+        
+        // Assert - a check already running may still finish, but no new one starts
+        assertTrue(swish.checks("swish-1") <= checksAtError + 1);
+        assertEquals("", async.body());
+        assertEquals(0, async.completions());
+        assertFalse(async.awaitCompletion(0));
+    }
+    
+    private static void assertAnswered(FakeAsyncContext async, boolean paid) throws IOException {
+        assertEquals(Map.of("requestId", "swish-1", "paid", paid), MAPPER.readValue(async.body(), Map.class));
+    }
+    
+    /**
+     * Payment service whose payments complete when the test says so, counting status checks.
+     */
+    private static final class StubSwish implements SwishPaymentService {
+        final Set<String> paid = ConcurrentHashMap.newKeySet();
+        final Map<String, AtomicInteger> checks = new ConcurrentHashMap<>();
+        final AtomicInteger concurrentChecks = new AtomicInteger();
+        final AtomicInteger peakConcurrentChecks = new AtomicInteger();
+        final CountDownLatch checkStarted = new CountDownLatch(1);
+        private volatile CountDownLatch release;
+        
+        @Override
+        public String requestPayment(String phoneNumber, double amount, String message) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean isPaymentCompleted(String paymentRequestId) {
+            peakConcurrentChecks.accumulateAndGet(concurrentChecks.incrementAndGet(), Math::max);
+            try {
+                checks.computeIfAbsent(paymentRequestId, id -> new AtomicInteger()).incrementAndGet();
+                checkStarted.countDown();
+                CountDownLatch blocking = release;
+                if (blocking != null) {
+                    blocking.await(5, TimeUnit.SECONDS);
+                }
+                return paid.contains(paymentRequestId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                concurrentChecks.decrementAndGet();
+            }
+        }
+        
+        void blockChecks() {
+            release = new CountDownLatch(1);
+        }
+        
+        void releaseChecks() {
+            CountDownLatch blocking = release;
+            release = null;
+            blocking.countDown();
+        }
+        
+        int checks(String paymentRequestId) {
+            AtomicInteger count = checks.get(paymentRequestId);
+            return count != null ? count.get() : 0;
+        }
+        
+        void awaitChecks(String paymentRequestId, int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (checks(paymentRequestId) < count && System.nanoTime() < deadline) {
+                Thread.sleep(TICK_MILLIS);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.bikeshare.web;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Tests when {@link VersionedSnapshotCache} rebuilds its JSON and what concurrent callers see.
+ */
+@DisplayName("VersionedSnapshotCache")
+class VersionedSnapshotCacheTest {
+    
+    private static final ObjectWriter WRITER = new ObjectMapper().writer();
+    
+    private final AtomicLong version = new AtomicLong(1);
+    private final AtomicInteger builds = new AtomicInteger();
+    
+    @Test
+    @DisplayName("The view is rebuilt only when the version moves")
+    void rebuildsOnlyWhenVersionMoves() throws Exception {
+        // Arrange
+        VersionedSnapshotCache cache = new VersionedSnapshotCache(version::get,
+                () -> Map.of("build", builds.incrementAndGet()), WRITER);
+        
+        // Act
+        byte[] first = cache.get();
+        byte[] second = cache.get();
+        version.incrementAndGet();
+        byte[] third = cache.get();
+        byte[] fourth = cache.get();
+        
+        // Assert
+        assertSame(first, second);
+        assertSame(third, fourth);
+        assertEquals(2, builds.get());
+        assertEquals("{\"build\":2}", new String(third, StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    @DisplayName("Callers arriving during a rebuild wait for it and share its result")
+    void concurrentCallersShareOneRebuild() throws Exception {
+        // Arrange - the first build blocks until every caller has asked
+        int callers = 16;
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VersionedSnapshotCache cache = new VersionedSnapshotCache(version::get, () -> {
+            building.countDown();
+            await(release);
+            return Map.of("build", builds.incrementAndGet());
+        }, WRITER);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        
+        try {
+            // Act
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(cache::get));
+            }
+            assertTrue(building.await(5, TimeUnit.SECONDS));
+            // Give the other callers time to queue behind the rebuild before it completes
+            Thread.sleep(200);
+            release.countDown();
+            
+            // Assert
+            byte[] shared = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertSame(shared, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, builds.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test
+    @DisplayName("A source without a version is serialized on every request")
+    void untrackedSourceIsSerializedPerRequest() throws Exception {
+        // Arrange
+        version.set(-1);
+        VersionedSnapshotCache cache = new VersionedSnapshotCache(version::get,
+                () -> Map.of("answer", builds.incrementAndGet() > 0), WRITER);
+        
+        // Act
+        byte[] first = cache.get();
+        byte[] second = cache.get();
+        byte[] third = cache.get();
+        
+        // Assert
+        assertNotSame(first, second);
+        assertArrayEquals(first, third);
+        assertEquals(3, builds.get());
+    }
+    
+    @Test
+    @DisplayName("A change made while the view is built is picked up by the next request")
+    void changeDuringRebuildIsNotServedStale() throws Exception {
+        // Arrange - the view reads the data, then a concurrent writer changes it
+        AtomicReference<String> data = new AtomicReference<>("before");
+        VersionedSnapshotCache cache = new VersionedSnapshotCache(version::get, () -> {
+            String read = data.get();
+            if (builds.incrementAndGet() == 1) {
+                data.set("after");
+                version.incrementAndGet();
+            }
+            return Map.of("data", read);
+        }, WRITER);
+        
+        // Act
+        byte[] during = cache.get();
+        byte[] next = cache.get();
+        byte[] settled = cache.get();
+        
+        // Assert
+        assertEquals("{\"data\":\"before\"}", new String(during, StandardCharsets.UTF_8));
+        assertEquals("{\"data\":\"after\"}", new String(next, StandardCharsets.UTF_8));
+        assertSame(next, settled);
+        assertEquals(2, builds.get());
+    }
+    
+    @Test
+    @DisplayName("Combined versions add up and fall back to -1 if any source is untracked")
+    void combinedVersions() {
+        // Arrange
+        AtomicLong other = new AtomicLong(5);
+        
+        // Act & Assert
+        assertEquals(6, VersionedSnapshotCache.combined(version::get, other::get).getAsLong());
+        other.set(-1);
+        assertEquals(-1, VersionedSnapshotCache.combined(version::get, other::get).getAsLong());
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}